@@ -8,7 +8,7 @@ echo "Compilation du projet Morpion..."
 mkdir -p bin
 
 # Compiler tous les fichiers Java
-javac -d bin src/common/*.java src/server/*.java src/client/*.java
+javac -encoding UTF-8 -d bin src/common/*.java src/ai/*.java src/journal/*.java src/server/*.java src/client/*.java src/test/*.java
 
 if [ $? -eq 0 ]; then
     echo "Compilation réussie!"
@@ -22,6 +22,9 @@ if [ $? -eq 0 ]; then
     echo "Ou utilisez directement les commandes Java:"
     echo "  java -cp bin server.TicTacToeServer"
     echo "  java -cp bin client.TicTacToeClient"
+    echo ""
+    echo "Les tests sont compilés avec (voir README.md):"
+    echo "  java -cp bin test.GameTest"
 else
     echo "Erreur de compilation!"
     exit 1
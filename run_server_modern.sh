@@ -19,4 +19,4 @@ echo "💡 Utilisez Ctrl+C pour arrêter le serveur"
 echo ""
 echo "════════════════════════════════════════════"
 
-java -cp bin server.TicTacToeServer
+java -cp bin server.TicTacToeServer "$@"
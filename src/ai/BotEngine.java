@@ -0,0 +1,49 @@
+package ai;
+
+import common.TicTacToeGame;
+
+/**
+ * Moteur de jeu d'un robot adverse : il choisit un coup pour le joueur au
+ * trait. La partie lui appartient le temps de l'appel (il peut y jouer des
+ * coups tant qu'il les annule) ; l'appelant lui en passe une copie s'il la
+ * partage avec d'autres fils.
+ */
+public interface BotEngine {
+    
+    /** Niveau du robot : probabilité de jouer un coup au hasard plutôt que le coup cherché */
+    enum Difficulty {
+        EASY(0.5), MEDIUM(0.2), PERFECT(0.0);
+        
+        private final double mistakeRate;
+        
+        Difficulty(double mistakeRate) {
+            this.mistakeRate = mistakeRate;
+        }
+        
+        public double getMistakeRate() { return mistakeRate; }
+    }
+    
+    /**
+     * Case choisie pour le joueur au trait (ligne * colonnes + colonne),
+     * -1 si la partie est terminée
+     */
+    int chooseMove(TicTacToeGame game);
+    
+    /**
+     * Comme {@link #chooseMove(TicTacToeGame)}, en répondant au plus tard à
+     * l'échéance deadline (en System.nanoTime()) ; un moteur qui ne cherche
+     * pas peut l'ignorer
+     */
+    default int chooseMove(TicTacToeGame game, long deadline) {
+        return chooseMove(game);
+    }
+    
+    /**
+     * Fils occupés en même temps par une recherche de coup
+     */
+    default int getParallelism() {
+        return 1;
+    }
+    
+    Difficulty getDifficulty();
+}
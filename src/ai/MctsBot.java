@@ -0,0 +1,409 @@
+package ai;
+
+import common.BitboardGame;
+import common.TicTacToeGame;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Robot adverse pour les grands plateaux, où le jeu parfait est hors de
+ * portée : recherche arborescente de Monte-Carlo (UCT) jouée directement sur
+ * {@link TicTacToeGame} (coups joués puis annulés, fin de partie détectée par
+ * la partie elle-même).
+ *
+ * La recherche est parallélisée à la racine : chaque fil construit son propre
+ * arbre sur sa propre copie de la partie, sans rien partager pendant la
+ * recherche, et les visites des coups de la racine sont additionnées à la fin.
+ * Le fil appelant cherche lui-même ; les autres recherches sont confiées au
+ * {@link ForkJoinPool} donné, et celles qui n'ont pas rendu leur résultat à
+ * l'échéance sont ignorées : le coup est toujours choisi dans le temps imparti.
+ *
+ * Les nœuds d'un arbre sont rangés dans des tableaux d'entiers, alloués une
+ * fois par fil et réutilisés d'un coup à l'autre. Sur un grand plateau, seuls
+ * les coups à deux cases au plus d'un symbole déjà posé sont explorés ; sur le
+ * Morpion 3x3, les parties simulées se jouent sur un {@link BitboardGame}.
+ *
+ * Avant toute recherche, le robot joue le coup qui gagne aussitôt, ou à défaut
+ * celui qui pare une victoire immédiate de l'adversaire : ces coups forcés ne
+ * dépendent ni du temps de réflexion ni du hasard des simulations.
+ */
+public class MctsBot implements BotEngine {
+    /** Nœuds au plus dans l'arbre de chaque fil (un arbre plein n'est plus développé) */
+    public static final int NODE_CAPACITY = 1 << 16;
+    
+    // Constante d'exploration de UCT (résultats entre 0 et 1)
+    private static final double EXPLORATION = 1.0;
+    // Échéance relue toutes les 2^n itérations seulement
+    private static final int DEADLINE_CHECK_MASK = 7;
+    
+    // Arbre de chaque fil, réutilisé d'une recherche à l'autre
+    private static final ThreadLocal<Tree> TREES = ThreadLocal.withInitial(Tree::new);
+    
+    private final ForkJoinPool pool;
+    private final int workers;
+    private final long budgetNanos;
+    private final Difficulty difficulty;
+    private final LongAdder playouts = new LongAdder();
+    private final LongAdder searchNanos = new LongAdder();
+    
+    /**
+     * @param pool fils des recherches parallèles
+     * @param workers recherches parallèles par coup, celle du fil appelant comprise
+     * @param budgetMillis temps de réflexion par coup
+     */
+    public MctsBot(ForkJoinPool pool, int workers, long budgetMillis, Difficulty difficulty) {
+        if (workers < 1 || budgetMillis < 1) {
+            throw new IllegalArgumentException("Recherche invalide: " + workers + " fils, " + budgetMillis + " ms");
+        }
+        this.pool = pool;
+        this.workers = workers;
+        this.budgetNanos = TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+        this.difficulty = difficulty;
+    }
+    
+    @Override
+    public int chooseMove(TicTacToeGame game) {
+        return chooseMove(game, Long.MAX_VALUE);
+    }
+    
+    /**
+     * Cherche jusqu'à la fin du temps de réflexion, ou jusqu'à l'échéance si elle est plus proche
+     */
+    @Override
+    public int chooseMove(TicTacToeGame game, long deadline) {
+        if (game.isGameWon()) {
+            return -1;
+        }
+        long start = System.nanoTime();
+        // Comparaison par différence : System.nanoTime() peut déborder
+        if (deadline == Long.MAX_VALUE || deadline - start > budgetNanos) {
+            deadline = start + budgetNanos;
+        }
+        long end = deadline;
+        Tree own = TREES.get();
+        int count = own.candidates(game);
+        if (count == 1) {
+            return own.candidates[0];
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (difficulty.getMistakeRate() > 0 && random.nextDouble() < difficulty.getMistakeRate()) {
+            return own.candidates[random.nextInt(count)];
+        }
+        int forced = forcedMove(game, own.candidates, count);
+        if (forced >= 0) {
+            return forced;
+        }
+        
+        List<ForkJoinTask<int[]>> tasks = new ArrayList<>(workers - 1);
+        for (int i = 0; i < workers - 1; i++) {
+            TicTacToeGame copy = new TicTacToeGame(game);
+            tasks.add(pool.submit(() -> search(TREES.get(), copy, end)));
+        }
+        int[] visits = search(own, new TicTacToeGame(game), end);
+        
+        for (ForkJoinTask<int[]> task : tasks) {
+            try {
+                // Un peu de marge pour les fils qui finissent leur dernière itération
+                int[] other = task.get(Math.max(0, end - System.nanoTime()) + budgetNanos / 20, TimeUnit.NANOSECONDS);
+                for (int cell = 0; cell < visits.length; cell++) {
+                    visits[cell] += other[cell];
+                }
+            } catch (TimeoutException | ExecutionException e) {
+                // Pool trop chargé : cette recherche n'a pas pu se faire à temps
+                task.cancel(false);
+            } catch (InterruptedException e) {
+                task.cancel(false);
+                Thread.currentThread().interrupt();
+            }
+        }
+        
+        int best = -1;
+        for (int cell = 0; cell < visits.length; cell++) {
+            if (visits[cell] > 0 && (best < 0 || visits[cell] > visits[best])) {
+                best = cell;
+            }
+        }
+        return best;
+    }
+    
+    @Override
+    public Difficulty getDifficulty() {
+        return difficulty;
+    }
+    
+    @Override
+    public int getParallelism() {
+        return workers;
+    }
+    
+    /** Parties simulées depuis la création du robot, tous fils confondus */
+    public long getPlayouts() { return playouts.sum(); }
+    
+    /**
+     * Parties simulées par seconde de recherche d'un fil : multiplié par le
+     * nombre de cœurs, le débit dont un serveur dispose pour ses robots
+     */
+    public long getPlayoutsPerSecond() {
+        long nanos = searchNanos.sum();
+        return (nanos == 0) ? 0 : playouts.sum() * 1_000_000_000L / nanos;
+    }
+    
+    /** Temps de réflexion par coup, en millisecondes */
+    public long getBudgetMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(budgetNanos);
+    }
+    
+    /**
+     * Premier coup parmi les candidats qui gagne aussitôt, sinon premier coup
+     * qui empêche l'adversaire de gagner au coup suivant ; -1 s'il n'y en a aucun.
+     * Une case gagnante touche toujours un symbole posé : elle est parmi les candidats.
+     */
+    private static int forcedMove(TicTacToeGame game, int[] candidates, int count) {
+        char player = game.getCurrentPlayer();
+        char opponent = (player == 'X') ? 'O' : 'X';
+        int cols = game.getCols();
+        int block = -1;
+        for (int i = 0; i < count; i++) {
+            int cell = candidates[i];
+            if (game.isWinningMove(cell / cols, cell % cols, player)) {
+                return cell;
+            }
+            if (block < 0 && game.isWinningMove(cell / cols, cell % cols, opponent)) {
+                block = cell;
+            }
+        }
+        return block;
+    }
+    
+    /**
+     * Une recherche jusqu'à l'échéance sur l'arbre d'un fil ; retourne les
+     * visites de chaque coup de la racine, indexées par case
+     */
+    private int[] search(Tree tree, TicTacToeGame game, long deadline) {
+        long start = System.nanoTime();
+        tree.reset(game);
+        int iterations = 0;
+        // Au moins une itération, même si l'échéance est déjà passée
+        do {
+            tree.iterate(game);
+            iterations++;
+        } while ((iterations & DEADLINE_CHECK_MASK) != 0 || System.nanoTime() < deadline);
+        playouts.add(iterations);
+        searchNanos.add(System.nanoTime() - start);
+        return tree.rootVisits(game.getRows() * game.getCols());
+    }
+    
+    /**
+     * Arbre de recherche d'un fil : un nœud est un indice dans les tableaux,
+     * ses enfants sont rangés côte à côte à partir de firstChild
+     */
+    private static final class Tree {
+        final int[] move = new int[NODE_CAPACITY];
+        final int[] firstChild = new int[NODE_CAPACITY];
+        // -1 tant que le nœud n'est pas développé
+        final int[] childCount = new int[NODE_CAPACITY];
+        final int[] visits = new int[NODE_CAPACITY];
+        // Demi-points du joueur qui a joué le coup menant au nœud : 2 par victoire, 1 par nul
+        final int[] score = new int[NODE_CAPACITY];
+        int size;
+        char rootPlayer;
+        
+        // Tampons réutilisés, dimensionnés pour le plus grand plateau
+        final int[] path = new int[TicTacToeGame.MAX_SIZE * TicTacToeGame.MAX_SIZE + 1];
+        final int[] played = new int[TicTacToeGame.MAX_SIZE * TicTacToeGame.MAX_SIZE];
+        final int[] candidates = new int[TicTacToeGame.MAX_SIZE * TicTacToeGame.MAX_SIZE];
+        final int[] marks = new int[TicTacToeGame.MAX_SIZE * TicTacToeGame.MAX_SIZE];
+        int markGeneration;
+        // Parties simulées du Morpion 3x3
+        final BitboardGame rollout = new BitboardGame();
+        
+        void reset(TicTacToeGame game) {
+            size = 0;
+            rootPlayer = game.getCurrentPlayer();
+            newNode(-1);
+        }
+        
+        int newNode(int cell) {
+            int node = size++;
+            move[node] = cell;
+            childCount[node] = -1;
+            visits[node] = 0;
+            score[node] = 0;
+            return node;
+        }
+        
+        /**
+         * Sélection, développement, simulation et rétropropagation ; la partie
+         * est rendue dans l'état où elle a été reçue
+         */
+        void iterate(TicTacToeGame game) {
+            int cols = game.getCols();
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int depth = 0;
+            int movesPlayed = 0;
+            int node = 0;
+            path[depth++] = node;
+            
+            // Sélection : descendre par les enfants développés
+            while (!game.isGameWon() && childCount[node] > 0) {
+                node = select(node);
+                game.makeMove(move[node] / cols, move[node] % cols, game.getCurrentPlayer());
+                played[movesPlayed++] = move[node];
+                path[depth++] = node;
+            }
+            
+            // Développement : créer les enfants d'une feuille déjà visitée (ou de la racine)
+            if (!game.isGameWon() && childCount[node] < 0 && (visits[node] > 0 || node == 0)) {
+                int count = candidates(game);
+                if (size + count <= NODE_CAPACITY) {
+                    firstChild[node] = size;
+                    childCount[node] = count;
+                    for (int i = 0; i < count; i++) {
+                        newNode(candidates[i]);
+                    }
+                    node = firstChild[node] + random.nextInt(count);
+                    game.makeMove(move[node] / cols, move[node] % cols, game.getCurrentPlayer());
+                    played[movesPlayed++] = move[node];
+                    path[depth++] = node;
+                }
+            }
+            
+            // Simulation : coups au hasard parmi les cases libres jusqu'à la fin
+            char winner;
+            if (!game.isGameWon() && BitboardGame.fits(game)) {
+                winner = simulate3x3(game, random);
+            } else {
+                int empty = 0;
+                if (!game.isGameWon()) {
+                    for (int cell = 0; cell < game.getRows() * cols; cell++) {
+                        if (game.getCell(cell / cols, cell % cols) == ' ') {
+                            candidates[empty++] = cell;
+                        }
+                    }
+                }
+                while (!game.isGameWon()) {
+                    int pick = random.nextInt(empty);
+                    int cell = candidates[pick];
+                    candidates[pick] = candidates[--empty];
+                    game.makeMove(cell / cols, cell % cols, game.getCurrentPlayer());
+                    played[movesPlayed++] = cell;
+                }
+                winner = game.getWinner();
+            }
+            
+            // Rétropropagation : le nœud de profondeur impaire a été joué par le joueur de la racine
+            char opponent = (rootPlayer == 'X') ? 'O' : 'X';
+            for (int d = 0; d < depth; d++) {
+                int n = path[d];
+                visits[n]++;
+                if (winner == 'D') {
+                    score[n] += 1;
+                } else if (winner == ((d % 2 == 1) ? rootPlayer : opponent)) {
+                    score[n] += 2;
+                }
+            }
+            
+            while (movesPlayed > 0) {
+                int cell = played[--movesPlayed];
+                game.undoMove(cell / cols, cell % cols);
+            }
+        }
+        
+        /**
+         * Fin au hasard d'une partie 3x3 sur les masques d'une copie de la
+         * position, sans toucher à la partie ; retourne son gagnant
+         */
+        char simulate3x3(TicTacToeGame game, ThreadLocalRandom random) {
+            rollout.restore(BitboardGame.pack(game));
+            while (!rollout.isGameWon()) {
+                int empty = rollout.getEmptyMask();
+                for (int skip = random.nextInt(Integer.bitCount(empty)); skip > 0; skip--) {
+                    empty &= empty - 1;
+                }
+                rollout.makeMove(Integer.numberOfTrailingZeros(empty), rollout.getCurrentPlayer());
+            }
+            return rollout.getWinner();
+        }
+        
+        /**
+         * Enfant de meilleure borne UCT ; un enfant jamais visité passe en premier
+         */
+        int select(int node) {
+            int first = firstChild[node];
+            int last = first + childCount[node];
+            double logParent = Math.log(visits[node]);
+            int best = first;
+            double bestValue = -1;
+            for (int child = first; child < last; child++) {
+                int n = visits[child];
+                if (n == 0) {
+                    return child;
+                }
+                double value = score[child] / (2.0 * n) + EXPLORATION * Math.sqrt(logParent / n);
+                if (value > bestValue) {
+                    bestValue = value;
+                    best = child;
+                }
+            }
+            return best;
+        }
+        
+        /**
+         * Coups à explorer, rangés dans candidates : toutes les cases libres d'un
+         * petit plateau ; sur un grand, celles à deux cases au plus d'un symbole
+         * (la case centrale sur un plateau vide)
+         */
+        int candidates(TicTacToeGame game) {
+            int rows = game.getRows();
+            int cols = game.getCols();
+            int count = 0;
+            if (game.getMoveCount() == 0) {
+                candidates[count++] = (rows / 2) * cols + cols / 2;
+                return count;
+            }
+            if (rows * cols <= 16) {
+                for (int cell = 0; cell < rows * cols; cell++) {
+                    if (game.getCell(cell / cols, cell % cols) == ' ') {
+                        candidates[count++] = cell;
+                    }
+                }
+                return count;
+            }
+            markGeneration++;
+            for (int row = 0; row < rows; row++) {
+                for (int col = 0; col < cols; col++) {
+                    if (game.getCell(row, col) == ' ') {
+                        continue;
+                    }
+                    for (int r = Math.max(0, row - 2); r <= Math.min(rows - 1, row + 2); r++) {
+                        for (int c = Math.max(0, col - 2); c <= Math.min(cols - 1, col + 2); c++) {
+                            int cell = r * cols + c;
+                            if (marks[cell] != markGeneration && game.getCell(r, c) == ' ') {
+                                marks[cell] = markGeneration;
+                                candidates[count++] = cell;
+                            }
+                        }
+                    }
+                }
+            }
+            return count;
+        }
+        
+        int[] rootVisits(int cells) {
+            int[] result = new int[cells];
+            if (childCount[0] > 0) {
+                for (int child = firstChild[0]; child < firstChild[0] + childCount[0]; child++) {
+                    result[move[child]] = visits[child];
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package ai;
+
+import common.BitboardGame;
+import common.TicTacToeGame;
+
+/**
+ * Table des coups parfaits pour toutes les positions atteignables du Morpion
+ * 3x3 (5 478 positions, position initiale et fins de partie comprises).
+ *
+ * Elle est construite une seule fois, par le {@link Solver} (alpha-bêta et
+ * table de transposition aux symétries près), en parcourant les positions sur
+ * un {@link BitboardGame} ; le choix d'un coup n'est ensuite qu'une lecture de
+ * tableau, sans aucune recherche.
+ *
+ * Une position est codée en base 3, une case par chiffre (0 vide, 1 X, 2 O),
+ * la case ligne * 3 + colonne étant le chiffre de poids 3^(ligne * 3 + colonne).
+ */
+public final class PerfectPlayTable {
+    public static final int CELLS = 9;
+    /** Nombre de codes de position possibles (3^9) */
+    public static final int POSITIONS = 19683;
+    
+    private static final int[] POW3 = new int[CELLS];
+    // Somme des 3^case des cases de chacun des 512 masques d'un joueur
+    private static final int[] BASE3 = new int[1 << CELLS];
+    static {
+        POW3[0] = 1;
+        for (int i = 1; i < CELLS; i++) {
+            POW3[i] = POW3[i - 1] * 3;
+        }
+        for (int mask = 1; mask < BASE3.length; mask++) {
+            int cell = Integer.numberOfTrailingZeros(mask);
+            BASE3[mask] = BASE3[mask & (mask - 1)] + POW3[cell];
+        }
+    }
+    
+    // Masque des coups optimaux de chaque position (0 si non atteignable ou terminée)
+    private final short[] bestMoves = new short[POSITIONS];
+    private final boolean[] reached = new boolean[POSITIONS];
+    private final Solver solver;
+    private int reachable;
+    
+    private PerfectPlayTable(Solver solver) {
+        this.solver = solver;
+    }
+    
+    /**
+     * Construit la table en explorant toutes les positions atteignables depuis la grille vide
+     */
+    public static PerfectPlayTable build() {
+        return build(new TranspositionTable(14));
+    }
+    
+    /**
+     * Construit la table en partageant une table de transposition existante
+     */
+    public static PerfectPlayTable build(TranspositionTable transpositions) {
+        PerfectPlayTable table = new PerfectPlayTable(new Solver(transpositions));
+        table.explore(new BitboardGame(), 0);
+        return table;
+    }
+    
+    /**
+     * Code d'une position de partie 3x3
+     */
+    public static int encode(TicTacToeGame game) {
+        int code = 0;
+        for (int cell = 0; cell < CELLS; cell++) {
+            char symbol = game.getCell(cell / 3, cell % 3);
+            if (symbol != ' ') {
+                code += digit(symbol) * POW3[cell];
+            }
+        }
+        return code;
+    }
+    
+    /**
+     * Code d'une position sur masques de bits, sans parcourir les cases
+     */
+    public static int encode(BitboardGame game) {
+        return BASE3[game.getXMask()] + 2 * BASE3[game.getOMask()];
+    }
+    
+    /**
+     * Cases libres d'une position, un bit par case
+     */
+    public static int emptyCells(int position) {
+        int mask = 0;
+        for (int cell = 0; cell < CELLS; cell++) {
+            if (position % 3 == 0) {
+                mask |= 1 << cell;
+            }
+            position /= 3;
+        }
+        return mask;
+    }
+    
+    /**
+     * Coups optimaux pour le joueur au trait, un bit par case (0 si la partie est terminée)
+     */
+    public int bestMoves(int position) {
+        return bestMoves[position];
+    }
+    
+    /** Nombre de positions atteignables trouvées à la construction */
+    public int getReachablePositions() { return reachable; }
+    
+    /** Nœuds visités par la recherche alpha-bêta pendant la construction */
+    public long getSearchedNodes() { return solver.getNodes(); }
+    
+    /**
+     * Parcourt les positions atteignables et note pour chacune les coups de meilleure valeur
+     */
+    private void explore(BitboardGame game, int code) {
+        if (reached[code]) {
+            return;
+        }
+        reached[code] = true;
+        reachable++;
+        if (game.isGameWon()) {
+            return;
+        }
+        
+        char player = game.getCurrentPlayer();
+        int best = Integer.MIN_VALUE;
+        int mask = 0;
+        for (int empty = game.getEmptyMask(); empty != 0; empty &= empty - 1) {
+            int cell = Integer.numberOfTrailingZeros(empty);
+            game.makeMove(cell, player);
+            int value = -solver.solve(game);
+            game.undoMove(cell);
+            if (value > best) {
+                best = value;
+                mask = 1 << cell;
+            } else if (value == best) {
+                mask |= 1 << cell;
+            }
+        }
+        bestMoves[code] = (short) mask;
+        
+        for (int empty = game.getEmptyMask(); empty != 0; empty &= empty - 1) {
+            int cell = Integer.numberOfTrailingZeros(empty);
+            game.makeMove(cell, player);
+            explore(game, code + digit(player) * POW3[cell]);
+            game.undoMove(cell);
+        }
+    }
+    
+    private static int digit(char symbol) {
+        return (symbol == 'X') ? 1 : 2;
+    }
+}
@@ -0,0 +1,283 @@
+package ai;
+
+import common.BitboardGame;
+import common.Symmetry;
+import common.TicTacToeGame;
+import java.util.Arrays;
+
+/**
+ * Recherche minimax avec élagage alpha-bêta sur n'importe quelle règle de
+ * {@link TicTacToeGame}, jouée directement sur la partie (coups joués puis
+ * annulés). Les positions déjà cherchées, à une symétrie près, sont reprises
+ * dans une {@link TranspositionTable} qui peut être partagée avec d'autres
+ * recherches ; le meilleur coup qui y est gardé est essayé en premier.
+ *
+ * Une valeur est donnée du point de vue du joueur au trait : positive s'il
+ * gagne, d'autant plus grande que la victoire est proche ; négative s'il perd ;
+ * 0 pour un match nul ou une issue au-delà de la profondeur cherchée.
+ *
+ * Sur le Morpion 3x3, la recherche se fait sur un {@link BitboardGame} : une
+ * victoire se lit dans une table, et une position canonique est un entier
+ * (ses clés dans la table de transposition sont marquées par {@link #BITBOARD_KEY}).
+ *
+ * Un solveur n'est utilisé que par un fil à la fois ; la table, elle, peut
+ * être partagée entre plusieurs solveurs.
+ */
+public final class Solver {
+    /** Marque des clés de positions 3x3, distinctes des hachages de Zobrist à une probabilité près négligeable */
+    public static final long BITBOARD_KEY = 0x5B17B0A2D0000000L;
+    
+    // Cases du plateau 3x3 du centre vers les bords, dans l'ordre de prepareOrder
+    private static final int[] BITBOARD_ORDER = {4, 0, 1, 2, 3, 5, 6, 7, 8};
+    
+    private final TranspositionTable table;
+    private final BitboardGame bitboard = new BitboardGame();
+    // Cases dans l'ordre où les essayer (du centre vers les bords), pour la règle en cours
+    private int[] order = new int[0];
+    private int orderRows;
+    private int orderCols;
+    private long nodes;
+    
+    public Solver(TranspositionTable table) {
+        this.table = table;
+    }
+    
+    /**
+     * Valeur exacte de la position, en cherchant jusqu'à la fin de la partie
+     */
+    public int solve(TicTacToeGame game) {
+        return search(game, remainingMoves(game), -Integer.MAX_VALUE, Integer.MAX_VALUE);
+    }
+    
+    /**
+     * Valeur de la position cherchée sur depth coups au plus. Hors de la fenêtre
+     * ]alpha, beta[, le résultat n'est qu'une borne de la valeur.
+     */
+    public int search(TicTacToeGame game, int depth, int alpha, int beta) {
+        if (BitboardGame.fits(game)) {
+            bitboard.restore(BitboardGame.pack(game));
+            return negamax(bitboard, depth, alpha, beta);
+        }
+        prepareOrder(game);
+        return negamax(game, depth, alpha, beta);
+    }
+    
+    /**
+     * Valeur exacte d'une position 3x3, cherchée directement sur ses masques
+     */
+    public int solve(BitboardGame game) {
+        return negamax(game, BitboardGame.CELLS - game.getMoveCount(), -Integer.MAX_VALUE, Integer.MAX_VALUE);
+    }
+    
+    /**
+     * Meilleur coup pour le joueur au trait (ligne * colonnes + colonne),
+     * cherché sur depth coups au plus ; -1 si la partie est terminée
+     */
+    public int bestMove(TicTacToeGame game, int depth) {
+        if (game.isGameWon()) {
+            return -1;
+        }
+        if (BitboardGame.fits(game)) {
+            bitboard.restore(BitboardGame.pack(game));
+            return bestMove(bitboard, depth);
+        }
+        prepareOrder(game);
+        int cols = game.getCols();
+        char player = game.getCurrentPlayer();
+        int best = -1;
+        int alpha = -Integer.MAX_VALUE;
+        for (int cell : order) {
+            if (!game.makeMove(cell / cols, cell % cols, player)) {
+                continue;
+            }
+            int value = -negamax(game, depth - 1, -Integer.MAX_VALUE, -alpha);
+            game.undoMove(cell / cols, cell % cols);
+            if (value > alpha || best < 0) {
+                alpha = value;
+                best = cell;
+            }
+        }
+        return best;
+    }
+    
+    private int bestMove(BitboardGame game, int depth) {
+        char player = game.getCurrentPlayer();
+        int best = -1;
+        int alpha = -Integer.MAX_VALUE;
+        for (int cell : BITBOARD_ORDER) {
+            if (!game.makeMove(cell, player)) {
+                continue;
+            }
+            int value = -negamax(game, depth - 1, -Integer.MAX_VALUE, -alpha);
+            game.undoMove(cell);
+            if (value > alpha || best < 0) {
+                alpha = value;
+                best = cell;
+            }
+        }
+        return best;
+    }
+    
+    /** Nœuds visités depuis la création du solveur */
+    public long getNodes() { return nodes; }
+    
+    public TranspositionTable getTable() { return table; }
+    
+    /**
+     * Nombre de coups qui restent au plus avant la fin de la partie
+     */
+    public static int remainingMoves(TicTacToeGame game) {
+        return game.getRows() * game.getCols() - game.getMoveCount();
+    }
+    
+    private int negamax(TicTacToeGame game, int depth, int alpha, int beta) {
+        nodes++;
+        if (game.isGameWon()) {
+            // Le joueur précédent vient de gagner, ou la grille est pleine
+            return (game.getWinner() == 'D') ? 0 : -(game.getRows() * game.getCols() + 1 - game.getMoveCount());
+        }
+        if (depth <= 0) {
+            return 0;
+        }
+        
+        int rows = game.getRows();
+        int cols = game.getCols();
+        long key = game.getCanonicalHash();
+        int symmetry = game.getCanonicalSymmetry();
+        int hashMove = -1;
+        long entry = table.probe(key);
+        if (entry != 0) {
+            int move = TranspositionTable.move(entry);
+            if (move != TranspositionTable.NO_MOVE) {
+                hashMove = Symmetry.apply(Symmetry.inverse(symmetry), move / cols, move % cols, rows, cols);
+            }
+            if (TranspositionTable.depth(entry) >= depth) {
+                int value = TranspositionTable.value(entry);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT
+                        || (bound == TranspositionTable.LOWER && value >= beta)
+                        || (bound == TranspositionTable.UPPER && value <= alpha)) {
+                    return value;
+                }
+            }
+        }
+        
+        int originalAlpha = alpha;
+        char player = game.getCurrentPlayer();
+        int best = -Integer.MAX_VALUE;
+        int bestCell = -1;
+        for (int i = -1; i < order.length && alpha < beta; i++) {
+            // Le coup de la table d'abord, puis les autres dans l'ordre habituel
+            int cell = (i < 0) ? hashMove : order[i];
+            if (cell < 0 || (i >= 0 && cell == hashMove)) {
+                continue;
+            }
+            if (!game.makeMove(cell / cols, cell % cols, player)) {
+                continue;
+            }
+            int value = -negamax(game, depth - 1, -beta, -alpha);
+            game.undoMove(cell / cols, cell % cols);
+            if (value > best) {
+                best = value;
+                bestCell = cell;
+            }
+            alpha = Math.max(alpha, value);
+        }
+        
+        int bound = (best <= originalAlpha) ? TranspositionTable.UPPER
+                : (best >= beta) ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+        int canonicalMove = Symmetry.apply(symmetry, bestCell / cols, bestCell % cols, rows, cols);
+        table.store(key, best, depth, bound, canonicalMove);
+        return best;
+    }
+    
+    /**
+     * Même recherche que sur {@link TicTacToeGame}, sur les masques d'une partie 3x3
+     */
+    private int negamax(BitboardGame game, int depth, int alpha, int beta) {
+        nodes++;
+        if (game.isGameWon()) {
+            return (game.getWinner() == 'D') ? 0 : -(BitboardGame.CELLS + 1 - game.getMoveCount());
+        }
+        if (depth <= 0) {
+            return 0;
+        }
+        
+        int symmetry = game.getCanonicalSymmetry();
+        long key = BITBOARD_KEY | game.getCanonicalPosition();
+        int hashMove = -1;
+        long entry = table.probe(key);
+        if (entry != 0) {
+            int move = TranspositionTable.move(entry);
+            if (move != TranspositionTable.NO_MOVE) {
+                hashMove = Symmetry.apply(Symmetry.inverse(symmetry), move / BitboardGame.SIZE, move % BitboardGame.SIZE,
+                        BitboardGame.SIZE, BitboardGame.SIZE);
+            }
+            if (TranspositionTable.depth(entry) >= depth) {
+                int value = TranspositionTable.value(entry);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT
+                        || (bound == TranspositionTable.LOWER && value >= beta)
+                        || (bound == TranspositionTable.UPPER && value <= alpha)) {
+                    return value;
+                }
+            }
+        }
+        
+        int originalAlpha = alpha;
+        char player = game.getCurrentPlayer();
+        int best = -Integer.MAX_VALUE;
+        int bestCell = -1;
+        for (int i = -1; i < BITBOARD_ORDER.length && alpha < beta; i++) {
+            int cell = (i < 0) ? hashMove : BITBOARD_ORDER[i];
+            if (cell < 0 || (i >= 0 && cell == hashMove)) {
+                continue;
+            }
+            if (!game.makeMove(cell, player)) {
+                continue;
+            }
+            int value = -negamax(game, depth - 1, -beta, -alpha);
+            game.undoMove(cell);
+            if (value > best) {
+                best = value;
+                bestCell = cell;
+            }
+            alpha = Math.max(alpha, value);
+        }
+        
+        int bound = (best <= originalAlpha) ? TranspositionTable.UPPER
+                : (best >= beta) ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+        int canonicalMove = Symmetry.apply(symmetry, bestCell / BitboardGame.SIZE, bestCell % BitboardGame.SIZE,
+                BitboardGame.SIZE, BitboardGame.SIZE);
+        table.store(key, best, depth, bound, canonicalMove);
+        return best;
+    }
+    
+    /**
+     * Ordre des cases pour la règle de la partie, recalculé si elle change
+     */
+    private void prepareOrder(TicTacToeGame game) {
+        int rows = game.getRows();
+        int cols = game.getCols();
+        if (rows == orderRows && cols == orderCols) {
+            return;
+        }
+        Integer[] cells = new Integer[rows * cols];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = i;
+        }
+        // Distance au centre, en demi-cases pour rester entière
+        Arrays.sort(cells, (a, b) -> Integer.compare(
+                centerDistance(a, rows, cols), centerDistance(b, rows, cols)));
+        order = new int[cells.length];
+        for (int i = 0; i < cells.length; i++) {
+            order[i] = cells[i];
+        }
+        orderRows = rows;
+        orderCols = cols;
+    }
+    
+    private static int centerDistance(int cell, int rows, int cols) {
+        return Math.max(Math.abs(2 * (cell / cols) - (rows - 1)), Math.abs(2 * (cell % cols) - (cols - 1)));
+    }
+}
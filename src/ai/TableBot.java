@@ -0,0 +1,67 @@
+package ai;
+
+import common.BitboardGame;
+import common.TicTacToeGame;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Robot adverse sur plateau 3x3 : il joue un coup de la table des coups parfaits,
+ * sauf quand son niveau lui fait commettre une erreur volontaire (un coup
+ * quelconque parmi les cases libres). Chaque choix est en temps constant.
+ */
+public class TableBot implements BotEngine {
+    
+    private final PerfectPlayTable table;
+    private final Difficulty difficulty;
+    
+    public TableBot(PerfectPlayTable table, Difficulty difficulty) {
+        this.table = table;
+        this.difficulty = difficulty;
+    }
+    
+    /**
+     * Case choisie (ligne * 3 + colonne) pour le joueur au trait, -1 si la partie est terminée
+     */
+    @Override
+    public int chooseMove(TicTacToeGame game) {
+        return chooseMove(PerfectPlayTable.encode(game));
+    }
+    
+    /**
+     * Case choisie pour une partie sur masques de bits (simulations)
+     */
+    public int chooseMove(BitboardGame game) {
+        return chooseMove(PerfectPlayTable.encode(game));
+    }
+    
+    /**
+     * Case choisie pour une position codée par {@link PerfectPlayTable#encode}
+     */
+    public int chooseMove(int position) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int candidates = table.bestMoves(position);
+        if (candidates == 0) {
+            return -1;
+        }
+        if (difficulty.getMistakeRate() > 0 && random.nextDouble() < difficulty.getMistakeRate()) {
+            candidates = PerfectPlayTable.emptyCells(position);
+        }
+        return randomBit(candidates, random);
+    }
+    
+    @Override
+    public Difficulty getDifficulty() {
+        return difficulty;
+    }
+    
+    /**
+     * Un bit au hasard parmi ceux du masque (les coups de même valeur sont équivalents)
+     */
+    private static int randomBit(int mask, ThreadLocalRandom random) {
+        int skip = random.nextInt(Integer.bitCount(mask));
+        for (int i = 0; i < skip; i++) {
+            mask &= mask - 1;
+        }
+        return Integer.numberOfTrailingZeros(mask);
+    }
+}
@@ -0,0 +1,177 @@
+package ai;
+
+import java.util.Arrays;
+
+/**
+ * Table de transposition de taille fixe, partagée par les recherches (solveur,
+ * robots, analyse) : elle associe au hachage canonique d'une position
+ * ({@link common.TicTacToeGame#getCanonicalHash()}) sa valeur, le type de
+ * cette valeur, la profondeur cherchée et le meilleur coup trouvé.
+ *
+ * Tout tient dans deux tableaux de long, sans aucun objet par entrée. Chaque
+ * case de la table contient deux entrées : la première garde la recherche la
+ * plus profonde (remplacée seulement par une recherche au moins aussi profonde
+ * ou par une entrée d'une recherche précédente, voir {@link #newSearch()}),
+ * la seconde prend toujours la dernière entrée qui n'a pas trouvé sa place.
+ *
+ * La table peut être lue et écrite par plusieurs fils sans verrou : la clé est
+ * rangée combinée (ou exclusif) à ses données, si bien qu'une entrée écrite à
+ * moitié par un autre fil ne correspond plus à aucune clé et est ignorée.
+ */
+public final class TranspositionTable {
+    /** La valeur est exacte */
+    public static final int EXACT = 0;
+    /** La valeur est un minorant (la recherche a dépassé beta) */
+    public static final int LOWER = 1;
+    /** La valeur est un majorant (aucun coup n'a atteint alpha) */
+    public static final int UPPER = 2;
+    /** Pas de meilleur coup connu */
+    public static final int NO_MOVE = -1;
+    
+    // Disposition des données d'une entrée (0 pour une entrée vide)
+    private static final int VALUE_BITS = 16;
+    private static final int DEPTH_SHIFT = 16;
+    private static final int DEPTH_MASK = 0x1FF;
+    private static final int BOUND_SHIFT = 25;
+    private static final int MOVE_SHIFT = 27;
+    private static final int MOVE_MASK = 0x1FF;
+    private static final int GENERATION_SHIFT = 36;
+    private static final long PRESENT = 1L << 44;
+    
+    private final long[] keys;
+    private final long[] data;
+    private final int bucketMask;
+    private volatile int generation;
+    
+    /**
+     * Table de 2^sizeBits entrées (16 octets chacune)
+     */
+    public TranspositionTable(int sizeBits) {
+        if (sizeBits < 1 || sizeBits > 30) {
+            throw new IllegalArgumentException("Taille de table invalide: 2^" + sizeBits);
+        }
+        keys = new long[1 << sizeBits];
+        data = new long[1 << sizeBits];
+        bucketMask = (1 << (sizeBits - 1)) - 1;
+    }
+    
+    /**
+     * Entrée de la position, 0 si elle n'est pas dans la table ; ses champs se
+     * lisent avec {@link #value}, {@link #depth}, {@link #bound} et {@link #move}
+     */
+    public long probe(long key) {
+        int slot = slot(key);
+        long entry = data[slot];
+        if ((keys[slot] ^ entry) == key && entry != 0) {
+            return entry;
+        }
+        entry = data[slot + 1];
+        if ((keys[slot + 1] ^ entry) == key && entry != 0) {
+            return entry;
+        }
+        return 0;
+    }
+    
+    /**
+     * Enregistre le résultat d'une recherche de la position
+     *
+     * @param value valeur pour le joueur au trait, sur 16 bits signés
+     * @param depth profondeur restante de la recherche (au plus 511, assez pour un plateau 19x19)
+     * @param bound {@link #EXACT}, {@link #LOWER} ou {@link #UPPER}
+     * @param move meilleur coup, en case de la forme canonique, ou {@link #NO_MOVE}
+     */
+    public void store(long key, int value, int depth, int bound, int move) {
+        int currentGeneration = generation;
+        long entry = PRESENT
+                | (value & ((1L << VALUE_BITS) - 1))
+                | ((long) Math.min(depth, DEPTH_MASK) << DEPTH_SHIFT)
+                | ((long) bound << BOUND_SHIFT)
+                | ((long) (move & MOVE_MASK) << MOVE_SHIFT)
+                | ((long) currentGeneration << GENERATION_SHIFT);
+        int slot = slot(key);
+        
+        // Même position déjà présente : la mettre à jour là où elle est
+        for (int i = slot; i < slot + 2; i++) {
+            long old = data[i];
+            if ((keys[i] ^ old) == key && old != 0) {
+                if (move == NO_MOVE) {
+                    // Garder le meilleur coup connu
+                    entry = (entry & ~((long) MOVE_MASK << MOVE_SHIFT)) | (old & ((long) MOVE_MASK << MOVE_SHIFT));
+                }
+                write(i, key, entry);
+                return;
+            }
+        }
+        
+        long deep = data[slot];
+        if (deep == 0 || depth >= depth(deep) || generation(deep) != currentGeneration) {
+            write(slot, key, entry);
+        } else {
+            write(slot + 1, key, entry);
+        }
+    }
+    
+    /**
+     * Début d'une nouvelle recherche : les entrées des recherches précédentes
+     * restent lisibles, mais cèdent leur place dans la partie « profonde »
+     */
+    public void newSearch() {
+        generation = (generation + 1) & 0xFF;
+    }
+    
+    /**
+     * Vide la table
+     */
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(data, 0);
+    }
+    
+    /** Nombre d'entrées de la table */
+    public int capacity() { return keys.length; }
+    
+    /**
+     * Taux d'occupation de la table, en pour mille, estimé sur ses premières entrées
+     */
+    public int usagePermill() {
+        int sample = Math.min(1000, data.length);
+        int used = 0;
+        for (int i = 0; i < sample; i++) {
+            if (data[i] != 0) {
+                used++;
+            }
+        }
+        return used * 1000 / sample;
+    }
+    
+    public static int value(long entry) {
+        return (short) entry;
+    }
+    
+    public static int depth(long entry) {
+        return (int) (entry >>> DEPTH_SHIFT) & DEPTH_MASK;
+    }
+    
+    public static int bound(long entry) {
+        return (int) (entry >>> BOUND_SHIFT) & 0x3;
+    }
+    
+    public static int move(long entry) {
+        int move = (int) (entry >>> MOVE_SHIFT) & MOVE_MASK;
+        return (move == MOVE_MASK) ? NO_MOVE : move;
+    }
+    
+    private static int generation(long entry) {
+        return (int) (entry >>> GENERATION_SHIFT) & 0xFF;
+    }
+    
+    private int slot(long key) {
+        // Les deux moitiés du hachage participent au choix de la case
+        return ((int) ((key >>> 32) ^ key) & bucketMask) << 1;
+    }
+    
+    private void write(int slot, long key, long entry) {
+        data[slot] = entry;
+        keys[slot] = key ^ entry;
+    }
+}
@@ -0,0 +1,85 @@
+package client;
+
+import common.GameMessage;
+import common.TicTacToeGame;
+
+/**
+ * Copie locale du plateau tenue à jour à partir des coups reçus du serveur.
+ * Chaque GAME_UPDATE ne transporte que le dernier coup, son numéro et la
+ * somme de contrôle du plateau obtenu : un trou dans la numérotation ou une
+ * somme différente signale une désynchronisation, le client doit alors
+ * demander un instantané complet (SNAPSHOT_REQUEST).
+ */
+public class BoardState {
+    private char[][] board;
+    private int sequence;
+    private int checksum;
+    private boolean awaitingSnapshot;
+    
+    public BoardState(int rows, int cols) {
+        reset(new char[rows][cols]);
+    }
+    
+    /**
+     * Repart d'un plateau complet (début de partie)
+     */
+    public void reset(char[][] newBoard) {
+        board = new char[newBoard.length][];
+        checksum = 0;
+        sequence = 0;
+        awaitingSnapshot = false;
+        for (int i = 0; i < newBoard.length; i++) {
+            board[i] = newBoard[i].clone();
+            for (int j = 0; j < board[i].length; j++) {
+                if (board[i][j] == 0) {
+                    board[i][j] = ' ';
+                }
+                if (board[i][j] != ' ') {
+                    checksum += TicTacToeGame.cellChecksum(i, j, board[i][j]);
+                    sequence++;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Applique une mise à jour du serveur.
+     *
+     * @return false si le plateau local est désynchronisé et qu'un instantané
+     *         doit être demandé (une seule fois : les coups suivants sont ignorés
+     *         jusqu'à son arrivée)
+     */
+    public boolean apply(GameMessage update) {
+        if (update.getBoard() != null) {
+            // Instantané complet
+            reset(update.getBoard());
+            sequence = update.getSequence();
+            return true;
+        }
+        
+        if (awaitingSnapshot) {
+            return true;
+        }
+        int row = update.getRow();
+        int col = update.getCol();
+        if (update.getSequence() != sequence + 1
+                || row >= board.length || col >= board[row].length
+                || board[row][col] != ' ') {
+            awaitingSnapshot = true;
+            return false;
+        }
+        board[row][col] = update.getPlayerSymbol();
+        checksum += TicTacToeGame.cellChecksum(row, col, update.getPlayerSymbol());
+        sequence = update.getSequence();
+        awaitingSnapshot = (checksum & 0xFFFF) != update.getChecksum();
+        return !awaitingSnapshot;
+    }
+    
+    public char[][] getBoard() {
+        return board;
+    }
+    
+    public int getSequence() {
+        return sequence;
+    }
+}
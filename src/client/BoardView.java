@@ -0,0 +1,300 @@
+package client;
+
+import javax.swing.JComponent;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Cursor;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * Plateau de jeu dessiné d'un seul composant, quelle que soit sa taille (de 3x3
+ * à 19x19). Chaque mise à jour compare le plateau reçu à celui affiché et ne
+ * redemande le dessin que des cases modifiées ; le dessin ne parcourt que les
+ * cases de la zone à repeindre, dans le tampon double de Swing. Les symboles X
+ * et O sont rendus une fois par taille de case dans des images réutilisées, et
+ * le survol ne fait que repeindre les deux cases concernées, sans allocation.
+ */
+public class BoardView extends JComponent {
+    private static final long serialVersionUID = 1L;
+    
+    private static final Color BACKGROUND_COLOR = new Color(248, 250, 252);
+    private static final Color CELL_COLOR = Color.WHITE;
+    private static final Color HOVER_COLOR = new Color(139, 92, 246, 50);
+    private static final Color LIGHT_EDGE = new Color(226, 232, 240);
+    private static final Color DARK_EDGE = new Color(148, 163, 184);
+    private static final Color X_COLOR = Color.BLUE;
+    private static final Color O_COLOR = Color.RED;
+    private static final Cursor HAND_CURSOR = Cursor.getPredefinedCursor(Cursor.HAND_CURSOR);
+    
+    /**
+     * Reçoit chaque clic sur une case, plateau actif
+     */
+    public interface CellListener {
+        void cellClicked(int row, int col);
+    }
+    
+    private final CellListener listener;
+    private char[][] cells;
+    private int rows;
+    private int cols;
+    private int hoverRow = -1;
+    private int hoverCol = -1;
+    
+    // Géométrie, recalculée quand la taille du composant change
+    private int layoutWidth = -1;
+    private int layoutHeight = -1;
+    private int cellSize;
+    private int gap;
+    private int originX;
+    private int originY;
+    
+    // Symboles rendus pour la taille de case courante
+    private int glyphSize;
+    private BufferedImage xGlyph;
+    private BufferedImage oGlyph;
+    
+    public BoardView(int rows, int cols, CellListener listener) {
+        this.listener = listener;
+        setOpaque(true);
+        setDoubleBuffered(true);
+        setBackground(BACKGROUND_COLOR);
+        setRules(rows, cols);
+        
+        MouseAdapter mouse = new MouseAdapter() {
+            @Override
+            public void mouseMoved(MouseEvent e) {
+                hover(rowAt(e.getY()), colAt(e.getX()));
+            }
+            
+            @Override
+            public void mouseExited(MouseEvent e) {
+                hover(-1, -1);
+            }
+            
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int row = rowAt(e.getY());
+                int col = colAt(e.getX());
+                if (isEnabled() && row >= 0 && col >= 0 && cells[row][col] == ' ') {
+                    BoardView.this.listener.cellClicked(row, col);
+                }
+            }
+        };
+        addMouseListener(mouse);
+        addMouseMotionListener(mouse);
+    }
+    
+    /**
+     * Nouveau plateau vide de rows x cols cases (règle annoncée par GAME_START)
+     */
+    public void setRules(int rows, int cols) {
+        this.rows = rows;
+        this.cols = cols;
+        cells = new char[rows][cols];
+        for (char[] row : cells) {
+            Arrays.fill(row, ' ');
+        }
+        hoverRow = -1;
+        hoverCol = -1;
+        layoutWidth = -1;
+        revalidate();
+        repaint();
+    }
+    
+    /**
+     * Affiche le plateau reçu ; seules les cases modifiées sont redessinées
+     *
+     * @return nombre de cases modifiées
+     */
+    public int setBoard(char[][] board) {
+        int changed = 0;
+        for (int i = 0; i < rows && i < board.length; i++) {
+            for (int j = 0; j < cols && j < board[i].length; j++) {
+                char cell = board[i][j] == 0 ? ' ' : board[i][j];
+                if (cells[i][j] != cell) {
+                    cells[i][j] = cell;
+                    repaintCell(i, j);
+                    changed++;
+                }
+            }
+        }
+        return changed;
+    }
+    
+    @Override
+    public void setEnabled(boolean enabled) {
+        super.setEnabled(enabled);
+        setCursor(enabled ? HAND_CURSOR : null);
+        if (!enabled) {
+            hover(-1, -1);
+        }
+    }
+    
+    @Override
+    public Dimension getPreferredSize() {
+        if (isPreferredSizeSet()) {
+            return super.getPreferredSize();
+        }
+        // 120 pixels par case en 3 x 3, réduit pour les grands plateaux
+        int size = Math.max(28, 360 / Math.max(rows, cols));
+        int spacing = defaultGap();
+        return new Dimension(cols * size + (cols - 1) * spacing, rows * size + (rows - 1) * spacing);
+    }
+    
+    @Override
+    protected void paintComponent(Graphics g) {
+        layoutCells();
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        }
+        g.setColor(getBackground());
+        g.fillRect(clip.x, clip.y, clip.width, clip.height);
+        
+        // Seules les cases qui coupent la zone à repeindre sont dessinées
+        int pitch = cellSize + gap;
+        int firstRow = Math.max(0, (clip.y - originY) / pitch);
+        int lastRow = Math.min(rows - 1, (clip.y + clip.height - 1 - originY) / pitch);
+        int firstCol = Math.max(0, (clip.x - originX) / pitch);
+        int lastCol = Math.min(cols - 1, (clip.x + clip.width - 1 - originX) / pitch);
+        for (int i = firstRow; i <= lastRow; i++) {
+            for (int j = firstCol; j <= lastCol; j++) {
+                paintCell(g, i, j);
+            }
+        }
+    }
+    
+    private void paintCell(Graphics g, int row, int col) {
+        int x = originX + col * (cellSize + gap);
+        int y = originY + row * (cellSize + gap);
+        char cell = cells[row][col];
+        g.setColor(CELL_COLOR);
+        g.fillRect(x, y, cellSize, cellSize);
+        if (row == hoverRow && col == hoverCol && cell == ' ') {
+            g.setColor(HOVER_COLOR);
+            g.fillRect(x, y, cellSize, cellSize);
+        }
+        
+        // Relief : bord clair en haut à gauche, sombre en bas à droite
+        g.setColor(LIGHT_EDGE);
+        g.drawLine(x, y, x + cellSize - 1, y);
+        g.drawLine(x, y, x, y + cellSize - 1);
+        g.setColor(DARK_EDGE);
+        g.drawLine(x, y + cellSize - 1, x + cellSize - 1, y + cellSize - 1);
+        g.drawLine(x + cellSize - 1, y, x + cellSize - 1, y + cellSize - 1);
+        
+        if (cell == 'X') {
+            g.drawImage(xGlyph, x, y, null);
+        } else if (cell == 'O') {
+            g.drawImage(oGlyph, x, y, null);
+        }
+    }
+    
+    /**
+     * Calcule la taille des cases pour la taille du composant, et rend les
+     * symboles à cette taille si elle a changé
+     */
+    private void layoutCells() {
+        if (getWidth() == layoutWidth && getHeight() == layoutHeight) {
+            return;
+        }
+        layoutWidth = getWidth();
+        layoutHeight = getHeight();
+        gap = defaultGap();
+        cellSize = Math.max(1, Math.min((layoutWidth - (cols - 1) * gap) / cols, (layoutHeight - (rows - 1) * gap) / rows));
+        originX = (layoutWidth - cols * cellSize - (cols - 1) * gap) / 2;
+        originY = (layoutHeight - rows * cellSize - (rows - 1) * gap) / 2;
+        if (cellSize != glyphSize) {
+            glyphSize = cellSize;
+            xGlyph = renderGlyph('X', cellSize);
+            oGlyph = renderGlyph('O', cellSize);
+        }
+    }
+    
+    private static BufferedImage renderGlyph(char symbol, int size) {
+        BufferedImage glyph = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2d = glyph.createGraphics();
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2d.setStroke(new BasicStroke(Math.max(2f, size / 10f), BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+        int margin = size / 5;
+        if (symbol == 'X') {
+            g2d.setColor(X_COLOR);
+            g2d.drawLine(margin, margin, size - margin, size - margin);
+            g2d.drawLine(size - margin, margin, margin, size - margin);
+        } else {
+            g2d.setColor(O_COLOR);
+            g2d.drawOval(margin, margin, size - 2 * margin, size - 2 * margin);
+        }
+        g2d.dispose();
+        return glyph;
+    }
+    
+    private int defaultGap() {
+        return (Math.max(rows, cols) > 3) ? 2 : 8;
+    }
+    
+    private void hover(int row, int col) {
+        if (!isEnabled()) {
+            row = -1;
+            col = -1;
+        }
+        if (row == hoverRow && col == hoverCol) {
+            return;
+        }
+        if (hoverRow >= 0) {
+            repaintCell(hoverRow, hoverCol);
+        }
+        hoverRow = row;
+        hoverCol = col;
+        if (row >= 0) {
+            repaintCell(row, col);
+        }
+    }
+    
+    private void repaintCell(int row, int col) {
+        layoutCells();
+        repaint(originX + col * (cellSize + gap), originY + row * (cellSize + gap), cellSize, cellSize);
+    }
+    
+    /**
+     * Ligne sous l'ordonnée y, -1 hors des cases
+     */
+    public int rowAt(int y) {
+        layoutCells();
+        return indexAt(y - originY, rows);
+    }
+    
+    /**
+     * Colonne sous l'abscisse x, -1 hors des cases
+     */
+    public int colAt(int x) {
+        layoutCells();
+        return indexAt(x - originX, cols);
+    }
+    
+    private int indexAt(int offset, int count) {
+        int pitch = cellSize + gap;
+        if (offset < 0 || offset / pitch >= count || offset % pitch >= cellSize) {
+            return -1;
+        }
+        return offset / pitch;
+    }
+    
+    public int getRows() { return rows; }
+    
+    public int getCols() { return cols; }
+    
+    /** Côté d'une case en pixels, pour la taille courante du composant */
+    public int getCellSize() {
+        layoutCells();
+        return cellSize;
+    }
+}
@@ -0,0 +1,123 @@
+package client;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Statistiques de la session, tenues à jour partie par partie : victoires,
+ * défaites, nuls, parties jouées, série de victoires en cours (et meilleure
+ * série) et longueur moyenne d'une partie. Chaque fin de partie ne notifie que
+ * les statistiques qu'elle a modifiées, l'affichage n'a rien à recalculer.
+ */
+public class GameStats {
+    /**
+     * Statistique affichée
+     */
+    public enum Stat {
+        WINS, LOSSES, DRAWS, GAMES, STREAK, AVERAGE_LENGTH
+    }
+    
+    /**
+     * Reçoit chaque statistique modifiée, sur le fil qui a enregistré la partie
+     */
+    public interface Listener {
+        void changed(GameStats stats, Stat stat);
+    }
+    
+    private final List<Listener> listeners = new ArrayList<>();
+    private int wins;
+    private int losses;
+    private int draws;
+    private int streak;
+    private int bestStreak;
+    private long totalMoves;
+    
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+    
+    /**
+     * Enregistre une partie terminée ; une partie interrompue ('A') ne compte pas
+     *
+     * @param result    gagnant ('X' ou 'O'), 'D' pour un match nul, 'A' pour une partie interrompue
+     * @param symbol    symbole joué par le joueur
+     * @param moveCount nombre de coups joués
+     */
+    public void record(char result, char symbol, int moveCount) {
+        if (result == 'A') {
+            return;
+        }
+        long previousMoves = totalMoves;
+        int previousGames = getGames();
+        totalMoves += moveCount;
+        if (result == 'D') {
+            draws++;
+            fire(Stat.DRAWS);
+            if (streak != 0) {
+                streak = 0;
+                fire(Stat.STREAK);
+            }
+        } else if (result == symbol) {
+            wins++;
+            fire(Stat.WINS);
+            streak++;
+            bestStreak = Math.max(bestStreak, streak);
+            fire(Stat.STREAK);
+        } else {
+            losses++;
+            fire(Stat.LOSSES);
+            if (streak != 0) {
+                streak = 0;
+                fire(Stat.STREAK);
+            }
+        }
+        fire(Stat.GAMES);
+        // Moyenne inchangée si la partie a la longueur moyenne des précédentes
+        if (previousGames == 0 || previousMoves * getGames() != totalMoves * previousGames) {
+            fire(Stat.AVERAGE_LENGTH);
+        }
+    }
+    
+    /**
+     * Texte affiché pour une statistique
+     */
+    public String text(Stat stat) {
+        switch (stat) {
+            case WINS:
+                return String.valueOf(wins);
+            case LOSSES:
+                return String.valueOf(losses);
+            case DRAWS:
+                return String.valueOf(draws);
+            case GAMES:
+                return String.valueOf(getGames());
+            case STREAK:
+                return streak + " (max " + bestStreak + ")";
+            default:
+                return String.format("%.1f", getAverageLength());
+        }
+    }
+    
+    private void fire(Stat stat) {
+        for (Listener listener : listeners) {
+            listener.changed(this, stat);
+        }
+    }
+    
+    public int getWins() { return wins; }
+    
+    public int getLosses() { return losses; }
+    
+    public int getDraws() { return draws; }
+    
+    public int getGames() { return wins + losses + draws; }
+    
+    /** Victoires consécutives en cours */
+    public int getStreak() { return streak; }
+    
+    /** Plus longue série de victoires de la session */
+    public int getBestStreak() { return bestStreak; }
+    
+    /** Nombre moyen de coups par partie (0 avant la première partie) */
+    public double getAverageLength() { return getGames() == 0 ? 0 : (double) totalMoves / getGames(); }
+}
@@ -0,0 +1,39 @@
+package client;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.prefs.Preferences;
+
+/**
+ * Identifiant du joueur de ce poste, annoncé au serveur dans chaque HELLO :
+ * tiré au hasard au premier lancement puis conservé dans les préférences de
+ * l'utilisateur, il permet au serveur de retrouver ses parties d'une session à l'autre.
+ */
+final class PlayerIdentity {
+    private static final String KEY = "playerId";
+    
+    private PlayerIdentity() {
+    }
+    
+    static int load() {
+        try {
+            Preferences preferences = Preferences.userNodeForPackage(PlayerIdentity.class);
+            int playerId = preferences.getInt(KEY, 0);
+            if (playerId == 0) {
+                playerId = newPlayerId();
+                preferences.putInt(KEY, playerId);
+            }
+            return playerId;
+        } catch (SecurityException e) {
+            // Préférences inaccessibles : identifiant valable pour cette session seulement
+            return newPlayerId();
+        }
+    }
+    
+    private static int newPlayerId() {
+        int playerId;
+        do {
+            playerId = ThreadLocalRandom.current().nextInt();
+        } while (playerId == 0);
+        return playerId;
+    }
+}
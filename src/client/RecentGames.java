@@ -0,0 +1,113 @@
+package client;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Dernières parties du joueur, dans un tampon circulaire de capacité fixe :
+ * chaque partie occupe une case de tableaux préalloués (heure, résultat,
+ * symbole joué, nombre de coups), la plus ancienne est remplacée quand le
+ * tampon est plein. La mémoire occupée ne dépend donc pas de la durée de la
+ * session, et l'affichage n'a qu'à ajouter une ligne et retirer la première.
+ */
+public class RecentGames {
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss");
+    
+    private final long[] times;
+    private final char[] results;
+    private final char[] symbols;
+    private final int[] moves;
+    // Case de la plus ancienne partie, et nombre de parties tenues
+    private int head;
+    private int size;
+    
+    public RecentGames(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacité invalide: " + capacity);
+        }
+        times = new long[capacity];
+        results = new char[capacity];
+        symbols = new char[capacity];
+        moves = new int[capacity];
+    }
+    
+    /**
+     * Ajoute une partie terminée
+     *
+     * @param time      heure de fin, en millisecondes
+     * @param result    gagnant ('X' ou 'O'), 'D' pour un match nul, 'A' pour une partie interrompue
+     * @param symbol    symbole joué par le joueur
+     * @param moveCount nombre de coups joués
+     * @return true si la partie la plus ancienne a été retirée pour lui faire place
+     */
+    public boolean add(long time, char result, char symbol, int moveCount) {
+        boolean evicted = size == times.length;
+        int slot;
+        if (evicted) {
+            slot = head;
+            head = (head + 1) % times.length;
+        } else {
+            slot = (head + size) % times.length;
+            size++;
+        }
+        times[slot] = time;
+        results[slot] = result;
+        symbols[slot] = symbol;
+        moves[slot] = moveCount;
+        return evicted;
+    }
+    
+    /**
+     * Oublie toutes les parties (remplacement par l'historique du serveur)
+     */
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+    
+    /**
+     * Ligne affichée pour la i-ème partie, de la plus ancienne (0) à la plus récente
+     */
+    public String format(int index) {
+        int slot = slot(index);
+        String timestamp = LocalDateTime.ofInstant(Instant.ofEpochMilli(times[slot]), ZoneId.systemDefault())
+                .format(TIME_FORMAT);
+        return String.format("[%s] %s - %d coups (joueur %c)",
+                timestamp, outcome(results[slot], symbols[slot]), moves[slot], symbols[slot]);
+    }
+    
+    /**
+     * Issue d'une partie du point de vue du joueur qui jouait symbol
+     */
+    public static String outcome(char result, char symbol) {
+        if (result == 'D') {
+            return "Match nul";
+        } else if (result == 'A') {
+            return "Partie interrompue";
+        } else if (result == symbol) {
+            return "Victoire";
+        }
+        return "Défaite";
+    }
+    
+    private int slot(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Partie " + index + " sur " + size);
+        }
+        return (head + index) % times.length;
+    }
+    
+    public long getTime(int index) { return times[slot(index)]; }
+    
+    public char getResult(int index) { return results[slot(index)]; }
+    
+    public char getSymbol(int index) { return symbols[slot(index)]; }
+    
+    public int getMoveCount(int index) { return moves[slot(index)]; }
+    
+    public int size() { return size; }
+    
+    public int capacity() { return times.length; }
+}
@@ -1,8 +1,11 @@
 package client;
 
 import common.GameMessage;
+import common.MessageCodec;
+import common.MessageWriter;
 import javax.swing.*;
 import javax.swing.border.Border;
+import javax.swing.text.BadLocationException;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
@@ -14,8 +17,8 @@ import java.net.Socket;
 import java.net.InetSocketAddress;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.EnumMap;
+import java.util.Map;
 
 /**
  * Client du jeu de Morpion avec interface graphique Swing moderne
@@ -23,6 +26,9 @@ import java.util.List;
 public class TicTacToeClient extends JFrame {
     private static final String SERVER_HOST = "localhost";
     private static final int SERVER_PORT = 12345;
+    // Parties affichées dans l'historique, et demandées au serveur
+    private static final int HISTORY_SIZE = 10;
+    private static final String NO_HISTORY = "Aucune partie jouée encore...";
     
     // Couleurs modernes
     private static final Color PRIMARY_COLOR = new Color(67, 56, 202);      // Indigo
@@ -35,7 +41,7 @@ public class TicTacToeClient extends JFrame {
     private static final Color TEXT_COLOR = new Color(30, 41, 59);          // Gris foncé
     
     // Composants de l'interface
-    private JButton[][] gameButtons;
+    private BoardView boardView;
     private JLabel statusLabel;
     private JLabel playerLabel;
     private JLabel scoreLabel;
@@ -50,10 +56,12 @@ public class TicTacToeClient extends JFrame {
     private JPanel sidePanel;
     
     // Statistiques et historique
-    private int wins = 0;
-    private int losses = 0;
-    private int draws = 0;
-    private List<String> gameHistory;
+    private final GameStats stats = new GameStats();
+    // Valeur de chaque carte de statistiques, mise à jour par stats
+    private final Map<GameStats.Stat, JLabel> statLabels = new EnumMap<>(GameStats.Stat.class);
+    // Dernières parties, affichées dans historyArea (une ligne par partie, la plus récente en bas)
+    private final RecentGames recentGames = new RecentGames(HISTORY_SIZE);
+    private JTextArea historyArea;
     
     // Animation et effets
     private Timer animationTimer;
@@ -61,17 +69,22 @@ public class TicTacToeClient extends JFrame {
     
     // Communication réseau
     private Socket socket;
-    private ObjectOutputStream output;
-    private ObjectInputStream input;
+    private OutputStream output;
+    private MessageWriter writer;
+    private DataInputStream input;
     private boolean connected = false;
     
     // État du jeu
     private char playerSymbol;
+    // Ticket de reprise de la partie en cours, présenté à la reconnexion (0 : aucun)
+    private int resumeTicket;
+    // Identifiant du joueur de ce poste, sous lequel le serveur range ses parties
+    private final int playerId = PlayerIdentity.load();
     private boolean myTurn = false;
     private char[][] board;
+    private final BoardState boardState = new BoardState(3, 3);
     
     public TicTacToeClient() {
-        gameHistory = new ArrayList<>();
         initializeGUI();
         board = new char[3][3];
         clearBoard();
@@ -181,7 +194,7 @@ public class TicTacToeClient extends JFrame {
         
         mainPanel.add(headerPanel, BorderLayout.NORTH);
     }
-        
+    
     private void createGamePanel() {
         JPanel gameSectionPanel = new JPanel(new BorderLayout());
         gameSectionPanel.setBackground(BACKGROUND_COLOR);
@@ -198,21 +211,17 @@ public class TicTacToeClient extends JFrame {
         statusLabel.setForeground(WARNING_COLOR);
         statusLabel.setBorder(BorderFactory.createEmptyBorder(10, 20, 20, 20));
         
-        // Grille de jeu avec design moderne
-        gamePanel = new JPanel(new GridLayout(3, 3, 8, 8));
+        // Plateau dessiné d'un seul composant, redimensionné par GAME_START
+        gamePanel = new JPanel(new BorderLayout());
         gamePanel.setBackground(BACKGROUND_COLOR);
         gamePanel.setBorder(BorderFactory.createCompoundBorder(
             BorderFactory.createRaisedBevelBorder(),
             BorderFactory.createEmptyBorder(20, 20, 20, 20)
         ));
         
-        gameButtons = new JButton[3][3];
-        for (int i = 0; i < 3; i++) {
-            for (int j = 0; j < 3; j++) {
-                gameButtons[i][j] = createModernGameButton(i, j);
-                gamePanel.add(gameButtons[i][j]);
-            }
-        }
+        boardView = new BoardView(3, 3, this::makeMove);
+        boardView.setEnabled(false);
+        gamePanel.add(boardView, BorderLayout.CENTER);
         
         gameSectionPanel.add(gameTitleLabel, BorderLayout.NORTH);
         gameSectionPanel.add(statusLabel, BorderLayout.CENTER);
@@ -221,48 +230,6 @@ public class TicTacToeClient extends JFrame {
         mainPanel.add(gameSectionPanel, BorderLayout.CENTER);
     }
     
-    private JButton createModernGameButton(int row, int col) {
-        JButton button = new JButton("");
-        button.setFont(new Font("Segoe UI", Font.BOLD, 72));
-        button.setPreferredSize(new Dimension(120, 120));
-        button.setBackground(CARD_COLOR);
-        button.setForeground(PRIMARY_COLOR);
-        button.setBorder(BorderFactory.createCompoundBorder(
-            BorderFactory.createRaisedBevelBorder(),
-            BorderFactory.createEmptyBorder(10, 10, 10, 10)
-        ));
-        button.setFocusPainted(false);
-        button.setCursor(new Cursor(Cursor.HAND_CURSOR));
-        
-        // Effets de survol
-        button.addMouseListener(new MouseAdapter() {
-            @Override
-            public void mouseEntered(MouseEvent e) {
-                if (button.getText().isEmpty() && myTurn && connected) {
-                    button.setBackground(new Color(139, 92, 246, 50));
-                    button.setBorder(BorderFactory.createCompoundBorder(
-                        BorderFactory.createLoweredBevelBorder(),
-                        BorderFactory.createEmptyBorder(10, 10, 10, 10)
-                    ));
-                }
-            }
-            
-            @Override
-            public void mouseExited(MouseEvent e) {
-                if (button.getText().isEmpty()) {
-                    button.setBackground(CARD_COLOR);
-                    button.setBorder(BorderFactory.createCompoundBorder(
-                        BorderFactory.createRaisedBevelBorder(),
-                        BorderFactory.createEmptyBorder(10, 10, 10, 10)
-                    ));
-                }
-            }
-        });
-        
-        button.addActionListener(e -> makeMove(row, col));
-        return button;
-    }
-    
     private void connectToServer() {
         try {
             statusLabel.setText("Connexion au serveur...");
@@ -271,10 +238,15 @@ public class TicTacToeClient extends JFrame {
             socket = new Socket();
             socket.connect(new java.net.InetSocketAddress(SERVER_HOST, SERVER_PORT), 5000); // Timeout de 5 secondes
             
-            // Important: créer l'ObjectOutputStream avant l'ObjectInputStream
-            output = new ObjectOutputStream(socket.getOutputStream());
-            output.flush();
-            input = new ObjectInputStream(socket.getInputStream());
+            output = new BufferedOutputStream(socket.getOutputStream());
+            writer = new MessageWriter(output);
+            input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            
+            // Ouvrir la session : le serveur répond dès réception, sans délai fixe
+            // Après une coupure en cours de partie, reprendre sa place si le serveur l'a restaurée
+            GameMessage hello = resumeTicket != 0 ? MessageCodec.resume(playerSymbol, resumeTicket) : MessageCodec.hello();
+            MessageCodec.setPlayerId(hello, playerId);
+            writer.send(hello);
             
             connected = true;
             
@@ -282,7 +254,7 @@ public class TicTacToeClient extends JFrame {
             new Thread(this::listenToServer).start();
             
             statusLabel.setText("Connecté au serveur - En attente...");
-            
+        
         } catch (IOException e) {
             connectButton.setEnabled(true);
             JOptionPane.showMessageDialog(this, 
@@ -297,10 +269,10 @@ public class TicTacToeClient extends JFrame {
     private void listenToServer() {
         try {
             while (connected && socket != null && !socket.isClosed()) {
-                GameMessage message = (GameMessage) input.readObject();
+                GameMessage message = MessageCodec.readFrame(input);
                 SwingUtilities.invokeLater(() -> handleServerMessage(message));
             }
-        } catch (IOException | ClassNotFoundException e) {
+        } catch (IOException e) {
             if (connected) {
                 SwingUtilities.invokeLater(() -> {
                     statusLabel.setText("Connexion perdue avec le serveur");
@@ -316,46 +288,69 @@ public class TicTacToeClient extends JFrame {
     
     private void handleServerMessage(GameMessage message) {
         switch (message.getType()) {
+            case HELLO_ACK:
+                if (message.getRow() == 0) {
+                    JOptionPane.showMessageDialog(this, 
+                        "Le serveur refuse ce client : " + message.getContent(),
+                        "Erreur de connexion", 
+                        JOptionPane.ERROR_MESSAGE);
+                    disconnect();
+                }
+                break;
+            
             case PLAYER_CONNECTED:
                 playerSymbol = message.getPlayerSymbol();
+                resumeTicket = MessageCodec.resumeTicket(message);
                 playerLabel.setText("🎮 Joueur " + playerSymbol + " connecté");
                 playerLabel.setForeground(Color.WHITE);
                 addChatMessage("Système", "Vous êtes le joueur " + playerSymbol, SUCCESS_COLOR);
+                requestHistory();
                 break;
-                
+            
             case WAITING_PLAYER:
                 statusLabel.setText("⏳ " + message.getContent());
                 statusLabel.setForeground(WARNING_COLOR);
                 addChatMessage("Système", message.getContent(), WARNING_COLOR);
                 break;
-                
+            
             case GAME_START:
                 statusLabel.setText("🎯 Partie commencée ! C'est parti !");
                 statusLabel.setForeground(SUCCESS_COLOR);
                 newGameButton.setEnabled(true);
-                updateBoard(message.getBoard());
+                char[][] startBoard = message.getBoard();
+                if (startBoard.length != boardView.getRows() || startBoard[0].length != boardView.getCols()) {
+                    // Règle différente de la partie précédente : nouveau plateau
+                    boardView.setRules(startBoard.length, startBoard[0].length);
+                    pack();
+                }
+                boardState.reset(startBoard);
+                updateBoard(boardState.getBoard());
                 enableGameButtons(true);
-                addChatMessage("Système", "La partie commence !", SUCCESS_COLOR);
+                addChatMessage("Système", "La partie commence ! Plateau " + startBoard.length + "x" + startBoard[0].length
+                        + ", alignez " + message.getWinLength() + " symboles", SUCCESS_COLOR);
                 break;
-                
+            
             case GAME_UPDATE:
-                updateBoard(message.getBoard());
+                if (!boardState.apply(message)) {
+                    requestSnapshot();
+                }
+                updateBoard(boardState.getBoard());
                 addChatMessage("Jeu", "Coup joué !", PRIMARY_COLOR);
                 break;
-                
+            
             case YOUR_TURN:
                 myTurn = true;
                 statusLabel.setText("✨ C'est votre tour !");
                 statusLabel.setForeground(SUCCESS_COLOR);
                 addChatMessage("Système", "À vous de jouer !", SUCCESS_COLOR);
                 break;
-                
+            
             case OPPONENT_TURN:
                 myTurn = false;
                 statusLabel.setText("⏰ Tour de l'adversaire");
                 statusLabel.setForeground(WARNING_COLOR);
                 break;
-                
+            
             case INVALID_MOVE:
                 addChatMessage("Erreur", message.getContent(), DANGER_COLOR);
                 JOptionPane.showMessageDialog(this, 
@@ -363,9 +358,10 @@ public class TicTacToeClient extends JFrame {
                     "Coup invalide", 
                     JOptionPane.WARNING_MESSAGE);
                 break;
-                
+            
             case GAME_OVER:
                 myTurn = false;
+                resumeTicket = 0;
                 enableGameButtons(false);
                 
                 if (message.isGameWon()) {
@@ -374,17 +370,14 @@ public class TicTacToeClient extends JFrame {
                         statusLabel.setText("🤝 Match nul !");
                         statusLabel.setForeground(WARNING_COLOR);
                         addChatMessage("Fin", "Match nul !", WARNING_COLOR);
-                        draws++;
                     } else if (winner == playerSymbol) {
                         statusLabel.setText("🎉 Vous avez gagné !");
                         statusLabel.setForeground(SUCCESS_COLOR);
                         addChatMessage("Victoire", "Félicitations ! Vous avez gagné !", SUCCESS_COLOR);
-                        wins++;
                     } else {
                         statusLabel.setText("💔 Vous avez perdu !");
                         statusLabel.setForeground(DANGER_COLOR);
                         addChatMessage("Défaite", "Dommage, vous avez perdu...", DANGER_COLOR);
-                        losses++;
                     }
                 } else {
                     statusLabel.setText("❌ " + message.getContent());
@@ -392,14 +385,19 @@ public class TicTacToeClient extends JFrame {
                     addChatMessage("Système", message.getContent(), DANGER_COLOR);
                 }
                 
-                updateStatistics();
-                addGameToHistory(message);
+                char result = message.isGameWon() ? message.getWinner() : 'A';
+                stats.record(result, playerSymbol, boardState.getSequence());
+                addGameToHistory(result);
                 
                 JOptionPane.showMessageDialog(this, 
                     message.getContent(),
                     "Fin de partie", 
                     JOptionPane.INFORMATION_MESSAGE);
                 break;
+            
+            case HISTORY:
+                showServerHistory(message.getContent());
+                break;
         }
     }
     
@@ -415,8 +413,7 @@ public class TicTacToeClient extends JFrame {
         try {
             GameMessage moveMessage = new GameMessage(GameMessage.MessageType.PLAYER_MOVE, 
                     row, col, playerSymbol);
-            output.writeObject(moveMessage);
-            output.flush();
+            writer.send(moveMessage);
         } catch (IOException e) {
             JOptionPane.showMessageDialog(this, 
                 "Erreur lors de l'envoi du coup: " + e.getMessage(),
@@ -425,41 +422,48 @@ public class TicTacToeClient extends JFrame {
         }
     }
     
+    /**
+     * Demande au serveur les dernières parties du joueur, toutes sessions confondues,
+     * une fois par connexion : les parties suivantes sont ajoutées localement. Un
+     * serveur sans historique ne répond pas et l'historique local reste affiché
+     */
+    private void requestHistory() {
+        try {
+            writer.send(MessageCodec.historyRequest(HISTORY_SIZE));
+        } catch (IOException e) {
+            System.err.println("Erreur lors de la demande d'historique: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Plateau local désynchronisé : redemander l'état complet au serveur
+     */
+    private void requestSnapshot() {
+        try {
+            writer.send(new GameMessage(GameMessage.MessageType.SNAPSHOT_REQUEST));
+        } catch (IOException e) {
+            System.err.println("Erreur lors de la demande d'instantané: " + e.getMessage());
+        }
+    }
+    
     private void updateBoard(char[][] newBoard) {
         if (newBoard == null) return;
         
         this.board = newBoard;
-        for (int i = 0; i < 3; i++) {
-            for (int j = 0; j < 3; j++) {
-                String text = (board[i][j] == ' ') ? "" : String.valueOf(board[i][j]);
-                gameButtons[i][j].setText(text);
-                
-                // Coloration des symboles
-                if (board[i][j] == 'X') {
-                    gameButtons[i][j].setForeground(Color.BLUE);
-                } else if (board[i][j] == 'O') {
-                    gameButtons[i][j].setForeground(Color.RED);
-                }
-            }
-        }
+        boardView.setBoard(board);
     }
     
     private void clearBoard() {
-        for (int i = 0; i < 3; i++) {
-            for (int j = 0; j < 3; j++) {
+        for (int i = 0; i < board.length; i++) {
+            for (int j = 0; j < board[i].length; j++) {
                 board[i][j] = ' ';
-                gameButtons[i][j].setText("");
-                gameButtons[i][j].setForeground(Color.BLACK);
             }
         }
+        boardView.setBoard(board);
     }
     
     private void enableGameButtons(boolean enabled) {
-        for (int i = 0; i < 3; i++) {
-            for (int j = 0; j < 3; j++) {
-                gameButtons[i][j].setEnabled(enabled);
-            }
-        }
+        boardView.setEnabled(enabled);
     }
     
     private void requestNewGame() {
@@ -468,12 +472,13 @@ public class TicTacToeClient extends JFrame {
             "Cela nécessite que l'autre joueur se reconnecte.",
             "Nouvelle partie",
             JOptionPane.YES_NO_OPTION);
-            
+        
         if (result == JOptionPane.YES_OPTION) {
             disconnect();
             clearBoard();
             enableGameButtons(false);
             myTurn = false;
+            resumeTicket = 0;
             statusLabel.setText("Reconnectez-vous pour une nouvelle partie");
             statusLabel.setForeground(Color.BLACK);
             connectButton.setEnabled(true);
@@ -567,7 +572,7 @@ public class TicTacToeClient extends JFrame {
     }
     
     private JPanel createStatsPanel() {
-        JPanel statsPanel = new JPanel(new GridLayout(2, 2, 10, 10));
+        JPanel statsPanel = new JPanel(new GridLayout(3, 2, 10, 10));
         statsPanel.setBackground(CARD_COLOR);
         statsPanel.setBorder(BorderFactory.createCompoundBorder(
             BorderFactory.createTitledBorder(BorderFactory.createEtchedBorder(), 
@@ -575,21 +580,27 @@ public class TicTacToeClient extends JFrame {
             BorderFactory.createEmptyBorder(15, 15, 15, 15)
         ));
         
-        // Cartes de statistiques
-        JPanel winsCard = createStatCard("🏆 Victoires", "0", SUCCESS_COLOR);
-        JPanel lossesCard = createStatCard("💔 Défaites", "0", DANGER_COLOR);
-        JPanel drawsCard = createStatCard("🤝 Nuls", "0", WARNING_COLOR);
-        JPanel gamesCard = createStatCard("🎮 Parties", "0", PRIMARY_COLOR);
-        
-        statsPanel.add(winsCard);
-        statsPanel.add(lossesCard);
-        statsPanel.add(drawsCard);
-        statsPanel.add(gamesCard);
+        // Cartes de statistiques, chacune liée à sa statistique
+        statsPanel.add(createStatCard("🏆 Victoires", GameStats.Stat.WINS, SUCCESS_COLOR));
+        statsPanel.add(createStatCard("💔 Défaites", GameStats.Stat.LOSSES, DANGER_COLOR));
+        statsPanel.add(createStatCard("🤝 Nuls", GameStats.Stat.DRAWS, WARNING_COLOR));
+        statsPanel.add(createStatCard("🎮 Parties", GameStats.Stat.GAMES, PRIMARY_COLOR));
+        statsPanel.add(createStatCard("🔥 Série", GameStats.Stat.STREAK, SECONDARY_COLOR));
+        statsPanel.add(createStatCard("⏱ Coups/partie", GameStats.Stat.AVERAGE_LENGTH, TEXT_COLOR));
+        
+        // Seuls les labels des statistiques modifiées sont mis à jour
+        stats.addListener((model, stat) -> {
+            statLabels.get(stat).setText(model.text(stat));
+            if (stat == GameStats.Stat.WINS || stat == GameStats.Stat.LOSSES || stat == GameStats.Stat.DRAWS) {
+                scoreLabel.setText(String.format("📊 V: %d | D: %d | N: %d",
+                        model.getWins(), model.getLosses(), model.getDraws()));
+            }
+        });
         
         return statsPanel;
     }
     
-    private JPanel createStatCard(String title, String value, Color color) {
+    private JPanel createStatCard(String title, GameStats.Stat stat, Color color) {
         JPanel card = new JPanel(new BorderLayout());
         card.setBackground(color.brighter().brighter());
         card.setBorder(BorderFactory.createCompoundBorder(
@@ -601,12 +612,13 @@ public class TicTacToeClient extends JFrame {
         titleLabel.setFont(new Font("Segoe UI", Font.BOLD, 11));
         titleLabel.setForeground(color.darker());
         
-        JLabel valueLabel = new JLabel(value, JLabel.CENTER);
+        JLabel valueLabel = new JLabel(stats.text(stat), JLabel.CENTER);
         valueLabel.setFont(new Font("Segoe UI", Font.BOLD, 18));
         valueLabel.setForeground(color);
         
         card.add(titleLabel, BorderLayout.NORTH);
         card.add(valueLabel, BorderLayout.CENTER);
+        statLabels.put(stat, valueLabel);
         
         return card;
     }
@@ -621,11 +633,11 @@ public class TicTacToeClient extends JFrame {
         ));
         historyPanel.setPreferredSize(new Dimension(0, 150));
         
-        JTextArea historyArea = new JTextArea(6, 25);
+        historyArea = new JTextArea(6, 25);
         historyArea.setEditable(false);
         historyArea.setBackground(BACKGROUND_COLOR);
         historyArea.setFont(new Font("Segoe UI", Font.PLAIN, 11));
-        historyArea.setText("Aucune partie jouée encore...");
+        historyArea.setText(NO_HISTORY);
         
         JScrollPane historyScroll = new JScrollPane(historyArea);
         historyScroll.setBorder(BorderFactory.createLoweredBevelBorder());
@@ -786,85 +798,51 @@ public class TicTacToeClient extends JFrame {
         JOptionPane.showMessageDialog(this, aboutText, "À propos", JOptionPane.INFORMATION_MESSAGE);
     }
     
-    private void updateStatistics() {
-        SwingUtilities.invokeLater(() -> {
-            scoreLabel.setText(String.format("📊 V: %d | D: %d | N: %d", wins, losses, draws));
-            
-            // Mettre à jour les cartes de statistiques
-            Component[] components = sidePanel.getComponents();
-            for (Component comp : components) {
-                if (comp instanceof JPanel) {
-                    updateStatCards((JPanel) comp);
-                }
-            }
-        });
+    private void addGameToHistory(char result) {
+        boolean evicted = recentGames.add(System.currentTimeMillis(), result, playerSymbol, boardState.getSequence());
+        appendHistoryLine(evicted);
     }
     
-    private void updateStatCards(JPanel panel) {
-        Component[] components = panel.getComponents();
-        for (Component comp : components) {
-            if (comp instanceof JPanel) {
-                JPanel card = (JPanel) comp;
-                Component[] cardComponents = card.getComponents();
-                if (cardComponents.length >= 2 && cardComponents[1] instanceof JLabel) {
-                    JLabel valueLabel = (JLabel) cardComponents[1];
-                    JLabel titleLabel = (JLabel) cardComponents[0];
-                    String title = titleLabel.getText();
-                    
-                    if (title.contains("Victoires")) {
-                        valueLabel.setText(String.valueOf(wins));
-                    } else if (title.contains("Défaites")) {
-                        valueLabel.setText(String.valueOf(losses));
-                    } else if (title.contains("Nuls")) {
-                        valueLabel.setText(String.valueOf(draws));
-                    } else if (title.contains("Parties")) {
-                        valueLabel.setText(String.valueOf(wins + losses + draws));
-                    }
-                }
+    /**
+     * Remplace l'historique local par celui du serveur : une partie par ligne,
+     * de la plus récente à la plus ancienne (heure en secondes;symbole;résultat;coups)
+     */
+    private void showServerHistory(String content) {
+        String[] lines = content.split("\n");
+        recentGames.clear();
+        for (int i = lines.length - 1; i >= 0; i--) {
+            String[] fields = lines[i].split(";");
+            if (fields.length != 4 || !fields[0].matches("\\d+") || fields[1].isEmpty() || fields[2].isEmpty()
+                    || !fields[3].matches("\\d+")) {
+                continue;
             }
+            recentGames.add(Long.parseLong(fields[0]) * 1000, fields[2].charAt(0), fields[1].charAt(0),
+                    Integer.parseInt(fields[3]));
         }
-    }
-    
-    private void addGameToHistory(GameMessage message) {
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("HH:mm:ss"));
-        String result;
-        
-        if (message.isGameWon()) {
-            char winner = message.getWinner();
-            if (winner == 'D') {
-                result = "Match nul";
-            } else if (winner == playerSymbol) {
-                result = "Victoire";
-            } else {
-                result = "Défaite";
-            }
-        } else {
-            result = "Partie interrompue";
-        }
-        
-        String historyEntry = String.format("[%s] %s - %s", timestamp, result, message.getContent());
-        gameHistory.add(historyEntry);
         
-        // Mettre à jour l'affichage de l'historique
-        updateHistoryDisplay();
+        // Remplacement complet, le seul cas où le texte est reconstruit
+        StringBuilder historyText = new StringBuilder();
+        for (int i = 0; i < recentGames.size(); i++) {
+            historyText.append(recentGames.format(i)).append('\n');
+        }
+        historyArea.setText(recentGames.size() == 0 ? NO_HISTORY : historyText.toString());
     }
     
-    private void updateHistoryDisplay() {
-        // Trouver la zone d'historique et la mettre à jour
-        // Cette méthode sera appelée pour rafraîchir l'affichage
-        SwingUtilities.invokeLater(() -> {
-            StringBuilder historyText = new StringBuilder();
-            if (gameHistory.isEmpty()) {
-                historyText.append("Aucune partie jouée encore...");
-            } else {
-                // Afficher les 10 dernières parties
-                int start = Math.max(0, gameHistory.size() - 10);
-                for (int i = start; i < gameHistory.size(); i++) {
-                    historyText.append(gameHistory.get(i)).append("\n");
-                }
+    /**
+     * Affiche la dernière partie ajoutée : une ligne en bas de l'historique, et
+     * la première retirée si la plus ancienne partie a été remplacée
+     */
+    private void appendHistoryLine(boolean evicted) {
+        if (!evicted && recentGames.size() == 1) {
+            historyArea.setText("");
+        }
+        if (evicted) {
+            try {
+                historyArea.replaceRange("", 0, historyArea.getLineEndOffset(0));
+            } catch (BadLocationException e) {
+                historyArea.setText("");
             }
-            
-            // Mettre à jour l'affichage (à implémenter selon l'architecture des composants)
-        });
+        }
+        historyArea.append(recentGames.format(recentGames.size() - 1) + "\n");
     }
 }
@@ -1,6 +1,8 @@
 package client;
 
 import common.GameMessage;
+import common.MessageCodec;
+import common.MessageWriter;
 import javax.swing.*;
 import javax.swing.border.Border;
 import java.awt.*;
@@ -39,6 +41,7 @@ public class TicTacToeClientModern extends JFrame {
     
     // Composants
     private JButton[][] gameButtons;
+    private JPanel gamePanel;
     private JLabel statusLabel;
     private JLabel playerLabel;
     private JButton connectButton;
@@ -46,14 +49,20 @@ public class TicTacToeClientModern extends JFrame {
     
     // Communication
     private Socket socket;
-    private ObjectOutputStream output;
-    private ObjectInputStream input;
+    private OutputStream output;
+    private MessageWriter writer;
+    private DataInputStream input;
     private boolean connected = false;
     
     // État du jeu
     private char playerSymbol;
+    // Ticket de reprise de la partie en cours, présenté à la reconnexion (0 : aucun)
+    private int resumeTicket;
+    // Identifiant du joueur de ce poste, sous lequel le serveur range ses parties
+    private final int playerId = PlayerIdentity.load();
     private boolean myTurn = false;
     private char[][] board;
+    private final BoardState boardState = new BoardState(3, 3);
     
     public TicTacToeClientModern() {
         initializeGUI();
@@ -259,20 +268,32 @@ public class TicTacToeClientModern extends JFrame {
         gameContainer.setOpaque(false);
         gameContainer.setBorder(BorderFactory.createEmptyBorder(30, 30, 30, 30));
         
-        JPanel gamePanel = new JPanel(new GridLayout(3, 3, 12, 12));
+        gamePanel = new JPanel();
         gamePanel.setOpaque(false);
         gamePanel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
+        buildGrid(3, 3);
         
-        gameButtons = new JButton[3][3];
-        for (int i = 0; i < 3; i++) {
-            for (int j = 0; j < 3; j++) {
+        gameContainer.add(gamePanel, BorderLayout.CENTER);
+        parent.add(gameContainer, BorderLayout.CENTER);
+    }
+    
+    /**
+     * (Re)construit la grille de cases pour un plateau rows x cols, annoncé par GAME_START.
+     * La fenêtre garde sa taille : les cases rétrécissent sur les grands plateaux.
+     */
+    private void buildGrid(int rows, int cols) {
+        gamePanel.removeAll();
+        int gap = (Math.max(rows, cols) > 3) ? 2 : 12;
+        gamePanel.setLayout(new GridLayout(rows, cols, gap, gap));
+        gameButtons = new JButton[rows][cols];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
                 gameButtons[i][j] = createUltraGameButton(i, j);
                 gamePanel.add(gameButtons[i][j]);
             }
         }
-        
-        gameContainer.add(gamePanel, BorderLayout.CENTER);
-        parent.add(gameContainer, BorderLayout.CENTER);
+        gamePanel.revalidate();
+        gamePanel.repaint();
     }
     
     private JButton createUltraGameButton(int row, int col) {
@@ -338,7 +359,7 @@ public class TicTacToeClientModern extends JFrame {
                 
                 // Dessiner le texte avec effet 3D
                 if (!getText().isEmpty()) {
-                    g2d.setFont(new Font("Segoe UI", Font.BOLD, 64));
+                    g2d.setFont(new Font("Segoe UI", Font.BOLD, Math.min(64, height * 3 / 5)));
                     FontMetrics fm = g2d.getFontMetrics();
                     int textX = (width - fm.stringWidth(getText())) / 2;
                     int textY = (height + fm.getAscent()) / 2 - 5;
@@ -371,7 +392,8 @@ public class TicTacToeClientModern extends JFrame {
             }
         };
         
-        button.setPreferredSize(new Dimension(140, 140));
+        int size = Math.max(24, 420 / Math.max(gameButtons.length, gameButtons[0].length));
+        button.setPreferredSize(new Dimension(Math.min(140, size), Math.min(140, size)));
         button.setOpaque(false);
         button.setBorderPainted(false);
         button.setContentAreaFilled(false);
@@ -592,15 +614,21 @@ public class TicTacToeClientModern extends JFrame {
             socket = new Socket();
             socket.connect(new InetSocketAddress(SERVER_HOST, SERVER_PORT), 5000);
             
-            output = new ObjectOutputStream(socket.getOutputStream());
-            output.flush();
-            input = new ObjectInputStream(socket.getInputStream());
+            output = new BufferedOutputStream(socket.getOutputStream());
+            writer = new MessageWriter(output);
+            input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            
+            // Ouvrir la session : le serveur répond dès réception, sans délai fixe
+            // Après une coupure en cours de partie, reprendre sa place si le serveur l'a restaurée
+            GameMessage hello = resumeTicket != 0 ? MessageCodec.resume(playerSymbol, resumeTicket) : MessageCodec.hello();
+            MessageCodec.setPlayerId(hello, playerId);
+            writer.send(hello);
             
             connected = true;
             new Thread(this::listenToServer).start();
             
             statusLabel.setText("Connecté - En attente...");
-            
+        
         } catch (IOException e) {
             connectButton.setEnabled(true);
             JOptionPane.showMessageDialog(this, 
@@ -613,10 +641,10 @@ public class TicTacToeClientModern extends JFrame {
     private void listenToServer() {
         try {
             while (connected && socket != null && !socket.isClosed()) {
-                GameMessage message = (GameMessage) input.readObject();
+                GameMessage message = MessageCodec.readFrame(input);
                 SwingUtilities.invokeLater(() -> handleServerMessage(message));
             }
-        } catch (IOException | ClassNotFoundException e) {
+        } catch (IOException e) {
             if (connected) {
                 SwingUtilities.invokeLater(() -> {
                     statusLabel.setText("Connexion perdue");
@@ -644,43 +672,66 @@ public class TicTacToeClientModern extends JFrame {
     
     private void handleServerMessage(GameMessage message) {
         switch (message.getType()) {
+            case HELLO_ACK:
+                if (message.getRow() == 0) {
+                    JOptionPane.showMessageDialog(this, 
+                        "Le serveur refuse ce client : " + message.getContent(),
+                        "Erreur", JOptionPane.ERROR_MESSAGE);
+                    disconnect();
+                }
+                break;
+            
             case PLAYER_CONNECTED:
                 playerSymbol = message.getPlayerSymbol();
+                resumeTicket = MessageCodec.resumeTicket(message);
                 playerLabel.setText("🎮 Joueur " + playerSymbol);
                 break;
-                
+            
             case WAITING_PLAYER:
                 statusLabel.setText("⏳ " + message.getContent());
                 break;
-                
+            
             case GAME_START:
                 statusLabel.setText("🎯 Partie commencée !");
                 newGameButton.setEnabled(true);
-                updateBoard(message.getBoard());
+                char[][] startBoard = message.getBoard();
+                if (startBoard.length != gameButtons.length || startBoard[0].length != gameButtons[0].length) {
+                    // Règle différente de la partie précédente : nouvelle grille
+                    buildGrid(startBoard.length, startBoard[0].length);
+                }
+                if (message.getWinLength() != 3) {
+                    statusLabel.setText("🎯 Partie commencée ! Alignez " + message.getWinLength() + " symboles");
+                }
+                boardState.reset(startBoard);
+                updateBoard(boardState.getBoard());
                 enableGameButtons(true);
                 break;
-                
+            
             case GAME_UPDATE:
-                updateBoard(message.getBoard());
+                if (!boardState.apply(message)) {
+                    requestSnapshot();
+                }
+                updateBoard(boardState.getBoard());
                 break;
-                
+            
             case YOUR_TURN:
                 myTurn = true;
                 statusLabel.setText("✨ C'est votre tour !");
                 break;
-                
+            
             case OPPONENT_TURN:
                 myTurn = false;
                 statusLabel.setText("⏰ Tour de l'adversaire");
                 break;
-                
+            
             case INVALID_MOVE:
                 JOptionPane.showMessageDialog(this, 
                     message.getContent(), "Coup invalide", JOptionPane.WARNING_MESSAGE);
                 break;
-                
+            
             case GAME_OVER:
                 myTurn = false;
+                resumeTicket = 0;
                 enableGameButtons(false);
                 newGameButton.setEnabled(true); // Activer le bouton nouvelle partie
                 
@@ -743,20 +794,30 @@ public class TicTacToeClientModern extends JFrame {
         try {
             GameMessage moveMessage = new GameMessage(GameMessage.MessageType.PLAYER_MOVE, 
                     row, col, playerSymbol);
-            output.writeObject(moveMessage);
-            output.flush();
+            writer.send(moveMessage);
         } catch (IOException e) {
             JOptionPane.showMessageDialog(this, 
                 "Erreur: " + e.getMessage(), "Erreur", JOptionPane.ERROR_MESSAGE);
         }
     }
     
+    /**
+     * Plateau local désynchronisé : redemander l'état complet au serveur
+     */
+    private void requestSnapshot() {
+        try {
+            writer.send(new GameMessage(GameMessage.MessageType.SNAPSHOT_REQUEST));
+        } catch (IOException e) {
+            System.err.println("Erreur lors de la demande d'instantané: " + e.getMessage());
+        }
+    }
+    
     private void updateBoard(char[][] newBoard) {
         if (newBoard == null) return;
         
         this.board = newBoard;
-        for (int i = 0; i < 3; i++) {
-            for (int j = 0; j < 3; j++) {
+        for (int i = 0; i < board.length; i++) {
+            for (int j = 0; j < board[i].length; j++) {
                 String text = (board[i][j] == ' ') ? "" : String.valueOf(board[i][j]);
                 gameButtons[i][j].setText(text);
                 
@@ -770,8 +831,8 @@ public class TicTacToeClientModern extends JFrame {
     }
     
     private void clearBoard() {
-        for (int i = 0; i < 3; i++) {
-            for (int j = 0; j < 3; j++) {
+        for (int i = 0; i < board.length; i++) {
+            for (int j = 0; j < board[i].length; j++) {
                 board[i][j] = ' ';
                 if (gameButtons != null && gameButtons[i][j] != null) {
                     gameButtons[i][j].setText("");
@@ -782,8 +843,8 @@ public class TicTacToeClientModern extends JFrame {
     }
     
     private void enableGameButtons(boolean enabled) {
-        for (int i = 0; i < 3; i++) {
-            for (int j = 0; j < 3; j++) {
+        for (int i = 0; i < gameButtons.length; i++) {
+            for (int j = 0; j < gameButtons[i].length; j++) {
                 gameButtons[i][j].setEnabled(enabled);
             }
         }
@@ -801,11 +862,12 @@ public class TicTacToeClientModern extends JFrame {
                 null,
                 options,
                 options[0]);
-                
+            
             if (result == 0) { // "Se reconnecter" sélectionné
                 clearBoard();
                 enableGameButtons(false);
                 myTurn = false;
+                resumeTicket = 0;
                 playerLabel.setText("🔗 Non connecté");
                 statusLabel.setText("Cliquez sur 'Se connecter' pour commencer");
                 connectButton.setEnabled(true);
@@ -823,12 +885,13 @@ public class TicTacToeClientModern extends JFrame {
                 null,
                 options,
                 options[0]);
-                
+            
             if (result == 0) { // "Nouvelle partie" sélectionné
                 disconnect();
                 clearBoard();
                 enableGameButtons(false);
                 myTurn = false;
+                resumeTicket = 0;
                 playerLabel.setText("🔗 Non connecté");
                 statusLabel.setText("Reconnectez-vous pour une nouvelle partie");
                 connectButton.setEnabled(true);
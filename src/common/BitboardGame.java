@@ -0,0 +1,270 @@
+package common;
+
+/**
+ * Moteur de Morpion 3x3 sur masques de bits, pour les simulations et la
+ * recherche des robots : chaque joueur est un masque de 9 bits (case
+ * ligne * 3 + colonne), une victoire se teste par table plutôt que par
+ * parcours de la grille, et une position tient dans un entier.
+ *
+ * makeMove, undoMove, isGameWon, getWinner et getCurrentPlayer ont la même
+ * sémantique que dans {@link TicTacToeGame}, somme de contrôle comprise. Le
+ * solveur, la table des coups parfaits et les simulations des robots jouent
+ * sur ce moteur dès que la règle est celle du Morpion 3x3.
+ */
+public class BitboardGame {
+    public static final int SIZE = 3;
+    public static final int CELLS = SIZE * SIZE;
+    /** Masque de toutes les cases */
+    public static final int FULL = (1 << CELLS) - 1;
+    
+    /** Lignes, colonnes et diagonales gagnantes */
+    public static final int[] WIN_MASKS = {
+        0x007, 0x038, 0x1C0,
+        0x049, 0x092, 0x124,
+        0x111, 0x054
+    };
+    
+    // Victoire pour chacun des 512 masques possibles d'un joueur
+    private static final boolean[] WINNING = new boolean[1 << CELLS];
+    // Image de chacun des 512 masques par chacune des 8 symétries
+    private static final short[][] TRANSFORMS = new short[Symmetry.MAX_COUNT][1 << CELLS];
+    
+    static {
+        for (int mask = 0; mask <= FULL; mask++) {
+            for (int line : WIN_MASKS) {
+                if ((mask & line) == line) {
+                    WINNING[mask] = true;
+                    break;
+                }
+            }
+        }
+        for (int symmetry = 0; symmetry < Symmetry.MAX_COUNT; symmetry++) {
+            for (int mask = 0; mask <= FULL; mask++) {
+                int image = 0;
+                for (int cell = 0; cell < CELLS; cell++) {
+                    if ((mask & (1 << cell)) != 0) {
+                        image |= 1 << Symmetry.apply(symmetry, cell / SIZE, cell % SIZE, SIZE, SIZE);
+                    }
+                }
+                TRANSFORMS[symmetry][mask] = (short) image;
+            }
+        }
+    }
+    
+    private int xMask;
+    private int oMask;
+    private char currentPlayer;
+    private boolean gameWon;
+    private char winner;
+    private int moveCount;
+    private int checksum;
+    
+    public BitboardGame() {
+        reset();
+    }
+    
+    public boolean makeMove(int row, int col, char player) {
+        if (row < 0 || row >= SIZE || col < 0 || col >= SIZE) {
+            return false;
+        }
+        return makeMove(row * SIZE + col, player);
+    }
+    
+    /**
+     * Joue sur la case donnée (ligne * 3 + colonne)
+     */
+    public boolean makeMove(int cell, char player) {
+        int bit = 1 << cell;
+        if (cell < 0 || cell >= CELLS || ((xMask | oMask) & bit) != 0
+                || player != currentPlayer || gameWon) {
+            return false;
+        }
+        
+        int mask;
+        if (player == 'X') {
+            mask = xMask |= bit;
+        } else {
+            mask = oMask |= bit;
+        }
+        moveCount++;
+        checksum += TicTacToeGame.cellChecksum(cell / SIZE, cell % SIZE, player);
+        
+        if (WINNING[mask]) {
+            gameWon = true;
+            winner = player;
+        } else if (moveCount == CELLS) {
+            gameWon = true;
+            winner = 'D'; // Draw (match nul)
+        } else {
+            currentPlayer = (player == 'X') ? 'O' : 'X';
+        }
+        return true;
+    }
+    
+    /**
+     * Annule le coup joué sur une case (ligne * 3 + colonne) ; le joueur qui
+     * l'avait joué redevient le joueur au trait
+     */
+    public void undoMove(int cell) {
+        int bit = 1 << cell;
+        char player;
+        if ((xMask & bit) != 0) {
+            xMask &= ~bit;
+            player = 'X';
+        } else if ((oMask & bit) != 0) {
+            oMask &= ~bit;
+            player = 'O';
+        } else {
+            return;
+        }
+        moveCount--;
+        checksum -= TicTacToeGame.cellChecksum(cell / SIZE, cell % SIZE, player);
+        currentPlayer = player;
+        gameWon = false;
+        winner = ' ';
+    }
+    
+    /**
+     * Vrai si la règle de la partie est celle que ce moteur sait jouer (3x3, 3 à aligner)
+     */
+    public static boolean fits(TicTacToeGame game) {
+        return game.getRows() == SIZE && game.getCols() == SIZE && game.getWinLength() == SIZE;
+    }
+    
+    /**
+     * Position d'une partie 3x3 au format de {@link #snapshot()}, lue case par case
+     * sans copier la grille
+     */
+    public static int pack(TicTacToeGame game) {
+        int snapshot = (game.getCurrentPlayer() == 'O') ? 1 << (2 * CELLS) : 0;
+        for (int cell = 0; cell < CELLS; cell++) {
+            char player = game.getCell(cell / SIZE, cell % SIZE);
+            if (player == 'X') {
+                snapshot |= 1 << cell;
+            } else if (player == 'O') {
+                snapshot |= 1 << (cell + CELLS);
+            }
+        }
+        return snapshot;
+    }
+    
+    /**
+     * Vrai si le masque d'un joueur contient une ligne gagnante
+     */
+    public static boolean isWin(int mask) {
+        return WINNING[mask];
+    }
+    
+    /**
+     * Position courante dans un entier : masque de X (bits 0 à 8), masque de O
+     * (bits 9 à 17) et joueur au trait (bit 18, à 1 pour O)
+     */
+    public int snapshot() {
+        return xMask | (oMask << CELLS) | ((currentPlayer == 'O') ? 1 << (2 * CELLS) : 0);
+    }
+    
+    /**
+     * Reprend une position obtenue par {@link #snapshot()}
+     */
+    public void restore(int snapshot) {
+        xMask = snapshot & FULL;
+        oMask = (snapshot >>> CELLS) & FULL;
+        currentPlayer = ((snapshot >>> (2 * CELLS)) & 1) != 0 ? 'O' : 'X';
+        moveCount = Integer.bitCount(xMask | oMask);
+        checksum = 0;
+        for (int cell = 0; cell < CELLS; cell++) {
+            char player = getCell(cell);
+            if (player != ' ') {
+                checksum += TicTacToeGame.cellChecksum(cell / SIZE, cell % SIZE, player);
+            }
+        }
+        gameWon = false;
+        winner = ' ';
+        if (WINNING[xMask]) {
+            gameWon = true;
+            winner = 'X';
+        } else if (WINNING[oMask]) {
+            gameWon = true;
+            winner = 'O';
+        } else if (moveCount == CELLS) {
+            gameWon = true;
+            winner = 'D';
+        }
+    }
+    
+    /**
+     * Contenu d'une case (ligne * 3 + colonne) : 'X', 'O' ou ' '
+     */
+    public char getCell(int cell) {
+        int bit = 1 << cell;
+        if ((xMask & bit) != 0) {
+            return 'X';
+        }
+        return ((oMask & bit) != 0) ? 'O' : ' ';
+    }
+    
+    /**
+     * Copie de la grille au format de {@link TicTacToeGame#getBoard()}
+     */
+    public char[][] getBoard() {
+        char[][] board = new char[SIZE][SIZE];
+        for (int cell = 0; cell < CELLS; cell++) {
+            board[cell / SIZE][cell % SIZE] = getCell(cell);
+        }
+        return board;
+    }
+    
+    /**
+     * Symétrie qui transforme la position en sa forme canonique (celle dont
+     * les masques réunis forment le plus petit entier), comme
+     * {@link TicTacToeGame#getCanonicalSymmetry()}
+     */
+    public int getCanonicalSymmetry() {
+        int best = 0;
+        int bestPosition = xMask | (oMask << CELLS);
+        for (int symmetry = 1; symmetry < Symmetry.MAX_COUNT; symmetry++) {
+            int position = TRANSFORMS[symmetry][xMask] | (TRANSFORMS[symmetry][oMask] << CELLS);
+            if (position < bestPosition) {
+                best = symmetry;
+                bestPosition = position;
+            }
+        }
+        return best;
+    }
+    
+    /**
+     * Forme canonique de la position (masque de X, puis masque de O décalé de
+     * 9 bits) : commune à toutes les positions qui se déduisent de celle-ci par
+     * rotation ou réflexion ; le joueur au trait s'en déduit
+     */
+    public int getCanonicalPosition() {
+        int symmetry = getCanonicalSymmetry();
+        return TRANSFORMS[symmetry][xMask] | (TRANSFORMS[symmetry][oMask] << CELLS);
+    }
+    
+    public int getXMask() { return xMask; }
+    public int getOMask() { return oMask; }
+    
+    /** Cases libres, un bit par case */
+    public int getEmptyMask() { return ~(xMask | oMask) & FULL; }
+    
+    public char getCurrentPlayer() { return currentPlayer; }
+    public boolean isGameWon() { return gameWon; }
+    public char getWinner() { return winner; }
+    public int getMoveCount() { return moveCount; }
+    
+    /**
+     * Somme de contrôle du plateau sur 16 bits, identique à celle de {@link TicTacToeGame}
+     */
+    public int getChecksum() { return checksum & 0xFFFF; }
+    
+    public void reset() {
+        xMask = 0;
+        oMask = 0;
+        currentPlayer = 'X';
+        gameWon = false;
+        winner = ' ';
+        moveCount = 0;
+        checksum = 0;
+    }
+}
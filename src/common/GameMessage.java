@@ -17,7 +17,13 @@ public class GameMessage implements Serializable {
         WAITING_PLAYER,     // En attente d'un autre joueur
         INVALID_MOVE,       // Coup invalide
         YOUR_TURN,          // C'est votre tour
-        OPPONENT_TURN       // Tour de l'adversaire
+        OPPONENT_TURN,      // Tour de l'adversaire
+        SNAPSHOT_REQUEST,   // Demande du plateau complet (désynchronisation détectée)
+        HELLO,              // Ouverture de session par le client (versions supportées)
+        HELLO_ACK,          // Réponse du serveur (version retenue, 0 si aucune)
+        NEW_GAME,           // Demande d'une nouvelle partie contre le même adversaire
+        HISTORY_REQUEST,    // Demande des dernières parties du joueur
+        HISTORY             // Dernières parties du joueur, une par ligne
     }
     
     private MessageType type;
@@ -28,6 +34,9 @@ public class GameMessage implements Serializable {
     private char[][] board;
     private boolean gameWon;
     private char winner;
+    private int sequence;
+    private int checksum;
+    private int winLength;
     
     public GameMessage(MessageType type) {
         this.type = type;
@@ -69,4 +78,15 @@ public class GameMessage implements Serializable {
     
     public char getWinner() { return winner; }
     public void setWinner(char winner) { this.winner = winner; }
+    
+    // Numéro du coup (GAME_UPDATE) et somme de contrôle du plateau après ce coup
+    public int getSequence() { return sequence; }
+    public void setSequence(int sequence) { this.sequence = sequence; }
+    
+    public int getChecksum() { return checksum; }
+    public void setChecksum(int checksum) { this.checksum = checksum; }
+    
+    // Nombre de symboles à aligner pour gagner, transmis avec le plateau (GAME_START)
+    public int getWinLength() { return winLength; }
+    public void setWinLength(int winLength) { this.winLength = winLength; }
 }
@@ -0,0 +1,419 @@
+package common;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Protocole binaire compact. Chaque message est une trame autonome :
+ *
+ * <pre>
+ * [longueur u16][version u8][type u8][drapeaux u8][symbole u8][ligne u8][colonne u8][gagnant u8][texte u8]
+ *     puis, selon les drapeaux :
+ * [séquence u16][somme de contrôle u16]                  (HAS_SEQUENCE : l'une des deux non nulle)
+ * [lignes u8][colonnes u8][alignement u8][plateau : 2 bits par case]   (HAS_BOARD)
+ * [longueur u16][texte UTF-8]                              (code texte = CUSTOM_TEXT)
+ * </pre>
+ *
+ * Les textes usuels du serveur voyagent sous forme d'un code d'un octet ;
+ * un coup tient ainsi en 10 octets au lieu de plusieurs centaines avec la
+ * sérialisation Java. Les mises à jour de partie ne transportent que le dernier
+ * coup, numéroté et accompagné d'une somme de contrôle du plateau (14 octets
+ * quelle que soit la taille du plateau) ; le plateau complet n'est envoyé qu'au
+ * début de partie ou sur demande (SNAPSHOT_REQUEST), avec ses dimensions et le
+ * nombre de symboles à aligner : c'est GAME_START qui annonce la règle de la
+ * partie (jusqu'à 19 x 19 cases, soit 91 octets de plateau). Les trames se décodent
+ * aussi bien depuis un flux bloquant que depuis un tampon NIO.
+ *
+ * Une session commence par une poignée de main : le client envoie HELLO avec
+ * l'intervalle des versions qu'il sait parler (ligne = minimum, colonne = maximum),
+ * le serveur répond HELLO_ACK avec la plus récente des versions communes (0 si
+ * aucune). {@link #MIN_PROTOCOL_VERSION} est la plus ancienne version dont le
+ * serveur sait encore décoder les trames. Ces deux messages gardent le même
+ * code de type et le même en-tête d'une version à l'autre, et sont acceptés
+ * quelle que soit la version de leur trame. Un spectateur ouvre sa session par
+ * un HELLO de symbole {@link #SPECTATOR} qui désigne la salle à suivre sur 32
+ * bits, répartis comme un ticket de reprise (0 : la partie la plus suivie).
+ * PLAYER_CONNECTED remet à chaque joueur un ticket de reprise de 32 bits
+ * (séquence = 16 bits de poids faible, somme de contrôle = poids fort) ; après
+ * un redémarrage du serveur, un HELLO portant son symbole et ce ticket lui
+ * rend sa place dans la partie restaurée.
+ *
+ * Le texte du HELLO d'un joueur porte son identifiant (8 chiffres hexadécimaux),
+ * choisi par le client et stable d'une session à l'autre : le serveur range sous
+ * cet identifiant les parties du joueur. HISTORY_REQUEST demande ses ligne
+ * dernières parties ; HISTORY y répond par une partie par ligne de texte,
+ * de la plus récente à la plus ancienne :
+ * {@code heure de fin en secondes;symbole du joueur;résultat (X, O, D ou A);nombre de coups}.
+ */
+public final class MessageCodec {
+    public static final int PROTOCOL_VERSION = 7;
+    /** Plus ancienne version acceptée : les trames des versions précédentes ne sont plus décodées */
+    public static final int MIN_PROTOCOL_VERSION = 7;
+    public static final int HEADER_SIZE = 2;
+    public static final int FIXED_SIZE = 8;
+    public static final int MAX_FRAME_SIZE = 0xFFFF;
+    /** Symbole d'un spectateur, dans son HELLO puis dans PLAYER_CONNECTED */
+    public static final char SPECTATOR = 'S';
+    
+    private static final int HAS_BOARD = 1;
+    private static final int GAME_WON = 1 << 1;
+    private static final int HAS_SEQUENCE = 1 << 2;
+    
+    private static final int NO_TEXT = 0;
+    private static final int CUSTOM_TEXT = 0xFF;
+    
+    // Textes standards : leur code est leur position + 1
+    private static final String[] STANDARD_TEXTS = {
+        "C'est votre tour !",
+        "Tour de l'adversaire",
+        "En attente d'un adversaire...",
+        "La partie n'a pas encore commencé",
+        "Ce n'est pas votre tour",
+        "Coup invalide",
+        "Match nul !",
+        "Victoire du joueur X !",
+        "Victoire du joueur O !",
+        "L'adversaire s'est déconnecté",
+        "Vous êtes le joueur X",
+        "Vous êtes le joueur O"
+    };
+    private static final Map<String, Integer> TEXT_CODES = new HashMap<>();
+    static {
+        for (int i = 0; i < STANDARD_TEXTS.length; i++) {
+            TEXT_CODES.put(STANDARD_TEXTS[i], i + 1);
+        }
+    }
+    
+    private static final GameMessage.MessageType[] TYPES = GameMessage.MessageType.values();
+    
+    private MessageCodec() {
+    }
+    
+    /**
+     * Message d'ouverture de session annonçant les versions supportées
+     */
+    public static GameMessage hello() {
+        GameMessage hello = new GameMessage(GameMessage.MessageType.HELLO);
+        hello.setRow(MIN_PROTOCOL_VERSION);
+        hello.setCol(PROTOCOL_VERSION);
+        return hello;
+    }
+    
+    /**
+     * Ouverture de session d'un spectateur de la salle roomId (0 : la partie la plus suivie)
+     */
+    public static GameMessage spectate(int roomId) {
+        GameMessage hello = hello();
+        hello.setPlayerSymbol(SPECTATOR);
+        // Identifiants de salle sans limite : 16 bits de poids faible en séquence, poids fort en somme de contrôle
+        hello.setSequence(roomId & 0xFFFF);
+        hello.setChecksum(roomId >>> 16);
+        return hello;
+    }
+    
+    /**
+     * Salle demandée par le HELLO d'un spectateur (0 : la partie la plus suivie)
+     */
+    public static int spectatedRoom(GameMessage hello) {
+        return (hello.getChecksum() << 16) | hello.getSequence();
+    }
+    
+    /**
+     * Ouverture de session d'un joueur qui reprend sa place après un redémarrage du serveur
+     */
+    public static GameMessage resume(char symbol, int ticket) {
+        GameMessage hello = hello();
+        hello.setPlayerSymbol(symbol);
+        setResumeTicket(hello, ticket);
+        return hello;
+    }
+    
+    /**
+     * Ticket de reprise porté par un message (PLAYER_CONNECTED ou HELLO), 0 s'il n'y en a pas
+     */
+    public static int resumeTicket(GameMessage message) {
+        return (message.getChecksum() << 16) | message.getSequence();
+    }
+    
+    /**
+     * Place un ticket de reprise dans un message ; ses 16 bits de poids faible ne doivent pas être nuls
+     */
+    public static void setResumeTicket(GameMessage message, int ticket) {
+        message.setSequence(ticket & 0xFFFF);
+        message.setChecksum(ticket >>> 16);
+    }
+    
+    /**
+     * Place l'identifiant du joueur (non nul) dans son HELLO
+     */
+    public static void setPlayerId(GameMessage hello, int playerId) {
+        hello.setContent(String.format("%08x", playerId));
+    }
+    
+    /**
+     * Identifiant du joueur porté par un HELLO, 0 s'il n'y en a pas (joueur anonyme)
+     */
+    public static int playerId(GameMessage hello) {
+        String content = hello.getContent();
+        if (content == null || content.length() != 8) {
+            return 0;
+        }
+        try {
+            return Integer.parseUnsignedInt(content, 16);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+    
+    /**
+     * Demande des count dernières parties du joueur
+     */
+    public static GameMessage historyRequest(int count) {
+        GameMessage request = new GameMessage(GameMessage.MessageType.HISTORY_REQUEST);
+        request.setRow(count);
+        return request;
+    }
+    
+    public static boolean isSpectator(GameMessage hello) {
+        return hello.getPlayerSymbol() == SPECTATOR;
+    }
+    
+    /**
+     * Version la plus récente commune avec celles annoncées par un HELLO, 0 si aucune
+     */
+    public static int negotiate(GameMessage hello) {
+        int version = Math.min(hello.getCol(), PROTOCOL_VERSION);
+        return (version >= Math.max(hello.getRow(), MIN_PROTOCOL_VERSION)) ? version : 0;
+    }
+    
+    /**
+     * Encode un message en trame complète (en-tête compris)
+     */
+    public static byte[] encode(GameMessage message) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(frameSize(message));
+        encode(message, buffer);
+        return buffer.array();
+    }
+    
+    /**
+     * Taille exacte de la trame d'un message, en-tête compris
+     */
+    public static int frameSize(GameMessage message) {
+        int size = HEADER_SIZE + FIXED_SIZE;
+        if (message.getSequence() != 0 || message.getChecksum() != 0) {
+            size += 4;
+        }
+        char[][] board = message.getBoard();
+        if (board != null) {
+            size += 3 + packedBoardSize(board.length, board.length == 0 ? 0 : board[0].length);
+        }
+        String content = message.getContent();
+        if (content != null && !TEXT_CODES.containsKey(content)) {
+            size += 2 + content.getBytes(StandardCharsets.UTF_8).length;
+        }
+        return size;
+    }
+    
+    /**
+     * Écrit la trame d'un message à la position courante du tampon
+     */
+    public static void encode(GameMessage message, ByteBuffer buffer) throws IOException {
+        int start = buffer.position();
+        buffer.position(start + HEADER_SIZE);
+        
+        char[][] board = message.getBoard();
+        String content = message.getContent();
+        Integer textCode = (content == null) ? Integer.valueOf(NO_TEXT) : TEXT_CODES.get(content);
+        
+        int flags = 0;
+        if (board != null) flags |= HAS_BOARD;
+        if (message.isGameWon()) flags |= GAME_WON;
+        if (message.getSequence() != 0 || message.getChecksum() != 0) flags |= HAS_SEQUENCE;
+        
+        buffer.put((byte) PROTOCOL_VERSION);
+        buffer.put((byte) message.getType().ordinal());
+        buffer.put((byte) flags);
+        buffer.put((byte) message.getPlayerSymbol());
+        buffer.put((byte) message.getRow());
+        buffer.put((byte) message.getCol());
+        buffer.put((byte) message.getWinner());
+        buffer.put((byte) (textCode == null ? CUSTOM_TEXT : textCode));
+        
+        if ((flags & HAS_SEQUENCE) != 0) {
+            buffer.putShort((short) message.getSequence());
+            buffer.putShort((short) message.getChecksum());
+        }
+        if (board != null) {
+            writeBoard(board, message.getWinLength(), buffer);
+        }
+        if (textCode == null) {
+            byte[] text = content.getBytes(StandardCharsets.UTF_8);
+            buffer.putShort((short) text.length);
+            buffer.put(text);
+        }
+        
+        int length = buffer.position() - start - HEADER_SIZE;
+        if (length > MAX_FRAME_SIZE) {
+            throw new IOException("Message trop grand: " + length + " octets");
+        }
+        buffer.putShort(start, (short) length);
+    }
+    
+    /**
+     * Décode le contenu d'une trame (sans l'en-tête) ; consomme exactement length octets
+     */
+    public static GameMessage decode(ByteBuffer buffer, int length) throws IOException {
+        int end = buffer.position() + length;
+        if (length < FIXED_SIZE) {
+            throw new IOException("Trame tronquée: " + length + " octets");
+        }
+        try {
+            int version = buffer.get() & 0xFF;
+            int type = buffer.get() & 0xFF;
+            if (version != PROTOCOL_VERSION && !isHandshake(type)) {
+                throw new IOException("Version de protocole non supportée: " + version);
+            }
+            if (type >= TYPES.length) {
+                throw new IOException("Type de message inconnu: " + type);
+            }
+            GameMessage message = new GameMessage(TYPES[type]);
+            int flags = buffer.get() & 0xFF;
+            message.setPlayerSymbol((char) (buffer.get() & 0xFF));
+            message.setRow(buffer.get() & 0xFF);
+            message.setCol(buffer.get() & 0xFF);
+            message.setWinner((char) (buffer.get() & 0xFF));
+            int textCode = buffer.get() & 0xFF;
+            message.setGameWon((flags & GAME_WON) != 0);
+            
+            if ((flags & HAS_SEQUENCE) != 0) {
+                message.setSequence(buffer.getShort() & 0xFFFF);
+                message.setChecksum(buffer.getShort() & 0xFFFF);
+            }
+            if ((flags & HAS_BOARD) != 0) {
+                message.setBoard(readBoard(buffer, message));
+            }
+            if (textCode == CUSTOM_TEXT) {
+                byte[] text = new byte[buffer.getShort() & 0xFFFF];
+                buffer.get(text);
+                message.setContent(new String(text, StandardCharsets.UTF_8));
+            } else if (textCode != NO_TEXT) {
+                if (textCode > STANDARD_TEXTS.length) {
+                    throw new IOException("Code de texte inconnu: " + textCode);
+                }
+                message.setContent(STANDARD_TEXTS[textCode - 1]);
+            }
+            
+            if (buffer.position() != end) {
+                throw new IOException("Longueur de trame incohérente");
+            }
+            return message;
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Trame tronquée", e);
+        } finally {
+            buffer.position(Math.min(end, buffer.limit()));
+        }
+    }
+    
+    public static void writeFrame(OutputStream output, GameMessage message) throws IOException {
+        output.write(encode(message));
+        output.flush();
+    }
+    
+    /**
+     * Lit une trame complète depuis un flux bloquant
+     */
+    public static GameMessage readFrame(DataInputStream input) throws IOException {
+        int length = input.readUnsignedShort();
+        byte[] payload = new byte[length];
+        input.readFully(payload);
+        return decode(ByteBuffer.wrap(payload), length);
+    }
+    
+    /**
+     * Tente de décoder une trame depuis un tampon en mode lecture.
+     * Retourne null si la trame n'est pas encore complète (le tampon n'est alors pas consommé).
+     */
+    public static GameMessage readFrame(ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < HEADER_SIZE) {
+            return null;
+        }
+        int length = buffer.getShort(buffer.position()) & 0xFFFF;
+        if (buffer.remaining() < HEADER_SIZE + length) {
+            return null;
+        }
+        buffer.position(buffer.position() + HEADER_SIZE);
+        return decode(buffer, length);
+    }
+    
+    /**
+     * Type d'une trame complète (en-tête compris), lu sans la décoder
+     */
+    public static GameMessage.MessageType peekType(ByteBuffer frame) {
+        int type = frame.get(frame.position() + HEADER_SIZE + 1) & 0xFF;
+        return (type < TYPES.length) ? TYPES[type] : null;
+    }
+    
+    private static boolean isHandshake(int type) {
+        return type == GameMessage.MessageType.HELLO.ordinal()
+                || type == GameMessage.MessageType.HELLO_ACK.ordinal();
+    }
+    
+    private static int packedBoardSize(int rows, int cols) {
+        return (rows * cols + 3) / 4;
+    }
+    
+    /**
+     * Plateau compacté : dimensions, alignement gagnant, puis 2 bits par case
+     * (0 vide, 1 X, 2 O), ligne par ligne
+     */
+    private static void writeBoard(char[][] board, int winLength, ByteBuffer buffer) {
+        int rows = board.length;
+        int cols = (rows == 0) ? 0 : board[0].length;
+        buffer.put((byte) rows);
+        buffer.put((byte) cols);
+        buffer.put((byte) winLength);
+        int current = 0;
+        int filled = 0;
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                char cell = board[i][j];
+                int bits = (cell == 'X') ? 1 : (cell == 'O') ? 2 : 0;
+                current |= bits << (filled * 2);
+                if (++filled == 4) {
+                    buffer.put((byte) current);
+                    current = 0;
+                    filled = 0;
+                }
+            }
+        }
+        if (filled > 0) {
+            buffer.put((byte) current);
+        }
+    }
+    
+    private static char[][] readBoard(ByteBuffer buffer, GameMessage message) {
+        int rows = buffer.get() & 0xFF;
+        int cols = buffer.get() & 0xFF;
+        message.setWinLength(buffer.get() & 0xFF);
+        char[][] board = new char[rows][cols];
+        int current = 0;
+        int available = 0;
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                if (available == 0) {
+                    current = buffer.get() & 0xFF;
+                    available = 4;
+                }
+                int bits = current & 0x3;
+                current >>>= 2;
+                available--;
+                board[i][j] = (bits == 1) ? 'X' : (bits == 2) ? 'O' : ' ';
+            }
+        }
+        return board;
+    }
+}
@@ -0,0 +1,63 @@
+package common;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Écriture des messages d'une connexion à mémoire bornée : chaque trame est
+ * encodée dans un tampon réutilisé, sans allocation par message et sans rien
+ * retenir des messages déjà envoyés. Le tampon ne grandit que pour une trame
+ * plus grande que les précédentes, jusqu'à la taille maximale d'une trame.
+ *
+ * Une instance par connexion ; les appels doivent être faits par un seul thread à la fois.
+ */
+public class MessageWriter {
+    private static final int INITIAL_CAPACITY = 256;
+    
+    private final OutputStream output;
+    private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_CAPACITY);
+    
+    public MessageWriter(OutputStream output) {
+        this.output = output;
+    }
+    
+    /**
+     * Écrit une trame sans vider le flux (pour regrouper plusieurs messages)
+     */
+    public void write(GameMessage message) throws IOException {
+        int size = MessageCodec.frameSize(message);
+        if (size > MessageCodec.HEADER_SIZE + MessageCodec.MAX_FRAME_SIZE) {
+            throw new IOException("Message trop grand: " + size + " octets");
+        }
+        if (size > buffer.capacity()) {
+            int capacity = buffer.capacity();
+            while (capacity < size) {
+                capacity *= 2;
+            }
+            buffer = ByteBuffer.allocate(Math.min(capacity, MessageCodec.HEADER_SIZE + MessageCodec.MAX_FRAME_SIZE));
+        }
+        buffer.clear();
+        MessageCodec.encode(message, buffer);
+        output.write(buffer.array(), 0, buffer.position());
+    }
+    
+    public void flush() throws IOException {
+        output.flush();
+    }
+    
+    /**
+     * Écrit une trame et vide le flux
+     */
+    public void send(GameMessage message) throws IOException {
+        write(message);
+        flush();
+    }
+    
+    /**
+     * Capacité actuelle du tampon d'encodage, en octets
+     */
+    public int getBufferCapacity() {
+        return buffer.capacity();
+    }
+}
@@ -0,0 +1,74 @@
+package common;
+
+/**
+ * Symétries d'un plateau rows x cols : les 8 rotations et réflexions d'un
+ * plateau carré, ou les 4 qui conservent ses dimensions s'il est rectangulaire.
+ *
+ * Une symétrie est un entier de 0 à 7 : le bit 4 transpose la case (ligne et
+ * colonne échangées, plateau carré seulement), puis le bit 1 renverse les
+ * lignes et le bit 2 les colonnes. La symétrie 0 est l'identité.
+ */
+public final class Symmetry {
+    public static final int IDENTITY = 0;
+    /** Nombre de symétries d'un plateau carré */
+    public static final int MAX_COUNT = 8;
+    
+    private static final int TRANSPOSE = 4;
+    private static final int FLIP_ROWS = 1;
+    private static final int FLIP_COLS = 2;
+    
+    // Symétrie réciproque de chacune, trouvée une fois pour toutes sur un plateau 3x3
+    private static final int[] INVERSE = new int[MAX_COUNT];
+    
+    static {
+        for (int s = 0; s < MAX_COUNT; s++) {
+            for (int t = 0; t < MAX_COUNT; t++) {
+                boolean inverse = true;
+                for (int cell = 0; cell < 9 && inverse; cell++) {
+                    int image = apply(s, cell / 3, cell % 3, 3, 3);
+                    inverse = apply(t, image / 3, image % 3, 3, 3) == cell;
+                }
+                if (inverse) {
+                    INVERSE[s] = t;
+                    break;
+                }
+            }
+        }
+    }
+    
+    private Symmetry() {
+    }
+    
+    /**
+     * Nombre de symétries d'un plateau : 8 s'il est carré, 4 sinon
+     * (numérotées de 0 à count - 1)
+     */
+    public static int count(int rows, int cols) {
+        return (rows == cols) ? MAX_COUNT : MAX_COUNT / 2;
+    }
+    
+    /**
+     * Image de la case (row, col) par la symétrie, en indice ligne * cols + colonne
+     */
+    public static int apply(int symmetry, int row, int col, int rows, int cols) {
+        if ((symmetry & TRANSPOSE) != 0) {
+            int swap = row;
+            row = col;
+            col = swap;
+        }
+        if ((symmetry & FLIP_ROWS) != 0) {
+            row = rows - 1 - row;
+        }
+        if ((symmetry & FLIP_COLS) != 0) {
+            col = cols - 1 - col;
+        }
+        return row * cols + col;
+    }
+    
+    /**
+     * Symétrie qui défait la symétrie donnée
+     */
+    public static int inverse(int symmetry) {
+        return INVERSE[symmetry];
+    }
+}
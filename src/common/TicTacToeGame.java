@@ -1,17 +1,71 @@
 package common;
 
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
 /**
- * Classe contenant la logique du jeu de Morpion
+ * Classe contenant la logique du jeu de Morpion, généralisée aux plateaux
+ * m x n où il faut aligner k symboles (3 x 3 et 3 alignés par défaut, jusqu'à
+ * 19 x 19 et 5 alignés pour le Gomoku). Seules les lignes passant par le
+ * dernier coup sont examinées : un coup coûte O(k) quelle que soit la taille du plateau.
+ *
+ * La partie tient aussi à jour un hachage de Zobrist de la position sous
+ * chacune des symétries du plateau ({@link Symmetry}) : le plus petit d'entre
+ * eux identifie la position à une rotation ou une réflexion près, sans
+ * recalcul sur la grille, pour les tables de transposition des recherches.
  */
 public class TicTacToeGame {
+    /** Plus grand côté de plateau accepté */
+    public static final int MAX_SIZE = 19;
+    
+    // Directions des lignes passant par une case : horizontale, verticale, diagonales
+    private static final int[][] DIRECTIONS = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+    
+    // Clés de Zobrist de X et de O sur chaque case, tirées une fois avec une graine fixe
+    private static final long[] X_KEYS = new long[MAX_SIZE * MAX_SIZE];
+    private static final long[] O_KEYS = new long[MAX_SIZE * MAX_SIZE];
+    // Par taille de plateau, les clés de chaque case vues à travers chaque symétrie (calculées à la demande)
+    private static final AtomicReferenceArray<long[]> SYMMETRIC_KEYS = new AtomicReferenceArray<>((MAX_SIZE + 1) * (MAX_SIZE + 1));
+    
+    static {
+        SplittableRandom random = new SplittableRandom(0x4D6F7270696F6EL);
+        for (int i = 0; i < X_KEYS.length; i++) {
+            X_KEYS[i] = random.nextLong();
+            O_KEYS[i] = random.nextLong();
+        }
+    }
+    
+    private final int rows;
+    private final int cols;
+    private final int winLength;
     private char[][] board;
     private char currentPlayer;
     private boolean gameWon;
     private char winner;
     private int moveCount;
+    private int checksum;
+    // Hachage de la position vue à travers chaque symétrie ; hashes[0] est la position elle-même
+    private final long[] hashes;
+    private final long[] symmetricKeys;
+    private final long rulesKey;
     
     public TicTacToeGame() {
-        board = new char[3][3];
+        this(3, 3, 3);
+    }
+    
+    /**
+     * Plateau de rows lignes et cols colonnes, gagné en alignant winLength symboles
+     */
+    public TicTacToeGame(int rows, int cols, int winLength) {
+        checkRules(rows, cols, winLength);
+        this.rows = rows;
+        this.cols = cols;
+        this.winLength = winLength;
+        board = new char[rows][cols];
+        hashes = new long[Symmetry.count(rows, cols)];
+        symmetricKeys = symmetricKeys(rows, cols);
+        rulesKey = rulesKey(rows, cols, winLength);
         initializeBoard();
         currentPlayer = 'X'; // X commence toujours
         gameWon = false;
@@ -19,17 +73,53 @@ public class TicTacToeGame {
         moveCount = 0;
     }
     
+    /**
+     * Copie indépendante d'une partie, position et hachages compris, pour qu'une
+     * recherche joue ses coups sans toucher à l'original
+     */
+    public TicTacToeGame(TicTacToeGame other) {
+        this.rows = other.rows;
+        this.cols = other.cols;
+        this.winLength = other.winLength;
+        board = new char[rows][];
+        for (int i = 0; i < rows; i++) {
+            board[i] = other.board[i].clone();
+        }
+        currentPlayer = other.currentPlayer;
+        gameWon = other.gameWon;
+        winner = other.winner;
+        moveCount = other.moveCount;
+        checksum = other.checksum;
+        hashes = other.hashes.clone();
+        symmetricKeys = other.symmetricKeys;
+        rulesKey = other.rulesKey;
+    }
+    
+    /**
+     * Vérifie qu'une règle de partie est jouable
+     *
+     * @throws IllegalArgumentException si la taille ou l'alignement sont hors limites
+     */
+    public static void checkRules(int rows, int cols, int winLength) {
+        if (rows < 1 || rows > MAX_SIZE || cols < 1 || cols > MAX_SIZE) {
+            throw new IllegalArgumentException("Taille de plateau invalide: " + rows + "x" + cols);
+        }
+        if (winLength < 1 || winLength > Math.max(rows, cols)) {
+            throw new IllegalArgumentException("Alignement invalide pour un plateau " + rows + "x" + cols + ": " + winLength);
+        }
+    }
+    
     private void initializeBoard() {
-        for (int i = 0; i < 3; i++) {
-            for (int j = 0; j < 3; j++) {
-                board[i][j] = ' ';
-            }
+        for (char[] line : board) {
+            Arrays.fill(line, ' ');
         }
+        // Deux règles différentes ne partagent pas de position dans une table commune
+        Arrays.fill(hashes, rulesKey);
     }
     
     public boolean makeMove(int row, int col, char player) {
         // Vérifier si le coup est valide
-        if (row < 0 || row >= 3 || col < 0 || col >= 3) {
+        if (row < 0 || row >= rows || col < 0 || col >= cols) {
             return false;
         }
         
@@ -48,9 +138,11 @@ public class TicTacToeGame {
         // Effectuer le coup
         board[row][col] = player;
         moveCount++;
+        checksum += cellChecksum(row, col, player);
+        toggleHashes(row, col, player);
         
         // Vérifier la victoire
-        checkWin();
+        checkWin(row, col, player);
         
         // Changer de joueur
         if (!gameWon) {
@@ -60,67 +152,202 @@ public class TicTacToeGame {
         return true;
     }
     
-    private void checkWin() {
-        // Vérifier les lignes
-        for (int i = 0; i < 3; i++) {
-            if (board[i][0] != ' ' && board[i][0] == board[i][1] && board[i][1] == board[i][2]) {
-                gameWon = true;
-                winner = board[i][0];
-                return;
+    /**
+     * Annule le dernier coup joué, en (row, col), pour les recherches qui explorent
+     * les coups sur une même partie sans la copier. Seul le dernier coup peut être annulé.
+     */
+    public boolean undoMove(int row, int col) {
+        if (row < 0 || row >= rows || col < 0 || col >= cols || board[row][col] == ' ') {
+            return false;
+        }
+        char player = board[row][col];
+        board[row][col] = ' ';
+        moveCount--;
+        checksum -= cellChecksum(row, col, player);
+        toggleHashes(row, col, player);
+        gameWon = false;
+        winner = ' ';
+        currentPlayer = player;
+        return true;
+    }
+    
+    /**
+     * Ajoute ou retire (ou exclusif) un symbole dans le hachage de chaque symétrie
+     */
+    private void toggleHashes(int row, int col, char player) {
+        int count = hashes.length;
+        int base = ((row * cols + col) * 2 + (player == 'X' ? 0 : 1)) * count;
+        for (int s = 0; s < count; s++) {
+            hashes[s] ^= symmetricKeys[base + s];
+        }
+    }
+    
+    /**
+     * Clés d'un plateau rows x cols, rangées par case, puis par joueur, puis par
+     * symétrie : un coup lit ainsi des clés contiguës. Partagées par toutes les
+     * parties de même taille.
+     */
+    private static long[] symmetricKeys(int rows, int cols) {
+        int size = rows * (MAX_SIZE + 1) + cols;
+        long[] keys = SYMMETRIC_KEYS.get(size);
+        if (keys == null) {
+            // Deux fils peuvent calculer la même table : elles sont identiques
+            int count = Symmetry.count(rows, cols);
+            keys = new long[rows * cols * 2 * count];
+            for (int cell = 0; cell < rows * cols; cell++) {
+                for (int s = 0; s < count; s++) {
+                    int image = Symmetry.apply(s, cell / cols, cell % cols, rows, cols);
+                    int key = (image / cols) * MAX_SIZE + image % cols;
+                    keys[(cell * 2) * count + s] = X_KEYS[key];
+                    keys[(cell * 2 + 1) * count + s] = O_KEYS[key];
+                }
             }
+            SYMMETRIC_KEYS.set(size, keys);
         }
-        
-        // Vérifier les colonnes
-        for (int j = 0; j < 3; j++) {
-            if (board[0][j] != ' ' && board[0][j] == board[1][j] && board[1][j] == board[2][j]) {
+        return keys;
+    }
+    
+    private static long rulesKey(int rows, int cols, int winLength) {
+        long h = ((long) rows << 32) ^ ((long) cols << 16) ^ winLength;
+        h *= 0x9E3779B97F4A7C15L;
+        h ^= h >>> 31;
+        h *= 0xBF58476D1CE4E5B9L;
+        return h ^ (h >>> 29);
+    }
+    
+    /**
+     * Cherche un alignement gagnant passant par le coup qui vient d'être joué
+     */
+    private void checkWin(int row, int col, char player) {
+        for (int[] direction : DIRECTIONS) {
+            int aligned = 1 + countFrom(row, col, direction[0], direction[1], player)
+                    + countFrom(row, col, -direction[0], -direction[1], player);
+            if (aligned >= winLength) {
                 gameWon = true;
-                winner = board[0][j];
+                winner = player;
                 return;
             }
         }
         
-        // Vérifier les diagonales
-        if (board[0][0] != ' ' && board[0][0] == board[1][1] && board[1][1] == board[2][2]) {
-            gameWon = true;
-            winner = board[0][0];
-            return;
-        }
-        
-        if (board[0][2] != ' ' && board[0][2] == board[1][1] && board[1][1] == board[2][0]) {
-            gameWon = true;
-            winner = board[0][2];
-            return;
-        }
-        
         // Vérifier le match nul
-        if (moveCount == 9 && !gameWon) {
+        if (moveCount == rows * cols) {
             gameWon = true;
             winner = 'D'; // Draw (match nul)
         }
     }
     
+    /**
+     * Vrai si le joueur gagnerait en jouant sur la case libre (row, col), sans
+     * toucher à la partie : pour les robots, une victoire ou une menace en un coup
+     */
+    public boolean isWinningMove(int row, int col, char player) {
+        if (board[row][col] != ' ') {
+            return false;
+        }
+        for (int[] direction : DIRECTIONS) {
+            int aligned = 1 + countFrom(row, col, direction[0], direction[1], player)
+                    + countFrom(row, col, -direction[0], -direction[1], player);
+            if (aligned >= winLength) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Symboles du joueur alignés après la case donnée dans une direction
+     * (au plus winLength - 1 : au-delà, le résultat ne change plus)
+     */
+    private int countFrom(int row, int col, int dRow, int dCol, char player) {
+        int count = 0;
+        int r = row + dRow;
+        int c = col + dCol;
+        while (count < winLength - 1 && r >= 0 && r < rows && c >= 0 && c < cols && board[r][c] == player) {
+            count++;
+            r += dRow;
+            c += dCol;
+        }
+        return count;
+    }
+    
     // Getters
     public char[][] getBoard() {
         // Retourner une copie pour éviter les modifications externes
-        char[][] copy = new char[3][3];
-        for (int i = 0; i < 3; i++) {
-            for (int j = 0; j < 3; j++) {
-                copy[i][j] = board[i][j];
-            }
+        char[][] copy = new char[rows][];
+        for (int i = 0; i < rows; i++) {
+            copy[i] = board[i].clone();
         }
         return copy;
     }
     
+    /**
+     * Contenu d'une case, sans copier la grille : 'X', 'O' ou ' '
+     */
+    public char getCell(int row, int col) {
+        return board[row][col];
+    }
+    
+    public int getRows() { return rows; }
+    public int getCols() { return cols; }
+    
+    /** Nombre de symboles à aligner pour gagner */
+    public int getWinLength() { return winLength; }
+    
     public char getCurrentPlayer() { return currentPlayer; }
     public boolean isGameWon() { return gameWon; }
     public char getWinner() { return winner; }
     public int getMoveCount() { return moveCount; }
     
+    /**
+     * Somme de contrôle du plateau sur 16 bits, maintenue à chaque coup.
+     * Permet aux clients de vérifier le plateau reconstruit à partir des coups.
+     */
+    public int getChecksum() { return checksum & 0xFFFF; }
+    
+    /**
+     * Hachage de Zobrist de la position (règle de la partie comprise), maintenu à chaque coup
+     */
+    public long getHash() { return hashes[0]; }
+    
+    /**
+     * Hachage commun à toutes les positions qui se déduisent de celle-ci par
+     * rotation ou réflexion : le plus petit des hachages des symétries
+     */
+    public long getCanonicalHash() {
+        return hashes[getCanonicalSymmetry()];
+    }
+    
+    /**
+     * Symétrie qui transforme la position en sa forme canonique : la case
+     * {@link Symmetry#apply} de cette partie est celle de la forme canonique
+     */
+    public int getCanonicalSymmetry() {
+        int best = 0;
+        for (int s = 1; s < hashes.length; s++) {
+            if (hashes[s] < hashes[best]) {
+                best = s;
+            }
+        }
+        return best;
+    }
+    
+    /**
+     * Contribution d'une case occupée à la somme de contrôle du plateau
+     */
+    public static int cellChecksum(int row, int col, char player) {
+        int h = (row << 16) ^ col ^ (player << 24);
+        h *= 0x9E3779B1;
+        h ^= h >>> 15;
+        h *= 0x85EBCA77;
+        return h ^ (h >>> 13);
+    }
+    
     public void reset() {
         initializeBoard();
         currentPlayer = 'X';
         gameWon = false;
         winner = ' ';
         moveCount = 0;
+        checksum = 0;
     }
 }
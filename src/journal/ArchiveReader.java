@@ -0,0 +1,173 @@
+package journal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Relecture en masse de l'archive des parties : les fichiers sont projetés en
+ * mémoire par fenêtres et parcourus bloc par bloc, sans copie ni allocation par
+ * partie. Un bloc incomplet ou dont le CRC ne correspond pas (arrêt brutal
+ * pendant son écriture) termine la relecture de son fichier.
+ */
+public class ArchiveReader {
+    // Taille au plus d'une projection ; un bloc n'est jamais coupé entre deux fenêtres
+    private static final long WINDOW_BYTES = 256L * 1024 * 1024;
+    
+    /**
+     * Reçoit chaque partie relue, décodée dans un même objet réutilisé : valable
+     * seulement pendant l'appel
+     */
+    public interface Visitor {
+        void game(GameRecord record);
+    }
+    
+    /**
+     * Reçoit les parties compactées telles quelles, un long par partie
+     */
+    public interface PackedVisitor {
+        /** Règle et heure de base des parties du bloc qui suit */
+        default void block(int rows, int cols, int winLength, long baseTime) {
+        }
+        
+        void game(long packed);
+    }
+    
+    private final Path directory;
+    private final CRC32 crc = new CRC32();
+    private long records;
+    private long blocks;
+    private long bytes;
+    private boolean truncated;
+    
+    public ArchiveReader(Path directory) {
+        this.directory = directory;
+    }
+    
+    /**
+     * Relit toutes les parties de l'archive du répertoire
+     *
+     * @return nombre de parties relues
+     */
+    public static long read(Path directory, Visitor visitor) throws IOException {
+        ArchiveReader reader = new ArchiveReader(directory);
+        reader.replay(visitor);
+        return reader.getRecords();
+    }
+    
+    /**
+     * Relit toutes les parties, décodées
+     */
+    public void replay(Visitor visitor) throws IOException {
+        GameRecord record = new GameRecord();
+        scan(false, (format, rows, cols, winLength, baseTime, count, content) -> {
+            record.setRules(rows, cols, winLength);
+            int players = content.limit() - 8 * count;
+            LongBuffer packed = (format == GameArchive.PACKED) ? content.asLongBuffer() : null;
+            for (int i = 0; i < count; i++) {
+                if (packed != null) {
+                    record.unpack(packed.get(i), baseTime);
+                } else {
+                    record.readVarint(content, baseTime);
+                }
+                record.setPlayers(content.getInt(players + 8 * i), content.getInt(players + 8 * i + 4));
+                visitor.game(record);
+            }
+        });
+    }
+    
+    /**
+     * Relit les seules parties compactées (plateaux d'au plus 9 cases), sans les
+     * décoder : le chemin le plus rapide pour compter ou filtrer en masse
+     */
+    public void replayPacked(PackedVisitor visitor) throws IOException {
+        scan(true, (format, rows, cols, winLength, baseTime, count, content) -> {
+            visitor.block(rows, cols, winLength, baseTime);
+            LongBuffer packed = content.asLongBuffer();
+            for (int i = 0; i < count; i++) {
+                visitor.game(packed.get(i));
+            }
+        });
+    }
+    
+    private interface BlockHandler {
+        void block(int format, int rows, int cols, int winLength, long baseTime, int count, ByteBuffer content);
+    }
+    
+    private void scan(boolean packedOnly, BlockHandler handler) throws IOException {
+        for (Path file : GameArchive.files(directory)) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                scan(channel, packedOnly, handler);
+            }
+        }
+    }
+    
+    private void scan(FileChannel channel, boolean packedOnly, BlockHandler handler) throws IOException {
+        long size = channel.size();
+        long position = 0;
+        long windowStart = 0;
+        MappedByteBuffer window = null;
+        while (position < size) {
+            if (size - position < GameArchive.BLOCK_HEADER_SIZE) {
+                truncated = true;
+                return;
+            }
+            if (window == null || position + GameArchive.BLOCK_HEADER_SIZE > windowStart + window.capacity()) {
+                windowStart = position;
+                window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW_BYTES, size - position));
+            }
+            int offset = (int) (position - windowStart);
+            int length = window.getInt(offset + 12);
+            if (window.getInt(offset) != GameArchive.MAGIC || length < 0
+                    || position + GameArchive.BLOCK_HEADER_SIZE + length > size) {
+                truncated = true;
+                return;
+            }
+            if (offset + GameArchive.BLOCK_HEADER_SIZE + length > window.capacity()) {
+                // Bloc à cheval sur la fin de la fenêtre : nouvelle fenêtre à partir du bloc
+                window = null;
+                continue;
+            }
+            int format = window.get(offset + 4);
+            ByteBuffer content = window.duplicate();
+            content.position(offset + GameArchive.BLOCK_HEADER_SIZE).limit(offset + GameArchive.BLOCK_HEADER_SIZE + length);
+            content = content.slice();
+            crc.reset();
+            crc.update(content.duplicate());
+            if ((int) crc.getValue() != window.getInt(offset + 24)) {
+                truncated = true;
+                return;
+            }
+            int count = window.getInt(offset + 8);
+            if (count < 0 || 8L * count > length) {
+                truncated = true;
+                return;
+            }
+            if (!packedOnly || format == GameArchive.PACKED) {
+                handler.block(format, window.get(offset + 5) & 0xFF, window.get(offset + 6) & 0xFF,
+                        window.get(offset + 7) & 0xFF, window.getLong(offset + 16), count, content);
+                records += count;
+            }
+            blocks++;
+            position += GameArchive.BLOCK_HEADER_SIZE + length;
+            bytes += GameArchive.BLOCK_HEADER_SIZE + length;
+        }
+    }
+    
+    /** Parties relues */
+    public long getRecords() { return records; }
+    
+    /** Blocs parcourus */
+    public long getBlocks() { return blocks; }
+    
+    /** Octets parcourus */
+    public long getBytes() { return bytes; }
+    
+    /** La relecture d'un fichier s'est arrêtée sur un bloc incomplet ou corrompu */
+    public boolean isTruncated() { return truncated; }
+}
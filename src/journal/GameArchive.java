@@ -0,0 +1,343 @@
+package journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Archive des parties terminées, en ajout seul, destinée à la relecture en
+ * masse (analyse, historique) : chaque partie y tient dans un long sur un
+ * plateau 3x3, en quelques octets à longueur variable au-delà (voir
+ * {@link GameRecord}).
+ *
+ * Les parties sont regroupées en blocs d'une même règle. Un ajout n'est qu'une
+ * copie dans le bloc en cours, sous un verrou ; un bloc plein (ou en attente
+ * depuis flushIntervalMs millisecondes) est écrit d'un seul appel par un fil de
+ * fond. Chaque ouverture écrit dans un nouveau fichier : une fin de fichier
+ * déchirée par un arrêt brutal n'en cache jamais les blocs suivants.
+ *
+ * Format d'un bloc :
+ * <pre>
+ * [magique u32][format u8 (1 : compacté, 2 : varint)][lignes u8][colonnes u8][alignement u8]
+ * [parties u32][longueur du contenu u32][heure de base u64][CRC32 u32 du contenu]   (en-tête, 28 octets)
+ * puis le contenu : un long par partie (compacté) ou les parties à la suite (varint),
+ * suivis des identifiants des joueurs [X u32][O u32] de chaque partie
+ * </pre>
+ *
+ * L'archive n'est pas synchronisée avec le disque avant sa fermeture : le
+ * journal des coups reste la référence en cas de panne du système.
+ */
+public class GameArchive implements Closeable {
+    /** Taille par défaut du contenu d'un bloc, en octets */
+    public static final int DEFAULT_BLOCK_BYTES = 64 * 1024;
+    /** Attente au plus d'un bloc entamé avant son écriture, en millisecondes */
+    public static final long DEFAULT_FLUSH_INTERVAL_MS = 1000;
+    
+    static final int MAGIC = 0x4D475242; // "MGRB"
+    static final int PACKED = 1;
+    static final int VARINT = 2;
+    static final int BLOCK_HEADER_SIZE = 28;
+    private static final String PREFIX = "games-";
+    private static final String SUFFIX = ".archive";
+    
+    private final Path file;
+    private final FileChannel channel;
+    private final int blockBytes;
+    private final ScheduledExecutorService background;
+    
+    // Ajouts : état protégé par lock
+    private final ReentrantLock lock = new ReentrantLock();
+    private final CRC32 crc = new CRC32();
+    // Blocs écrits, réutilisés
+    private final ArrayDeque<ByteBuffer> spare = new ArrayDeque<>();
+    private ByteBuffer block;
+    // Identifiants des joueurs des parties du bloc en cours, écrits à la fin du bloc
+    private int[] players = new int[256];
+    private int format;
+    private int rows;
+    private int cols;
+    private int winLength;
+    private long baseTime;
+    private int count;
+    private long sealedAt;
+    private boolean closed;
+    private long records;
+    private long blocks;
+    private long dropped;
+    
+    // Écritures : fil de fond uniquement
+    private volatile boolean failed;
+    private volatile long writtenBytes;
+    
+    private GameArchive(Path file, FileChannel channel, int blockBytes) {
+        this.file = file;
+        this.channel = channel;
+        this.blockBytes = blockBytes;
+        this.block = newBlock();
+        this.sealedAt = System.nanoTime();
+        this.background = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "archive");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    /**
+     * Ouvre l'archive du répertoire donné (créé au besoin), dans un nouveau fichier
+     *
+     * @param blockBytes taille du contenu de chaque bloc
+     * @param flushIntervalMs attente au plus d'un bloc entamé avant son écriture
+     */
+    public static GameArchive open(Path directory, int blockBytes, long flushIntervalMs) throws IOException {
+        if (blockBytes < 256) {
+            throw new IllegalArgumentException("Bloc d'archive trop petit: " + blockBytes + " octets");
+        }
+        Files.createDirectories(directory);
+        List<Path> files = files(directory);
+        long index = files.isEmpty() ? 0 : indexOf(files.get(files.size() - 1)) + 1;
+        Path file = directory.resolve(String.format("%s%08x%s", PREFIX, index, SUFFIX));
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        GameArchive archive = new GameArchive(file, channel, blockBytes);
+        archive.background.scheduleWithFixedDelay(() -> archive.flushIdle(flushIntervalMs),
+                flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        return archive;
+    }
+    
+    public static GameArchive open(Path directory) throws IOException {
+        return open(directory, DEFAULT_BLOCK_BYTES, DEFAULT_FLUSH_INTERVAL_MS);
+    }
+    
+    /**
+     * Fichiers d'archive d'un répertoire, dans l'ordre d'écriture
+     */
+    static List<Path> files(Path directory) throws IOException {
+        List<Path> files = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return files;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        // Numéro en hexadécimal sur 8 chiffres : l'ordre alphabétique suffit
+        files.sort(null);
+        return files;
+    }
+    
+    private static long indexOf(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()), 16);
+    }
+    
+    /**
+     * Ajoute une partie terminée ; le bloc en cours est écrit s'il est plein
+     * ou d'une autre règle
+     */
+    public void append(GameRecord record) {
+        lock.lock();
+        try {
+            if (closed || failed) {
+                dropped++;
+                return;
+            }
+            boolean packed = GameRecord.fitsPacked(record.getRows(), record.getCols());
+            if (count > 0 && (record.getRows() != rows || record.getCols() != cols
+                    || record.getWinLength() != winLength
+                    || block.remaining() < (packed ? Long.BYTES : record.maxVarintSize()) + 8 * (count + 1))) {
+                seal();
+            }
+            if (count == 0) {
+                format = packed ? PACKED : VARINT;
+                rows = record.getRows();
+                cols = record.getCols();
+                winLength = record.getWinLength();
+                // À la seconde : l'heure relue est celle de la partie, tronquée à la seconde
+                baseTime = record.getTime() / 1000 * 1000;
+            }
+            if (packed) {
+                block.putLong(record.pack(baseTime));
+            } else {
+                record.writeVarint(block, baseTime);
+            }
+            if (2 * count + 2 > players.length) {
+                players = Arrays.copyOf(players, players.length * 2);
+            }
+            players[2 * count] = record.getPlayerX();
+            players[2 * count + 1] = record.getPlayerO();
+            count++;
+            records++;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Termine le bloc en cours et le confie au fil de fond (sous le verrou)
+     */
+    private void seal() {
+        ByteBuffer sealed = block;
+        for (int i = 0; i < 2 * count; i++) {
+            sealed.putInt(players[i]);
+        }
+        int length = sealed.position() - BLOCK_HEADER_SIZE;
+        ByteBuffer content = sealed.duplicate();
+        content.position(BLOCK_HEADER_SIZE).limit(sealed.position());
+        crc.reset();
+        crc.update(content);
+        sealed.putInt(0, MAGIC);
+        sealed.put(4, (byte) format).put(5, (byte) rows).put(6, (byte) cols).put(7, (byte) winLength);
+        sealed.putInt(8, count).putInt(12, length).putLong(16, baseTime).putInt(24, (int) crc.getValue());
+        sealed.flip();
+        int sealedCount = count;
+        block = spare.isEmpty() ? newBlock() : spare.poll();
+        count = 0;
+        blocks++;
+        sealedAt = System.nanoTime();
+        background.execute(() -> write(sealed, sealedCount));
+    }
+    
+    private ByteBuffer newBlock() {
+        ByteBuffer buffer = ByteBuffer.allocate(BLOCK_HEADER_SIZE + blockBytes);
+        buffer.position(BLOCK_HEADER_SIZE);
+        return buffer;
+    }
+    
+    private void write(ByteBuffer sealed, int sealedCount) {
+        if (!failed) {
+            try {
+                while (sealed.hasRemaining()) {
+                    channel.write(sealed);
+                }
+                writtenBytes = channel.position();
+            } catch (IOException e) {
+                System.err.println("Écriture de l'archive impossible, parties suivantes ignorées: " + e.getMessage());
+                failed = true;
+            }
+        }
+        lock.lock();
+        try {
+            if (failed) {
+                dropped += sealedCount;
+            }
+            sealed.clear().position(BLOCK_HEADER_SIZE);
+            spare.push(sealed);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Écrit le bloc en cours s'il attend depuis plus de maxWaitMs millisecondes
+     */
+    private void flushIdle(long maxWaitMs) {
+        lock.lock();
+        try {
+            if (!closed && count > 0 && System.nanoTime() - sealedAt >= TimeUnit.MILLISECONDS.toNanos(maxWaitMs)) {
+                seal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Écrit le bloc en cours et attend que tous les blocs soient dans le fichier
+     */
+    public void flush() {
+        lock.lock();
+        try {
+            if (count > 0) {
+                seal();
+            }
+        } finally {
+            lock.unlock();
+        }
+        try {
+            background.submit(() -> { }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    /**
+     * Écrit les derniers blocs, synchronise le fichier avec le disque et le ferme
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            if (count > 0) {
+                seal();
+            }
+            closed = true;
+        } finally {
+            lock.unlock();
+        }
+        background.shutdown();
+        try {
+            background.awaitTermination(10, TimeUnit.SECONDS);
+            channel.force(false);
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Fermeture de l'archive impossible: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /** Parties ajoutées depuis l'ouverture */
+    public long getRecords() {
+        lock.lock();
+        try {
+            return records;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /** Blocs terminés depuis l'ouverture */
+    public long getBlocks() {
+        lock.lock();
+        try {
+            return blocks;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /** Parties perdues après une erreur d'écriture ou la fermeture */
+    public long getDropped() {
+        lock.lock();
+        try {
+            return dropped;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /** Taille du fichier écrit par cette ouverture */
+    public long getWrittenBytes() { return writtenBytes; }
+    
+    public Path getFile() { return file; }
+}
@@ -0,0 +1,452 @@
+package journal;
+
+import common.TicTacToeGame;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntConsumer;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Historique des parties terminées, interrogeable sans parcourir toutes les
+ * parties. Les parties sont numérotées dans leur ordre d'arrivée, qui est aussi
+ * celui de leur heure de fin ; quatre index s'y ajoutent :
+ * <ul>
+ * <li>par joueur : chaque partie désigne la partie précédente de chacun de ses
+ * deux joueurs, et une table donne la dernière partie de chaque joueur ; les N
+ * dernières parties d'un joueur se lisent en N sauts ;</li>
+ * <li>par heure : les heures de fin sont croissantes, une recherche
+ * dichotomique borne un intervalle de temps ;</li>
+ * <li>par résultat : les numéros des parties de chaque résultat, dans l'ordre,
+ * bornés de la même façon ;</li>
+ * <li>par position : chaque position atteinte, identifiée par son hachage
+ * canonique (symétries confondues, règle comprise), désigne la dernière partie
+ * qui l'a atteinte, chaque occurrence désignant la précédente.</li>
+ * </ul>
+ *
+ * Tout est rangé dans des tableaux de types primitifs, en ajout seul. Une
+ * requête relève sous le verrou les tableaux et ses bornes, puis son flux les
+ * parcourt hors du verrou : rien de ce qui précède les bornes relevées ne change
+ * plus, et un tableau agrandi est une copie qui laisse l'ancien intact.
+ */
+public final class GameHistory {
+    private static final char[] RESULTS = {'D', 'X', 'O', MoveJournal.ABANDONED};
+    private static final int NONE = -1;
+    
+    private final ReentrantLock lock = new ReentrantLock();
+    private int size;
+    private long lastTime = Long.MIN_VALUE;
+    // Colonnes des parties, par numéro de partie
+    private long[] times = new long[1024];
+    private byte[] results = new byte[1024];
+    private int[] rules = new int[1024];
+    private int[] playersX = new int[1024];
+    private int[] playersO = new int[1024];
+    private int[] previousX = new int[1024];
+    private int[] previousO = new int[1024];
+    // Coups de la partie n : cells[moveStart[n]] à cells[moveStart[n + 1]] exclu
+    private int[] moveStart = new int[1025];
+    private short[] cells = new short[8192];
+    // Numéros des parties de chaque résultat, dans l'ordre
+    private final int[][] byResult = new int[RESULTS.length][1024];
+    private final int[] byResultSize = new int[RESULTS.length];
+    // Dernière partie de chaque joueur (adressage ouvert, 0 : case libre)
+    private int[] playerKeys = new int[1024];
+    private int[] playerHeads = new int[1024];
+    private int playerCount;
+    // Dernière occurrence de chaque position (adressage ouvert, 0 : case libre)
+    private long[] positionKeys = new long[8192];
+    private int[] positionHeads = new int[8192];
+    private int positionCount;
+    // Occurrences : partie et occurrence précédente de la même position
+    private int[] occurrenceGames = new int[8192];
+    private int[] occurrenceNext = new int[8192];
+    private int occurrences;
+    // Partie rejouée pour calculer les positions atteintes, réutilisée tant que la règle ne change pas
+    private TicTacToeGame replay;
+    
+    public GameHistory() {
+    }
+    
+    /**
+     * Historique des parties de l'archive du répertoire
+     */
+    public static GameHistory load(Path directory) throws IOException {
+        GameHistory history = new GameHistory();
+        ArchiveReader.read(directory, history::add);
+        return history;
+    }
+    
+    /**
+     * Ajoute une partie terminée (copiée : l'objet peut être réutilisé ensuite).
+     * Une heure antérieure à celle de la partie précédente est ramenée à celle-ci,
+     * pour que les heures restent croissantes.
+     */
+    public void add(GameRecord record) {
+        lock.lock();
+        try {
+            int game = size;
+            if (game == times.length) {
+                grow();
+            }
+            int moves = record.getMoveCount();
+            int start = moveStart[game];
+            if (start + moves > cells.length) {
+                cells = Arrays.copyOf(cells, Math.max(cells.length * 2, start + moves));
+            }
+            for (int i = 0; i < moves; i++) {
+                cells[start + i] = (short) record.getCell(i);
+            }
+            moveStart[game + 1] = start + moves;
+            lastTime = Math.max(lastTime, record.getTime());
+            times[game] = lastTime;
+            int result = resultCode(record.getResult());
+            results[game] = (byte) result;
+            rules[game] = record.getRows() << 16 | record.getCols() << 8 | record.getWinLength();
+            playersX[game] = record.getPlayerX();
+            playersO[game] = record.getPlayerO();
+            previousX[game] = link(record.getPlayerX(), game);
+            previousO[game] = (record.getPlayerO() == record.getPlayerX()) ? previousX[game] : link(record.getPlayerO(), game);
+            int[] list = byResult[result];
+            if (byResultSize[result] == list.length) {
+                byResult[result] = list = Arrays.copyOf(list, list.length * 2);
+            }
+            list[byResultSize[result]++] = game;
+            indexPositions(record, game);
+            size++;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private void grow() {
+        int capacity = times.length * 2;
+        times = Arrays.copyOf(times, capacity);
+        results = Arrays.copyOf(results, capacity);
+        rules = Arrays.copyOf(rules, capacity);
+        playersX = Arrays.copyOf(playersX, capacity);
+        playersO = Arrays.copyOf(playersO, capacity);
+        previousX = Arrays.copyOf(previousX, capacity);
+        previousO = Arrays.copyOf(previousO, capacity);
+        moveStart = Arrays.copyOf(moveStart, capacity + 1);
+    }
+    
+    /**
+     * Fait de game la dernière partie du joueur
+     *
+     * @return sa partie précédente, NONE s'il n'en a pas (ou s'il est anonyme)
+     */
+    private int link(int player, int game) {
+        if (player == 0) {
+            return NONE;
+        }
+        if (2 * (playerCount + 1) > playerKeys.length) {
+            rehashPlayers();
+        }
+        int slot = playerSlot(playerKeys, player);
+        if (playerKeys[slot] == 0) {
+            playerKeys[slot] = player;
+            playerHeads[slot] = game;
+            playerCount++;
+            return NONE;
+        }
+        int previous = playerHeads[slot];
+        playerHeads[slot] = game;
+        return previous;
+    }
+    
+    private static int playerSlot(int[] keys, int player) {
+        int mask = keys.length - 1;
+        int hash = player * 0x9E3779B1;
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        while (keys[slot] != 0 && keys[slot] != player) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+    
+    private void rehashPlayers() {
+        int[] keys = new int[playerKeys.length * 2];
+        int[] heads = new int[keys.length];
+        for (int i = 0; i < playerKeys.length; i++) {
+            if (playerKeys[i] != 0) {
+                int slot = playerSlot(keys, playerKeys[i]);
+                keys[slot] = playerKeys[i];
+                heads[slot] = playerHeads[i];
+            }
+        }
+        playerKeys = keys;
+        playerHeads = heads;
+    }
+    
+    /**
+     * Rejoue la partie et inscrit chaque position atteinte après un coup
+     */
+    private void indexPositions(GameRecord record, int game) {
+        if (replay == null || replay.getRows() != record.getRows() || replay.getCols() != record.getCols()
+                || replay.getWinLength() != record.getWinLength()) {
+            try {
+                replay = new TicTacToeGame(record.getRows(), record.getCols(), record.getWinLength());
+            } catch (IllegalArgumentException e) {
+                return;
+            }
+        } else {
+            replay.reset();
+        }
+        for (int i = 0; i < record.getMoveCount(); i++) {
+            if (!replay.makeMove(record.getRow(i), record.getCol(i), replay.getCurrentPlayer())) {
+                // Partie incohérente : ses positions suivantes ne sont pas indexées
+                return;
+            }
+            addOccurrence(replay.getCanonicalHash(), game);
+        }
+    }
+    
+    private void addOccurrence(long position, int game) {
+        if (occurrences == occurrenceGames.length) {
+            occurrenceGames = Arrays.copyOf(occurrenceGames, occurrences * 2);
+            occurrenceNext = Arrays.copyOf(occurrenceNext, occurrences * 2);
+        }
+        if (2 * (positionCount + 1) > positionKeys.length) {
+            rehashPositions();
+        }
+        long key = (position == 0) ? 1 : position;
+        int slot = positionSlot(positionKeys, key);
+        int previous = NONE;
+        if (positionKeys[slot] == 0) {
+            positionKeys[slot] = key;
+            positionCount++;
+        } else {
+            previous = positionHeads[slot];
+        }
+        occurrenceGames[occurrences] = game;
+        occurrenceNext[occurrences] = previous;
+        positionHeads[slot] = occurrences++;
+    }
+    
+    private static int positionSlot(long[] keys, long key) {
+        int mask = keys.length - 1;
+        int slot = (int) (key ^ (key >>> 32)) & mask;
+        while (keys[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+    
+    private void rehashPositions() {
+        long[] keys = new long[positionKeys.length * 2];
+        int[] heads = new int[keys.length];
+        for (int i = 0; i < positionKeys.length; i++) {
+            if (positionKeys[i] != 0) {
+                int slot = positionSlot(keys, positionKeys[i]);
+                keys[slot] = positionKeys[i];
+                heads[slot] = positionHeads[i];
+            }
+        }
+        positionKeys = keys;
+        positionHeads = heads;
+    }
+    
+    /**
+     * Dernières parties du joueur, de la plus récente à la plus ancienne
+     */
+    public Stream<GameRecord> lastGames(int player, int limit) {
+        View view;
+        int head = NONE;
+        lock.lock();
+        try {
+            view = new View();
+            if (player != 0) {
+                int slot = playerSlot(playerKeys, player);
+                if (playerKeys[slot] == player) {
+                    head = playerHeads[slot];
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        return view.records(view.playerChain(player, head)).limit(limit);
+    }
+    
+    /**
+     * Parties terminées entre from (inclus) et to (exclu), en millisecondes, dans l'ordre
+     */
+    public Stream<GameRecord> games(long from, long to) {
+        View view;
+        int first;
+        int last;
+        lock.lock();
+        try {
+            view = new View();
+            first = lowerBound(times, 0, size, from);
+            last = lowerBound(times, first, size, to);
+        } finally {
+            lock.unlock();
+        }
+        return view.records(IntStream.range(first, last));
+    }
+    
+    /**
+     * Parties terminées entre from (inclus) et to (exclu) sur le résultat donné
+     * ('X', 'O', 'D' ou 'A'), dans l'ordre
+     */
+    public Stream<GameRecord> games(char result, long from, long to) {
+        View view;
+        int[] list;
+        int first;
+        int last;
+        lock.lock();
+        try {
+            view = new View();
+            int code = resultCode(result);
+            list = byResult[code];
+            first = lowerBound(list, 0, byResultSize[code], from);
+            last = lowerBound(list, first, byResultSize[code], to);
+        } finally {
+            lock.unlock();
+        }
+        return view.records(IntStream.range(first, last).map(i -> list[i]));
+    }
+    
+    /**
+     * Parties qui ont atteint la position donnée ou l'une de ses symétriques,
+     * de la plus récente à la plus ancienne
+     */
+    public Stream<GameRecord> reaching(TicTacToeGame position) {
+        View view;
+        int head = NONE;
+        lock.lock();
+        try {
+            view = new View();
+            long key = (position.getCanonicalHash() == 0) ? 1 : position.getCanonicalHash();
+            int slot = positionSlot(positionKeys, key);
+            if (positionKeys[slot] == key) {
+                head = positionHeads[slot];
+            }
+        } finally {
+            lock.unlock();
+        }
+        return view.records(view.occurrenceChain(head));
+    }
+    
+    /** Nombre de parties de l'historique */
+    public int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Premier indice de [from, to) dont la partie se termine à time ou après
+     */
+    private int lowerBound(long[] times, int from, int to, long time) {
+        while (from < to) {
+            int middle = (from + to) >>> 1;
+            if (times[middle] < time) {
+                from = middle + 1;
+            } else {
+                to = middle;
+            }
+        }
+        return from;
+    }
+    
+    /**
+     * Même recherche sur une liste de numéros de parties
+     */
+    private int lowerBound(int[] games, int from, int to, long time) {
+        while (from < to) {
+            int middle = (from + to) >>> 1;
+            if (times[games[middle]] < time) {
+                from = middle + 1;
+            } else {
+                to = middle;
+            }
+        }
+        return from;
+    }
+    
+    private static int resultCode(char result) {
+        switch (result) {
+            case 'X':
+                return 1;
+            case 'O':
+                return 2;
+            case MoveJournal.ABANDONED:
+                return 3;
+            default:
+                return 0;
+        }
+    }
+    
+    /**
+     * Tableaux relevés sous le verrou : les parties déjà ajoutées s'y lisent sans verrou
+     */
+    private final class View {
+        private final long[] times = GameHistory.this.times;
+        private final byte[] results = GameHistory.this.results;
+        private final int[] rules = GameHistory.this.rules;
+        private final int[] playersX = GameHistory.this.playersX;
+        private final int[] playersO = GameHistory.this.playersO;
+        private final int[] previousX = GameHistory.this.previousX;
+        private final int[] previousO = GameHistory.this.previousO;
+        private final int[] moveStart = GameHistory.this.moveStart;
+        private final short[] cells = GameHistory.this.cells;
+        private final int[] occurrenceGames = GameHistory.this.occurrenceGames;
+        private final int[] occurrenceNext = GameHistory.this.occurrenceNext;
+        
+        Stream<GameRecord> records(IntStream games) {
+            return games.mapToObj(this::record);
+        }
+        
+        GameRecord record(int game) {
+            int rule = rules[game];
+            int cols = (rule >>> 8) & 0xFF;
+            GameRecord record = new GameRecord(rule >>> 16, cols, rule & 0xFF, times[game], RESULTS[results[game]]);
+            record.setPlayers(playersX[game], playersO[game]);
+            for (int i = moveStart[game]; i < moveStart[game + 1]; i++) {
+                record.addMove(cells[i] / cols, cells[i] % cols);
+            }
+            return record;
+        }
+        
+        IntStream playerChain(int player, int head) {
+            return chain(head, game -> (playersX[game] == player) ? previousX[game] : previousO[game], false);
+        }
+        
+        IntStream occurrenceChain(int head) {
+            return chain(head, occurrence -> occurrenceNext[occurrence], true);
+        }
+        
+        /**
+         * Parcours d'une chaîne à partir de head ; next donne le maillon suivant
+         */
+        private IntStream chain(int head, IntUnaryOperator next, boolean occurrence) {
+            Spliterator.OfInt links = new Spliterators.AbstractIntSpliterator(Long.MAX_VALUE,
+                    Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL) {
+                private int link = head;
+                
+                @Override
+                public boolean tryAdvance(IntConsumer action) {
+                    if (link == NONE) {
+                        return false;
+                    }
+                    int current = link;
+                    link = next.applyAsInt(current);
+                    action.accept(occurrence ? occurrenceGames[current] : current);
+                    return true;
+                }
+            };
+            return StreamSupport.intStream(links, false);
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package journal;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Partie terminée telle que l'archive la conserve : règle, heure de fin,
+ * résultat, identifiants des deux joueurs (0 : robot ou joueur anonyme) et
+ * cases jouées dans l'ordre (ligne * colonnes + colonne, X d'abord).
+ *
+ * Deux encodages :
+ * <ul>
+ * <li>sur un plateau d'au plus 9 cases, la partie tient dans un long :
+ * <pre>
+ * bits 0-35  : jusqu'à 9 cases de 4 bits, le coup i aux bits 4i à 4i+3
+ * bits 36-39 : nombre de coups
+ * bits 40-41 : résultat (0 : nul, 1 : X, 2 : O, 3 : abandon)
+ * bits 42-63 : secondes écoulées depuis l'heure de base du bloc (22 bits, 48 jours)
+ * </pre></li>
+ * <li>sur un plus grand plateau, un encodage à longueur variable (varint, 7 bits
+ * par octet) : [secondes depuis la base][résultat u8][nombre de coups][cases],
+ * soit un octet par coup sur les 128 premières cases et deux au-delà.</li>
+ * </ul>
+ * Les identifiants des joueurs, rarement lus lors d'une relecture en masse,
+ * sont rangés à part dans le bloc.
+ *
+ * Un même objet est réutilisé d'un enregistrement à l'autre lors d'une relecture.
+ */
+public final class GameRecord {
+    /** Nombre de cases au plus d'un plateau dont les parties tiennent dans un long */
+    public static final int MAX_PACKED_CELLS = 9;
+    
+    private static final int COUNT_SHIFT = 36;
+    private static final int RESULT_SHIFT = 40;
+    private static final int TIME_SHIFT = 42;
+    private static final long MAX_PACKED_SECONDS = (1L << (64 - TIME_SHIFT)) - 1;
+    private static final char[] RESULTS = {'D', 'X', 'O', MoveJournal.ABANDONED};
+    
+    private int rows;
+    private int cols;
+    private int winLength;
+    private long time;
+    private char result;
+    private int playerX;
+    private int playerO;
+    private int[] cells = new int[MAX_PACKED_CELLS];
+    private int moveCount;
+    
+    public GameRecord() {
+    }
+    
+    /**
+     * Partie sur un plateau rows x cols (winLength symboles à aligner), terminée
+     * à l'heure time (millisecondes) sur le résultat 'X', 'O', 'D' ou 'A'
+     */
+    public GameRecord(int rows, int cols, int winLength, long time, char result) {
+        setRules(rows, cols, winLength);
+        this.time = time;
+        this.result = result;
+    }
+    
+    void setRules(int rows, int cols, int winLength) {
+        this.rows = rows;
+        this.cols = cols;
+        this.winLength = winLength;
+        if (cells.length < rows * cols) {
+            cells = new int[rows * cols];
+        }
+        moveCount = 0;
+    }
+    
+    /**
+     * Identifiants des joueurs des deux places (0 : robot ou joueur anonyme)
+     */
+    public void setPlayers(int playerX, int playerO) {
+        this.playerX = playerX;
+        this.playerO = playerO;
+    }
+    
+    public void addMove(int row, int col) {
+        cells[moveCount++] = row * cols + col;
+    }
+    
+    /**
+     * Les parties de cette règle tiennent-elles dans un long
+     */
+    public static boolean fitsPacked(int rows, int cols) {
+        return rows * cols <= MAX_PACKED_CELLS;
+    }
+    
+    /**
+     * Encodage sur un long ; l'heure est comptée depuis baseTime, à la seconde près
+     */
+    long pack(long baseTime) {
+        long packed = 0;
+        for (int i = 0; i < moveCount; i++) {
+            packed |= (long) cells[i] << (4 * i);
+        }
+        long seconds = Math.min(MAX_PACKED_SECONDS, Math.max(0, (time - baseTime) / 1000));
+        return packed | (long) moveCount << COUNT_SHIFT | (long) resultCode(result) << RESULT_SHIFT
+                | seconds << TIME_SHIFT;
+    }
+    
+    /**
+     * Décode un long produit par {@link #pack} (la règle est celle du bloc)
+     */
+    void unpack(long packed, long baseTime) {
+        moveCount = (int) (packed >>> COUNT_SHIFT) & 0xF;
+        for (int i = 0; i < moveCount; i++) {
+            cells[i] = (int) (packed >>> (4 * i)) & 0xF;
+        }
+        result = RESULTS[(int) (packed >>> RESULT_SHIFT) & 0x3];
+        time = baseTime + (packed >>> TIME_SHIFT) * 1000;
+    }
+    
+    /**
+     * Résultat d'un enregistrement compacté, sans le décoder
+     */
+    public static char packedResult(long packed) {
+        return RESULTS[(int) (packed >>> RESULT_SHIFT) & 0x3];
+    }
+    
+    /**
+     * Nombre de coups d'un enregistrement compacté, sans le décoder
+     */
+    public static int packedMoveCount(long packed) {
+        return (int) (packed >>> COUNT_SHIFT) & 0xF;
+    }
+    
+    /**
+     * Taille au plus de l'encodage à longueur variable
+     */
+    int maxVarintSize() {
+        return 10 + 1 + 5 + 3 * moveCount;
+    }
+    
+    void writeVarint(ByteBuffer buffer, long baseTime) {
+        putVarint(buffer, Math.max(0, (time - baseTime) / 1000));
+        buffer.put((byte) resultCode(result));
+        putVarint(buffer, moveCount);
+        for (int i = 0; i < moveCount; i++) {
+            putVarint(buffer, cells[i]);
+        }
+    }
+    
+    void readVarint(ByteBuffer buffer, long baseTime) {
+        time = baseTime + getVarint(buffer) * 1000;
+        result = RESULTS[buffer.get() & 0x3];
+        moveCount = (int) getVarint(buffer);
+        for (int i = 0; i < moveCount; i++) {
+            cells[i] = (int) getVarint(buffer);
+        }
+    }
+    
+    private static void putVarint(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+    
+    private static long getVarint(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+    
+    private static int resultCode(char result) {
+        switch (result) {
+            case 'X':
+                return 1;
+            case 'O':
+                return 2;
+            case MoveJournal.ABANDONED:
+                return 3;
+            default:
+                return 0;
+        }
+    }
+    
+    public int getRows() { return rows; }
+    public int getCols() { return cols; }
+    public int getWinLength() { return winLength; }
+    
+    /** Heure de fin de partie (millisecondes), à la seconde près */
+    public long getTime() { return time; }
+    
+    /** 'X', 'O', 'D' (match nul) ou 'A' (abandon) */
+    public char getResult() { return result; }
+    public int getPlayerX() { return playerX; }
+    public int getPlayerO() { return playerO; }
+    
+    /** Identifiant du joueur de la place symbol */
+    public int getPlayer(char symbol) { return (symbol == 'X') ? playerX : playerO; }
+    public int getMoveCount() { return moveCount; }
+    
+    /** Ligne du coup numéro index (à partir de 0) */
+    public int getRow(int index) { return cells[index] / cols; }
+    
+    /** Colonne du coup numéro index (à partir de 0) */
+    public int getCol(int index) { return cells[index] % cols; }
+    
+    /** Case du coup numéro index : ligne * colonnes + colonne */
+    public int getCell(int index) { return cells[index]; }
+}
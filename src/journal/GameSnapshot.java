@@ -0,0 +1,184 @@
+package journal;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Instantané des parties en cours, écrit à côté du journal : avec les
+ * enregistrements du journal postérieurs à sa position, il suffit à
+ * reconstituer toutes les parties en cours sans relire le journal entier.
+ *
+ * <pre>
+ * [magique u32][version u16][réservé u16][position du journal u64]
+ * [dernier identifiant de partie u64][dernier identifiant de salle u32][parties u32]
+ * puis pour chaque partie :
+ * [partie u64][salle u32][lignes u8][colonnes u8][alignement u8][ticket X u32][ticket O u32]
+ * [coups u16][case u16 par coup]
+ * et enfin [CRC32 u32 de tout ce qui précède]
+ * </pre>
+ *
+ * L'instantané est écrit dans un fichier temporaire, synchronisé avec le disque
+ * puis renommé : un instantané lisible est toujours complet. Les deux derniers
+ * sont conservés, pour le cas où le plus récent serait illisible.
+ */
+public final class GameSnapshot {
+    private static final int MAGIC = 0x4D534E50; // "MSNP"
+    private static final int VERSION = 1;
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".snapshot";
+    private static final int KEPT = 2;
+    
+    private final long position;
+    private final long lastGameId;
+    private final int lastRoomId;
+    private final List<LiveGame> games;
+    
+    private GameSnapshot(long position, long lastGameId, int lastRoomId, List<LiveGame> games) {
+        this.position = position;
+        this.lastGameId = lastGameId;
+        this.lastRoomId = lastRoomId;
+        this.games = games;
+    }
+    
+    /**
+     * Écrit un instantané des parties données, prises après la position
+     * position du journal ; lastGameId et lastRoomId sont les derniers
+     * identifiants attribués
+     */
+    public static Path write(Path directory, long position, long lastGameId, int lastRoomId,
+            Collection<LiveGame> games) throws IOException {
+        Path temporary = directory.resolve(PREFIX + "tmp");
+        Path target = directory.resolve(String.format("%s%016x%s", PREFIX, position, SUFFIX));
+        CRC32 crc = new CRC32();
+        try (FileOutputStream file = new FileOutputStream(temporary.toFile())) {
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(file, crc), 65536));
+            output.writeInt(MAGIC);
+            output.writeShort(VERSION);
+            output.writeShort(0);
+            output.writeLong(position);
+            output.writeLong(lastGameId);
+            output.writeInt(lastRoomId);
+            output.writeInt(games.size());
+            for (LiveGame game : games) {
+                output.writeLong(game.getGameId());
+                output.writeInt(game.getRoomId());
+                output.writeByte(game.getRows());
+                output.writeByte(game.getCols());
+                output.writeByte(game.getWinLength());
+                output.writeInt(game.getTicketX());
+                output.writeInt(game.getTicketO());
+                output.writeShort(game.getMoveCount());
+                for (int move = 0; move < game.getMoveCount(); move++) {
+                    output.writeShort(game.getRow(move) * game.getCols() + game.getCol(move));
+                }
+            }
+            output.flush();
+            // Le CRC ne se couvre pas lui-même : écrit directement dans le fichier
+            new DataOutputStream(file).writeInt((int) crc.getValue());
+            file.getFD().sync();
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        List<Path> snapshots = snapshots(directory);
+        for (int i = 0; i < snapshots.size() - KEPT; i++) {
+            Files.deleteIfExists(snapshots.get(i));
+        }
+        return target;
+    }
+    
+    /**
+     * Dernier instantané lisible du répertoire, ou null s'il n'y en a aucun
+     */
+    public static GameSnapshot readLatest(Path directory) throws IOException {
+        List<Path> snapshots = snapshots(directory);
+        for (int i = snapshots.size() - 1; i >= 0; i--) {
+            GameSnapshot snapshot = read(snapshots.get(i));
+            if (snapshot != null) {
+                return snapshot;
+            }
+            System.err.println("Instantané illisible ignoré: " + snapshots.get(i).getFileName());
+        }
+        return null;
+    }
+    
+    private static GameSnapshot read(Path path) throws IOException {
+        byte[] bytes = Files.readAllBytes(path);
+        if (bytes.length < 36) {
+            return null;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length - 4);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if ((int) crc.getValue() != buffer.getInt(bytes.length - 4)
+                || buffer.getInt() != MAGIC || buffer.getShort() != VERSION) {
+            return null;
+        }
+        buffer.getShort();
+        long position = buffer.getLong();
+        long lastGameId = buffer.getLong();
+        int lastRoomId = buffer.getInt();
+        int count = buffer.getInt();
+        List<LiveGame> games = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long gameId = buffer.getLong();
+            int roomId = buffer.getInt();
+            int rows = buffer.get() & 0xFF;
+            int cols = buffer.get() & 0xFF;
+            int winLength = buffer.get() & 0xFF;
+            LiveGame game = new LiveGame(gameId, roomId, rows, cols, winLength, buffer.getInt(), buffer.getInt());
+            int moves = buffer.getShort() & 0xFFFF;
+            for (int move = 0; move < moves; move++) {
+                int cell = buffer.getShort() & 0xFFFF;
+                game.addMove(cell / cols, cell % cols);
+            }
+            games.add(game);
+        }
+        return new GameSnapshot(position, lastGameId, lastRoomId, games);
+    }
+    
+    /**
+     * Position du plus ancien instantané conservé, 0 s'il n'y en a aucun : la
+     * reprise ne relit jamais le journal avant elle, même quand l'instantané le
+     * plus récent est illisible
+     */
+    public static long oldestPosition(Path directory) throws IOException {
+        List<Path> snapshots = snapshots(directory);
+        if (snapshots.isEmpty()) {
+            return 0;
+        }
+        String name = snapshots.get(0).getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()), 16);
+    }
+    
+    private static List<Path> snapshots(Path directory) throws IOException {
+        List<Path> snapshots = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return snapshots;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path snapshot : stream) {
+                snapshots.add(snapshot);
+            }
+        }
+        // Position en hexadécimal sur 16 chiffres : l'ordre alphabétique suffit
+        snapshots.sort(null);
+        return snapshots;
+    }
+    
+    /** Position du journal à partir de laquelle rejouer les enregistrements */
+    public long getPosition() { return position; }
+    public long getLastGameId() { return lastGameId; }
+    public int getLastRoomId() { return lastRoomId; }
+    public List<LiveGame> getGames() { return games; }
+}
@@ -0,0 +1,141 @@
+package journal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Relecture d'un journal écrit par {@link MoveJournal}, segment par segment et
+ * dans l'ordre d'écriture.
+ *
+ * La lecture s'arrête au premier enregistrement incomplet ou dont le CRC ne
+ * correspond pas : après une panne du système, seules les pages synchronisées
+ * sont sûres, et rien de ce qui suit une page perdue n'est exploitable.
+ */
+public class JournalReader {
+    /**
+     * Reçoit les enregistrements relus ; chaque méthode ne fait rien par défaut
+     */
+    public interface Handler {
+        default void gameStarted(long gameId, int roomId, int rows, int cols, int winLength,
+                int ticketX, int ticketO, long time) {}
+        
+        default void moveApplied(long gameId, int sequence, int row, int col, char player) {}
+        
+        default void gameEnded(long gameId, char winner, long time) {}
+    }
+    
+    private final Path directory;
+    private long records;
+    private long endPosition;
+    private boolean truncated;
+    
+    public JournalReader(Path directory) {
+        this.directory = directory;
+    }
+    
+    /**
+     * Relit tout le journal du répertoire
+     */
+    public static JournalReader read(Path directory, Handler handler) throws IOException {
+        JournalReader reader = new JournalReader(directory);
+        reader.replay(handler);
+        return reader;
+    }
+    
+    /**
+     * Relit le journal et transmet chaque enregistrement valide au handler
+     */
+    public void replay(Handler handler) throws IOException {
+        replay(0, handler);
+    }
+    
+    /**
+     * Relit les enregistrements écrits à partir de la position globale from,
+     * qui doit être une limite d'enregistrement (position d'écriture du journal)
+     */
+    public void replay(long from, Handler handler) throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] record = new byte[256];
+        endPosition = from;
+        for (Path segment : MoveJournal.segments(directory)) {
+            long base = MoveJournal.baseOf(segment);
+            long fileSize = Files.size(segment);
+            if (base + fileSize <= from) {
+                // Segment entièrement antérieur
+                continue;
+            }
+            ByteBuffer buffer;
+            try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            }
+            if (buffer.remaining() < MoveJournal.SEGMENT_HEADER_SIZE
+                    || buffer.getInt() != MoveJournal.MAGIC
+                    || buffer.getShort() != MoveJournal.VERSION
+                    || buffer.getShort() != 0
+                    || buffer.getLong() != base) {
+                System.err.println("Segment de journal invalide: " + segment.getFileName());
+                truncated = true;
+                return;
+            }
+            if (from > base + MoveJournal.SEGMENT_HEADER_SIZE) {
+                buffer.position((int) (from - base));
+            }
+            while (buffer.hasRemaining()) {
+                int length = buffer.get(buffer.position()) & 0xFF;
+                if (length == 0) {
+                    // Fin des enregistrements du segment
+                    break;
+                }
+                int size = length + MoveJournal.RECORD_OVERHEAD - 1;
+                if (buffer.remaining() < size) {
+                    truncated = true;
+                    return;
+                }
+                buffer.get(record, 0, size);
+                crc.reset();
+                crc.update(record, 0, length + 1);
+                if ((int) crc.getValue() != ByteBuffer.wrap(record, length + 1, 4).getInt()) {
+                    truncated = true;
+                    return;
+                }
+                dispatch(ByteBuffer.wrap(record, 1, length), handler);
+                records++;
+                endPosition = base + buffer.position();
+            }
+        }
+    }
+    
+    private static void dispatch(ByteBuffer record, Handler handler) {
+        int type = record.get();
+        switch (type) {
+            case MoveJournal.GAME_STARTED:
+                handler.gameStarted(record.getLong(), record.getInt(), record.get() & 0xFF,
+                        record.get() & 0xFF, record.get() & 0xFF, record.getInt(), record.getInt(), record.getLong());
+                break;
+            case MoveJournal.MOVE_APPLIED:
+                handler.moveApplied(record.getLong(), record.getShort() & 0xFFFF, record.get() & 0xFF,
+                        record.get() & 0xFF, (char) (record.get() & 0xFF));
+                break;
+            case MoveJournal.GAME_ENDED:
+                handler.gameEnded(record.getLong(), (char) (record.get() & 0xFF), record.getLong());
+                break;
+            default:
+                // Type inconnu d'une version plus récente : ignoré
+                break;
+        }
+    }
+    
+    /** Enregistrements valides relus */
+    public long getRecords() { return records; }
+    
+    /** Position globale après le dernier enregistrement valide */
+    public long getEndPosition() { return endPosition; }
+    
+    /** La lecture s'est arrêtée sur un enregistrement incomplet ou corrompu */
+    public boolean isTruncated() { return truncated; }
+}
@@ -0,0 +1,60 @@
+package journal;
+
+import java.util.Arrays;
+
+/**
+ * Partie en cours telle que l'enregistrent les instantanés et le journal :
+ * règle, salle, tickets de reprise des deux places (0 : place d'un robot) et
+ * coups joués, X d'abord puis en alternance.
+ */
+public final class LiveGame {
+    private final long gameId;
+    private final int roomId;
+    private final int rows;
+    private final int cols;
+    private final int winLength;
+    private final int ticketX;
+    private final int ticketO;
+    // Cases jouées (ligne * colonnes + colonne), dans l'ordre
+    private short[] cells = new short[16];
+    private int moveCount;
+    
+    public LiveGame(long gameId, int roomId, int rows, int cols, int winLength, int ticketX, int ticketO) {
+        this.gameId = gameId;
+        this.roomId = roomId;
+        this.rows = rows;
+        this.cols = cols;
+        this.winLength = winLength;
+        this.ticketX = ticketX;
+        this.ticketO = ticketO;
+    }
+    
+    public void addMove(int row, int col) {
+        if (moveCount == cells.length) {
+            cells = Arrays.copyOf(cells, cells.length * 2);
+        }
+        cells[moveCount++] = (short) (row * cols + col);
+    }
+    
+    public long getGameId() { return gameId; }
+    public int getRoomId() { return roomId; }
+    public int getRows() { return rows; }
+    public int getCols() { return cols; }
+    public int getWinLength() { return winLength; }
+    public int getTicketX() { return ticketX; }
+    public int getTicketO() { return ticketO; }
+    public int getMoveCount() { return moveCount; }
+    
+    /** Ligne du coup numéro index (à partir de 0) */
+    public int getRow(int index) { return cells[index] / cols; }
+    
+    /** Colonne du coup numéro index (à partir de 0) */
+    public int getCol(int index) { return cells[index] % cols; }
+    
+    /**
+     * Partie dont une place revient à un robot, qui ne se reconnecte pas
+     */
+    public boolean hasBot() {
+        return ticketX == 0 || ticketO == 0;
+    }
+}
@@ -0,0 +1,472 @@
+package journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Journal des parties, en ajout seul : chaque début de partie, coup accepté et
+ * résultat y est écrit sous forme d'un enregistrement binaire de quelques
+ * dizaines d'octets.
+ *
+ * Le journal est une suite de segments de taille fixe, préalloués et projetés
+ * en mémoire : un ajout n'est qu'une copie dans la projection, sous un verrou
+ * tenu le temps de cette copie, sans appel système. Les pages écrites survivent
+ * à l'arrêt brutal du processus ; la synchronisation avec le disque (fsync),
+ * qui protège aussi d'une panne du système, est groupée : un fil de fond
+ * synchronise tous les ajouts des syncIntervalMs dernières millisecondes en
+ * un seul appel. Le même fil prépare le segment suivant avant qu'il ne soit
+ * nécessaire (fichier créé, pages déjà touchées) : un changement de segment
+ * ne coûte à l'ajout qu'un échange de références.
+ *
+ * Format d'un segment :
+ * <pre>
+ * [magique u32][version u16][réservé u16][position de départ u64]   (en-tête, 16 octets)
+ * puis des enregistrements :
+ * [longueur u8][type u8][contenu][CRC32 u32 de longueur, type et contenu]
+ * </pre>
+ * Une longueur nulle marque la fin des enregistrements du segment (le reste du
+ * fichier est resté à zéro). Un enregistrement ne chevauche jamais deux segments.
+ * Les positions sont globales : un segment commence à la position inscrite dans
+ * son nom et dans son en-tête. Les segments antérieurs au plus ancien instantané
+ * conservé ({@link GameSnapshot}) sont supprimés après chaque instantané.
+ */
+public class MoveJournal implements Closeable {
+    /** Taille par défaut d'un segment, en octets */
+    public static final int DEFAULT_SEGMENT_BYTES = 64 * 1024 * 1024;
+    /** Intervalle par défaut entre deux synchronisations avec le disque, en millisecondes */
+    public static final long DEFAULT_SYNC_INTERVAL_MS = 10;
+    /** Résultat d'une partie interrompue par le départ d'un joueur */
+    public static final char ABANDONED = 'A';
+    
+    static final int MAGIC = 0x4D4A524E; // "MJRN"
+    static final int VERSION = 1;
+    static final int SEGMENT_HEADER_SIZE = 16;
+    static final int GAME_STARTED = 1;
+    static final int MOVE_APPLIED = 2;
+    static final int GAME_ENDED = 3;
+    // Longueur, type et CRC autour du contenu
+    static final int RECORD_OVERHEAD = 6;
+    private static final int MAX_RECORD_SIZE = 64;
+    private static final int PAGE_SIZE = 4096;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+    
+    private final Path directory;
+    private final int segmentBytes;
+    private final ScheduledExecutorService background;
+    
+    // Ajouts : état protégé par lock
+    private final ReentrantLock lock = new ReentrantLock();
+    private final byte[] scratch = new byte[MAX_RECORD_SIZE];
+    private final ByteBuffer record = ByteBuffer.wrap(scratch);
+    private final CRC32 crc = new CRC32();
+    private Segment current;
+    private Segment next;
+    // Le fil de fond prépare le segment suivant ; prepared est signalé quand il a fini
+    private boolean preparing;
+    private final Condition prepared = lock.newCondition();
+    // Segments terminés dont les dernières pages restent à synchroniser
+    private final List<Segment> retired = new ArrayList<>();
+    private boolean closed;
+    private boolean failed;
+    private long records;
+    private long dropped;
+    
+    // Synchronisations : une à la fois
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private volatile long writtenPosition;
+    private volatile long syncedPosition;
+    private volatile long syncs;
+    
+    private MoveJournal(Path directory, int segmentBytes, Segment first) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.current = first;
+        this.writtenPosition = first.base + SEGMENT_HEADER_SIZE;
+        this.syncedPosition = writtenPosition;
+        this.background = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "journal");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    /**
+     * Ouvre le journal du répertoire donné (créé au besoin). Les ajouts
+     * reprennent dans un nouveau segment, après les segments existants.
+     *
+     * @param segmentBytes taille de chaque segment
+     * @param syncIntervalMs intervalle entre deux synchronisations groupées
+     */
+    public static MoveJournal open(Path directory, int segmentBytes, long syncIntervalMs) throws IOException {
+        if (segmentBytes < SEGMENT_HEADER_SIZE + MAX_RECORD_SIZE) {
+            throw new IllegalArgumentException("Segment de journal trop petit: " + segmentBytes + " octets");
+        }
+        Files.createDirectories(directory);
+        long base = 0;
+        for (Path segment : segments(directory)) {
+            base = Math.max(base, baseOf(segment) + Files.size(segment));
+        }
+        MoveJournal journal = new MoveJournal(directory, segmentBytes, Segment.create(directory, base, segmentBytes));
+        journal.background.execute(journal::prepareNext);
+        journal.background.scheduleWithFixedDelay(journal::syncQuietly, syncIntervalMs, syncIntervalMs, TimeUnit.MILLISECONDS);
+        return journal;
+    }
+    
+    public static MoveJournal open(Path directory) throws IOException {
+        return open(directory, DEFAULT_SEGMENT_BYTES, DEFAULT_SYNC_INTERVAL_MS);
+    }
+    
+    /**
+     * Fichiers des segments d'un répertoire, par position croissante
+     */
+    static List<Path> segments(Path directory) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return segments;
+        }
+        try (java.nio.file.DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path segment : stream) {
+                segments.add(segment);
+            }
+        }
+        // Le nom porte la position en hexadécimal sur 16 chiffres : l'ordre alphabétique suffit
+        segments.sort(null);
+        return segments;
+    }
+    
+    static long baseOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()), 16);
+    }
+    
+    /**
+     * Début de partie ; ticketX et ticketO sont les tickets de reprise des deux
+     * places (0 pour un robot)
+     */
+    public void gameStarted(long gameId, int roomId, int rows, int cols, int winLength, int ticketX, int ticketO) {
+        lock.lock();
+        try {
+            begin(GAME_STARTED);
+            record.putLong(gameId).putInt(roomId).put((byte) rows).put((byte) cols).put((byte) winLength)
+                    .putInt(ticketX).putInt(ticketO).putLong(System.currentTimeMillis());
+            append();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Un coup accepté : sequence est son numéro dans la partie (à partir de 1)
+     */
+    public void moveApplied(long gameId, int sequence, int row, int col, char player) {
+        lock.lock();
+        try {
+            begin(MOVE_APPLIED);
+            record.putLong(gameId).putShort((short) sequence).put((byte) row).put((byte) col).put((byte) player);
+            append();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Fin de partie : 'X', 'O', 'D' (match nul) ou {@link #ABANDONED}
+     */
+    public void gameEnded(long gameId, char winner) {
+        lock.lock();
+        try {
+            begin(GAME_ENDED);
+            record.putLong(gameId).put((byte) winner).putLong(System.currentTimeMillis());
+            append();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private void begin(int type) {
+        record.clear();
+        record.put((byte) 0).put((byte) type);
+    }
+    
+    /**
+     * Termine l'enregistrement préparé (longueur, CRC) et le copie dans le segment courant
+     */
+    private void append() {
+        if (closed || failed) {
+            dropped++;
+            return;
+        }
+        int length = record.position();
+        scratch[0] = (byte) (length - 1);
+        crc.reset();
+        crc.update(scratch, 0, length);
+        record.putInt((int) crc.getValue());
+        int size = record.position();
+        if (current.buffer.remaining() < size && !roll()) {
+            dropped++;
+            return;
+        }
+        current.buffer.put(scratch, 0, size);
+        records++;
+        writtenPosition = current.base + current.buffer.position();
+    }
+    
+    /**
+     * Passe au segment suivant, préparé d'avance si possible (sous le verrou)
+     */
+    private boolean roll() {
+        // Le segment suivant est en cours de préparation : l'attendre plutôt que créer le même fichier
+        while (next == null && preparing) {
+            prepared.awaitUninterruptibly();
+        }
+        Segment segment = next;
+        next = null;
+        if (segment == null) {
+            // Le fil de fond n'a pas suivi : créer le segment ici
+            try {
+                segment = Segment.create(directory, current.base + segmentBytes, segmentBytes);
+            } catch (IOException e) {
+                System.err.println("Journal des coups arrêté: " + e.getMessage());
+                failed = true;
+                return false;
+            }
+        }
+        retired.add(current);
+        current = segment;
+        background.execute(this::prepareNext);
+        return true;
+    }
+    
+    /**
+     * Crée et touche le segment qui suivra le segment courant (fil de fond)
+     */
+    private void prepareNext() {
+        long base;
+        lock.lock();
+        try {
+            if (next != null || preparing || closed || failed) {
+                return;
+            }
+            // Le segment courant ne change pas tant que preparing est vrai
+            preparing = true;
+            base = current.base + segmentBytes;
+        } finally {
+            lock.unlock();
+        }
+        Segment segment = null;
+        try {
+            segment = Segment.create(directory, base, segmentBytes);
+            segment.prefault();
+        } catch (IOException e) {
+            // Le prochain changement de segment réessaiera en direct
+            System.err.println("Préparation du segment de journal impossible: " + e.getMessage());
+        }
+        lock.lock();
+        try {
+            preparing = false;
+            prepared.signalAll();
+            if (segment == null) {
+                return;
+            }
+            if (!closed) {
+                next = segment;
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        // Journal fermé entre-temps
+        try {
+            Files.deleteIfExists(segment.path);
+        } catch (IOException e) {
+            System.err.println("Suppression du segment de journal impossible: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Synchronise avec le disque tout ce qui a été ajouté jusqu'ici. Appelée
+     * périodiquement par le fil de fond : tous les ajouts de l'intervalle
+     * partagent un même fsync.
+     */
+    public void sync() {
+        syncLock.lock();
+        try {
+            long target;
+            Segment segment;
+            List<Segment> finished;
+            lock.lock();
+            try {
+                target = writtenPosition;
+                segment = current;
+                finished = new ArrayList<>(retired);
+                retired.clear();
+            } finally {
+                lock.unlock();
+            }
+            if (target == syncedPosition && finished.isEmpty()) {
+                return;
+            }
+            for (Segment done : finished) {
+                done.buffer.force();
+            }
+            segment.buffer.force();
+            syncedPosition = target;
+            syncs++;
+        } finally {
+            syncLock.unlock();
+        }
+    }
+    
+    /**
+     * Supprime les segments qui se terminent avant la position donnée, celle
+     * d'un instantané écrit sur le disque : la reprise ne les relira plus. Le
+     * segment courant et les suivants sont toujours conservés.
+     *
+     * @return nombre de segments supprimés
+     */
+    public int deleteSegmentsBefore(long position) throws IOException {
+        long currentBase;
+        lock.lock();
+        try {
+            currentBase = current.base;
+        } finally {
+            lock.unlock();
+        }
+        int deleted = 0;
+        for (Path segment : segments(directory)) {
+            long base = baseOf(segment);
+            if (base >= currentBase || base + Files.size(segment) > position) {
+                break;
+            }
+            // Un segment terminé encore projeté reste valide une fois son fichier supprimé
+            Files.deleteIfExists(segment);
+            deleted++;
+        }
+        return deleted;
+    }
+    
+    private void syncQuietly() {
+        try {
+            sync();
+        } catch (RuntimeException e) {
+            System.err.println("Synchronisation du journal impossible: " + e.getMessage());
+        }
+    }
+    
+    /** Position globale après le dernier enregistrement écrit */
+    public long getWrittenPosition() { return writtenPosition; }
+    
+    /** Position globale jusqu'à laquelle le journal est synchronisé avec le disque */
+    public long getSyncedPosition() { return syncedPosition; }
+    
+    public long getSyncs() { return syncs; }
+    
+    public long getRecords() {
+        lock.lock();
+        try {
+            return records;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /** Enregistrements perdus après une erreur d'écriture ou la fermeture */
+    public long getDropped() {
+        lock.lock();
+        try {
+            return dropped;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public Path getDirectory() {
+        return directory;
+    }
+    
+    /**
+     * Synchronise une dernière fois et supprime le segment préparé inutilisé ;
+     * les ajouts suivants sont ignorés
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+        } finally {
+            lock.unlock();
+        }
+        background.shutdown();
+        try {
+            background.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        sync();
+        Segment unused;
+        lock.lock();
+        try {
+            unused = next;
+            next = null;
+        } finally {
+            lock.unlock();
+        }
+        if (unused != null) {
+            try {
+                Files.deleteIfExists(unused.path);
+            } catch (IOException e) {
+                System.err.println("Suppression du segment de journal impossible: " + e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Un fichier de segment projeté en mémoire, en écriture
+     */
+    private static final class Segment {
+        final Path path;
+        final long base;
+        final MappedByteBuffer buffer;
+        
+        private Segment(Path path, long base, MappedByteBuffer buffer) {
+            this.path = path;
+            this.base = base;
+            this.buffer = buffer;
+        }
+        
+        static Segment create(Path directory, long base, int size) throws IOException {
+            Path path = directory.resolve(String.format("%s%016x%s", SEGMENT_PREFIX, base, SEGMENT_SUFFIX));
+            // La projection reste valide après la fermeture du fichier
+            try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+                file.setLength(size);
+                MappedByteBuffer buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+                buffer.putInt(MAGIC).putShort((short) VERSION).putShort((short) 0).putLong(base);
+                return new Segment(path, base, buffer);
+            }
+        }
+        
+        /**
+         * Touche chaque page pour que les ajouts ne déclenchent pas de défaut de page
+         */
+        void prefault() {
+            for (int page = PAGE_SIZE; page < buffer.capacity(); page += PAGE_SIZE) {
+                buffer.put(page, (byte) 0);
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package journal;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reconstitution des parties en cours après un arrêt brutal : le dernier
+ * instantané, puis les enregistrements du journal écrits depuis sa position.
+ *
+ * L'instantané est pris salle par salle après avoir relevé la position du
+ * journal : certains enregistrements postérieurs à cette position y figurent
+ * donc déjà. La relecture en tient compte : un début de partie déjà connu et
+ * un coup dont le numéro ne suit pas le dernier coup connu sont ignorés.
+ */
+public final class Recovery implements JournalReader.Handler {
+    private final Map<Long, LiveGame> games = new HashMap<>();
+    private long lastGameId;
+    private int lastRoomId;
+    private int snapshotGames;
+    private long replayedRecords;
+    private boolean truncated;
+    private long elapsedNanos;
+    
+    private Recovery() {
+    }
+    
+    /**
+     * Parties en cours d'après l'instantané et le journal du répertoire
+     */
+    public static Recovery recover(Path directory) throws IOException {
+        long start = System.nanoTime();
+        Recovery recovery = new Recovery();
+        long position = 0;
+        GameSnapshot snapshot = GameSnapshot.readLatest(directory);
+        if (snapshot != null) {
+            position = snapshot.getPosition();
+            recovery.lastGameId = snapshot.getLastGameId();
+            recovery.lastRoomId = snapshot.getLastRoomId();
+            recovery.snapshotGames = snapshot.getGames().size();
+            for (LiveGame game : snapshot.getGames()) {
+                recovery.games.put(game.getGameId(), game);
+            }
+        }
+        JournalReader reader = new JournalReader(directory);
+        reader.replay(position, recovery);
+        recovery.replayedRecords = reader.getRecords();
+        recovery.truncated = reader.isTruncated();
+        recovery.elapsedNanos = System.nanoTime() - start;
+        return recovery;
+    }
+    
+    @Override
+    public void gameStarted(long gameId, int roomId, int rows, int cols, int winLength,
+            int ticketX, int ticketO, long time) {
+        lastGameId = Math.max(lastGameId, gameId);
+        lastRoomId = Math.max(lastRoomId, roomId);
+        if (!games.containsKey(gameId)) {
+            games.put(gameId, new LiveGame(gameId, roomId, rows, cols, winLength, ticketX, ticketO));
+        }
+    }
+    
+    @Override
+    public void moveApplied(long gameId, int sequence, int row, int col, char player) {
+        LiveGame game = games.get(gameId);
+        if (game != null && sequence == game.getMoveCount() + 1) {
+            game.addMove(row, col);
+        }
+    }
+    
+    @Override
+    public void gameEnded(long gameId, char winner, long time) {
+        games.remove(gameId);
+    }
+    
+    /** Parties en cours au moment de l'arrêt */
+    public Collection<LiveGame> getGames() { return games.values(); }
+    
+    /** Plus grand identifiant de partie attribué avant l'arrêt */
+    public long getLastGameId() { return lastGameId; }
+    
+    /** Plus grand identifiant de salle attribué avant l'arrêt */
+    public int getLastRoomId() { return lastRoomId; }
+    
+    /** Parties lues dans l'instantané */
+    public int getSnapshotGames() { return snapshotGames; }
+    
+    /** Enregistrements du journal relus après l'instantané */
+    public long getReplayedRecords() { return replayedRecords; }
+    
+    /** La relecture s'est arrêtée sur un enregistrement corrompu */
+    public boolean isTruncated() { return truncated; }
+    
+    public long getElapsedNanos() { return elapsedNanos; }
+}
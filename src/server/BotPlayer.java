@@ -0,0 +1,147 @@
+package server;
+
+import ai.BotEngine;
+import common.GameMessage;
+import common.MessageCodec;
+import common.TicTacToeGame;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Adversaire robot, vu par le serveur comme n'importe quelle connexion de joueur.
+ * Il ne lit que le type des trames qui lui sont adressées : à YOUR_TURN il joue,
+ * à la fin d'une partie il en redemande une, ou s'en va si son adversaire est parti.
+ *
+ * sendFrames est appelé sous le verrou de la salle : le robot n'y fait que
+ * copier la position et confier la recherche au {@link BotScheduler}. Le coup
+ * trouvé est joué depuis le pool de calcul par handleMove, comme celui d'un
+ * joueur humain ; les autres réactions passent par la minuterie des robots.
+ */
+class BotPlayer implements PlayerConnection {
+    private final TicTacToeServer server;
+    private final BotEngine bot;
+    private final BotScheduler scheduler;
+    private final BotScheduler.CpuBudget budget;
+    private final long thinkNanos;
+    private final AtomicBoolean connected = new AtomicBoolean(true);
+    private volatile GameRoom room;
+    private volatile char playerSymbol;
+    
+    /**
+     * @param thinkMs délai accordé à chaque coup, attente d'un fil de calcul comprise
+     */
+    BotPlayer(TicTacToeServer server, BotEngine bot, BotScheduler scheduler, long thinkMs) {
+        this.server = server;
+        this.bot = bot;
+        this.scheduler = scheduler;
+        this.thinkNanos = TimeUnit.MILLISECONDS.toNanos(thinkMs);
+        this.budget = scheduler.newBudget(thinkMs, bot.getParallelism());
+    }
+    
+    @Override
+    public void joinRoom(GameRoom room, char playerSymbol) {
+        this.room = room;
+        this.playerSymbol = playerSymbol;
+    }
+    
+    @Override
+    public void start() {
+    }
+    
+    @Override
+    public void sendFrames(List<ByteBuffer> frames) {
+        for (ByteBuffer frame : frames) {
+            GameMessage.MessageType type = MessageCodec.peekType(frame);
+            if (type == GameMessage.MessageType.YOUR_TURN) {
+                requestMove();
+            } else if (type == GameMessage.MessageType.GAME_OVER) {
+                submit(this::gameOver);
+            }
+        }
+    }
+    
+    /**
+     * Demande un coup sur une copie de la position courante (sous le verrou de la salle)
+     */
+    private void requestMove() {
+        if (!connected.get()) {
+            return;
+        }
+        TicTacToeGame position = new TicTacToeGame(room.getGame());
+        try {
+            scheduler.submit(bot, position, System.nanoTime() + thinkNanos, budget, cell -> play(position, cell));
+        } catch (RejectedExecutionException e) {
+            // Serveur en cours d'arrêt
+            submit(this::disconnect);
+        }
+    }
+    
+    private void submit(Runnable task) {
+        if (!connected.get()) {
+            return;
+        }
+        try {
+            scheduler.schedule(task, 0);
+        } catch (RejectedExecutionException e) {
+            // Serveur en cours d'arrêt
+            connected.set(false);
+        }
+    }
+    
+    /**
+     * Joue le coup trouvé ; handleMove le revérifie, la partie a pu être
+     * abandonnée ou recommencée pendant la recherche
+     */
+    private void play(TicTacToeGame position, int cell) {
+        if (cell >= 0 && connected.get()) {
+            server.handleMove(cell / position.getCols(), cell % position.getCols(), playerSymbol, this);
+        }
+    }
+    
+    /**
+     * Fin de partie : rejouer contre le même adversaire, ou quitter la salle s'il est parti
+     */
+    private void gameOver() {
+        GameRoom current = room;
+        boolean alone;
+        current.lock();
+        try {
+            alone = current.getOpponent(this) == null;
+        } finally {
+            current.unlock();
+        }
+        if (alone) {
+            disconnect();
+        } else if (connected.get()) {
+            server.handleMessage(new GameMessage(GameMessage.MessageType.NEW_GAME), this);
+        }
+    }
+    
+    @Override
+    public void disconnect() {
+        if (connected.compareAndSet(true, false)) {
+            scheduler.botRemoved();
+            if (room != null) {
+                server.playerDisconnected(this);
+            }
+        }
+    }
+    
+    @Override
+    public boolean isConnected() {
+        return connected.get();
+    }
+    
+    @Override
+    public char getPlayerSymbol() {
+        return playerSymbol;
+    }
+    
+    @Override
+    public GameRoom getRoom() {
+        return room;
+    }
+}
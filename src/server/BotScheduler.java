@@ -0,0 +1,285 @@
+package server;
+
+import ai.BotEngine;
+import common.TicTacToeGame;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntConsumer;
+
+/**
+ * Ordonnanceur du temps de réflexion des robots, isolé des threads réseau.
+ *
+ * Les coups des robots sont calculés sur un pool de calcul borné, jamais sur
+ * le thread qui lit un socket ni sous le verrou d'une salle : une demande
+ * porte une copie de la position et une échéance, et son résultat est remis
+ * à {@link TicTacToeServer#handleMove} depuis le pool, comme le coup d'un
+ * joueur humain. Au plus threads demandes sont calculées à la fois ; les
+ * autres attendent, la plus proche de son échéance en premier. Une demande
+ * qui a trop attendu cherche moins longtemps plutôt que de répondre en retard.
+ *
+ * Chaque robot dispose en plus d'un budget de temps de calcul (voir
+ * {@link CpuBudget}) : un robot qui réfléchit sans cesse sur plusieurs fils
+ * finit par jouer plus vite, au lieu de priver les autres robots du pool.
+ * Le nombre de robots est lui-même borné, ce qui borne la file d'attente.
+ *
+ * Les tâches légères des robots (arrivée dans une salle après un délai,
+ * nouvelle partie) passent par une minuterie séparée, pour ne pas attendre
+ * derrière les recherches.
+ */
+class BotScheduler {
+    // Le moteur rend la main avant le dernier vingtième du délai d'une demande
+    private static final int DEADLINE_MARGIN = 20;
+    
+    private final ForkJoinPool computePool;
+    private final ScheduledExecutorService timer;
+    private final int threads;
+    private final int maxBots;
+    private final double cpuShare;
+    private final ServerMetrics metrics;
+    
+    private final ReentrantLock lock = new ReentrantLock();
+    private final PriorityQueue<Request> waiting = new PriorityQueue<>();
+    private int running;
+    private int bots;
+    private boolean shutdown;
+    
+    /**
+     * @param threads fils de calcul (recherches parallèles d'un robot comprises)
+     * @param maxBots robots en jeu au plus
+     * @param cpuShare part d'un cœur dont chaque robot dispose en moyenne (1.0 : un cœur)
+     */
+    BotScheduler(int threads, int maxBots, double cpuShare, ServerMetrics metrics) {
+        this.threads = threads;
+        this.maxBots = maxBots;
+        this.cpuShare = cpuShare;
+        this.metrics = metrics;
+        this.computePool = new ForkJoinPool(threads, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("robot-calcul-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "robots");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    /** Pool des recherches, partagé par les fils parallèles des robots */
+    ForkJoinPool getComputePool() {
+        return computePool;
+    }
+    
+    int getThreads() {
+        return threads;
+    }
+    
+    /**
+     * Réserve la place d'un nouveau robot
+     *
+     * @return false si le nombre maximal de robots est atteint
+     */
+    boolean tryAddBot() {
+        lock.lock();
+        try {
+            if (shutdown || bots >= maxBots) {
+                return false;
+            }
+            bots++;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    void botRemoved() {
+        lock.lock();
+        try {
+            bots--;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Budget de calcul d'un nouveau robot, qui réfléchit thinkMs par coup sur parallelism fils
+     */
+    CpuBudget newBudget(long thinkMs, int parallelism) {
+        return new CpuBudget(cpuShare, TimeUnit.MILLISECONDS.toNanos(thinkMs) * parallelism);
+    }
+    
+    /**
+     * Tâche légère, après un délai éventuel
+     *
+     * @throws RejectedExecutionException si le serveur s'arrête
+     */
+    void schedule(Runnable task, long delayMs) {
+        timer.schedule(task, delayMs, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Demande un coup au moteur sur une copie de la position, à jouer avant
+     * l'échéance (System.nanoTime()) ; onMove reçoit la case choisie depuis le
+     * pool de calcul, ou -1 si la partie est terminée.
+     *
+     * @throws RejectedExecutionException si le serveur s'arrête
+     */
+    void submit(BotEngine engine, TicTacToeGame position, long deadline, CpuBudget budget, IntConsumer onMove) {
+        Request request = new Request(engine, position, deadline, budget, onMove);
+        lock.lock();
+        try {
+            if (shutdown) {
+                throw new RejectedExecutionException("Ordonnanceur des robots arrêté");
+            }
+            waiting.add(request);
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Confie au pool les demandes les plus urgentes, dans la limite de ses fils
+     * (appelé sous le verrou)
+     */
+    private void dispatch() {
+        while (running < threads && !waiting.isEmpty()) {
+            Request request = waiting.poll();
+            running++;
+            computePool.execute(() -> run(request));
+        }
+    }
+    
+    private void run(Request request) {
+        try {
+            long start = System.nanoTime();
+            int parallelism = request.engine.getParallelism();
+            // Pas plus que l'échéance (moins une marge pour remettre le coup),
+            // ni que ce que le budget du robot permet sur ses fils
+            long deadline = start + request.budget.available(start) / parallelism;
+            long latest = request.deadline - (request.deadline - request.queuedAt) / DEADLINE_MARGIN;
+            if (latest - deadline < 0) {
+                deadline = latest;
+            }
+            int cell = request.engine.chooseMove(request.position, deadline);
+            long end = System.nanoTime();
+            request.budget.charge((end - start) * parallelism);
+            metrics.botMoveComputed(start - request.queuedAt, end - request.deadline > 0);
+            request.onMove.accept(cell);
+        } catch (RuntimeException e) {
+            System.err.println("Erreur du robot: " + e.getMessage());
+        } finally {
+            lock.lock();
+            try {
+                running--;
+                if (!shutdown) {
+                    dispatch();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+    
+    /**
+     * Demandes en attente d'un fil de calcul
+     */
+    int getWaiting() {
+        lock.lock();
+        try {
+            return waiting.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    void shutdown() {
+        lock.lock();
+        try {
+            shutdown = true;
+            waiting.clear();
+        } finally {
+            lock.unlock();
+        }
+        timer.shutdownNow();
+        computePool.shutdownNow();
+    }
+    
+    /**
+     * Une demande de coup, ordonnée par échéance
+     */
+    private static final class Request implements Comparable<Request> {
+        final BotEngine engine;
+        final TicTacToeGame position;
+        final long deadline;
+        final CpuBudget budget;
+        final IntConsumer onMove;
+        final long queuedAt = System.nanoTime();
+        
+        Request(BotEngine engine, TicTacToeGame position, long deadline, CpuBudget budget, IntConsumer onMove) {
+            this.engine = engine;
+            this.position = position;
+            this.deadline = deadline;
+            this.budget = budget;
+            this.onMove = onMove;
+        }
+        
+        @Override
+        public int compareTo(Request other) {
+            return Long.compare(deadline - other.deadline, 0);
+        }
+    }
+    
+    /**
+     * Budget de temps de calcul d'un robot, en seau à jetons : il se remplit de
+     * share secondes de calcul par seconde écoulée, jusqu'à une réserve de
+     * quelques coups complets. Le temps facturé est la durée de la recherche
+     * multipliée par ses fils parallèles, une borne haute du temps processeur.
+     */
+    static final class CpuBudget {
+        // Réserve maximale, en nombre de coups au temps de réflexion complet
+        private static final int BURST_MOVES = 4;
+        
+        private final ReentrantLock lock = new ReentrantLock();
+        private final double share;
+        private final long capacity;
+        private long available;
+        private long updatedAt = System.nanoTime();
+        
+        CpuBudget(double share, long moveNanos) {
+            this.share = share;
+            this.capacity = moveNanos * BURST_MOVES;
+            this.available = capacity;
+        }
+        
+        /**
+         * Temps de calcul disponible maintenant, en nanosecondes
+         */
+        long available(long now) {
+            lock.lock();
+            try {
+                available = Math.min(capacity, available + (long) ((now - updatedAt) * share));
+                updatedAt = now;
+                return Math.max(0, available);
+            } finally {
+                lock.unlock();
+            }
+        }
+        
+        void charge(long nanos) {
+            lock.lock();
+            try {
+                available -= nanos;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
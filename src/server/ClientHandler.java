@@ -1,112 +1,221 @@
 package server;
 
 import common.GameMessage;
+import common.MessageCodec;
 import java.io.*;
 import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
- * Gestionnaire de client côté serveur (un thread par client)
+ * Gestionnaire de client côté serveur : un thread de lecture et un thread
+ * d'écriture par client, fournis par une fabrique (threads système ou virtuels).
+ * La logique de jeu ne fait que déposer des trames dans la file de sortie ;
+ * seul le thread d'écriture touche au socket, jamais sous le verrou d'une salle.
  */
-public class ClientHandler implements Runnable {
+public class ClientHandler implements Runnable, PlayerConnection {
+    private static final int WRITE_BUFFER_SIZE = 8 * 1024;
+    
     private Socket clientSocket;
-    private ObjectInputStream input;
-    private ObjectOutputStream output;
+    private DataInputStream input;
+    private OutputStream output;
+    // Les trames partagées sont en lecture seule : elles sont recopiées ici avant l'écriture
+    private final ByteBuffer writeBuffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+    private final OutboundQueue outbound;
+    private final ThreadFactory threadFactory;
     private char playerSymbol;
     private TicTacToeServer server;
-    private boolean connected;
+    // Lue par disconnect() depuis n'importe quel thread : voir registerPlayer
+    private volatile GameRoom room;
+    private final AtomicBoolean connected = new AtomicBoolean();
     
-    public ClientHandler(Socket clientSocket, char playerSymbol, TicTacToeServer server) {
+    public ClientHandler(Socket clientSocket, TicTacToeServer server, ThreadFactory threadFactory) {
         this.clientSocket = clientSocket;
-        this.playerSymbol = playerSymbol;
         this.server = server;
-        this.connected = true;
+        this.threadFactory = threadFactory;
+        this.connected.set(true);
+        this.outbound = new OutboundQueue(server.getSendQueueBytes());
         
         try {
-            // Important: créer l'ObjectOutputStream avant l'ObjectInputStream
-            output = new ObjectOutputStream(clientSocket.getOutputStream());
-            output.flush();
-            input = new ObjectInputStream(clientSocket.getInputStream());
+            // Compter les écritures réellement transmises au socket
+            final ServerMetrics metrics = server.getMetrics();
+            output = new FilterOutputStream(clientSocket.getOutputStream()) {
+                @Override
+                public void write(byte[] bytes, int offset, int length) throws IOException {
+                    metrics.socketWrite();
+                    out.write(bytes, offset, length);
+                }
+            };
+            input = new DataInputStream(new BufferedInputStream(clientSocket.getInputStream()));
         } catch (IOException e) {
             System.err.println("Erreur lors de l'initialisation des streams: " + e.getMessage());
-            connected = false;
+            connected.set(false);
         }
     }
     
+    @Override
+    public void joinRoom(GameRoom room, char playerSymbol) {
+        this.room = room;
+        this.playerSymbol = playerSymbol;
+    }
+    
+    @Override
+    public void start() {
+        threadFactory.newThread(this).start();
+        threadFactory.newThread(this::writeLoop).start();
+    }
+    
     @Override
     public void run() {
         try {
-            // Petit délai pour s'assurer que le client est prêt
-            Thread.sleep(100);
-            
-            // Envoyer au client son symbole
-            GameMessage playerConnectedMessage = new GameMessage(GameMessage.MessageType.PLAYER_CONNECTED, 
-                    "Vous êtes le joueur " + playerSymbol);
-            playerConnectedMessage.setPlayerSymbol(playerSymbol);
-            sendMessage(playerConnectedMessage);
-            
-            System.out.println("Joueur " + playerSymbol + " initialisé");
+            // Le client ouvre la session par un HELLO : ne pas l'attendre indéfiniment
+            clientSocket.setSoTimeout(HANDSHAKE_TIMEOUT_MS);
+            GameMessage hello = MessageCodec.readFrame(input);
+            clientSocket.setSoTimeout(0);
+            if (hello.getType() != GameMessage.MessageType.HELLO) {
+                System.err.println("Poignée de main attendue, reçu " + hello.getType() + " : connexion fermée");
+                return;
+            }
+            server.handleMessage(hello, this);
             
-            // Écouter les messages du client
-            while (connected && !clientSocket.isClosed()) {
+            // Écouter les messages du client, sauf s'il a été refusé
+            while (connected.get() && !clientSocket.isClosed() && !outbound.isFinishing()) {
                 try {
-                    GameMessage message = (GameMessage) input.readObject();
+                    GameMessage message = MessageCodec.readFrame(input);
                     
-                    if (message.getType() == GameMessage.MessageType.PLAYER_MOVE) {
-                        server.handleMove(message.getRow(), message.getCol(), 
-                                playerSymbol, this);
-                    }
-                } catch (ClassNotFoundException e) {
-                    System.err.println("Erreur de désérialisation: " + e.getMessage());
+                    server.handleMessage(message, this);
                 } catch (EOFException e) {
                     // Client déconnecté proprement
                     System.out.println("Client " + playerSymbol + " déconnecté proprement");
                     break;
                 }
             }
+        } catch (SocketTimeoutException e) {
+            System.err.println("Poignée de main non reçue, connexion fermée");
         } catch (IOException e) {
             System.err.println("Erreur de communication avec le client " + playerSymbol + ": " + e.getMessage());
-        } catch (InterruptedException e) {
-            System.err.println("Thread interrompu pour le client " + playerSymbol);
         } finally {
-            disconnect();
+            // Client refusé : le thread d'écriture ferme après la réponse
+            if (!outbound.isFinishing()) {
+                disconnect();
+            }
         }
     }
     
-    public void sendMessage(GameMessage message) {
-        if (connected && output != null && !clientSocket.isClosed()) {
-            try {
-                synchronized (output) {
-                    output.writeObject(message);
-                    output.flush();
-                }
-            } catch (IOException e) {
-                System.err.println("Erreur lors de l'envoi du message au client " + playerSymbol + ": " + e.getMessage());
+    /**
+     * Dépose les trames dans la file de sortie, sans attendre leur écriture
+     */
+    @Override
+    public void sendFrames(List<ByteBuffer> frames) {
+        if (connected.get() && output != null && !clientSocket.isClosed()) {
+            if (!outbound.offer(frames)) {
+                server.sendQueueFull(this, outbound, frames);
+            }
+        }
+    }
+    
+    @Override
+    public void replaceFrames(List<ByteBuffer> frames) {
+        if (connected.get()) {
+            outbound.replace(frames);
+        }
+    }
+    
+    /**
+     * Thread d'écriture : vide la file de sortie, en regroupant tout ce qui
+     * est déjà en attente dans le moins d'écritures possible
+     */
+    private void writeLoop() {
+        try {
+            ByteBuffer frame;
+            while (connected.get() && (frame = outbound.take()) != null) {
+                do {
+                    copy(frame);
+                } while ((frame = outbound.poll()) != null);
+                drain();
+            }
+            if (outbound.isFinishing()) {
                 disconnect();
             }
+        } catch (IOException e) {
+            System.err.println("Erreur lors de l'envoi du message au client " + playerSymbol + ": " + e.getMessage());
+            disconnect();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * Recopie une trame dans le tampon d'écriture, vidé chaque fois qu'il est plein
+     */
+    private void copy(ByteBuffer frame) throws IOException {
+        while (frame.remaining() > writeBuffer.remaining()) {
+            // La vue de la trame appartient à cette connexion : sa limite peut être déplacée
+            int limit = frame.limit();
+            frame.limit(frame.position() + writeBuffer.remaining());
+            writeBuffer.put(frame);
+            frame.limit(limit);
+            drain();
+        }
+        writeBuffer.put(frame);
+    }
+    
+    private void drain() throws IOException {
+        if (writeBuffer.position() > 0) {
+            output.write(writeBuffer.array(), 0, writeBuffer.position());
+            writeBuffer.clear();
+        }
+    }
+    
+    @Override
+    public void disconnectAfterFlush() {
+        outbound.finish();
+    }
+    
+    @Override
+    public void limitSocketBuffer(int bytes) {
+        try {
+            clientSocket.setSendBufferSize(bytes);
+        } catch (IOException e) {
+            System.err.println("Tampon d'émission non modifié: " + e.getMessage());
         }
     }
     
+    @Override
     public void disconnect() {
-        if (connected) {
-            connected = false;
+        if (connected.compareAndSet(true, false)) {
+            outbound.close();
             
             try {
+                // Le flux de sortie n'est pas vidé ici : fermer le socket suffit
+                // à débloquer le thread d'écriture, même face à un client figé
                 if (input != null) input.close();
-                if (output != null) output.close();
                 if (clientSocket != null) clientSocket.close();
             } catch (IOException e) {
                 System.err.println("Erreur lors de la fermeture des ressources: " + e.getMessage());
             }
             
-            server.playerDisconnected(this);
+            if (room != null) {
+                server.playerDisconnected(this);
+            }
         }
     }
     
+    @Override
     public boolean isConnected() {
-        return connected && !clientSocket.isClosed();
+        return connected.get() && !clientSocket.isClosed();
     }
     
+    @Override
     public char getPlayerSymbol() {
         return playerSymbol;
     }
+    
+    @Override
+    public GameRoom getRoom() {
+        return room;
+    }
 }
@@ -0,0 +1,60 @@
+package server;
+
+import common.GameMessage;
+import common.MessageCodec;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Trames encodées une seule fois et partagées en lecture seule entre tous les
+ * destinataires. Les messages de contrôle constants sont encodés au chargement
+ * de la classe ; les messages diffusés (GAME_UPDATE, GAME_OVER, GAME_START) le
+ * sont une fois par événement, quel que soit le nombre de destinataires.
+ *
+ * Une trame partagée n'est jamais modifiée : chaque file de sortie en prend une
+ * vue indépendante ({@link ByteBuffer#duplicate()}) pour suivre sa propre position.
+ */
+final class Frames {
+    static final ByteBuffer YOUR_TURN = constant(
+            new GameMessage(GameMessage.MessageType.YOUR_TURN, "C'est votre tour !"));
+    static final ByteBuffer OPPONENT_TURN = constant(
+            new GameMessage(GameMessage.MessageType.OPPONENT_TURN, "Tour de l'adversaire"));
+    static final ByteBuffer WAITING_PLAYER = constant(
+            new GameMessage(GameMessage.MessageType.WAITING_PLAYER, "En attente d'un adversaire..."));
+    static final ByteBuffer AWAITING_RESUME = constant(
+            new GameMessage(GameMessage.MessageType.WAITING_PLAYER, "En attente du retour de l'adversaire..."));
+    static final ByteBuffer NOT_STARTED = constant(
+            new GameMessage(GameMessage.MessageType.INVALID_MOVE, "La partie n'a pas encore commencé"));
+    static final ByteBuffer NOT_YOUR_TURN = constant(
+            new GameMessage(GameMessage.MessageType.INVALID_MOVE, "Ce n'est pas votre tour"));
+    static final ByteBuffer INVALID_MOVE = constant(
+            new GameMessage(GameMessage.MessageType.INVALID_MOVE, "Coup invalide"));
+    static final ByteBuffer OPPONENT_LEFT = constant(
+            new GameMessage(GameMessage.MessageType.GAME_OVER, "L'adversaire s'est déconnecté"));
+    static final ByteBuffer PLAYER_LEFT = constant(
+            new GameMessage(GameMessage.MessageType.GAME_OVER, "Un joueur s'est déconnecté"));
+    static final ByteBuffer ROOM_CLOSED = constant(
+            new GameMessage(GameMessage.MessageType.GAME_OVER, "La salle a fermé"));
+    static final ByteBuffer NO_ROOM = constant(
+            new GameMessage(GameMessage.MessageType.GAME_OVER, "Aucune partie à suivre"));
+    static final ByteBuffer SPECTATOR_MOVE = constant(
+            new GameMessage(GameMessage.MessageType.INVALID_MOVE, "Les spectateurs ne jouent pas"));
+    
+    private Frames() {
+    }
+    
+    /**
+     * Encode un message en trame partagée, en lecture seule
+     */
+    static ByteBuffer encode(GameMessage message) throws IOException {
+        return ByteBuffer.wrap(MessageCodec.encode(message)).asReadOnlyBuffer();
+    }
+    
+    private static ByteBuffer constant(GameMessage message) {
+        try {
+            return encode(message);
+        } catch (IOException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+}
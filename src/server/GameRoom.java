@@ -0,0 +1,198 @@
+package server;
+
+import common.TicTacToeGame;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Salle de jeu : une partie, ses deux joueurs et ses éventuels spectateurs.
+ * Tout l'état de la salle est protégé par son propre verrou, si bien que
+ * les coups joués dans des salles différentes ne se font jamais attendre.
+ */
+public class GameRoom {
+    private final int id;
+    private final TicTacToeGame game;
+    private PlayerConnection playerX;
+    private PlayerConnection playerO;
+    private boolean gameStarted = false;
+    // Identifiant de la partie en cours dans le journal, unique sur le serveur
+    private long gameId;
+    // Tickets de reprise des deux places (0 : robot) et partie restaurée en attente de ses joueurs
+    private int ticketX;
+    private int ticketO;
+    // Identifiants des joueurs des deux places, pour l'historique (0 : robot ou joueur anonyme)
+    private int playerIdX;
+    private int playerIdO;
+    private boolean resuming = false;
+    // Cases jouées de la partie en cours (ligne * colonnes + colonne), dans l'ordre, pour l'archive
+    private final short[] moves;
+    private boolean open = false;
+    private boolean closed = false;
+    // Joueurs ayant demandé une nouvelle partie depuis la fin de la précédente
+    private boolean newGameX = false;
+    private boolean newGameO = false;
+    private final ReentrantLock lock = new ReentrantLock();
+    // Messages de l'événement en cours de traitement, réutilisé (sous le verrou)
+    private final OutboundBatch outbound = new OutboundBatch();
+    // Créée à l'arrivée du premier spectateur : une salle sans spectateur ne diffuse rien
+    private SpectatorFeed spectators;
+    
+    public GameRoom(int id) {
+        this(id, 3, 3, 3);
+    }
+    
+    /**
+     * Salle dont les parties se jouent sur un plateau rows x cols, en alignant winLength symboles
+     */
+    public GameRoom(int id, int rows, int cols, int winLength) {
+        this.id = id;
+        this.game = new TicTacToeGame(rows, cols, winLength);
+        this.moves = new short[rows * cols];
+    }
+    
+    /**
+     * Symbole attribué au prochain joueur qui rejoint la salle
+     */
+    public char nextFreeSymbol() {
+        return (playerX == null) ? 'X' : 'O';
+    }
+    
+    public void addPlayer(PlayerConnection player) {
+        if (player.getPlayerSymbol() == 'X') {
+            playerX = player;
+        } else {
+            playerO = player;
+        }
+    }
+    
+    public void removePlayer(PlayerConnection player) {
+        if (player == playerX) {
+            playerX = null;
+        } else if (player == playerO) {
+            playerO = null;
+        }
+    }
+    
+    /**
+     * Retourne l'adversaire du joueur donné (ou null s'il n'y en a pas)
+     */
+    public PlayerConnection getOpponent(PlayerConnection player) {
+        return (player == playerX) ? playerO : playerX;
+    }
+    
+    public PlayerConnection getPlayer(char symbol) {
+        return (symbol == 'X') ? playerX : playerO;
+    }
+    
+    public boolean isFull() {
+        return playerX != null && playerO != null;
+    }
+    
+    public boolean isEmpty() {
+        return playerX == null && playerO == null;
+    }
+    
+    public int getId() { return id; }
+    public TicTacToeGame getGame() { return game; }
+    public PlayerConnection getPlayerX() { return playerX; }
+    public PlayerConnection getPlayerO() { return playerO; }
+    
+    public void lock() { lock.lock(); }
+    public void unlock() { lock.unlock(); }
+    boolean isHeldByCurrentThread() { return lock.isHeldByCurrentThread(); }
+    
+    /** Lot de messages de la salle, à remplir et vider sous son verrou */
+    OutboundBatch getOutboundBatch() { return outbound; }
+    
+    /** Diffusion aux spectateurs, ou null si la salle n'en a jamais eu */
+    SpectatorFeed getSpectators() { return spectators; }
+    void setSpectators(SpectatorFeed spectators) { this.spectators = spectators; }
+    
+    /**
+     * Nombre de spectateurs de la salle
+     */
+    public int getSpectatorCount() {
+        return (spectators == null) ? 0 : spectators.size();
+    }
+    
+    /** La salle figure dans la file des salles en attente d'un joueur */
+    public boolean isOpen() { return open; }
+    public void setOpen(boolean open) { this.open = open; }
+    
+    /** La salle a été vidée et retirée du registre : elle ne doit plus être rejointe */
+    public boolean isClosed() { return closed; }
+    public void close() { this.closed = true; }
+    
+    public boolean isGameStarted() { return gameStarted; }
+    
+    public long getGameId() { return gameId; }
+    public void setGameId(long gameId) { this.gameId = gameId; }
+    
+    /**
+     * Ticket de reprise de la place du symbole donné, remis au joueur à son
+     * arrivée ; il lui permet de retrouver sa place après un redémarrage du serveur
+     */
+    public int getTicket(char symbol) {
+        return (symbol == 'X') ? ticketX : ticketO;
+    }
+    
+    public void setTicket(char symbol, int ticket) {
+        if (symbol == 'X') {
+            ticketX = ticket;
+        } else {
+            ticketO = ticket;
+        }
+    }
+    
+    /**
+     * Identifiant du joueur de la place du symbole donné, annoncé dans son HELLO
+     */
+    public int getPlayerId(char symbol) {
+        return (symbol == 'X') ? playerIdX : playerIdO;
+    }
+    
+    public void setPlayerId(char symbol, int playerId) {
+        if (symbol == 'X') {
+            playerIdX = playerId;
+        } else {
+            playerIdO = playerId;
+        }
+    }
+    
+    /**
+     * Partie restaurée après un redémarrage, qui reprendra quand ses deux
+     * joueurs seront revenus ; le démarrage ou l'arrêt d'une partie y met fin
+     */
+    public boolean isResuming() { return resuming; }
+    public void setResuming(boolean resuming) { this.resuming = resuming; }
+    
+    /**
+     * Note le dernier coup joué dans la partie, juste après {@link TicTacToeGame#makeMove}
+     */
+    public void recordMove(int row, int col) {
+        moves[game.getMoveCount() - 1] = (short) (row * game.getCols() + col);
+    }
+    
+    /** Case du coup numéro index (à partir de 0) : ligne * colonnes + colonne */
+    public int getMoveCell(int index) { return moves[index]; }
+    
+    public void setGameStarted(boolean gameStarted) {
+        this.gameStarted = gameStarted;
+        resuming = false;
+        newGameX = false;
+        newGameO = false;
+    }
+    
+    /**
+     * Enregistre la demande de nouvelle partie d'un joueur
+     *
+     * @return true si les deux joueurs l'ont demandée
+     */
+    public boolean requestNewGame(char symbol) {
+        if (symbol == 'X') {
+            newGameX = true;
+        } else {
+            newGameO = true;
+        }
+        return newGameX && newGameO;
+    }
+}
@@ -0,0 +1,253 @@
+package server;
+
+import common.GameMessage;
+import common.MessageCodec;
+import java.io.IOException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Connexion d'un joueur sur le transport NIO. Les lectures et écritures sont
+ * faites exclusivement par la boucle d'événements propriétaire ; les autres
+ * threads ne font que déposer des trames dans la file de sortie.
+ */
+public class NioConnection implements PlayerConnection {
+    private static final int INITIAL_READ_BUFFER = 4 * 1024;
+    // Nombre maximal de trames transmises à un même appel d'écriture groupée
+    private static final int MAX_GATHER = 16;
+    
+    private final SocketChannel channel;
+    private final NioEventLoop loop;
+    private final TicTacToeServer server;
+    private final OutboundQueue outbound;
+    private final AtomicBoolean connected = new AtomicBoolean(true);
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+    private ByteBuffer readBuffer = ByteBuffer.allocate(INITIAL_READ_BUFFER);
+    // Trames retirées de la file et en cours d'écriture (thread de la boucle uniquement) :
+    // writing[writingOffset..writingCount[ restent à transmettre
+    private final ByteBuffer[] writing = new ByteBuffer[MAX_GATHER];
+    private int writingOffset;
+    private int writingCount;
+    private SelectionKey key;
+    // Poignée de main (thread de la boucle uniquement) : le HELLO doit arriver avant l'échéance
+    private long handshakeDeadline;
+    private boolean helloReceived;
+    // Lue par disconnect() depuis n'importe quel thread : voir registerPlayer
+    private volatile GameRoom room;
+    private char playerSymbol;
+    
+    public NioConnection(SocketChannel channel, NioEventLoop loop, TicTacToeServer server) {
+        this.channel = channel;
+        this.loop = loop;
+        this.server = server;
+        this.outbound = new OutboundQueue(server.getSendQueueBytes());
+    }
+    
+    @Override
+    public void joinRoom(GameRoom room, char playerSymbol) {
+        this.room = room;
+        this.playerSymbol = playerSymbol;
+    }
+    
+    @Override
+    public void start() {
+        loop.register(this);
+    }
+    
+    /**
+     * Enregistrement auprès du sélecteur (thread de la boucle uniquement)
+     */
+    void register(Selector selector) {
+        try {
+            key = channel.register(selector, SelectionKey.OP_READ, this);
+            handshakeDeadline = System.nanoTime() + HANDSHAKE_TIMEOUT_MS * 1_000_000L;
+            flush();
+        } catch (ClosedChannelException e) {
+            disconnect();
+        }
+    }
+    
+    /**
+     * Lecture non bloquante et décodage de toutes les trames complètes reçues
+     */
+    void handleRead() {
+        try {
+            int read = channel.read(readBuffer);
+            if (read < 0) {
+                System.out.println("Client " + playerSymbol + " déconnecté proprement");
+                disconnect();
+                return;
+            }
+            
+            readBuffer.flip();
+            GameMessage message;
+            while (connected.get() && !outbound.isFinishing() && (message = MessageCodec.readFrame(readBuffer)) != null) {
+                if (!helloReceived) {
+                    if (message.getType() != GameMessage.MessageType.HELLO) {
+                        System.err.println("Poignée de main attendue, reçu " + message.getType() + " : connexion fermée");
+                        disconnect();
+                        return;
+                    }
+                    helloReceived = true;
+                }
+                server.handleMessage(message, this);
+            }
+            readBuffer.compact();
+            
+            // Agrandir le tampon si une trame plus grande que sa capacité est en cours
+            if (!readBuffer.hasRemaining()) {
+                int capacity = Math.min(readBuffer.capacity() * 2, MessageCodec.HEADER_SIZE + MessageCodec.MAX_FRAME_SIZE);
+                ByteBuffer larger = ByteBuffer.allocate(capacity);
+                readBuffer.flip();
+                larger.put(readBuffer);
+                readBuffer = larger;
+            }
+        } catch (IOException e) {
+            System.err.println("Erreur de communication avec le client " + playerSymbol + ": " + e.getMessage());
+            disconnect();
+        }
+    }
+    
+    /**
+     * Les trames partagées sont déposées telles quelles, sans copie ; la boucle
+     * les écrit ensuite en une seule écriture groupée
+     */
+    @Override
+    public void sendFrames(List<ByteBuffer> frames) {
+        if (!connected.get()) {
+            return;
+        }
+        if (!outbound.offer(frames)) {
+            server.sendQueueFull(this, outbound, frames);
+        }
+        if (flushScheduled.compareAndSet(false, true)) {
+            loop.requestFlush(this);
+        }
+    }
+    
+    @Override
+    public void replaceFrames(List<ByteBuffer> frames) {
+        if (!connected.get()) {
+            return;
+        }
+        outbound.replace(frames);
+        if (flushScheduled.compareAndSet(false, true)) {
+            loop.requestFlush(this);
+        }
+    }
+    
+    /**
+     * Écrit autant de trames que le socket l'accepte (thread de la boucle uniquement).
+     * S'il en reste, l'écriture reprendra quand le socket redeviendra disponible.
+     */
+    void flush() {
+        flushScheduled.set(false);
+        if (key == null || !connected.get()) {
+            return;
+        }
+        try {
+            while (writingOffset < writingCount || fillWriting()) {
+                channel.write(writing, writingOffset, writingCount - writingOffset);
+                server.getMetrics().socketWrite();
+                while (writingOffset < writingCount && !writing[writingOffset].hasRemaining()) {
+                    writing[writingOffset++] = null;
+                }
+                if (writingOffset < writingCount) {
+                    key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                    return;
+                }
+            }
+            if (outbound.isFinishing()) {
+                // Tout est écrit : client refusé, fermer
+                disconnect();
+                return;
+            }
+            if ((key.interestOps() & SelectionKey.OP_WRITE) != 0) {
+                key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+            }
+        } catch (IOException e) {
+            System.err.println("Erreur lors de l'envoi du message au client " + playerSymbol + ": " + e.getMessage());
+            disconnect();
+        }
+    }
+    
+    /**
+     * Retire de la file les trames de la prochaine écriture groupée
+     *
+     * @return false si la file est vide
+     */
+    private boolean fillWriting() {
+        writingOffset = 0;
+        writingCount = 0;
+        ByteBuffer frame;
+        while (writingCount < MAX_GATHER && (frame = outbound.poll()) != null) {
+            writing[writingCount++] = frame;
+        }
+        return writingCount > 0;
+    }
+    
+    @Override
+    public void disconnectAfterFlush() {
+        outbound.finish();
+        if (flushScheduled.compareAndSet(false, true)) {
+            loop.requestFlush(this);
+        }
+    }
+    
+    @Override
+    public void limitSocketBuffer(int bytes) {
+        try {
+            channel.setOption(StandardSocketOptions.SO_SNDBUF, bytes);
+        } catch (IOException e) {
+            System.err.println("Tampon d'émission non modifié: " + e.getMessage());
+        }
+    }
+    
+    @Override
+    public void disconnect() {
+        if (connected.compareAndSet(true, false)) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.err.println("Erreur lors de la fermeture des ressources: " + e.getMessage());
+            }
+            outbound.close();
+            
+            if (room != null) {
+                server.playerDisconnected(this);
+            }
+        }
+    }
+    
+    /**
+     * Connexion ouverte dont le HELLO n'est pas encore arrivé (thread de la boucle uniquement)
+     */
+    boolean awaitingHello() {
+        return !helloReceived && connected.get();
+    }
+    
+    long getHandshakeDeadline() {
+        return handshakeDeadline;
+    }
+    
+    @Override
+    public boolean isConnected() {
+        return connected.get() && channel.isOpen();
+    }
+    
+    @Override
+    public char getPlayerSymbol() {
+        return playerSymbol;
+    }
+    
+    @Override
+    public GameRoom getRoom() {
+        return room;
+    }
+}
@@ -0,0 +1,144 @@
+package server;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Boucle d'événements NIO : un sélecteur et un thread pour de nombreuses connexions.
+ * Les autres threads ne touchent jamais au sélecteur directement, ils déposent
+ * les enregistrements et les demandes d'écriture dans des files puis réveillent la boucle.
+ */
+public class NioEventLoop implements Runnable {
+    private final Selector selector;
+    private final Thread thread;
+    private final Queue<NioConnection> pendingRegistrations = new ConcurrentLinkedQueue<>();
+    private final Queue<NioConnection> pendingFlushes = new ConcurrentLinkedQueue<>();
+    // Connexions qui n'ont pas encore envoyé leur HELLO, par ordre d'échéance (thread de la boucle uniquement)
+    private final ArrayDeque<NioConnection> handshakes = new ArrayDeque<>();
+    private volatile boolean running = true;
+    
+    public NioEventLoop(int index) throws IOException {
+        this.selector = Selector.open();
+        this.thread = new Thread(this, "nio-loop-" + index);
+    }
+    
+    public void start() {
+        thread.start();
+    }
+    
+    public boolean inEventLoop() {
+        return Thread.currentThread() == thread;
+    }
+    
+    public void register(NioConnection connection) {
+        pendingRegistrations.add(connection);
+        selector.wakeup();
+    }
+    
+    /**
+     * Demande l'écriture des messages en attente d'une connexion. Même depuis la
+     * boucle, l'écriture est différée à la fin du tour : celui qui dépose les
+     * messages peut tenir le verrou d'une salle.
+     */
+    public void requestFlush(NioConnection connection) {
+        pendingFlushes.add(connection);
+        if (!inEventLoop()) {
+            selector.wakeup();
+        }
+    }
+    
+    @Override
+    public void run() {
+        while (running) {
+            try {
+                selector.select(handshakeWaitMillis());
+                
+                NioConnection connection;
+                while ((connection = pendingRegistrations.poll()) != null) {
+                    connection.register(selector);
+                    handshakes.addLast(connection);
+                }
+                flushPending();
+                
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    connection = (NioConnection) key.attachment();
+                    try {
+                        if (key.isReadable()) {
+                            connection.handleRead();
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            connection.flush();
+                        }
+                    } catch (CancelledKeyException e) {
+                        connection.disconnect();
+                    }
+                }
+                // Réponses produites pendant le traitement des lectures
+                flushPending();
+                expireHandshakes();
+            } catch (IOException e) {
+                System.err.println("Erreur dans la boucle d'événements: " + e.getMessage());
+            }
+        }
+        
+        try {
+            selector.close();
+        } catch (IOException e) {
+            System.err.println("Erreur lors de la fermeture du sélecteur: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Attente maximale du sélecteur avant la prochaine échéance de poignée de main (0 : aucune)
+     */
+    private long handshakeWaitMillis() {
+        while (!handshakes.isEmpty() && !handshakes.peekFirst().awaitingHello()) {
+            handshakes.pollFirst();
+        }
+        if (handshakes.isEmpty()) {
+            return 0;
+        }
+        long remaining = handshakes.peekFirst().getHandshakeDeadline() - System.nanoTime();
+        return Math.max(1, (remaining + 999_999) / 1_000_000);
+    }
+    
+    /**
+     * Ferme les connexions dont le HELLO n'est pas arrivé à temps, comme le
+     * transport à un thread par client : une connexion muette ne reste pas ouverte
+     */
+    private void expireHandshakes() {
+        long now = System.nanoTime();
+        NioConnection connection;
+        while ((connection = handshakes.peekFirst()) != null) {
+            if (connection.awaitingHello()) {
+                if (connection.getHandshakeDeadline() - now > 0) {
+                    return;
+                }
+                System.err.println("Poignée de main non reçue, connexion fermée");
+                connection.disconnect();
+            }
+            handshakes.pollFirst();
+        }
+    }
+    
+    private void flushPending() {
+        NioConnection connection;
+        while ((connection = pendingFlushes.poll()) != null) {
+            connection.flush();
+        }
+    }
+    
+    public void shutdown() {
+        running = false;
+        selector.wakeup();
+    }
+}
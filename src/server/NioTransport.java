@@ -0,0 +1,65 @@
+package server;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Transport non bloquant : un thread d'acceptation et un petit nombre fixe de
+ * boucles d'événements ({@link NioEventLoop}) qui se partagent toutes les connexions.
+ */
+public class NioTransport {
+    private final TicTacToeServer server;
+    private final ServerSocketChannel serverChannel;
+    private final NioEventLoop[] loops;
+    private int nextLoop = 0;
+    
+    public NioTransport(TicTacToeServer server, int port, int loopCount) throws IOException {
+        this.server = server;
+        this.serverChannel = ServerSocketChannel.open();
+        this.serverChannel.bind(new InetSocketAddress(port), 1024);
+        
+        this.loops = new NioEventLoop[Math.max(1, loopCount)];
+        for (int i = 0; i < loops.length; i++) {
+            loops[i] = new NioEventLoop(i);
+            loops[i].start();
+        }
+    }
+    
+    /**
+     * Boucle d'acceptation (bloquante) : chaque connexion est confiée à une
+     * boucle d'événements selon un tourniquet
+     */
+    public void run() {
+        while (serverChannel.isOpen()) {
+            try {
+                SocketChannel channel = serverChannel.accept();
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+                
+                NioEventLoop loop = loops[nextLoop];
+                nextLoop = (nextLoop + 1) % loops.length;
+                
+                // Le joueur rejoindra une salle à la fin de la poignée de main
+                new NioConnection(channel, loop, server).start();
+            } catch (IOException e) {
+                if (!serverChannel.isOpen()) {
+                    break;
+                }
+                System.err.println("Erreur lors de l'acceptation des connexions: " + e.getMessage());
+            }
+        }
+    }
+    
+    public void close() {
+        try {
+            serverChannel.close();
+        } catch (IOException e) {
+            System.err.println("Erreur lors de la fermeture du canal serveur: " + e.getMessage());
+        }
+        for (NioEventLoop loop : loops) {
+            loop.shutdown();
+        }
+    }
+}
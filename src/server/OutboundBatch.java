@@ -0,0 +1,85 @@
+package server;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Messages produits par le traitement d'un même événement (un coup, un début
+ * de partie), regroupés par destinataire. Chaque joueur reçoit ensuite tous
+ * ses messages en une seule écriture au lieu d'une écriture par message.
+ *
+ * Un message adressé à plusieurs joueurs est encodé une seule fois : la même
+ * trame est ajoutée pour chacun (voir {@link Frames}). Chaque salle possède
+ * son lot, réutilisé d'un coup à l'autre sous le verrou de la salle : le
+ * traitement d'un coup n'alloue ni table ni liste.
+ *
+ * Un destinataire trop lent pour recevoir sa part n'est déconnecté qu'une fois
+ * le lot entièrement envoyé : les autres reçoivent d'abord les messages du
+ * coup, puis seulement l'annonce du départ de leur adversaire.
+ */
+class OutboundBatch {
+    private PlayerConnection[] recipients = new PlayerConnection[2];
+    // Trames de chaque destinataire, listes conservées d'un lot à l'autre
+    private final List<List<ByteBuffer>> frames = new ArrayList<>(2);
+    private int count;
+    private boolean flushing;
+    private final List<PlayerConnection> slowConsumers = new ArrayList<>(1);
+    
+    void add(PlayerConnection recipient, ByteBuffer frame) {
+        // Quelques destinataires au plus : une recherche linéaire suffit
+        int index = 0;
+        while (index < count && recipients[index] != recipient) {
+            index++;
+        }
+        if (index == count) {
+            if (count == recipients.length) {
+                recipients = Arrays.copyOf(recipients, count * 2);
+            }
+            if (frames.size() == count) {
+                frames.add(new ArrayList<>(3));
+            }
+            recipients[count++] = recipient;
+        }
+        frames.get(index).add(frame);
+    }
+    
+    /**
+     * Envoie les trames regroupées, dans leur ordre d'ajout pour chaque
+     * destinataire, puis vide le lot. Les connexions ne conservent pas les listes.
+     */
+    void flush() {
+        flushing = true;
+        try {
+            for (int i = 0; i < count; i++) {
+                recipients[i].sendFrames(frames.get(i));
+                recipients[i] = null;
+                frames.get(i).clear();
+            }
+            count = 0;
+        } finally {
+            flushing = false;
+        }
+        if (!slowConsumers.isEmpty()) {
+            for (PlayerConnection player : slowConsumers) {
+                player.disconnect();
+            }
+            slowConsumers.clear();
+        }
+    }
+    
+    /**
+     * Reporte la déconnexion d'un destinataire trop lent à la fin du lot en
+     * cours d'envoi (sous le verrou de la salle)
+     *
+     * @return false si aucun lot n'est en cours d'envoi : déconnecter aussitôt
+     */
+    boolean disconnectAfterFlush(PlayerConnection player) {
+        if (!flushing) {
+            return false;
+        }
+        slowConsumers.add(player);
+        return true;
+    }
+}
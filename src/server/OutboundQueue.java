@@ -0,0 +1,157 @@
+package server;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * File de sortie bornée d'une connexion. La logique de jeu se contente d'y
+ * déposer des trames encodées ; la couche réseau (thread d'écriture ou boucle
+ * NIO) les vide. Aucune écriture sur le socket n'a donc lieu sous le verrou
+ * d'une salle.
+ *
+ * Les trames sont partagées entre destinataires et ne sont jamais copiées :
+ * la file n'en garde qu'une vue, dont la position avance au fil de l'écriture.
+ *
+ * La borne porte sur le nombre d'octets en attente. Quand un client ne lit plus
+ * assez vite, le dépôt est refusé et le serveur applique sa politique pour les
+ * clients lents (voir {@link TicTacToeServer.SlowConsumerPolicy}).
+ */
+class OutboundQueue {
+    /** Réveille le thread d'écriture lors de la fermeture */
+    private static final ByteBuffer CLOSED = ByteBuffer.allocate(0);
+    
+    private final LinkedBlockingQueue<ByteBuffer> frames = new LinkedBlockingQueue<>();
+    private final ReentrantLock offerLock = new ReentrantLock();
+    private final int capacityBytes;
+    private int pendingBytes;
+    // Plus aucun dépôt accepté : la connexion se ferme une fois la file vidée
+    private volatile boolean finishing;
+    
+    OutboundQueue(int capacityBytes) {
+        this.capacityBytes = capacityBytes;
+    }
+    
+    /**
+     * Dépose les trames d'un même envoi, toutes ou aucune.
+     *
+     * @return false si la file est pleine (rien n'a été déposé)
+     */
+    boolean offer(List<ByteBuffer> batch) {
+        int size = size(batch);
+        offerLock.lock();
+        try {
+            if (finishing) {
+                return true;
+            }
+            // Un envoi plus grand que la borne passe tout de même si la file est vide
+            if (pendingBytes > 0 && pendingBytes + size > capacityBytes) {
+                return false;
+            }
+            enqueue(batch);
+            return true;
+        } finally {
+            offerLock.unlock();
+        }
+    }
+    
+    /**
+     * Remplace tout ce qui attend par les trames données
+     */
+    void replace(List<ByteBuffer> batch) {
+        offerLock.lock();
+        try {
+            if (finishing) {
+                return;
+            }
+            clear();
+            enqueue(batch);
+        } finally {
+            offerLock.unlock();
+        }
+    }
+    
+    /**
+     * Prochaine trame à écrire, ou null si la file est vide
+     */
+    ByteBuffer poll() {
+        // Le marqueur de fermeture reste en tête pour take() (un seul consommateur)
+        return frames.peek() == CLOSED ? null : released(frames.poll());
+    }
+    
+    /**
+     * Attend la prochaine trame à écrire ; null si la file a été fermée
+     */
+    ByteBuffer take() throws InterruptedException {
+        return released(frames.take());
+    }
+    
+    /**
+     * Termine la file après les trames déjà déposées : les dépôts suivants sont
+     * ignorés, et take() rend null une fois tout écrit
+     */
+    void finish() {
+        offerLock.lock();
+        try {
+            if (!finishing) {
+                finishing = true;
+                frames.add(CLOSED);
+            }
+        } finally {
+            offerLock.unlock();
+        }
+    }
+    
+    boolean isFinishing() { return finishing; }
+    
+    /**
+     * Vide la file et réveille un éventuel thread d'écriture en attente
+     */
+    void close() {
+        offerLock.lock();
+        try {
+            clear();
+            frames.add(CLOSED);
+        } finally {
+            offerLock.unlock();
+        }
+    }
+    
+    private ByteBuffer released(ByteBuffer buffer) {
+        if (buffer == null || buffer == CLOSED) {
+            return null;
+        }
+        offerLock.lock();
+        try {
+            pendingBytes -= buffer.remaining();
+        } finally {
+            offerLock.unlock();
+        }
+        return buffer;
+    }
+    
+    private void enqueue(List<ByteBuffer> batch) {
+        for (ByteBuffer frame : batch) {
+            ByteBuffer view = frame.duplicate();
+            pendingBytes += view.remaining();
+            frames.add(view);
+        }
+    }
+    
+    private void clear() {
+        // Une trame déjà retirée par le thread d'écriture reste décomptée par celui-ci
+        ByteBuffer dropped;
+        while ((dropped = frames.poll()) != null) {
+            pendingBytes -= dropped.remaining();
+        }
+    }
+    
+    private static int size(List<ByteBuffer> batch) {
+        int size = 0;
+        for (ByteBuffer frame : batch) {
+            size += frame.remaining();
+        }
+        return size;
+    }
+}
@@ -0,0 +1,90 @@
+package server;
+
+import common.GameMessage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Connexion d'un joueur, indépendante du transport réseau utilisé
+ * (thread par client ou boucle d'événements NIO)
+ */
+public interface PlayerConnection {
+    /** Délai laissé au client pour ouvrir la session par un HELLO, en millisecondes */
+    int HANDSHAKE_TIMEOUT_MS = 10000;
+    
+    /**
+     * Affecte le joueur à une salle avec le symbole donné
+     */
+    void joinRoom(GameRoom room, char playerSymbol);
+    
+    /**
+     * Démarre les échanges avec le client ; il rejoint une salle à la fin de la poignée de main
+     */
+    void start();
+    
+    /**
+     * Dépose des trames déjà encodées, éventuellement partagées avec d'autres
+     * connexions (voir {@link Frames}) : elles ne doivent jamais être modifiées.
+     * Les transports écrivent les trames d'un même appel en une seule fois ;
+     * la liste elle-même n'est pas conservée après l'appel.
+     */
+    void sendFrames(List<ByteBuffer> frames);
+    
+    /**
+     * Remplace tout ce qui attend dans la file de sortie par ces trames, pour
+     * remettre dans l'état courant un client qui ne suit plus
+     */
+    default void replaceFrames(List<ByteBuffer> frames) {
+        sendFrames(frames);
+    }
+    
+    default void sendFrame(ByteBuffer frame) {
+        sendFrames(Collections.singletonList(frame));
+    }
+    
+    default void sendMessage(GameMessage message) {
+        sendMessages(Collections.singletonList(message));
+    }
+    
+    /**
+     * Encode les messages propres à ce joueur puis les envoie d'un coup
+     */
+    default void sendMessages(List<GameMessage> messages) {
+        List<ByteBuffer> frames = new ArrayList<>(messages.size());
+        try {
+            for (GameMessage message : messages) {
+                frames.add(Frames.encode(message));
+            }
+        } catch (IOException e) {
+            System.err.println("Erreur lors de l'encodage du message pour le client " + getPlayerSymbol() + ": " + e.getMessage());
+            return;
+        }
+        sendFrames(frames);
+    }
+    
+    /**
+     * Borne le tampon d'émission du socket : un client qui ne lit plus remplit
+     * alors sa file de sortie au lieu d'accumuler des données dans le noyau
+     */
+    default void limitSocketBuffer(int bytes) {
+    }
+    
+    void disconnect();
+    
+    /**
+     * Ferme la connexion une fois écrites les trames déjà déposées ; ce qui
+     * est envoyé ensuite est ignoré
+     */
+    default void disconnectAfterFlush() {
+        disconnect();
+    }
+    
+    boolean isConnected();
+    
+    char getPlayerSymbol();
+    
+    GameRoom getRoom();
+}
@@ -0,0 +1,159 @@
+package server;
+
+import ai.MctsBot;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compteurs du serveur : connexions actives (et pic), temps de traitement
+ * des coups (attente du verrou comprise), nombre d'écritures sur les sockets
+ * et débordements des files de sortie ; pour les robots, attente de leurs
+ * demandes de coup, coups joués après l'échéance et débit des simulations ;
+ * pour les spectateurs, trames diffusées et rattrapages.
+ */
+public class ServerMetrics {
+    private final AtomicInteger activeConnections = new AtomicInteger();
+    private final AtomicInteger peakConnections = new AtomicInteger();
+    private final LongAdder moves = new LongAdder();
+    private final LongAdder moveNanos = new LongAdder();
+    private final AtomicLong maxMoveNanos = new AtomicLong();
+    private final LongAdder socketWrites = new LongAdder();
+    private final LongAdder sendQueueOverflows = new LongAdder();
+    private final LongAdder botMoves = new LongAdder();
+    private final LongAdder botWaitNanos = new LongAdder();
+    private final AtomicLong maxBotWaitNanos = new AtomicLong();
+    private final LongAdder lateBotMoves = new LongAdder();
+    private volatile MctsBot searchBot;
+    private final AtomicInteger activeSpectators = new AtomicInteger();
+    private final LongAdder spectatorFrames = new LongAdder();
+    private final LongAdder spectatorResyncs = new LongAdder();
+    
+    public void connectionOpened() {
+        int active = activeConnections.incrementAndGet();
+        peakConnections.accumulateAndGet(active, Math::max);
+    }
+    
+    public void connectionClosed() {
+        activeConnections.decrementAndGet();
+    }
+    
+    public void moveHandled(long nanos) {
+        moves.increment();
+        moveNanos.add(nanos);
+        if (nanos > maxMoveNanos.get()) {
+            maxMoveNanos.accumulateAndGet(nanos, Math::max);
+        }
+    }
+    
+    /**
+     * Un appel système d'écriture sur un socket client
+     */
+    public void socketWrite() {
+        socketWrites.increment();
+    }
+    
+    /**
+     * Une file de sortie pleine (client trop lent)
+     */
+    public void sendQueueOverflow() {
+        sendQueueOverflows.increment();
+    }
+    
+    /**
+     * Un coup de robot calculé, après waitNanos d'attente d'un fil de calcul ;
+     * late s'il a dépassé son échéance
+     */
+    public void botMoveComputed(long waitNanos, boolean late) {
+        botMoves.increment();
+        botWaitNanos.add(waitNanos);
+        if (waitNanos > maxBotWaitNanos.get()) {
+            maxBotWaitNanos.accumulateAndGet(waitNanos, Math::max);
+        }
+        if (late) {
+            lateBotMoves.increment();
+        }
+    }
+    
+    public void spectatorJoined() {
+        activeSpectators.incrementAndGet();
+    }
+    
+    public void spectatorLeft() {
+        activeSpectators.decrementAndGet();
+    }
+    
+    /**
+     * Trames déposées dans les files de sortie des spectateurs
+     */
+    public void spectatorFramesSent(long frames) {
+        spectatorFrames.add(frames);
+    }
+    
+    /**
+     * Un spectateur trop lent remis dans l'état courant de la partie
+     */
+    public void spectatorResync() {
+        spectatorResyncs.increment();
+    }
+    
+    /**
+     * Robot dont le débit de simulations figure dans le résumé
+     */
+    public void setSearchBot(MctsBot searchBot) {
+        this.searchBot = searchBot;
+    }
+    
+    public int getActiveConnections() { return activeConnections.get(); }
+    public int getPeakConnections() { return peakConnections.get(); }
+    public long getMoves() { return moves.sum(); }
+    public long getSocketWrites() { return socketWrites.sum(); }
+    public long getSendQueueOverflows() { return sendQueueOverflows.sum(); }
+    public long getBotMoves() { return botMoves.sum(); }
+    public long getLateBotMoves() { return lateBotMoves.sum(); }
+    public long getMaxBotWaitNanos() { return maxBotWaitNanos.get(); }
+    public int getActiveSpectators() { return activeSpectators.get(); }
+    public long getSpectatorFrames() { return spectatorFrames.sum(); }
+    public long getSpectatorResyncs() { return spectatorResyncs.sum(); }
+    
+    /**
+     * Résumé lisible des compteurs
+     */
+    public String summary() {
+        long count = moves.sum();
+        long averageMicros = (count == 0) ? 0 : moveNanos.sum() / count / 1000;
+        long writes = socketWrites.sum();
+        return "connexions actives=" + activeConnections.get()
+                + " pic=" + peakConnections.get()
+                + " coups=" + count
+                + " traitement moyen=" + averageMicros + "µs"
+                + " max=" + maxMoveNanos.get() / 1000 + "µs"
+                + " écritures=" + writes
+                + (count == 0 ? "" : String.format(" (%.1f par coup)", (double) writes / count))
+                + " files pleines=" + sendQueueOverflows.sum()
+                + botSummary()
+                + spectatorSummary();
+    }
+    
+    private String botSummary() {
+        long count = botMoves.sum();
+        if (count == 0) {
+            return "";
+        }
+        return " coups de robots=" + count
+                + " attente moyenne=" + botWaitNanos.sum() / count / 1000 + "µs"
+                + " max=" + maxBotWaitNanos.get() / 1000 + "µs"
+                + " en retard=" + lateBotMoves.sum()
+                + (searchBot == null ? "" : " simulations=" + searchBot.getPlayoutsPerSecond() + "/s par fil");
+    }
+    
+    private String spectatorSummary() {
+        long frames = spectatorFrames.sum();
+        if (frames == 0 && activeSpectators.get() == 0) {
+            return "";
+        }
+        return " spectateurs=" + activeSpectators.get()
+                + " trames diffusées=" + frames
+                + " rattrapages=" + spectatorResyncs.sum();
+    }
+}
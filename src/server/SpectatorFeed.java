@@ -0,0 +1,177 @@
+package server;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Diffusion d'une salle à ses spectateurs. Sous le verrou de la salle, un
+ * événement (début de partie, coup, fin de partie) ne fait que déposer ici les
+ * trames déjà encodées pour les joueurs ; un fil du pool des spectateurs les
+ * recopie ensuite dans la file de sortie de chacun, hors du verrou. Le coût
+ * d'un coup pour les joueurs ne dépend donc pas du nombre de spectateurs.
+ *
+ * Arrivées, départs et rattrapages passent par la même file que les
+ * événements et sont traités dans leur ordre de dépôt, par un seul fil à la
+ * fois : un spectateur reçoit exactement les événements postérieurs à son
+ * instantané. Un spectateur dont la file de sortie déborde ne reçoit plus
+ * rien jusqu'à son rattrapage, qui remplace tout ce qu'il n'a pas encore lu
+ * par l'état courant de la partie : les états intermédiaires sont abandonnés.
+ *
+ * Toutes les méthodes sont appelées sous le verrou de la salle.
+ */
+final class SpectatorFeed {
+    private final Executor executor;
+    private final ServerMetrics metrics;
+    
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ArrayDeque<Event> pending = new ArrayDeque<>();
+    private boolean draining;
+    // Modifié sous les deux verrous : lisible sous celui de la salle seul
+    private int count;
+    
+    // Fil de diffusion uniquement (un seul à la fois, ordonnés par le verrou)
+    private final List<PlayerConnection> spectators = new ArrayList<>();
+    private final List<Event> drained = new ArrayList<>();
+    private final List<ByteBuffer> frames = new ArrayList<>();
+    // Spectateurs en attente de rattrapage, marqués depuis n'importe quel fil
+    private final Set<PlayerConnection> lagging = ConcurrentHashMap.newKeySet();
+    
+    SpectatorFeed(Executor executor, ServerMetrics metrics) {
+        this.executor = executor;
+        this.metrics = metrics;
+    }
+    
+    /**
+     * Ajoute un spectateur, qui reçoit d'abord l'instantané de la partie
+     */
+    void join(PlayerConnection spectator, List<ByteBuffer> snapshot) {
+        enqueue(new Event(Kind.JOIN, spectator, snapshot), 1);
+    }
+    
+    void leave(PlayerConnection spectator) {
+        enqueue(new Event(Kind.LEAVE, spectator, null), -1);
+    }
+    
+    /**
+     * Diffuse des trames partagées à tous les spectateurs
+     */
+    void publish(ByteBuffer... frames) {
+        if (count > 0) {
+            enqueue(new Event(Kind.BROADCAST, null, Arrays.asList(frames)), 0);
+        }
+    }
+    
+    /**
+     * Le spectateur ne suit plus : ses trames en attente seront remplacées par
+     * l'instantané donné
+     */
+    void resync(PlayerConnection spectator, List<ByteBuffer> snapshot) {
+        lagging.add(spectator);
+        enqueue(new Event(Kind.RESYNC, spectator, snapshot), 0);
+    }
+    
+    /**
+     * Nombre de spectateurs, arrivées et départs en cours compris
+     */
+    int size() {
+        return count;
+    }
+    
+    private void enqueue(Event event, int delta) {
+        lock.lock();
+        try {
+            count += delta;
+            pending.add(event);
+            if (draining) {
+                return;
+            }
+            draining = true;
+        } finally {
+            lock.unlock();
+        }
+        try {
+            executor.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+            // Serveur en cours d'arrêt
+        }
+    }
+    
+    /**
+     * Traite les événements déposés jusqu'à épuisement de la file ; les
+     * diffusions consécutives partent en un seul envoi par spectateur
+     */
+    private void drain() {
+        while (true) {
+            lock.lock();
+            try {
+                if (pending.isEmpty()) {
+                    draining = false;
+                    return;
+                }
+                drained.addAll(pending);
+                pending.clear();
+            } finally {
+                lock.unlock();
+            }
+            for (Event event : drained) {
+                if (event.type == Kind.BROADCAST) {
+                    frames.addAll(event.frames);
+                    continue;
+                }
+                broadcast();
+                switch (event.type) {
+                    case JOIN:
+                        spectators.add(event.spectator);
+                        event.spectator.sendFrames(event.frames);
+                        break;
+                    case LEAVE:
+                        spectators.remove(event.spectator);
+                        lagging.remove(event.spectator);
+                        break;
+                    default:
+                        lagging.remove(event.spectator);
+                        event.spectator.replaceFrames(event.frames);
+                        break;
+                }
+            }
+            broadcast();
+            drained.clear();
+        }
+    }
+    
+    private void broadcast() {
+        if (frames.isEmpty()) {
+            return;
+        }
+        boolean skipLagging = !lagging.isEmpty();
+        for (PlayerConnection spectator : spectators) {
+            if (!skipLagging || !lagging.contains(spectator)) {
+                spectator.sendFrames(frames);
+            }
+        }
+        metrics.spectatorFramesSent((long) frames.size() * spectators.size());
+        frames.clear();
+    }
+    
+    private enum Kind { BROADCAST, JOIN, LEAVE, RESYNC }
+    
+    private static final class Event {
+        final Kind type;
+        final PlayerConnection spectator;
+        final List<ByteBuffer> frames;
+        
+        Event(Kind type, PlayerConnection spectator, List<ByteBuffer> frames) {
+            this.type = type;
+            this.spectator = spectator;
+            this.frames = frames;
+        }
+    }
+}
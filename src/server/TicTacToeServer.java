@@ -1,41 +1,475 @@
 package server;
 
+import ai.BotEngine;
+import ai.MctsBot;
+import ai.PerfectPlayTable;
+import ai.TableBot;
 import common.GameMessage;
+import common.MessageCodec;
 import common.TicTacToeGame;
+import journal.GameArchive;
+import journal.GameHistory;
+import journal.GameRecord;
+import journal.GameSnapshot;
+import journal.LiveGame;
+import journal.MoveJournal;
+import journal.Recovery;
 import java.io.*;
 import java.net.*;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
- * Serveur de jeu de Morpion gérant deux clients simultanément
+ * Serveur de jeu de Morpion hébergeant un nombre quelconque de parties simultanées.
+ * Chaque paire de connexions reçoit sa propre salle ({@link GameRoom}) ; des
+ * spectateurs peuvent suivre une salle sans y jouer ({@link SpectatorFeed}).
  */
 public class TicTacToeServer {
     private static final int PORT = 12345;
+    
+    /** Transport réseau : un thread par client (bloquant) ou boucles d'événements NIO */
+    public enum TransportMode { BLOCKING, NIO }
+    
+    /** Threads des ClientHandler en mode bloquant : threads système ou threads virtuels */
+    public enum ThreadMode { PLATFORM, VIRTUAL }
+    
+    /**
+     * Traitement d'un client dont la file de sortie est pleine : abandonner les
+     * nouveaux messages, le déconnecter, ou remplacer ses messages en attente
+     * par l'état courant de la partie
+     */
+    public enum SlowConsumerPolicy { DROP, DISCONNECT, COALESCE }
+    
+    /** Borne par défaut de la file de sortie d'une connexion, en octets */
+    public static final int DEFAULT_SEND_QUEUE_BYTES = 64 * 1024;
+    
+    /** Temps de réflexion par défaut du robot sur un grand plateau, en millisecondes */
+    public static final long DEFAULT_BOT_THINK_MS = 500;
+    
+    /** Attente par défaut d'un adversaire humain avant de proposer le robot, en millisecondes */
+    public static final long DEFAULT_BOT_DELAY_MS = 3000;
+    
+    /** Délai par défaut laissé aux joueurs d'une partie restaurée pour revenir, en millisecondes */
+    public static final long DEFAULT_RESUME_TIMEOUT_MS = 60000;
+    
+    /** Parties au plus renvoyées par une demande d'historique */
+    public static final int MAX_HISTORY = 50;
+    
+    private final TransportMode transportMode;
+    private final ThreadMode threadMode;
+    private final int ioThreads;
+    private SlowConsumerPolicy slowConsumerPolicy = SlowConsumerPolicy.DISCONNECT;
+    private int sendQueueBytes = DEFAULT_SEND_QUEUE_BYTES;
+    // Règle des parties : plateau rows x cols, winLength symboles à aligner
+    private int boardRows = 3;
+    private int boardCols = 3;
+    private int winLength = 3;
+    // Robot proposé à un joueur resté seul (null : pas de robot) et son ordonnanceur
+    private BotEngine bot;
+    private long botDelayMs = DEFAULT_BOT_DELAY_MS;
+    private long botThinkMs = DEFAULT_BOT_THINK_MS;
+    private int botThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    private int maxBots = -1;
+    private double botCpuShare = 1.0;
+    private BotScheduler botScheduler;
     private ServerSocket serverSocket;
-    private TicTacToeGame game;
-    private ClientHandler player1;
-    private ClientHandler player2;
-    private boolean gameStarted = false;
-    private final Object gameLock = new Object();
+    private NioTransport nioTransport;
+    // Journal des coups et des résultats (null : pas de journal), instantanés et reprises
+    private MoveJournal journal;
+    // Archive des parties terminées, ouverte avec le journal dans le même répertoire
+    private GameArchive archive;
+    // Parties de l'archive, indexées pour les demandes d'historique des joueurs
+    private GameHistory history;
+    private ScheduledExecutorService maintenance;
+    private long resumeTimeoutMs = DEFAULT_RESUME_TIMEOUT_MS;
+    // Salles restaurées par ticket de reprise des places encore libres
+    private final Map<Integer, GameRoom> restoredSeats = new ConcurrentHashMap<>();
+    
+    // Registre des salles actives et salles en attente d'un second joueur
+    private final Map<Integer, GameRoom> rooms = new ConcurrentHashMap<>();
+    private final Deque<GameRoom> openRooms = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger nextRoomId = new AtomicInteger(1);
+    private final AtomicLong nextGameId = new AtomicLong();
+    private final ReentrantLock roomCreationLock = new ReentrantLock();
+    private final ServerMetrics metrics = new ServerMetrics();
+    // Diffusion aux spectateurs, à l'écart des threads des joueurs (fils créés au premier spectateur)
+    private final ExecutorService spectatorExecutor = Executors.newFixedThreadPool(
+            Math.max(1, Runtime.getRuntime().availableProcessors() / 2), new ThreadFactory() {
+                private final AtomicInteger count = new AtomicInteger();
+                
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "spectateurs-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
     
     public TicTacToeServer() {
-        game = new TicTacToeGame();
+        this(TransportMode.BLOCKING, ThreadMode.PLATFORM, 1);
+    }
+    
+    public TicTacToeServer(TransportMode transportMode, ThreadMode threadMode, int ioThreads) {
+        this.transportMode = transportMode;
+        this.threadMode = threadMode;
+        this.ioThreads = ioThreads;
+    }
+    
+    /**
+     * Politique appliquée aux clients trop lents (avant {@link #start()})
+     */
+    public void setSlowConsumerPolicy(SlowConsumerPolicy slowConsumerPolicy) {
+        this.slowConsumerPolicy = slowConsumerPolicy;
+    }
+    
+    /**
+     * Borne de la file de sortie de chaque connexion, en octets (avant {@link #start()})
+     */
+    public void setSendQueueBytes(int sendQueueBytes) {
+        this.sendQueueBytes = sendQueueBytes;
+    }
+    
+    int getSendQueueBytes() {
+        return sendQueueBytes;
+    }
+    
+    /**
+     * Journalise chaque partie, coup accepté et résultat dans le répertoire
+     * donné (avant {@link #start()}), synchronisé avec le disque toutes les
+     * syncIntervalMs millisecondes ; les parties terminées sont en outre ajoutées
+     * à l'archive du même répertoire, dont l'historique est chargé en mémoire pour
+     * répondre aux joueurs. Journal et archive sont fermés par {@link #stop()}
+     */
+    public void openJournal(Path directory, long syncIntervalMs) throws IOException {
+        this.journal = MoveJournal.open(directory, MoveJournal.DEFAULT_SEGMENT_BYTES, syncIntervalMs);
+        long start = System.nanoTime();
+        this.history = GameHistory.load(directory);
+        System.out.println("Historique : " + history.size() + " parties chargées en "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+        this.archive = GameArchive.open(directory);
+        this.maintenance = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "instantanés");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    /**
+     * Délai laissé aux joueurs des parties restaurées pour revenir (avant {@link #restoreGames()})
+     */
+    public void setResumeTimeout(long resumeTimeoutMs) {
+        this.resumeTimeoutMs = resumeTimeoutMs;
+    }
+    
+    /**
+     * Écrit un instantané de toutes les parties en cours toutes les intervalMs
+     * millisecondes (après {@link #openJournal})
+     */
+    public void startSnapshots(long intervalMs) {
+        maintenance.scheduleWithFixedDelay(() -> {
+            try {
+                writeSnapshot();
+            } catch (IOException e) {
+                System.err.println("Écriture de l'instantané impossible: " + e.getMessage());
+            }
+        }, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Écrit un instantané des parties en cours, y compris celles restaurées
+     * dont les joueurs ne sont pas encore revenus, puis supprime les segments du
+     * journal devenus inutiles à la reprise. Chaque salle n'est verrouillée que
+     * le temps de copier sa partie.
+     *
+     * @return nombre de parties de l'instantané
+     */
+    public int writeSnapshot() throws IOException {
+        // Relevés avant le parcours : la relecture part de là et ignore ce que l'instantané contient déjà
+        long position = journal.getWrittenPosition();
+        long lastGameId = nextGameId.get();
+        int lastRoomId = nextRoomId.get() - 1;
+        List<LiveGame> games = new ArrayList<>();
+        for (GameRoom room : rooms.values()) {
+            room.lock();
+            try {
+                if (room.isGameStarted() || room.isResuming()) {
+                    games.add(liveGame(room));
+                }
+            } finally {
+                room.unlock();
+            }
+        }
+        GameSnapshot.write(journal.getDirectory(), position, lastGameId, lastRoomId, games);
+        // Segments qu'aucun des instantanés conservés ne fait plus relire
+        journal.deleteSegmentsBefore(GameSnapshot.oldestPosition(journal.getDirectory()));
+        return games.size();
+    }
+    
+    /**
+     * Copie de la partie en cours d'une salle (sous son verrou), coups dans
+     * l'ordre où ils ont été joués : la partie restaurée est archivée telle quelle
+     */
+    private static LiveGame liveGame(GameRoom room) {
+        TicTacToeGame game = room.getGame();
+        LiveGame live = new LiveGame(room.getGameId(), room.getId(), game.getRows(), game.getCols(),
+                game.getWinLength(), room.getTicket('X'), room.getTicket('O'));
+        for (int move = 0; move < game.getMoveCount(); move++) {
+            int cell = room.getMoveCell(move);
+            live.addMove(cell / game.getCols(), cell % game.getCols());
+        }
+        return live;
+    }
+    
+    /**
+     * Restaure les parties en cours lors du dernier arrêt, d'après l'instantané
+     * et le journal (après {@link #openJournal}, avant {@link #start()}). Chaque
+     * partie attend dans sa salle le retour de ses deux joueurs, qui présentent
+     * leur ticket de reprise ; celles dont un joueur n'est pas revenu après le
+     * délai de reprise sont abandonnées. Les parties contre un robot ne sont
+     * pas restaurées.
+     *
+     * @return nombre de parties restaurées
+     */
+    public int restoreGames() throws IOException {
+        Recovery recovery = Recovery.recover(journal.getDirectory());
+        nextGameId.accumulateAndGet(recovery.getLastGameId(), Math::max);
+        nextRoomId.accumulateAndGet(recovery.getLastRoomId() + 1, Math::max);
+        int restored = 0;
+        for (LiveGame live : recovery.getGames()) {
+            GameRoom room = restoredRoom(live);
+            if (room == null) {
+                journal.gameEnded(live.getGameId(), MoveJournal.ABANDONED);
+                continue;
+            }
+            rooms.put(room.getId(), room);
+            restoredSeats.put(live.getTicketX(), room);
+            restoredSeats.put(live.getTicketO(), room);
+            restored++;
+        }
+        if (restored > 0) {
+            maintenance.schedule(this::expireResumes, resumeTimeoutMs, TimeUnit.MILLISECONDS);
+        }
+        System.out.println("Parties restaurées : " + restored + " en " + recovery.getElapsedNanos() / 1_000_000
+                + " ms (instantané : " + recovery.getSnapshotGames() + " parties, journal : "
+                + recovery.getReplayedRecords() + " enregistrements relus"
+                + (recovery.isTruncated() ? ", fin corrompue ignorée" : "") + ")");
+        return restored;
+    }
+    
+    /**
+     * Salle d'une partie restaurée, ou null si la partie ne peut pas reprendre
+     */
+    private static GameRoom restoredRoom(LiveGame live) {
+        if (live.hasBot()) {
+            return null;
+        }
+        GameRoom room;
+        try {
+            room = new GameRoom(live.getRoomId(), live.getRows(), live.getCols(), live.getWinLength());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Partie " + live.getGameId() + " non restaurée: " + e.getMessage());
+            return null;
+        }
+        TicTacToeGame game = room.getGame();
+        for (int move = 0; move < live.getMoveCount(); move++) {
+            if (!game.makeMove(live.getRow(move), live.getCol(move), game.getCurrentPlayer())) {
+                System.err.println("Partie " + live.getGameId() + " non restaurée: coup " + (move + 1) + " invalide");
+                return null;
+            }
+            room.recordMove(live.getRow(move), live.getCol(move));
+        }
+        if (game.isGameWon()) {
+            return null;
+        }
+        room.setGameId(live.getGameId());
+        room.setTicket('X', live.getTicketX());
+        room.setTicket('O', live.getTicketO());
+        room.setResuming(true);
+        return room;
+    }
+    
+    /**
+     * Fin du délai de reprise : les parties restaurées encore incomplètes sont abandonnées
+     */
+    private void expireResumes() {
+        for (GameRoom room : new HashSet<>(restoredSeats.values())) {
+            GameRecord abandoned = null;
+            room.lock();
+            try {
+                if (!room.isResuming()) {
+                    continue;
+                }
+                abandoned = journalAbandon(room);
+                room.setGameStarted(false);
+                PlayerConnection present = room.isEmpty() ? null
+                        : (room.getPlayerX() != null ? room.getPlayerX() : room.getPlayerO());
+                if (present == null) {
+                    publish(room, Frames.ROOM_CLOSED);
+                    room.close();
+                    rooms.remove(room.getId());
+                    continue;
+                }
+                // Le joueur revenu attend un nouvel adversaire, comme après un départ
+                present.sendFrame(Frames.OPPONENT_LEFT);
+                publish(room, Frames.PLAYER_LEFT);
+                room.setOpen(true);
+                openRooms.addLast(room);
+                scheduleBot(room);
+            } finally {
+                room.unlock();
+                archive(abandoned);
+            }
+        }
+        restoredSeats.clear();
+    }
+    
+    public MoveJournal getJournal() {
+        return journal;
+    }
+    
+    public GameArchive getArchive() {
+        return archive;
+    }
+    
+    public GameHistory getHistory() {
+        return history;
+    }
+    
+    /**
+     * Règle des parties (avant {@link #start()}) : plateau rows x cols, gagné
+     * en alignant winLength symboles ; les clients la reçoivent dans GAME_START
+     *
+     * @throws IllegalArgumentException si la règle est hors limites (19 x 19 au plus)
+     */
+    public void setBoard(int rows, int cols, int winLength) {
+        TicTacToeGame.checkRules(rows, cols, winLength);
+        this.boardRows = rows;
+        this.boardCols = cols;
+        this.winLength = winLength;
+    }
+    
+    /**
+     * Ressources des robots (avant {@link #setBot}) : threads fils de calcul, au
+     * plus maxBots robots en jeu (-1 : 32 par fil), chacun disposant en moyenne de
+     * cpuShare cœur (1.0 : un cœur entier)
+     */
+    public void setBotResources(int threads, int maxBots, double cpuShare) {
+        if (threads < 1 || cpuShare <= 0) {
+            throw new IllegalArgumentException("Ressources des robots invalides: " + threads + " fils, " + cpuShare + " cœur");
+        }
+        this.botThreads = threads;
+        this.maxBots = maxBots;
+        this.botCpuShare = cpuShare;
+    }
+    
+    /**
+     * Active le robot adverse (après {@link #setBoard}, avant {@link #start()}) : un joueur
+     * resté seul delayMs millisecondes joue contre lui. Sur le Morpion 3x3, la table des
+     * coups parfaits est construite ici, une fois pour toutes les salles ; sur un plus grand
+     * plateau, le robot cherche chaque coup par Monte-Carlo pendant thinkMs millisecondes.
+     * Les coups sont calculés par un {@link BotScheduler}, à l'écart des threads réseau.
+     */
+    public void setBot(BotEngine.Difficulty difficulty, long delayMs, long thinkMs) {
+        this.botScheduler = new BotScheduler(botThreads, maxBots < 0 ? botThreads * 32 : maxBots, botCpuShare, metrics);
+        if (boardRows == 3 && boardCols == 3 && winLength == 3) {
+            long start = System.nanoTime();
+            PerfectPlayTable table = PerfectPlayTable.build();
+            System.out.println("Table des coups parfaits : " + table.getReachablePositions() + " positions en "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms");
+            this.bot = new TableBot(table, difficulty);
+        } else {
+            MctsBot mcts = new MctsBot(botScheduler.getComputePool(), botThreads, thinkMs, difficulty);
+            metrics.setSearchBot(mcts);
+            System.out.println("Robot Monte-Carlo : " + thinkMs + " ms par coup");
+            this.bot = mcts;
+        }
+        System.out.println("Calcul des robots : " + botThreads + " fil(s)");
+        this.botDelayMs = delayMs;
+        this.botThinkMs = thinkMs;
+    }
+    
+    /**
+     * Robot adverse avec le temps de réflexion par défaut
+     */
+    public void setBot(BotEngine.Difficulty difficulty, long delayMs) {
+        setBot(difficulty, delayMs, DEFAULT_BOT_THINK_MS);
     }
     
     public void start() {
+        System.out.println("Plateau " + boardRows + "x" + boardCols + ", " + winLength + " symboles à aligner");
+        if (transportMode == TransportMode.NIO) {
+            startNio();
+        } else {
+            startBlocking();
+        }
+    }
+    
+    private void startNio() {
+        try {
+            nioTransport = new NioTransport(this, PORT, ioThreads);
+            System.out.println("Serveur NIO démarré sur le port " + PORT + " (" + ioThreads + " boucle(s) d'événements)");
+            System.out.println("En attente de connexions...");
+            nioTransport.run();
+        } catch (IOException e) {
+            System.err.println("Erreur lors du démarrage du serveur: " + e.getMessage());
+        }
+    }
+    
+    private void startBlocking() {
+        ThreadFactory handlerThreads;
+        if (threadMode == ThreadMode.VIRTUAL) {
+            try {
+                handlerThreads = VirtualThreads.factory("client-");
+            } catch (UnsupportedOperationException e) {
+                System.err.println(e.getMessage());
+                return;
+            }
+        } else {
+            handlerThreads = Thread::new;
+        }
+        
         try {
-            serverSocket = new ServerSocket(PORT);
-            System.out.println("Serveur démarré sur le port " + PORT);
+            serverSocket = new ServerSocket();
+            serverSocket.setReuseAddress(true);
+            serverSocket.bind(new InetSocketAddress(PORT), 1024);
+            System.out.println("Serveur démarré sur le port " + PORT + " (threads " + threadMode.name().toLowerCase() + ")");
             System.out.println("En attente de connexions...");
             
             while (true) {
                 try {
-                    // Attendre deux connexions
-                    waitForPlayers();
+                    Socket client = serverSocket.accept();
+                    // Les messages d'un coup partent déjà groupés : inutile de les retarder (Nagle)
+                    client.setTcpNoDelay(true);
+                    PlayerConnection handler = new ClientHandler(client, this, handlerThreads);
+                    if (handler.isConnected()) {
+                        // Le joueur rejoindra une salle à la fin de la poignée de main
+                        handler.start();
+                    }
                 } catch (IOException e) {
+                    if (serverSocket.isClosed()) {
+                        break;
+                    }
                     System.err.println("Erreur lors de l'acceptation des connexions: " + e.getMessage());
-                    // Réinitialiser les joueurs en cas d'erreur
-                    resetPlayers();
                 }
             }
         } catch (IOException e) {
@@ -43,168 +477,815 @@ public class TicTacToeServer {
         }
     }
     
-    private void waitForPlayers() throws IOException {
-        // Attendre la connexion du premier joueur
-        if (player1 == null || !player1.isConnected()) {
-            System.out.println("En attente du joueur 1...");
-            Socket client1 = serverSocket.accept();
-            player1 = new ClientHandler(client1, 'X', this);
-            new Thread(player1).start();
-            System.out.println("Joueur 1 (X) connecté");
+    /**
+     * Place un nouveau joueur dans la première salle incomplète (ou en crée une)
+     * et démarre la partie dès que la salle est pleine. Appelé en parallèle par
+     * les poignées de main ; seul le verrou de la salle concernée est pris, la file
+     * des salles ouvertes est une collection concurrente.
+     */
+    public void registerPlayer(PlayerConnection handler) {
+        registerPlayer(handler, 0);
+    }
+    
+    /**
+     * Place un joueur identifié : ses parties sont rangées sous playerId dans
+     * l'historique (0 : joueur anonyme)
+     */
+    public void registerPlayer(PlayerConnection handler, int playerId) {
+        metrics.connectionOpened();
+        while (true) {
+            GameRoom room = openRooms.peekFirst();
+            if (room == null) {
+                room = createOpenRoom();
+            }
             
-            // Informer le joueur qu'il attend un adversaire
-            player1.sendMessage(new GameMessage(GameMessage.MessageType.WAITING_PLAYER, 
-                    "En attente d'un adversaire..."));
+            room.lock();
+            try {
+                if (room.isClosed() || room.isFull()) {
+                    // Salle fermée ou complétée entre-temps : en chercher une autre
+                    openRooms.remove(room);
+                    continue;
+                }
+                handler.joinRoom(room, room.nextFreeSymbol());
+                if (!handler.isConnected()) {
+                    // Connexion perdue pendant la poignée de main : ne pas asseoir un joueur absent
+                    metrics.connectionClosed();
+                    return;
+                }
+                room.addPlayer(handler);
+                int ticket = newTicket();
+                room.setTicket(handler.getPlayerSymbol(), ticket);
+                room.setPlayerId(handler.getPlayerSymbol(), playerId);
+                System.out.println("Joueur " + handler.getPlayerSymbol() + " connecté (salle " + room.getId() + ")");
+                
+                // Envoyer au client son symbole
+                GameMessage playerConnectedMessage = new GameMessage(GameMessage.MessageType.PLAYER_CONNECTED,
+                        "Vous êtes le joueur " + handler.getPlayerSymbol());
+                playerConnectedMessage.setPlayerSymbol(handler.getPlayerSymbol());
+                MessageCodec.setResumeTicket(playerConnectedMessage, ticket);
+                
+                if (room.isFull()) {
+                    room.setOpen(false);
+                    openRooms.remove(room);
+                    handler.sendMessage(playerConnectedMessage);
+                    startGame(room);
+                } else {
+                    // Informer le joueur qu'il attend un adversaire
+                    scheduleBot(room);
+                    try {
+                        OutboundBatch batch = room.getOutboundBatch();
+                        batch.add(handler, Frames.encode(playerConnectedMessage));
+                        batch.add(handler, Frames.WAITING_PLAYER);
+                        batch.flush();
+                    } catch (IOException e) {
+                        System.err.println("Erreur lors de l'encodage du message pour le client " + handler.getPlayerSymbol() + ": " + e.getMessage());
+                    }
+                }
+                return;
+            } finally {
+                room.unlock();
+            }
         }
-        
-        // Attendre la connexion du second joueur
-        if (player2 == null || !player2.isConnected()) {
-            System.out.println("En attente du joueur 2...");
-            Socket client2 = serverSocket.accept();
-            player2 = new ClientHandler(client2, 'O', this);
-            new Thread(player2).start();
-            System.out.println("Joueur 2 (O) connecté");
-            
-            // Démarrer la partie
-            startGame();
+    }
+    
+    /**
+     * Ticket de reprise d'une place : aléatoire, jamais nul sur ses 16 bits de
+     * poids faible, distinct de ceux des parties restaurées
+     */
+    private int newTicket() {
+        while (true) {
+            int ticket = ThreadLocalRandom.current().nextInt();
+            if ((ticket & 0xFFFF) != 0 && !restoredSeats.containsKey(ticket)) {
+                return ticket;
+            }
         }
     }
     
-    private void resetPlayers() {
-        synchronized (gameLock) {
-            if (player1 != null) {
-                player1.disconnect();
-                player1 = null;
+    /**
+     * Crée une salle ouverte, sauf si une autre poignée de main vient d'en créer
+     * une : deux joueurs arrivés en même temps doivent se retrouver dans la même salle
+     */
+    private GameRoom createOpenRoom() {
+        roomCreationLock.lock();
+        try {
+            GameRoom room = openRooms.peekFirst();
+            if (room == null) {
+                room = new GameRoom(nextRoomId.getAndIncrement(), boardRows, boardCols, winLength);
+                rooms.put(room.getId(), room);
+                room.setOpen(true);
+                openRooms.addLast(room);
             }
-            if (player2 != null) {
-                player2.disconnect();
-                player2 = null;
+            return room;
+        } finally {
+            roomCreationLock.unlock();
+        }
+    }
+    
+    /**
+     * Propose le robot à la salle si son joueur attend encore un adversaire après le délai
+     */
+    private void scheduleBot(GameRoom room) {
+        if (bot != null) {
+            try {
+                botScheduler.schedule(() -> addBot(room), botDelayMs);
+            } catch (RejectedExecutionException e) {
+                // Serveur en cours d'arrêt
             }
-            gameStarted = false;
         }
     }
     
-    private void startGame() {
-        synchronized (gameLock) {
-            if (player1 != null && player2 != null && player1.isConnected() && player2.isConnected()) {
-                gameStarted = true;
+    private void addBot(GameRoom room) {
+        room.lock();
+        try {
+            if (room.isClosed() || room.isFull() || room.isEmpty()) {
+                // Un adversaire humain est arrivé, ou le joueur est parti
+                return;
+            }
+            if (!botScheduler.tryAddBot()) {
+                // Trop de robots en jeu : le joueur attend un adversaire humain
+                System.out.println("Pas de robot disponible pour la salle " + room.getId());
+                return;
+            }
+            PlayerConnection player = new BotPlayer(this, bot, botScheduler, botThinkMs);
+            player.joinRoom(room, room.nextFreeSymbol());
+            room.addPlayer(player);
+            room.setTicket(player.getPlayerSymbol(), 0);
+            room.setPlayerId(player.getPlayerSymbol(), 0);
+            metrics.connectionOpened();
+            room.setOpen(false);
+            openRooms.remove(room);
+            System.out.println("Robot " + bot.getDifficulty().name().toLowerCase() + " ajouté comme joueur "
+                    + player.getPlayerSymbol() + " (salle " + room.getId() + ")");
+            startGame(room);
+        } finally {
+            room.unlock();
+        }
+    }
+    
+    private void resetRoom(GameRoom room) {
+        GameRecord abandoned = null;
+        room.lock();
+        try {
+            PlayerConnection playerX = room.getPlayerX();
+            PlayerConnection playerO = room.getPlayerO();
+            abandoned = journalAbandon(room);
+            room.setGameStarted(false);
+            if (playerX != null) {
+                playerX.disconnect();
+            }
+            if (playerO != null) {
+                playerO.disconnect();
+            }
+        } finally {
+            room.unlock();
+            archive(abandoned);
+        }
+    }
+    
+    private void startGame(GameRoom room) {
+        room.lock();
+        try {
+            PlayerConnection playerX = room.getPlayerX();
+            PlayerConnection playerO = room.getPlayerO();
+            if (playerX != null && playerO != null && playerX.isConnected() && playerO.isConnected()) {
+                TicTacToeGame game = room.getGame();
+                room.setGameStarted(true);
+                room.setGameId(nextGameId.incrementAndGet());
                 game.reset();
+                if (journal != null) {
+                    journal.gameStarted(room.getGameId(), room.getId(), game.getRows(), game.getCols(), game.getWinLength(),
+                            room.getTicket('X'), room.getTicket('O'));
+                }
                 
-                System.out.println("Démarrage de la partie...");
+                System.out.println("Démarrage de la partie (salle " + room.getId() + ")...");
                 
                 // Informer les joueurs du début de partie
                 GameMessage startMessage = new GameMessage(GameMessage.MessageType.GAME_START);
                 startMessage.setBoard(game.getBoard());
+                startMessage.setWinLength(game.getWinLength());
                 
                 try {
-                    player1.sendMessage(startMessage);
-                    player2.sendMessage(startMessage);
+                    // Même trame pour les deux joueurs, encodée une seule fois
+                    ByteBuffer startFrame = Frames.encode(startMessage);
+                    OutboundBatch batch = room.getOutboundBatch();
+                    batch.add(playerX, startFrame);
+                    batch.add(playerO, startFrame);
                     
                     // Informer le joueur X que c'est son tour
-                    player1.sendMessage(new GameMessage(GameMessage.MessageType.YOUR_TURN, "C'est votre tour !"));
-                    player2.sendMessage(new GameMessage(GameMessage.MessageType.OPPONENT_TURN, "Tour de l'adversaire"));
-                    
-                    System.out.println("Partie démarrée avec succès !");
+                    batch.add(playerX, Frames.YOUR_TURN);
+                    batch.add(playerO, Frames.OPPONENT_TURN);
+                    batch.flush();
+                    publish(room, startFrame);
                 } catch (Exception e) {
                     System.err.println("Erreur lors du démarrage de la partie: " + e.getMessage());
-                    resetPlayers();
+                    resetRoom(room);
                 }
             } else {
                 System.err.println("Impossible de démarrer la partie - joueurs non connectés");
             }
+        } finally {
+            room.unlock();
+        }
+    }
+    
+    /**
+     * Point d'entrée des messages reçus d'un client, quel que soit le transport
+     */
+    public void handleMessage(GameMessage message, PlayerConnection sender) {
+        if (message.getType() == GameMessage.MessageType.HELLO) {
+            handshake(message, sender);
+            return;
+        }
+        if (sender.getRoom() == null) {
+            System.err.println("Message reçu avant la poignée de main: " + message.getType());
+            return;
+        }
+        if (sender.getPlayerSymbol() == MessageCodec.SPECTATOR && message.getType() != GameMessage.MessageType.SNAPSHOT_REQUEST) {
+            sender.sendFrame(Frames.SPECTATOR_MOVE);
+            return;
+        }
+        switch (message.getType()) {
+            case PLAYER_MOVE:
+                handleMove(message.getRow(), message.getCol(), sender.getPlayerSymbol(), sender);
+                break;
+            case SNAPSHOT_REQUEST:
+                sendSnapshot(sender);
+                break;
+            case NEW_GAME:
+                requestNewGame(sender);
+                break;
+            case HISTORY_REQUEST:
+                sendHistory(sender, message.getRow());
+                break;
+            default:
+                System.err.println("Message inattendu du client " + sender.getPlayerSymbol() + ": " + message.getType());
+        }
+    }
+    
+    /**
+     * Poignée de main : choisir la version du protocole puis placer le joueur
+     * dans une salle. En cas d'échec, le client reçoit la version 0 puis la
+     * connexion est fermée.
+     */
+    private void handshake(GameMessage hello, PlayerConnection sender) {
+        if (sender.getRoom() != null) {
+            return;
+        }
+        int version = MessageCodec.negotiate(hello);
+        GameMessage ack = new GameMessage(GameMessage.MessageType.HELLO_ACK);
+        ack.setRow(version);
+        if (version == 0) {
+            ack.setContent("Version de protocole non supportée");
+            sender.sendMessage(ack);
+            sender.disconnectAfterFlush();
+            System.err.println("Client refusé : versions " + hello.getRow() + " à " + hello.getCol() + " non supportées");
+            return;
+        }
+        sender.sendMessage(ack);
+        if (MessageCodec.isSpectator(hello)) {
+            registerSpectator(sender, MessageCodec.spectatedRoom(hello));
+        } else if (MessageCodec.resumeTicket(hello) != 0) {
+            resumePlayer(sender, hello.getPlayerSymbol(), MessageCodec.resumeTicket(hello), MessageCodec.playerId(hello));
+        } else {
+            registerPlayer(sender, MessageCodec.playerId(hello));
+        }
+    }
+    
+    /**
+     * Rend à un joueur revenu après un redémarrage sa place dans la partie
+     * restaurée ; la partie reprend quand son adversaire est revenu aussi. Un
+     * ticket inconnu ou périmé mène à une nouvelle partie.
+     */
+    private void resumePlayer(PlayerConnection player, char symbol, int ticket, int playerId) {
+        GameRoom room = restoredSeats.get(ticket);
+        if (room != null) {
+            room.lock();
+            try {
+                if (room.isResuming() && room.getTicket(symbol) == ticket && room.getPlayer(symbol) == null) {
+                    player.joinRoom(room, symbol);
+                    if (!player.isConnected()) {
+                        // Connexion perdue pendant la poignée de main : la place reste à reprendre
+                        return;
+                    }
+                    restoredSeats.remove(ticket);
+                    metrics.connectionOpened();
+                    room.addPlayer(player);
+                    room.setPlayerId(symbol, playerId);
+                    System.out.println("Joueur " + symbol + " revenu (salle " + room.getId() + ")");
+                    
+                    GameMessage playerConnectedMessage = new GameMessage(GameMessage.MessageType.PLAYER_CONNECTED,
+                            "Vous êtes le joueur " + symbol);
+                    playerConnectedMessage.setPlayerSymbol(symbol);
+                    MessageCodec.setResumeTicket(playerConnectedMessage, ticket);
+                    OutboundBatch batch = room.getOutboundBatch();
+                    batch.add(player, Frames.encode(playerConnectedMessage));
+                    if (!room.isFull()) {
+                        batch.add(player, Frames.AWAITING_RESUME);
+                    }
+                    batch.flush();
+                    if (room.isFull()) {
+                        resumeGame(room);
+                    }
+                    return;
+                }
+            } catch (IOException e) {
+                System.err.println("Erreur lors de la reprise du joueur " + symbol + ": " + e.getMessage());
+                return;
+            } finally {
+                room.unlock();
+            }
         }
+        registerPlayer(player, playerId);
+    }
+    
+    /**
+     * Reprend une partie restaurée dont les deux joueurs sont revenus (sous le
+     * verrou de la salle) : chacun reçoit le plateau courant puis son tour
+     */
+    private void resumeGame(GameRoom room) throws IOException {
+        TicTacToeGame game = room.getGame();
+        room.setGameStarted(true);
+        System.out.println("Reprise de la partie (salle " + room.getId() + ", " + game.getMoveCount() + " coups)");
+        
+        GameMessage startMessage = new GameMessage(GameMessage.MessageType.GAME_START);
+        startMessage.setBoard(game.getBoard());
+        startMessage.setWinLength(game.getWinLength());
+        ByteBuffer startFrame = Frames.encode(startMessage);
+        OutboundBatch batch = room.getOutboundBatch();
+        PlayerConnection next = room.getPlayer(game.getCurrentPlayer());
+        batch.add(next, startFrame);
+        batch.add(room.getOpponent(next), startFrame);
+        batch.add(next, Frames.YOUR_TURN);
+        batch.add(room.getOpponent(next), Frames.OPPONENT_TURN);
+        batch.flush();
+        publish(room, startFrame);
     }
     
-    public void handleMove(int row, int col, char player, ClientHandler sender) {
-        synchronized (gameLock) {
-            if (!gameStarted) {
-                sender.sendMessage(new GameMessage(GameMessage.MessageType.INVALID_MOVE, 
-                        "La partie n'a pas encore commencé"));
+    /**
+     * Place un spectateur dans la salle demandée (0 : la partie la plus suivie)
+     * et lui envoie l'état de la partie ; il reçoit ensuite chaque événement de la salle
+     */
+    private void registerSpectator(PlayerConnection spectator, int roomId) {
+        GameRoom room = (roomId == 0) ? featuredRoom() : rooms.get(roomId);
+        if (room == null) {
+            spectator.sendFrame(Frames.NO_ROOM);
+            return;
+        }
+        room.lock();
+        try {
+            if (room.isClosed()) {
+                spectator.sendFrame(Frames.NO_ROOM);
                 return;
             }
+            SpectatorFeed feed = room.getSpectators();
+            if (feed == null) {
+                feed = new SpectatorFeed(spectatorExecutor, metrics);
+                room.setSpectators(feed);
+            }
+            spectator.joinRoom(room, MessageCodec.SPECTATOR);
+            // Un spectateur en retard est rattrapé depuis sa file de sortie, pas depuis le noyau
+            spectator.limitSocketBuffer(sendQueueBytes);
+            metrics.connectionOpened();
+            metrics.spectatorJoined();
+            
+            GameMessage connectedMessage = new GameMessage(GameMessage.MessageType.PLAYER_CONNECTED,
+                    "Vous suivez la salle " + room.getId());
+            connectedMessage.setPlayerSymbol(MessageCodec.SPECTATOR);
+            List<ByteBuffer> snapshot = new ArrayList<>(3);
+            snapshot.add(Frames.encode(connectedMessage));
+            snapshot.addAll(spectatorState(room));
+            feed.join(spectator, snapshot);
+            System.out.println("Spectateur connecté (salle " + room.getId() + ", " + feed.size() + " spectateur(s))");
+        } catch (IOException e) {
+            System.err.println("Erreur lors de l'encodage de l'état pour un spectateur: " + e.getMessage());
+        } finally {
+            room.unlock();
+        }
+    }
+    
+    /**
+     * Partie en cours la plus suivie, ou à défaut la première partie en cours
+     */
+    private GameRoom featuredRoom() {
+        GameRoom featured = null;
+        int best = -1;
+        for (GameRoom room : rooms.values()) {
+            room.lock();
+            try {
+                if (room.isGameStarted() && room.getSpectatorCount() > best) {
+                    featured = room;
+                    best = room.getSpectatorCount();
+                }
+            } finally {
+                room.unlock();
+            }
+        }
+        return featured;
+    }
+    
+    /**
+     * Trames remettant un spectateur dans l'état courant de la salle : le
+     * plateau, puis le résultat si la partie est terminée (sous le verrou de la salle)
+     */
+    private List<ByteBuffer> spectatorState(GameRoom room) throws IOException {
+        TicTacToeGame game = room.getGame();
+        GameMessage startMessage = new GameMessage(GameMessage.MessageType.GAME_START);
+        startMessage.setBoard(game.getBoard());
+        startMessage.setWinLength(game.getWinLength());
+        ByteBuffer startFrame = Frames.encode(startMessage);
+        if (room.isGameStarted() || !game.isGameWon()) {
+            return Collections.singletonList(startFrame);
+        }
+        return Arrays.asList(startFrame, Frames.encode(gameOverMessage(game)));
+    }
+    
+    /**
+     * Diffuse aux spectateurs de la salle des trames déjà envoyées aux joueurs
+     * (sous le verrou de la salle)
+     */
+    private void publish(GameRoom room, ByteBuffer... frames) {
+        SpectatorFeed feed = room.getSpectators();
+        if (feed != null) {
+            feed.publish(frames);
+        }
+    }
+    
+    public void handleMove(int row, int col, char player, PlayerConnection sender) {
+        long start = System.nanoTime();
+        applyMove(row, col, player, sender);
+        metrics.moveHandled(System.nanoTime() - start);
+    }
+    
+    private void applyMove(int row, int col, char player, PlayerConnection sender) {
+        GameRoom room = sender.getRoom();
+        GameRecord finished = null;
+        room.lock();
+        try {
+            if (!room.isGameStarted()) {
+                sender.sendFrame(Frames.NOT_STARTED);
+                return;
+            }
+            
+            TicTacToeGame game = room.getGame();
             
             // Vérifier que c'est bien le tour du joueur
             if (player != game.getCurrentPlayer()) {
-                sender.sendMessage(new GameMessage(GameMessage.MessageType.INVALID_MOVE, 
-                        "Ce n'est pas votre tour"));
+                sender.sendFrame(Frames.NOT_YOUR_TURN);
                 return;
             }
             
+            PlayerConnection playerX = room.getPlayerX();
+            PlayerConnection playerO = room.getPlayerO();
+            
             // Tenter de faire le coup
             if (game.makeMove(row, col, player)) {
-                // Coup valide, informer les deux joueurs
-                GameMessage updateMessage = new GameMessage(GameMessage.MessageType.GAME_UPDATE);
-                updateMessage.setBoard(game.getBoard());
-                updateMessage.setRow(row);
-                updateMessage.setCol(col);
-                updateMessage.setPlayerSymbol(player);
+                room.recordMove(row, col);
+                if (journal != null) {
+                    journal.moveApplied(room.getGameId(), game.getMoveCount(), row, col, player);
+                    if (game.isGameWon()) {
+                        journal.gameEnded(room.getGameId(), game.getWinner());
+                        finished = gameRecord(room, game.getWinner());
+                    }
+                }
+                // Les messages de chaque joueur partent ensemble en une seule écriture ;
+                // ceux destinés aux deux joueurs sont encodés une seule fois
+                OutboundBatch batch = room.getOutboundBatch();
                 
-                player1.sendMessage(updateMessage);
-                player2.sendMessage(updateMessage);
+                // Coup valide, informer les deux joueurs : seul le coup est envoyé,
+                // avec son numéro et la somme de contrôle du plateau obtenu
+                GameMessage updateMessage = new GameMessage(GameMessage.MessageType.GAME_UPDATE,
+                        row, col, player);
+                updateMessage.setSequence(game.getMoveCount());
+                updateMessage.setChecksum(game.getChecksum());
+                ByteBuffer updateFrame = Frames.encode(updateMessage);
                 
                 // Vérifier si la partie est terminée
+                ByteBuffer gameOverFrame = null;
+                String resultMessage = null;
                 if (game.isGameWon()) {
-                    GameMessage gameOverMessage = new GameMessage(GameMessage.MessageType.GAME_OVER);
-                    gameOverMessage.setGameWon(true);
-                    gameOverMessage.setWinner(game.getWinner());
-                    
-                    String resultMessage;
-                    if (game.getWinner() == 'D') {
-                        resultMessage = "Match nul !";
-                    } else {
-                        resultMessage = "Victoire du joueur " + game.getWinner() + " !";
-                    }
-                    gameOverMessage.setContent(resultMessage);
-                    
-                    player1.sendMessage(gameOverMessage);
-                    player2.sendMessage(gameOverMessage);
+                    GameMessage gameOverMessage = gameOverMessage(game);
+                    resultMessage = gameOverMessage.getContent();
+                    gameOverFrame = Frames.encode(gameOverMessage);
+                }
+                
+                // Tout est encodé : le lot de la salle ne peut plus rester à moitié rempli
+                batch.add(playerX, updateFrame);
+                batch.add(playerO, updateFrame);
+                if (gameOverFrame != null) {
+                    batch.add(playerX, gameOverFrame);
+                    batch.add(playerO, gameOverFrame);
                     
-                    gameStarted = false;
-                    System.out.println("Partie terminée: " + resultMessage);
+                    room.setGameStarted(false);
+                    System.out.println("Partie terminée (salle " + room.getId() + "): " + resultMessage);
                 } else {
                     // Informer les joueurs du changement de tour
-                    char nextPlayer = game.getCurrentPlayer();
-                    if (nextPlayer == 'X') {
-                        player1.sendMessage(new GameMessage(GameMessage.MessageType.YOUR_TURN, "C'est votre tour !"));
-                        player2.sendMessage(new GameMessage(GameMessage.MessageType.OPPONENT_TURN, "Tour de l'adversaire"));
-                    } else {
-                        player2.sendMessage(new GameMessage(GameMessage.MessageType.YOUR_TURN, "C'est votre tour !"));
-                        player1.sendMessage(new GameMessage(GameMessage.MessageType.OPPONENT_TURN, "Tour de l'adversaire"));
-                    }
+                    PlayerConnection next = room.getPlayer(game.getCurrentPlayer());
+                    batch.add(next, Frames.YOUR_TURN);
+                    batch.add(room.getOpponent(next), Frames.OPPONENT_TURN);
+                }
+                batch.flush();
+                // Les joueurs d'abord : les spectateurs reçoivent les mêmes trames ensuite
+                if (gameOverFrame != null) {
+                    publish(room, updateFrame, gameOverFrame);
+                } else {
+                    publish(room, updateFrame);
                 }
             } else {
                 // Coup invalide
-                sender.sendMessage(new GameMessage(GameMessage.MessageType.INVALID_MOVE, 
-                        "Coup invalide"));
+                sender.sendFrame(Frames.INVALID_MOVE);
             }
+        } catch (IOException e) {
+            System.err.println("Erreur lors de l'encodage du coup (salle " + room.getId() + "): " + e.getMessage());
+        } finally {
+            room.unlock();
+            archive(finished);
         }
     }
     
-    public void playerDisconnected(ClientHandler player) {
-        synchronized (gameLock) {
-            System.out.println("Joueur " + player.getPlayerSymbol() + " déconnecté");
-            
-            if (player == player1) {
-                player1 = null;
-            } else if (player == player2) {
-                player2 = null;
+    private static GameMessage gameOverMessage(TicTacToeGame game) {
+        GameMessage gameOverMessage = new GameMessage(GameMessage.MessageType.GAME_OVER);
+        gameOverMessage.setGameWon(true);
+        gameOverMessage.setWinner(game.getWinner());
+        if (game.getWinner() == 'D') {
+            gameOverMessage.setContent("Match nul !");
+        } else {
+            gameOverMessage.setContent("Victoire du joueur " + game.getWinner() + " !");
+        }
+        return gameOverMessage;
+    }
+    
+    /**
+     * Renvoie le plateau complet à un client qui a détecté une désynchronisation
+     */
+    private void sendSnapshot(PlayerConnection sender) {
+        GameRoom room = sender.getRoom();
+        room.lock();
+        try {
+            TicTacToeGame game = room.getGame();
+            GameMessage snapshot = new GameMessage(GameMessage.MessageType.GAME_UPDATE);
+            snapshot.setBoard(game.getBoard());
+            snapshot.setWinLength(game.getWinLength());
+            snapshot.setSequence(game.getMoveCount());
+            snapshot.setChecksum(game.getChecksum());
+            sender.sendMessage(snapshot);
+        } finally {
+            room.unlock();
+        }
+    }
+    
+    /**
+     * La file de sortie d'un joueur est pleine : appliquer la politique choisie.
+     * Appelé par la connexion, éventuellement sous le verrou de la salle.
+     */
+    void sendQueueFull(PlayerConnection player, OutboundQueue queue, List<ByteBuffer> frames) {
+        metrics.sendQueueOverflow();
+        if (player.getPlayerSymbol() == MessageCodec.SPECTATOR) {
+            // Quelle que soit la politique, un spectateur saute les états intermédiaires
+            spectatorBehind(player);
+            return;
+        }
+        switch (slowConsumerPolicy) {
+            case DISCONNECT:
+                System.err.println("Client " + player.getPlayerSymbol() + " trop lent, déconnexion");
+                // Pendant l'envoi du lot de sa salle, après les messages déjà regroupés pour les autres
+                GameRoom room = player.getRoom();
+                if (room == null || !room.isHeldByCurrentThread()
+                        || !room.getOutboundBatch().disconnectAfterFlush(player)) {
+                    player.disconnect();
+                }
+                break;
+            case COALESCE:
+                List<ByteBuffer> state = currentState(player);
+                queue.replace(state.isEmpty() ? frames : state);
+                break;
+            case DROP:
+            default:
+                break;
+        }
+    }
+    
+    private void spectatorBehind(PlayerConnection spectator) {
+        GameRoom room = spectator.getRoom();
+        if (room == null) {
+            return;
+        }
+        room.lock();
+        try {
+            SpectatorFeed feed = room.getSpectators();
+            if (feed != null) {
+                metrics.spectatorResync();
+                feed.resync(spectator, spectatorState(room));
             }
+        } catch (IOException e) {
+            System.err.println("Erreur lors de l'encodage de l'état pour un spectateur: " + e.getMessage());
+        } finally {
+            room.unlock();
+        }
+    }
+    
+    /**
+     * Trames suffisant à remettre un client dans l'état courant de sa partie
+     * (vide si aucune partie n'est en cours)
+     */
+    private List<ByteBuffer> currentState(PlayerConnection player) {
+        GameRoom room = player.getRoom();
+        if (room == null) {
+            return Collections.emptyList();
+        }
+        room.lock();
+        try {
+            if (!room.isGameStarted()) {
+                return Collections.emptyList();
+            }
+            TicTacToeGame game = room.getGame();
+            GameMessage startMessage = new GameMessage(GameMessage.MessageType.GAME_START);
+            startMessage.setBoard(game.getBoard());
+            startMessage.setWinLength(game.getWinLength());
+            // Numéro de coup et somme de contrôle : le client vérifie le plateau reçu
+            startMessage.setSequence(game.getMoveCount());
+            startMessage.setChecksum(game.getChecksum());
+            ByteBuffer turnFrame = (game.getCurrentPlayer() == player.getPlayerSymbol())
+                    ? Frames.YOUR_TURN
+                    : Frames.OPPONENT_TURN;
+            return Arrays.asList(Frames.encode(startMessage), turnFrame);
+        } catch (IOException e) {
+            System.err.println("Erreur lors de l'encodage de l'état pour le client " + player.getPlayerSymbol() + ": " + e.getMessage());
+            return Collections.emptyList();
+        } finally {
+            room.unlock();
+        }
+    }
+    
+    /**
+     * Envoie au joueur ses dernières parties, de la plus récente à la plus
+     * ancienne. Sans journal, il n'y a pas d'historique : la demande reste sans
+     * réponse et le client garde le sien.
+     */
+    private void sendHistory(PlayerConnection sender, int count) {
+        GameRoom room = sender.getRoom();
+        if (history == null || room == null) {
+            // Sans journal, ou avant la fin de la poignée de main : pas de réponse
+            return;
+        }
+        int playerId;
+        room.lock();
+        try {
+            playerId = room.getPlayerId(sender.getPlayerSymbol());
+        } finally {
+            room.unlock();
+        }
+        // Requête hors du verrou de la salle : l'historique a le sien
+        StringBuilder lines = new StringBuilder();
+        history.lastGames(playerId, Math.min(count, MAX_HISTORY)).forEach(record -> lines
+                .append(record.getTime() / 1000).append(';')
+                .append(record.getPlayerX() == playerId ? 'X' : 'O').append(';')
+                .append(record.getResult()).append(';')
+                .append(record.getMoveCount()).append('\n'));
+        sender.sendMessage(new GameMessage(GameMessage.MessageType.HISTORY, lines.toString()));
+    }
+    
+    /**
+     * Nouvelle partie dans la même salle, sans reconnexion : elle démarre quand
+     * les deux joueurs l'ont demandée
+     */
+    private void requestNewGame(PlayerConnection sender) {
+        GameRoom room = sender.getRoom();
+        room.lock();
+        try {
+            if (room.isGameStarted() || !room.isFull()) {
+                // Partie en cours, ou adversaire attendu : elle démarrera à son arrivée
+                return;
+            }
+            if (room.requestNewGame(sender.getPlayerSymbol())) {
+                startGame(room);
+            } else {
+                sender.sendFrame(Frames.WAITING_PLAYER);
+            }
+        } finally {
+            room.unlock();
+        }
+    }
+    
+    public void playerDisconnected(PlayerConnection player) {
+        GameRoom room = player.getRoom();
+        GameRecord abandoned = null;
+        room.lock();
+        try {
+            if (player.getPlayerSymbol() == MessageCodec.SPECTATOR) {
+                metrics.connectionClosed();
+                metrics.spectatorLeft();
+                room.getSpectators().leave(player);
+                return;
+            }
+            if (room.getPlayer(player.getPlayerSymbol()) != player) {
+                // Connexion perdue avant d'avoir été assise (voir registerPlayer)
+                return;
+            }
+            metrics.connectionClosed();
+            System.out.println("Joueur " + player.getPlayerSymbol() + " déconnecté (salle " + room.getId() + ")");
             
-            gameStarted = false;
+            PlayerConnection opponent = room.getOpponent(player);
+            room.removePlayer(player);
+            abandoned = journalAbandon(room);
+            room.setGameStarted(false);
+            
+            if (room.isEmpty()) {
+                // Plus de joueur : la salle est supprimée
+                publish(room, Frames.ROOM_CLOSED);
+                room.close();
+                rooms.remove(room.getId());
+                if (room.isOpen()) {
+                    room.setOpen(false);
+                    openRooms.remove(room);
+                }
+                return;
+            }
             
             // Informer l'autre joueur de la déconnexion
-            if (player1 != null && player1.isConnected()) {
-                player1.sendMessage(new GameMessage(GameMessage.MessageType.GAME_OVER, 
-                        "L'adversaire s'est déconnecté"));
+            if (opponent != null && opponent.isConnected()) {
+                opponent.sendFrame(Frames.OPPONENT_LEFT);
             }
-            if (player2 != null && player2.isConnected()) {
-                player2.sendMessage(new GameMessage(GameMessage.MessageType.GAME_OVER, 
-                        "L'adversaire s'est déconnecté"));
+            publish(room, Frames.PLAYER_LEFT);
+            
+            // La salle attend de nouveau un adversaire
+            if (!room.isOpen()) {
+                room.setOpen(true);
+                openRooms.addLast(room);
+            }
+            if (!(opponent instanceof BotPlayer)) {
+                scheduleBot(room);
             }
+        } finally {
+            room.unlock();
+            archive(abandoned);
+        }
+    }
+    
+    /**
+     * Inscrit au journal l'abandon de la partie en cours de la salle (sous son verrou)
+     *
+     * @return la partie à archiver une fois le verrou rendu, null s'il n'y en a pas
+     */
+    private GameRecord journalAbandon(GameRoom room) {
+        if (journal != null && (room.isGameStarted() || room.isResuming())) {
+            journal.gameEnded(room.getGameId(), MoveJournal.ABANDONED);
+            return gameRecord(room, MoveJournal.ABANDONED);
         }
+        return null;
+    }
+    
+    /**
+     * Partie de la salle, terminée sur le résultat donné (sous son verrou)
+     */
+    private GameRecord gameRecord(GameRoom room, char result) {
+        TicTacToeGame game = room.getGame();
+        GameRecord record = new GameRecord(game.getRows(), game.getCols(), game.getWinLength(),
+                System.currentTimeMillis(), result);
+        record.setPlayers(room.getPlayerId('X'), room.getPlayerId('O'));
+        for (int move = 0; move < game.getMoveCount(); move++) {
+            int cell = room.getMoveCell(move);
+            record.addMove(cell / game.getCols(), cell % game.getCols());
+        }
+        return record;
+    }
+    
+    /**
+     * Ajoute une partie terminée à l'archive et à l'historique, après avoir
+     * rendu le verrou de sa salle : l'indexation ne retarde pas les joueurs
+     */
+    private void archive(GameRecord record) {
+        if (record != null) {
+            archive.append(record);
+            history.add(record);
+        }
+    }
+    
+    public ServerMetrics getMetrics() {
+        return metrics;
+    }
+    
+    /**
+     * Nombre de salles actuellement ouvertes
+     */
+    public int getRoomCount() {
+        return rooms.size();
     }
     
     public void stop() {
+        if (botScheduler != null) {
+            botScheduler.shutdown();
+        }
+        spectatorExecutor.shutdownNow();
+        if (maintenance != null) {
+            maintenance.shutdownNow();
+        }
+        if (journal != null) {
+            journal.close();
+            archive.close();
+        }
+        if (nioTransport != null) {
+            nioTransport.close();
+        }
         try {
             if (serverSocket != null && !serverSocket.isClosed()) {
                 serverSocket.close();
@@ -214,15 +1295,128 @@ public class TicTacToeServer {
         }
     }
     
+    /**
+     * Options : --transport=blocking|nio, --threads=platform|virtual (mode bloquant),
+     * --io-threads=N (boucles d'événements NIO), --stats=S (affiche les compteurs toutes les S secondes),
+     * --slow-consumer=drop|disconnect|coalesce, --send-queue=OCTETS (file de sortie par connexion),
+     * --board=LIGNESxCOLONNESxALIGNEMENT (règle des parties, 3x3x3 par défaut, 19x19x5 pour le Gomoku),
+     * --bot=easy|medium|perfect (robot adverse pour un joueur resté seul), --bot-delay=MS,
+     * --bot-think=MS (temps de réflexion du robot par coup sur un grand plateau),
+     * --bot-threads=N (fils de calcul des robots), --bot-max=N (robots en jeu au plus),
+     * --bot-cpu=POURCENT (part d'un cœur dont chaque robot dispose en moyenne),
+     * --journal=RÉPERTOIRE (journal des coups, parties en cours restaurées au démarrage),
+     * --journal-sync=MS (intervalle entre deux fsync), --snapshot=S (instantané des parties toutes
+     * les S secondes), --resume-timeout=S (délai de retour des joueurs d'une partie restaurée)
+     */
     public static void main(String[] args) {
-        TicTacToeServer server = new TicTacToeServer();
+        TransportMode mode = TransportMode.BLOCKING;
+        ThreadMode threadMode = ThreadMode.PLATFORM;
+        int ioThreads = Runtime.getRuntime().availableProcessors();
+        int statsSeconds = 0;
+        SlowConsumerPolicy slowConsumerPolicy = SlowConsumerPolicy.DISCONNECT;
+        int sendQueueBytes = DEFAULT_SEND_QUEUE_BYTES;
+        int[] board = {3, 3, 3};
+        BotEngine.Difficulty botDifficulty = null;
+        long botDelayMs = DEFAULT_BOT_DELAY_MS;
+        long botThinkMs = DEFAULT_BOT_THINK_MS;
+        int botThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        int maxBots = -1;
+        int botCpuPercent = 100;
+        String journalDirectory = null;
+        long journalSyncMs = MoveJournal.DEFAULT_SYNC_INTERVAL_MS;
+        long snapshotSeconds = 30;
+        long resumeTimeoutSeconds = DEFAULT_RESUME_TIMEOUT_MS / 1000;
+        for (String arg : args) {
+            if (arg.startsWith("--transport=")) {
+                mode = TransportMode.valueOf(arg.substring("--transport=".length()).toUpperCase());
+            } else if (arg.startsWith("--threads=")) {
+                threadMode = ThreadMode.valueOf(arg.substring("--threads=".length()).toUpperCase());
+            } else if (arg.startsWith("--io-threads=")) {
+                ioThreads = Integer.parseInt(arg.substring("--io-threads=".length()));
+            } else if (arg.startsWith("--stats=")) {
+                statsSeconds = Integer.parseInt(arg.substring("--stats=".length()));
+            } else if (arg.startsWith("--slow-consumer=")) {
+                slowConsumerPolicy = SlowConsumerPolicy.valueOf(arg.substring("--slow-consumer=".length()).toUpperCase());
+            } else if (arg.startsWith("--send-queue=")) {
+                sendQueueBytes = Integer.parseInt(arg.substring("--send-queue=".length()));
+            } else if (arg.startsWith("--bot=")) {
+                botDifficulty = BotEngine.Difficulty.valueOf(arg.substring("--bot=".length()).toUpperCase());
+            } else if (arg.startsWith("--bot-delay=")) {
+                botDelayMs = Long.parseLong(arg.substring("--bot-delay=".length()));
+            } else if (arg.startsWith("--bot-think=")) {
+                botThinkMs = Long.parseLong(arg.substring("--bot-think=".length()));
+            } else if (arg.startsWith("--bot-threads=")) {
+                botThreads = Integer.parseInt(arg.substring("--bot-threads=".length()));
+            } else if (arg.startsWith("--bot-max=")) {
+                maxBots = Integer.parseInt(arg.substring("--bot-max=".length()));
+            } else if (arg.startsWith("--bot-cpu=")) {
+                botCpuPercent = Integer.parseInt(arg.substring("--bot-cpu=".length()));
+            } else if (arg.startsWith("--journal=")) {
+                journalDirectory = arg.substring("--journal=".length());
+            } else if (arg.startsWith("--journal-sync=")) {
+                journalSyncMs = Long.parseLong(arg.substring("--journal-sync=".length()));
+            } else if (arg.startsWith("--snapshot=")) {
+                snapshotSeconds = Long.parseLong(arg.substring("--snapshot=".length()));
+            } else if (arg.startsWith("--resume-timeout=")) {
+                resumeTimeoutSeconds = Long.parseLong(arg.substring("--resume-timeout=".length()));
+            } else if (arg.startsWith("--board=")) {
+                String[] parts = arg.substring("--board=".length()).toLowerCase().split("x");
+                if (parts.length != 3) {
+                    System.err.println("Règle invalide (attendu LIGNESxCOLONNESxALIGNEMENT): " + arg);
+                    return;
+                }
+                for (int i = 0; i < 3; i++) {
+                    board[i] = Integer.parseInt(parts[i]);
+                }
+            }
+        }
+        
+        TicTacToeServer server = new TicTacToeServer(mode, threadMode, ioThreads);
+        server.setSlowConsumerPolicy(slowConsumerPolicy);
+        server.setSendQueueBytes(sendQueueBytes);
+        try {
+            server.setBoard(board[0], board[1], board[2]);
+            if (botDifficulty != null) {
+                server.setBotResources(botThreads, maxBots, botCpuPercent / 100.0);
+                server.setBot(botDifficulty, botDelayMs, botThinkMs);
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            return;
+        }
+        if (journalDirectory != null) {
+            try {
+                server.openJournal(Paths.get(journalDirectory), journalSyncMs);
+                System.out.println("Journal des coups : " + journalDirectory + " (fsync toutes les " + journalSyncMs + " ms)");
+                server.setResumeTimeout(resumeTimeoutSeconds * 1000);
+                server.restoreGames();
+                if (snapshotSeconds > 0) {
+                    server.startSnapshots(snapshotSeconds * 1000);
+                }
+            } catch (IOException e) {
+                System.err.println("Ouverture du journal impossible: " + e.getMessage());
+                return;
+            }
+        }
         
         // Gérer l'arrêt propre du serveur
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
             System.out.println("\nArrêt du serveur...");
+            System.out.println("Statistiques: " + server.getMetrics().summary());
             server.stop();
         }));
         
+        if (statsSeconds > 0) {
+            ScheduledExecutorService statsPrinter = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "stats");
+                thread.setDaemon(true);
+                return thread;
+            });
+            statsPrinter.scheduleAtFixedRate(
+                    () -> System.out.println("Statistiques: " + server.getMetrics().summary()),
+                    statsSeconds, statsSeconds, TimeUnit.SECONDS);
+        }
+        
         server.start();
     }
 }
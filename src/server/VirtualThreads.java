@@ -0,0 +1,35 @@
+package server;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Accès aux threads virtuels (Java 21+) par réflexion, pour que le projet
+ * continue de compiler avec les JDK plus anciens.
+ */
+public final class VirtualThreads {
+    
+    private VirtualThreads() {
+    }
+    
+    /**
+     * Fabrique de threads virtuels nommés prefix0, prefix1, ...
+     *
+     * @throws UnsupportedOperationException si la JVM ne propose pas de threads virtuels
+     */
+    public static ThreadFactory factory(String prefix) {
+        try {
+            // Passer par l'interface publique Thread.Builder (l'implémentation n'est pas accessible)
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Method name = builderType.getMethod("name", String.class, long.class);
+            Method factory = builderType.getMethod("factory");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = name.invoke(builder, prefix, 0L);
+            return (ThreadFactory) factory.invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            throw new UnsupportedOperationException(
+                    "Les threads virtuels nécessitent Java 21 ou supérieur (JVM actuelle : "
+                    + System.getProperty("java.version") + ")");
+        }
+    }
+}
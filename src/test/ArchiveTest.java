@@ -0,0 +1,237 @@
+package test;
+
+import journal.ArchiveReader;
+import journal.GameArchive;
+import journal.GameRecord;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Vérifie l'archive des parties terminées : relecture fidèle des parties
+ * compactées (3x3) et à longueur variable (15x15) sur de nombreux blocs et
+ * fichiers, arrêt de la relecture d'un fichier sur un bloc déchiré, puis mesure
+ * le débit d'ajout et de relecture en masse de plusieurs millions de parties.
+ *
+ * Usage : java -cp bin test.ArchiveTest [parties]
+ */
+public class ArchiveTest {
+    private static final char[] RESULTS = {'X', 'O', 'D', 'A'};
+    private static int failures = 0;
+    
+    public static void main(String[] args) throws Exception {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        System.out.println("=== Test de l'archive des parties ===");
+        
+        testRoundTrip();
+        testTornBlock();
+        testThroughput(games);
+        
+        System.out.println("\n=== " + (failures == 0 ? "Tous les tests sont réussis" : failures + " échec(s)") + " ===");
+        System.exit(failures == 0 ? 0 : 1);
+    }
+    
+    private static void testRoundTrip() throws IOException {
+        System.out.println("\nTest 1: Relecture des parties compactées et à longueur variable");
+        Path directory = Files.createTempDirectory("archive");
+        try {
+            Random random = new Random(42);
+            List<String> expected = new ArrayList<>();
+            long time = System.currentTimeMillis();
+            // Blocs de 256 octets : 16 parties 3x3 par bloc (joueurs compris), changement de règle toutes les 100 parties
+            for (int open = 0; open < 2; open++) {
+                try (GameArchive archive = GameArchive.open(directory, 256, 1000)) {
+                    for (int i = 0; i < 1000; i++) {
+                        boolean large = (i / 100) % 2 == 1;
+                        GameRecord record = randomGame(random, large ? 15 : 3, large ? 5 : 3, time + i * 1000L);
+                        archive.append(record);
+                        expected.add(describe(record));
+                    }
+                }
+            }
+            List<String> replayed = new ArrayList<>();
+            ArchiveReader reader = new ArchiveReader(directory);
+            reader.replay(record -> replayed.add(describe(record)));
+            check("2000 parties relues", replayed.size() == 2000 && reader.getRecords() == 2000);
+            check("parties identiques, dans l'ordre", replayed.equals(expected));
+            check("fin d'archive intacte", !reader.isTruncated());
+            
+            long[] packed = new long[2];
+            ArchiveReader fast = new ArchiveReader(directory);
+            fast.replayPacked(game -> {
+                packed[0]++;
+                packed[1] += GameRecord.packedMoveCount(game);
+            });
+            long moves = 0;
+            for (String game : expected) {
+                if (game.startsWith("3x3")) {
+                    moves += game.split(" ").length - 6;
+                }
+            }
+            check("seules les parties 3x3 sont relues compactées", packed[0] == 1000 && packed[1] == moves);
+        } finally {
+            JournalTest.delete(directory);
+        }
+    }
+    
+    private static void testTornBlock() throws IOException {
+        System.out.println("\nTest 2: Bloc déchiré en fin de fichier");
+        Path directory = Files.createTempDirectory("archive");
+        try {
+            Random random = new Random(7);
+            Path first;
+            try (GameArchive archive = GameArchive.open(directory, 256, 1000)) {
+                for (int i = 0; i < 100; i++) {
+                    archive.append(randomGame(random, 3, 3, System.currentTimeMillis()));
+                }
+                first = archive.getFile();
+            }
+            // Le dernier bloc (4 parties sur 16) perd ses derniers octets
+            try (FileChannel channel = FileChannel.open(first, StandardOpenOption.WRITE)) {
+                channel.truncate(channel.size() - 5);
+            }
+            try (GameArchive archive = GameArchive.open(directory, 256, 1000)) {
+                for (int i = 0; i < 10; i++) {
+                    archive.append(randomGame(random, 3, 3, System.currentTimeMillis()));
+                }
+            }
+            ArchiveReader reader = new ArchiveReader(directory);
+            reader.replay(record -> { });
+            check("blocs complets relus, fichier suivant compris", reader.getRecords() == 96 + 10);
+            check("bloc déchiré signalé", reader.isTruncated());
+        } finally {
+            JournalTest.delete(directory);
+        }
+    }
+    
+    private static void testThroughput(int games) throws IOException {
+        System.out.println("\nTest 3: Débit sur " + games + " parties");
+        Path directory = Files.createTempDirectory("archive");
+        try {
+            Random random = new Random(1);
+            long now = System.currentTimeMillis();
+            GameRecord[] pool = new GameRecord[4096];
+            long poolMoves = 0;
+            long poolWinsX = 0;
+            for (int i = 0; i < pool.length; i++) {
+                pool[i] = randomGame(random, 3, 3, now);
+                poolMoves += pool[i].getMoveCount();
+                poolWinsX += pool[i].getResult() == 'X' ? 1 : 0;
+            }
+            long start = System.nanoTime();
+            try (GameArchive archive = GameArchive.open(directory)) {
+                for (int i = 0; i < games; i++) {
+                    archive.append(pool[i % pool.length]);
+                }
+            }
+            long appendNanos = System.nanoTime() - start;
+            
+            // Plusieurs passes : la première charge les pages, les suivantes mesurent la relecture
+            long[] totals = new long[3];
+            long packedNanos = Long.MAX_VALUE;
+            ArchiveReader fast = null;
+            for (int pass = 0; pass < 3; pass++) {
+                totals[0] = 0;
+                totals[1] = 0;
+                totals[2] = 0;
+                fast = new ArchiveReader(directory);
+                start = System.nanoTime();
+                fast.replayPacked(game -> {
+                    totals[0]++;
+                    totals[1] += GameRecord.packedMoveCount(game);
+                    totals[2] += GameRecord.packedResult(game) == 'X' ? 1 : 0;
+                });
+                packedNanos = Math.min(packedNanos, System.nanoTime() - start);
+            }
+            long[] decoded = new long[2];
+            start = System.nanoTime();
+            ArchiveReader.read(directory, record -> {
+                decoded[0]++;
+                decoded[1] += record.getCell(record.getMoveCount() > 0 ? record.getMoveCount() - 1 : 0);
+            });
+            long decodedNanos = System.nanoTime() - start;
+            
+            long rounds = games / pool.length;
+            long expectedMoves = rounds * poolMoves;
+            long expectedWinsX = rounds * poolWinsX;
+            for (int i = 0; i < games % pool.length; i++) {
+                expectedMoves += pool[i].getMoveCount();
+                expectedWinsX += pool[i].getResult() == 'X' ? 1 : 0;
+            }
+            System.out.printf("Ajout : %.1f M parties/s, %.1f octets par partie%n",
+                    games * 1e3 / appendNanos, (double) fast.getBytes() / games);
+            System.out.printf("Relecture compactée : %.0f M parties/s (%.0f Mo/s), décodée : %.1f M parties/s%n",
+                    games * 1e3 / packedNanos, fast.getBytes() * 1e3 / packedNanos, games * 1e3 / decodedNanos);
+            check("toutes les parties relues", totals[0] == games && decoded[0] == games);
+            check("coups et victoires de X relus sans décodage", totals[1] == expectedMoves && totals[2] == expectedWinsX);
+            
+            // Plateau 15x15 : encodage à longueur variable
+            Path large = Files.createTempDirectory("archive");
+            try {
+                int count = Math.max(1, games / 10);
+                long moves = 0;
+                try (GameArchive archive = GameArchive.open(large)) {
+                    for (int i = 0; i < count; i++) {
+                        GameRecord record = randomGame(random, 15, 5, now);
+                        moves += record.getMoveCount();
+                        archive.append(record);
+                    }
+                }
+                long size;
+                try (Stream<Path> files = Files.list(large)) {
+                    size = files.mapToLong(file -> file.toFile().length()).sum();
+                }
+                System.out.printf("15x15 : %.2f octets par coup%n", (double) size / moves);
+                check("15x15 : moins de deux octets par coup", size < 2 * moves);
+            } finally {
+                JournalTest.delete(large);
+            }
+        } finally {
+            JournalTest.delete(directory);
+        }
+    }
+    
+    /**
+     * Partie aléatoire sur un plateau size x size : cases distinctes, de 0 au plateau plein
+     */
+    private static GameRecord randomGame(Random random, int size, int winLength, long time) {
+        GameRecord record = new GameRecord(size, size, winLength, time, RESULTS[random.nextInt(RESULTS.length)]);
+        record.setPlayers(random.nextInt(), random.nextInt(4) == 0 ? 0 : random.nextInt());
+        int cells = size * size;
+        int[] order = new int[cells];
+        for (int i = 0; i < cells; i++) {
+            order[i] = i;
+        }
+        int moves = random.nextInt(Math.min(cells, 60) + 1);
+        for (int i = 0; i < moves; i++) {
+            int j = i + random.nextInt(cells - i);
+            int cell = order[j];
+            order[j] = order[i];
+            order[i] = cell;
+            record.addMove(cell / size, cell % size);
+        }
+        return record;
+    }
+    
+    private static String describe(GameRecord record) {
+        StringBuilder game = new StringBuilder(record.getRows() + "x" + record.getCols() + " " + record.getWinLength()
+                + " " + record.getResult() + " " + record.getTime() / 1000 + " " + record.getPlayerX() + " " + record.getPlayerO());
+        for (int move = 0; move < record.getMoveCount(); move++) {
+            game.append(' ').append(record.getCell(move));
+        }
+        return game.toString();
+    }
+    
+    private static void check(String name, boolean condition) {
+        if (!condition) {
+            failures++;
+            System.out.println("ÉCHEC : " + name);
+        }
+    }
+}
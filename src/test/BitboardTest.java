@@ -0,0 +1,246 @@
+package test;
+
+import ai.Solver;
+import ai.TranspositionTable;
+import common.BitboardGame;
+import common.Symmetry;
+import common.TicTacToeGame;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Vérifie que le moteur sur masques de bits se comporte exactement comme
+ * TicTacToeGame sur des parties aléatoires (coups joués puis annulés, formes
+ * canoniques, valeurs du solveur), puis compare leur débit.
+ *
+ * Usage : java -cp bin test.BitboardTest [parties]
+ */
+public class BitboardTest {
+    private static int failures = 0;
+    
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        System.out.println("=== Test du moteur sur masques de bits ===");
+        
+        // Test 1 : mêmes résultats que TicTacToeGame, coup par coup
+        System.out.println("\nTest 1: Parties aléatoires comparées à TicTacToeGame");
+        Random random = new Random(42);
+        TicTacToeGame reference = new TicTacToeGame();
+        BitboardGame bitboard = new BitboardGame();
+        int mismatches = 0;
+        for (int g = 0; g < 10_000 && mismatches == 0; g++) {
+            reference.reset();
+            bitboard.reset();
+            while (!reference.isGameWon()) {
+                // Coups invalides compris (case occupée, mauvais joueur, hors grille)
+                int row = random.nextInt(4);
+                int col = random.nextInt(4);
+                char player = random.nextInt(4) == 0 ? 'O' : reference.getCurrentPlayer();
+                if (reference.makeMove(row, col, player) != bitboard.makeMove(row, col, player)
+                        || !sameState(reference, bitboard)) {
+                    mismatches++;
+                    break;
+                }
+            }
+        }
+        check("même comportement que TicTacToeGame", mismatches == 0);
+        
+        // Test 2 : victoires et match nul
+        System.out.println("\nTest 2: Fins de partie");
+        bitboard.reset();
+        bitboard.makeMove(0, 'X');
+        bitboard.makeMove(3, 'O');
+        bitboard.makeMove(4, 'X');
+        bitboard.makeMove(5, 'O');
+        bitboard.makeMove(8, 'X');
+        check("victoire en diagonale", bitboard.isGameWon() && bitboard.getWinner() == 'X');
+        check("coup refusé après la victoire", !bitboard.makeMove(1, 'O'));
+        
+        bitboard.reset();
+        int[] draw = {0, 4, 1, 2, 6, 3, 5, 7, 8};
+        for (int i = 0; i < draw.length; i++) {
+            bitboard.makeMove(draw[i], i % 2 == 0 ? 'X' : 'O');
+        }
+        check("match nul", bitboard.isGameWon() && bitboard.getWinner() == 'D' && bitboard.getEmptyMask() == 0);
+        
+        // Test 3 : une position tient dans un entier
+        System.out.println("\nTest 3: Instantané et restauration");
+        bitboard.reset();
+        bitboard.makeMove(4, 'X');
+        bitboard.makeMove(0, 'O');
+        bitboard.makeMove(8, 'X');
+        BitboardGame restored = new BitboardGame();
+        restored.restore(bitboard.snapshot());
+        check("position restaurée", restored.snapshot() == bitboard.snapshot()
+                && restored.getCurrentPlayer() == 'O'
+                && restored.getMoveCount() == 3
+                && restored.getChecksum() == bitboard.getChecksum()
+                && Arrays.deepEquals(restored.getBoard(), bitboard.getBoard()));
+        
+        // Test 3b : coups annulés, position lue sur une partie, symétries
+        System.out.println("\nTest 3b: Annulation, lecture d'une partie et symétries");
+        int undoMismatches = 0;
+        int packMismatches = 0;
+        int canonicalMismatches = 0;
+        for (int g = 0; g < 2_000; g++) {
+            reference.reset();
+            bitboard.reset();
+            int[] played = new int[9];
+            int count = 0;
+            while (!reference.isGameWon()) {
+                int cell = randomEmptyCell(reference, random);
+                reference.makeMove(cell / 3, cell % 3, reference.getCurrentPlayer());
+                bitboard.makeMove(cell, bitboard.getCurrentPlayer());
+                played[count++] = cell;
+                if (BitboardGame.pack(reference) != bitboard.snapshot()) {
+                    packMismatches++;
+                }
+                // Les 8 images de la position ont la même forme canonique, comme leurs hachages
+                for (int symmetry = 1; symmetry < Symmetry.MAX_COUNT; symmetry++) {
+                    BitboardGame image = transformed(bitboard, symmetry);
+                    if (image.getCanonicalPosition() != bitboard.getCanonicalPosition()) {
+                        canonicalMismatches++;
+                    }
+                }
+            }
+            while (count > 0) {
+                int cell = played[--count];
+                reference.undoMove(cell / 3, cell % 3);
+                bitboard.undoMove(cell);
+                if (!sameState(reference, bitboard)) {
+                    undoMismatches++;
+                }
+            }
+        }
+        check("coups annulés comme TicTacToeGame", undoMismatches == 0);
+        check("position lue case par case", packMismatches == 0);
+        check("forme canonique commune aux symétries", canonicalMismatches == 0);
+        
+        // Test 3c : le solveur sur masques donne les valeurs d'un minimax complet
+        System.out.println("\nTest 3c: Valeurs du solveur sur masques de bits");
+        Solver solver = new Solver(new TranspositionTable(14));
+        int valueMismatches = 0;
+        for (int g = 0; g < 300; g++) {
+            reference.reset();
+            int moves = 1 + random.nextInt(6);
+            while (!reference.isGameWon() && reference.getMoveCount() < moves) {
+                int cell = randomEmptyCell(reference, random);
+                reference.makeMove(cell / 3, cell % 3, reference.getCurrentPlayer());
+            }
+            bitboard.restore(BitboardGame.pack(reference));
+            int expected = minimax(reference);
+            if (solver.solve(bitboard) != expected || solver.solve(reference) != expected) {
+                valueMismatches++;
+            }
+        }
+        check("valeurs exactes", valueMismatches == 0);
+        
+        // Test 4 : débit comparé sur les mêmes parties aléatoires
+        System.out.println("\nTest 4: Débit (" + games + " parties aléatoires)");
+        for (int round = 0; round < 3; round++) {
+            long referenceNanos = playRandomGames(new Random(7), games, null);
+            long bitboardNanos = playRandomGames(new Random(7), games, new BitboardGame());
+            if (round == 2) {
+                System.out.println("TicTacToeGame : " + games * 1_000_000_000L / referenceNanos + " parties/s");
+                System.out.println("BitboardGame : " + games * 1_000_000_000L / bitboardNanos + " parties/s");
+            }
+        }
+        
+        System.out.println("\n=== " + (failures == 0 ? "Tous les tests sont réussis" : failures + " échec(s)") + " ===");
+        System.exit(failures == 0 ? 0 : 1);
+    }
+    
+    private static boolean sameState(TicTacToeGame reference, BitboardGame bitboard) {
+        return reference.getCurrentPlayer() == bitboard.getCurrentPlayer()
+                && reference.isGameWon() == bitboard.isGameWon()
+                && reference.getWinner() == bitboard.getWinner()
+                && reference.getMoveCount() == bitboard.getMoveCount()
+                && reference.getChecksum() == bitboard.getChecksum()
+                && Arrays.deepEquals(reference.getBoard(), bitboard.getBoard());
+    }
+    
+    /**
+     * Parties aléatoires jusqu'à leur fin, comme une simulation de robot :
+     * avec TicTacToeGame si bitboard est null, sinon avec le moteur sur masques
+     */
+    private static long playRandomGames(Random random, int games, BitboardGame bitboard) {
+        TicTacToeGame reference = new TicTacToeGame();
+        long start = System.nanoTime();
+        for (int g = 0; g < games; g++) {
+            if (bitboard == null) {
+                reference.reset();
+                while (!reference.isGameWon()) {
+                    // Comme un robot : choisir parmi les cases libres de la grille
+                    int cell;
+                    do {
+                        cell = random.nextInt(9);
+                    } while (reference.getCell(cell / 3, cell % 3) != ' ');
+                    reference.makeMove(cell / 3, cell % 3, reference.getCurrentPlayer());
+                }
+            } else {
+                bitboard.reset();
+                while (!bitboard.isGameWon()) {
+                    int empty = bitboard.getEmptyMask();
+                    int cell;
+                    do {
+                        cell = random.nextInt(9);
+                    } while ((empty & (1 << cell)) == 0);
+                    bitboard.makeMove(cell, bitboard.getCurrentPlayer());
+                }
+            }
+        }
+        return System.nanoTime() - start;
+    }
+    
+    private static int randomEmptyCell(TicTacToeGame game, Random random) {
+        int cell;
+        do {
+            cell = random.nextInt(9);
+        } while (game.getCell(cell / 3, cell % 3) != ' ');
+        return cell;
+    }
+    
+    /**
+     * Image d'une position par une symétrie
+     */
+    private static BitboardGame transformed(BitboardGame game, int symmetry) {
+        int xMask = 0;
+        int oMask = 0;
+        for (int cell = 0; cell < 9; cell++) {
+            int image = Symmetry.apply(symmetry, cell / 3, cell % 3, 3, 3);
+            if (game.getCell(cell) == 'X') {
+                xMask |= 1 << image;
+            } else if (game.getCell(cell) == 'O') {
+                oMask |= 1 << image;
+            }
+        }
+        BitboardGame image = new BitboardGame();
+        image.restore(xMask | (oMask << 9) | (game.getCurrentPlayer() == 'O' ? 1 << 18 : 0));
+        return image;
+    }
+    
+    /**
+     * Valeur d'une position par un minimax complet, sans élagage ni table
+     * (même échelle que le solveur)
+     */
+    private static int minimax(TicTacToeGame game) {
+        if (game.isGameWon()) {
+            return (game.getWinner() == 'D') ? 0 : -(10 - game.getMoveCount());
+        }
+        int best = -Integer.MAX_VALUE;
+        for (int cell = 0; cell < 9; cell++) {
+            if (game.makeMove(cell / 3, cell % 3, game.getCurrentPlayer())) {
+                best = Math.max(best, -minimax(game));
+                game.undoMove(cell / 3, cell % 3);
+            }
+        }
+        return best;
+    }
+    
+    private static void check(String name, boolean condition) {
+        if (!condition) {
+            failures++;
+            System.out.println("ÉCHEC : " + name);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package test;
+
+import client.BoardView;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Vérifie le plateau dessiné du client, hors écran : correspondance entre
+ * pixels et cases, clics, mise à jour des seules cases modifiées, rendu des
+ * symboles, puis mesure le temps de dessin d'un plateau 19x19 plein.
+ *
+ * Usage : java -Djava.awt.headless=true -cp bin test.BoardViewTest [images]
+ */
+public class BoardViewTest {
+    // Une image à 60 images par seconde
+    private static final double FRAME_MILLIS = 1000.0 / 60;
+    private static int failures = 0;
+    
+    public static void main(String[] args) {
+        int frames = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        System.out.println("=== Test du plateau dessiné ===");
+        
+        // Test 1 : cases sous le pointeur et clics
+        System.out.println("\nTest 1: Cases sous le pointeur et clics");
+        List<int[]> clicks = new ArrayList<>();
+        BoardView view = new BoardView(3, 3, (row, col) -> clicks.add(new int[] {row, col}));
+        view.setSize(view.getPreferredSize());
+        int size = view.getCellSize();
+        check("case de 120 pixels en 3x3", size == 120);
+        check("case sous le pointeur", view.rowAt(size / 2) == 0 && view.colAt(size + 8 + size / 2) == 1);
+        check("interstice hors des cases", view.colAt(size + 4) == -1 && view.rowAt(-1) == -1);
+        view.setEnabled(false);
+        click(view, 1, 1);
+        check("clic ignoré plateau inactif", clicks.isEmpty());
+        view.setEnabled(true);
+        click(view, 1, 2);
+        check("clic transmis", clicks.size() == 1 && clicks.get(0)[0] == 1 && clicks.get(0)[1] == 2);
+        char[][] board = emptyBoard(3, 3);
+        board[1][2] = 'X';
+        view.setBoard(board);
+        click(view, 1, 2);
+        check("clic sur une case occupée ignoré", clicks.size() == 1);
+        
+        // Test 2 : seules les cases modifiées sont redessinées
+        System.out.println("\nTest 2: Cases modifiées");
+        board[0][0] = 'O';
+        check("un coup : une case", view.setBoard(board) == 1);
+        check("plateau inchangé : aucune case", view.setBoard(board) == 0);
+        check("plateau vidé : deux cases", view.setBoard(emptyBoard(3, 3)) == 2);
+        
+        // Test 3 : rendu des symboles
+        System.out.println("\nTest 3: Rendu");
+        board = emptyBoard(3, 3);
+        board[0][0] = 'X';
+        board[0][1] = 'O';
+        view.setBoard(board);
+        BufferedImage image = new BufferedImage(view.getWidth(), view.getHeight(), BufferedImage.TYPE_INT_RGB);
+        paint(view, image);
+        int center = size / 2;
+        check("X au centre de sa case", isBlue(image.getRGB(center, center)));
+        check("O : centre de sa case vide", image.getRGB(size + 8 + center, center) == Color.WHITE.getRGB());
+        check("O : cercle autour du centre", isRed(image.getRGB(size + 8 + center, size / 5)));
+        check("case vide", image.getRGB(2 * (size + 8) + center, center) == Color.WHITE.getRGB());
+        
+        // Test 4 : temps de dessin d'un plateau 19x19 plein
+        System.out.println("\nTest 4: Dessin d'un plateau 19x19 plein (" + frames + " images)");
+        BoardView large = new BoardView(19, 19, (row, col) -> { });
+        large.setSize(large.getPreferredSize());
+        char[][] full = emptyBoard(19, 19);
+        Random random = new Random(42);
+        for (char[] row : full) {
+            for (int j = 0; j < row.length; j++) {
+                row[j] = random.nextBoolean() ? 'X' : 'O';
+            }
+        }
+        check("361 cases modifiées", large.setBoard(full) == 361);
+        BufferedImage frame = new BufferedImage(large.getWidth(), large.getHeight(), BufferedImage.TYPE_INT_RGB);
+        for (int i = 0; i < 50; i++) {
+            paint(large, frame);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < frames; i++) {
+            paint(large, frame);
+        }
+        double fullMillis = (System.nanoTime() - start) / 1e6 / frames;
+        
+        // Un coup : seule sa case est repeinte
+        int cell = large.getCellSize();
+        start = System.nanoTime();
+        for (int i = 0; i < frames; i++) {
+            Graphics2D g2d = frame.createGraphics();
+            g2d.clipRect(9 * (cell + 2), 9 * (cell + 2), cell, cell);
+            large.paint(g2d);
+            g2d.dispose();
+        }
+        double cellMillis = (System.nanoTime() - start) / 1e6 / frames;
+        System.out.printf("Plateau complet : %.3f ms, une case : %.4f ms (une image : %.1f ms)%n",
+                fullMillis, cellMillis, FRAME_MILLIS);
+        check("plateau 19x19 redessiné en moins d'une image", fullMillis < FRAME_MILLIS);
+        check("une case bien plus vite que le plateau", cellMillis * 10 < fullMillis);
+        
+        System.out.println("\n=== " + (failures == 0 ? "Tous les tests sont réussis" : failures + " échec(s)") + " ===");
+        System.exit(failures == 0 ? 0 : 1);
+    }
+    
+    private static void click(BoardView view, int row, int col) {
+        int pitch = view.getCellSize() + 8;
+        int x = col * pitch + view.getCellSize() / 2;
+        int y = row * pitch + view.getCellSize() / 2;
+        view.dispatchEvent(new MouseEvent(view, MouseEvent.MOUSE_CLICKED, System.currentTimeMillis(), 0, x, y, 1, false,
+                MouseEvent.BUTTON1));
+    }
+    
+    private static void paint(BoardView view, BufferedImage image) {
+        Graphics2D g2d = image.createGraphics();
+        view.paint(g2d);
+        g2d.dispose();
+    }
+    
+    private static char[][] emptyBoard(int rows, int cols) {
+        char[][] board = new char[rows][cols];
+        for (char[] row : board) {
+            Arrays.fill(row, ' ');
+        }
+        return board;
+    }
+    
+    private static boolean isBlue(int rgb) {
+        Color color = new Color(rgb);
+        return color.getBlue() > 200 && color.getRed() < 80 && color.getGreen() < 80;
+    }
+    
+    private static boolean isRed(int rgb) {
+        Color color = new Color(rgb);
+        return color.getRed() > 200 && color.getBlue() < 80 && color.getGreen() < 80;
+    }
+    
+    private static void check(String name, boolean condition) {
+        if (!condition) {
+            failures++;
+            System.out.println("ÉCHEC : " + name);
+        }
+    }
+}
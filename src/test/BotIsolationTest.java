@@ -0,0 +1,222 @@
+package test;
+
+import ai.BotEngine;
+import common.GameMessage;
+import common.MessageCodec;
+import server.ServerMetrics;
+import server.TicTacToeServer;
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Vérifie que la réflexion des robots ne ralentit pas les parties entre humains :
+ * latence des coups de parties humaines seules, puis pendant que des robots
+ * Monte-Carlo jouent sans arrêt dans d'autres salles ; les coups des robots
+ * doivent en outre respecter leur échéance malgré la file d'attente.
+ *
+ * Usage : java -cp bin test.BotIsolationTest [parties avec robot] (le port 12345 doit être libre)
+ */
+public class BotIsolationTest {
+    private static final int SIZE = 9;
+    private static final int HUMAN_PAIRS = 4;
+    private static final int MOVES_PER_GAME = 30;
+    private static int failures = 0;
+    
+    public static void main(String[] args) throws Exception {
+        int botGames = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        System.out.println("=== Test d'isolation des robots ===");
+        
+        TicTacToeServer server = new TicTacToeServer();
+        server.setBoard(SIZE, SIZE, 5);
+        server.setBotResources(1, botGames, 1.0);
+        server.setBot(BotEngine.Difficulty.PERFECT, 100, 200);
+        Thread serverThread = new Thread(server::start, "serveur");
+        serverThread.setDaemon(true);
+        serverThread.start();
+        Thread.sleep(300);
+        
+        try {
+            // Test 1 : parties entre humains, sans robot
+            System.out.println("\nTest 1: Parties entre humains seules");
+            long[] idle = humanLatencies();
+            print("sans robot", idle);
+            
+            // Test 2 : les mêmes parties pendant que les robots réfléchissent
+            System.out.println("\nTest 2: Parties entre humains, " + botGames + " robots en jeu");
+            AtomicBoolean running = new AtomicBoolean(true);
+            for (int i = 0; i < botGames; i++) {
+                Socket socket = connect();
+                // Attendre l'arrivée du robot avant d'ouvrir la salle suivante
+                DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                char symbol = awaitType(input, GameMessage.MessageType.PLAYER_CONNECTED).getPlayerSymbol();
+                awaitType(input, GameMessage.MessageType.GAME_START);
+                Thread client = new Thread(() -> playAgainstBot(socket, input, symbol, running, new Random()), "client-robot-" + i);
+                client.setDaemon(true);
+                client.start();
+            }
+            // Laisser la file des robots se remplir
+            Thread.sleep(1000);
+            long[] loaded = humanLatencies();
+            print("avec robots", loaded);
+            running.set(false);
+            
+            ServerMetrics metrics = server.getMetrics();
+            System.out.println("Statistiques: " + metrics.summary());
+            check("les robots ont joué", metrics.getBotMoves() > botGames);
+            // Sur une machine chargée, l'ordonnanceur du système peut retarder un coup déjà prêt
+            check("coups de robots à l'heure", metrics.getLateBotMoves() * 20 <= metrics.getBotMoves());
+            long idleP99 = idle[idle.length * 99 / 100];
+            long loadedP99 = loaded[loaded.length * 99 / 100];
+            check("latence p99 des humains sous 20 ms malgré les robots",
+                    loadedP99 < Math.max(20_000_000L, 4 * idleP99));
+        } finally {
+            server.stop();
+        }
+        
+        System.out.println("\n=== " + (failures == 0 ? "Tous les tests sont réussis" : failures + " échec(s)") + " ===");
+        System.exit(failures == 0 ? 0 : 1);
+    }
+    
+    /**
+     * Joue HUMAN_PAIRS parties entre humains en parallèle ; retourne la latence
+     * de chaque coup (envoi du coup jusqu'à la réception de sa mise à jour), triée
+     */
+    private static long[] humanLatencies() throws Exception {
+        long[][] results = new long[HUMAN_PAIRS][];
+        Thread[] games = new Thread[HUMAN_PAIRS];
+        for (int p = 0; p < HUMAN_PAIRS; p++) {
+            // Deux connexions coup sur coup : la seconde rejoint la salle de la première avant le robot
+            Socket first = connect();
+            Socket second = connect();
+            int index = p;
+            games[p] = new Thread(() -> {
+                try {
+                    results[index] = playHumanGame(first, second);
+                } catch (IOException e) {
+                    results[index] = new long[0];
+                    System.out.println("Partie interrompue : " + e.getMessage());
+                }
+            }, "humains-" + p);
+            games[p].start();
+        }
+        int total = 0;
+        for (int p = 0; p < HUMAN_PAIRS; p++) {
+            games[p].join();
+            total += results[p].length;
+        }
+        long[] all = new long[total];
+        int offset = 0;
+        for (long[] result : results) {
+            System.arraycopy(result, 0, all, offset, result.length);
+            offset += result.length;
+        }
+        Arrays.sort(all);
+        check("coups des parties humaines joués", total == HUMAN_PAIRS * MOVES_PER_GAME);
+        return all;
+    }
+    
+    private static long[] playHumanGame(Socket first, Socket second) throws IOException {
+        try (Socket a = first; Socket b = second) {
+            DataInputStream[] inputs = {
+                new DataInputStream(new BufferedInputStream(a.getInputStream())),
+                new DataInputStream(new BufferedInputStream(b.getInputStream()))
+            };
+            OutputStream[] outputs = {a.getOutputStream(), b.getOutputStream()};
+            char[] symbols = new char[2];
+            for (int i = 0; i < 2; i++) {
+                symbols[i] = awaitType(inputs[i], GameMessage.MessageType.PLAYER_CONNECTED).getPlayerSymbol();
+            }
+            for (DataInputStream input : inputs) {
+                awaitType(input, GameMessage.MessageType.GAME_START);
+            }
+            long[] latencies = new long[MOVES_PER_GAME];
+            for (int move = 0; move < MOVES_PER_GAME; move++) {
+                // Cases en quinconce : aucun alignement de 5 avant la fin de la série
+                int row = move / SIZE;
+                int col = (move % SIZE + (row % 2) * 2) % SIZE;
+                int player = (symbols[0] == (move % 2 == 0 ? 'X' : 'O')) ? 0 : 1;
+                long start = System.nanoTime();
+                MessageCodec.writeFrame(outputs[player],
+                        new GameMessage(GameMessage.MessageType.PLAYER_MOVE, row, col, symbols[player]));
+                awaitType(inputs[player], GameMessage.MessageType.GAME_UPDATE);
+                latencies[move] = System.nanoTime() - start;
+            }
+            return latencies;
+        }
+    }
+    
+    /**
+     * Joue au hasard contre le robot, partie après partie, tant que le test tourne
+     */
+    private static void playAgainstBot(Socket socket, DataInputStream input, char symbol, AtomicBoolean running, Random random) {
+        try (Socket connection = socket) {
+            OutputStream output = connection.getOutputStream();
+            char[][] board = new char[SIZE][SIZE];
+            for (char[] line : board) {
+                Arrays.fill(line, ' ');
+            }
+            while (running.get()) {
+                GameMessage message = MessageCodec.readFrame(input);
+                switch (message.getType()) {
+                    case GAME_START:
+                        board = message.getBoard();
+                        break;
+                    case GAME_UPDATE:
+                        board[message.getRow()][message.getCol()] = message.getPlayerSymbol();
+                        break;
+                    case YOUR_TURN:
+                        int row;
+                        int col;
+                        do {
+                            row = random.nextInt(SIZE);
+                            col = random.nextInt(SIZE);
+                        } while (board[row][col] != ' ');
+                        MessageCodec.writeFrame(output, new GameMessage(GameMessage.MessageType.PLAYER_MOVE, row, col, symbol));
+                        break;
+                    case GAME_OVER:
+                        MessageCodec.writeFrame(output, new GameMessage(GameMessage.MessageType.NEW_GAME));
+                        break;
+                    default:
+                        break;
+                }
+            }
+        } catch (IOException e) {
+            // Serveur arrêté
+        }
+    }
+    
+    private static Socket connect() throws IOException {
+        Socket socket = new Socket();
+        socket.setSoTimeout(10000);
+        socket.setTcpNoDelay(true);
+        socket.connect(new InetSocketAddress("localhost", 12345), 5000);
+        MessageCodec.writeFrame(socket.getOutputStream(), MessageCodec.hello());
+        return socket;
+    }
+    
+    private static GameMessage awaitType(DataInputStream input, GameMessage.MessageType type) throws IOException {
+        while (true) {
+            GameMessage message = MessageCodec.readFrame(input);
+            if (message.getType() == type) {
+                return message;
+            }
+        }
+    }
+    
+    private static void print(String label, long[] latencies) {
+        System.out.println("Latence des coups " + label + " (µs) : p50=" + latencies[latencies.length / 2] / 1000
+                + " p99=" + latencies[latencies.length * 99 / 100] / 1000
+                + " max=" + latencies[latencies.length - 1] / 1000);
+    }
+    
+    private static void check(String name, boolean condition) {
+        if (!condition) {
+            failures++;
+            System.out.println("ÉCHEC : " + name);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package test;
+
+import ai.BotEngine;
+import ai.PerfectPlayTable;
+import ai.TableBot;
+import common.GameMessage;
+import common.MessageCodec;
+import common.TicTacToeGame;
+import server.TicTacToeServer;
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Random;
+
+/**
+ * Tests du robot adverse : table des coups parfaits, niveaux de difficulté,
+ * puis une partie complète contre le robot à travers le serveur.
+ *
+ * Usage : java -cp bin test.BotTest (le port 12345 doit être libre)
+ */
+public class BotTest {
+    private static int failures = 0;
+    
+    public static void main(String[] args) throws Exception {
+        System.out.println("=== Test du robot adverse ===");
+        
+        // Test 1 : construction de la table
+        System.out.println("\nTest 1: Table des coups parfaits");
+        long start = System.nanoTime();
+        PerfectPlayTable table = PerfectPlayTable.build();
+        System.out.println("Construite en " + (System.nanoTime() - start) / 1_000_000 + " ms, "
+                + table.getSearchedNodes() + " nœuds visités");
+        check("5478 positions atteignables", table.getReachablePositions() == 5478);
+        check("tous les coups d'ouverture font match nul", table.bestMoves(0) == PerfectPlayTable.emptyCells(0));
+        
+        // Test 2 : le robot parfait ne perd jamais
+        System.out.println("\nTest 2: Robot parfait");
+        TableBot perfect = new TableBot(table, BotEngine.Difficulty.PERFECT);
+        Random random = new Random(1);
+        int draws = 0;
+        for (int g = 0; g < 1000; g++) {
+            if (play(perfect, perfect, random) == 'D') {
+                draws++;
+            }
+        }
+        check("parfait contre parfait : toujours nul", draws == 1000);
+        int losses = 0;
+        for (int g = 0; g < 20_000; g++) {
+            boolean botIsX = (g % 2 == 0);
+            char winner = botIsX ? play(perfect, null, random) : play(null, perfect, random);
+            if (winner == (botIsX ? 'O' : 'X')) {
+                losses++;
+            }
+        }
+        check("parfait contre hasard : jamais de défaite", losses == 0);
+        
+        // Test 3 : les niveaux inférieurs commettent des erreurs
+        System.out.println("\nTest 3: Niveaux de difficulté");
+        for (BotEngine.Difficulty difficulty : BotEngine.Difficulty.values()) {
+            TableBot bot = new TableBot(table, difficulty);
+            int lost = 0;
+            for (int g = 0; g < 2000; g++) {
+                if (play(bot, perfect, random) == 'O') {
+                    lost++;
+                }
+            }
+            System.out.println(difficulty + " contre parfait : " + lost + " défaites sur 2000");
+            check(difficulty + " : défaites cohérentes avec le niveau",
+                    difficulty == BotEngine.Difficulty.PERFECT ? lost == 0 : lost > 0);
+        }
+        
+        // Test 4 : choix d'un coup en temps constant
+        System.out.println("\nTest 4: Temps de choix d'un coup");
+        TicTacToeGame game = new TicTacToeGame();
+        game.makeMove(1, 1, 'X');
+        int position = PerfectPlayTable.encode(game);
+        int sink = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < 5_000_000; i++) {
+            sink += perfect.chooseMove(position);
+        }
+        System.out.println((System.nanoTime() - start) / 5_000_000 + " ns par coup (" + (sink & 1) + ")");
+        
+        // Test 5 : un joueur resté seul joue contre le robot
+        System.out.println("\nTest 5: Partie contre le robot à travers le serveur");
+        TicTacToeServer server = new TicTacToeServer();
+        server.setBot(BotEngine.Difficulty.PERFECT, 100);
+        Thread serverThread = new Thread(server::start, "serveur");
+        serverThread.setDaemon(true);
+        serverThread.start();
+        Thread.sleep(300);
+        try (Socket socket = new Socket()) {
+            socket.setSoTimeout(10000);
+            socket.connect(new InetSocketAddress("localhost", 12345), 5000);
+            check("partie contre le robot sans défaite du robot", playAgainstServerBot(socket, random) != 'X');
+        } catch (IOException e) {
+            check("partie contre le robot : " + e.getMessage(), false);
+        } finally {
+            server.stop();
+        }
+        
+        System.out.println("\n=== " + (failures == 0 ? "Tous les tests sont réussis" : failures + " échec(s)") + " ===");
+        System.exit(failures == 0 ? 0 : 1);
+    }
+    
+    /**
+     * Joue une partie ; un joueur null joue au hasard. Retourne le gagnant ('D' pour un nul).
+     */
+    private static char play(TableBot x, TableBot o, Random random) {
+        TicTacToeGame game = new TicTacToeGame();
+        while (!game.isGameWon()) {
+            TableBot bot = (game.getCurrentPlayer() == 'X') ? x : o;
+            int cell = (bot != null) ? bot.chooseMove(game) : randomCell(game, random);
+            game.makeMove(cell / 3, cell % 3, game.getCurrentPlayer());
+        }
+        return game.getWinner();
+    }
+    
+    private static int randomCell(TicTacToeGame game, Random random) {
+        int cell;
+        do {
+            cell = random.nextInt(9);
+        } while (game.getCell(cell / 3, cell % 3) != ' ');
+        return cell;
+    }
+    
+    /**
+     * Joue X au hasard contre le robot du serveur, jusqu'à la fin de la partie
+     */
+    private static char playAgainstServerBot(Socket socket, Random random) throws IOException {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        OutputStream output = socket.getOutputStream();
+        MessageCodec.writeFrame(output, MessageCodec.hello());
+        char[][] board = null;
+        while (true) {
+            GameMessage message = MessageCodec.readFrame(input);
+            switch (message.getType()) {
+                case GAME_START:
+                    board = message.getBoard();
+                    break;
+                case GAME_UPDATE:
+                    board[message.getRow()][message.getCol()] = message.getPlayerSymbol();
+                    break;
+                case YOUR_TURN:
+                    int cell;
+                    do {
+                        cell = random.nextInt(9);
+                    } while (board[cell / 3][cell % 3] != ' ');
+                    MessageCodec.writeFrame(output, new GameMessage(GameMessage.MessageType.PLAYER_MOVE, cell / 3, cell % 3, 'X'));
+                    break;
+                case GAME_OVER:
+                    System.out.println("Fin de partie : " + message.getContent());
+                    return message.getWinner();
+                default:
+                    break;
+            }
+        }
+    }
+    
+    private static void check(String name, boolean condition) {
+        if (!condition) {
+            failures++;
+            System.out.println("ÉCHEC : " + name);
+        }
+    }
+}
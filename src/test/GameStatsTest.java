@@ -0,0 +1,62 @@
+package test;
+
+import client.GameStats;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+/**
+ * Vérifie les statistiques de session du client : compteurs, séries de
+ * victoires et longueur moyenne tenus à jour partie par partie, et
+ * notification des seules statistiques modifiées.
+ */
+public class GameStatsTest {
+    private static int failures = 0;
+    
+    public static void main(String[] args) {
+        System.out.println("=== Test des statistiques du client ===");
+        
+        GameStats stats = new GameStats();
+        List<GameStats.Stat> changed = new ArrayList<>();
+        stats.addListener((model, stat) -> changed.add(stat));
+        
+        System.out.println("\nTest 1: Compteurs et séries");
+        stats.record('X', 'X', 5);
+        check("première victoire notifiée",
+                EnumSet.copyOf(changed).equals(EnumSet.of(GameStats.Stat.WINS, GameStats.Stat.STREAK,
+                        GameStats.Stat.GAMES, GameStats.Stat.AVERAGE_LENGTH)));
+        stats.record('O', 'O', 7);
+        stats.record('O', 'O', 9);
+        check("série de trois victoires", stats.getStreak() == 3 && stats.getBestStreak() == 3);
+        changed.clear();
+        stats.record('X', 'O', 7);
+        check("défaite : série remise à zéro", stats.getStreak() == 0 && stats.getBestStreak() == 3);
+        check("défaite : victoires et nuls non notifiés",
+                !changed.contains(GameStats.Stat.WINS) && !changed.contains(GameStats.Stat.DRAWS)
+                && changed.contains(GameStats.Stat.LOSSES) && changed.contains(GameStats.Stat.STREAK));
+        check("longueur égale à la moyenne : moyenne non notifiée", !changed.contains(GameStats.Stat.AVERAGE_LENGTH));
+        changed.clear();
+        stats.record('D', 'X', 9);
+        check("nul après une défaite : série inchangée non notifiée",
+                changed.contains(GameStats.Stat.DRAWS) && !changed.contains(GameStats.Stat.STREAK));
+        changed.clear();
+        stats.record('A', 'X', 2);
+        check("partie interrompue ignorée", changed.isEmpty() && stats.getGames() == 5);
+        check("compteurs", stats.getWins() == 3 && stats.getLosses() == 1 && stats.getDraws() == 1);
+        
+        System.out.println("\nTest 2: Textes affichés");
+        check("longueur moyenne", Math.abs(stats.getAverageLength() - 37 / 5.0) < 1e-9);
+        check("texte de la série", stats.text(GameStats.Stat.STREAK).equals("0 (max 3)"));
+        check("texte des parties", stats.text(GameStats.Stat.GAMES).equals("5"));
+        
+        System.out.println("\n=== " + (failures == 0 ? "Tous les tests sont réussis" : failures + " échec(s)") + " ===");
+        System.exit(failures == 0 ? 0 : 1);
+    }
+    
+    private static void check(String name, boolean condition) {
+        if (!condition) {
+            failures++;
+            System.out.println("ÉCHEC : " + name);
+        }
+    }
+}
@@ -54,6 +54,43 @@ public class GameTest {
             System.out.println();
         }
         
+        // Test 4: Plateau de Gomoku, 5 alignés en diagonale
+        System.out.println("\nTest 4: Gomoku 15x15, 5 alignés");
+        TicTacToeGame gomoku = new TicTacToeGame(15, 15, 5);
+        for (int i = 0; i < 4; i++) {
+            gomoku.makeMove(3 + i, 3 + i, 'X');
+            gomoku.makeMove(0, i, 'O');
+        }
+        System.out.println("4 alignés, partie terminée: " + gomoku.isGameWon()); // false
+        gomoku.makeMove(7, 7, 'X');
+        System.out.println("5 alignés, partie terminée: " + gomoku.isGameWon()); // true
+        System.out.println("Gagnant: " + gomoku.getWinner()); // X
+        
+        // Test 5: Coût d'un coup indépendant de la taille du plateau
+        System.out.println("\nTest 5: Coups par seconde selon la taille du plateau");
+        System.out.println("3x3 (3 alignés) : " + movesPerSecond(3, 3) + " coups/s");
+        System.out.println("19x19 (5 alignés) : " + movesPerSecond(19, 5) + " coups/s");
+        
         System.out.println("\n=== Tous les tests sont terminés ===");
     }
+    
+    /**
+     * Remplit des plateaux size x size en boucle, cases dans l'ordre
+     */
+    private static long movesPerSecond(int size, int winLength) {
+        long moves = 0;
+        long start = System.nanoTime();
+        while (System.nanoTime() - start < 500_000_000L) {
+            TicTacToeGame game = new TicTacToeGame(size, size, winLength);
+            for (int cell = 0; cell < size * size && !game.isGameWon(); cell++) {
+                // Décaler d'une colonne une ligne sur deux retarde les alignements
+                int row = cell / size;
+                int col = (cell % size + (row % 2) * 2) % size;
+                if (game.makeMove(row, col, game.getCurrentPlayer())) {
+                    moves++;
+                }
+            }
+        }
+        return moves * 1_000_000_000L / (System.nanoTime() - start);
+    }
 }
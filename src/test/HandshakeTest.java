@@ -0,0 +1,102 @@
+package test;
+
+import common.GameMessage;
+import common.MessageCodec;
+import server.TicTacToeServer;
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+
+/**
+ * Vérifie la poignée de main sur les deux transports : un client dont les
+ * versions ne sont pas supportées reçoit HELLO_ACK(0) puis la connexion est
+ * fermée, et une connexion qui ne commence pas par un HELLO est fermée sans
+ * réponse.
+ *
+ * Usage : java -cp bin test.HandshakeTest (le port 12345 doit être libre)
+ */
+public class HandshakeTest {
+    private static int failures = 0;
+    
+    public static void main(String[] args) throws Exception {
+        System.out.println("=== Test de la poignée de main ===");
+        
+        for (TicTacToeServer.TransportMode mode : TicTacToeServer.TransportMode.values()) {
+            System.out.println("\nTransport " + mode);
+            TicTacToeServer server = new TicTacToeServer(mode, TicTacToeServer.ThreadMode.PLATFORM, 1);
+            Thread thread = new Thread(server::start, "serveur");
+            thread.setDaemon(true);
+            thread.start();
+            Thread.sleep(300);
+            try {
+                // Test 1 : versions non supportées, refus puis fermeture
+                try (Socket socket = connect()) {
+                    GameMessage hello = MessageCodec.hello();
+                    hello.setRow(1);
+                    hello.setCol(MessageCodec.MIN_PROTOCOL_VERSION - 1);
+                    DataInputStream input = send(socket, hello);
+                    GameMessage ack = MessageCodec.readFrame(input);
+                    check("refus annoncé", ack.getType() == GameMessage.MessageType.HELLO_ACK && ack.getRow() == 0);
+                    check("connexion fermée après le refus", closed(input));
+                }
+                
+                // Test 2 : première trame autre qu'un HELLO
+                try (Socket socket = connect()) {
+                    DataInputStream input = send(socket, new GameMessage(GameMessage.MessageType.SNAPSHOT_REQUEST));
+                    check("connexion fermée sans HELLO", closed(input));
+                }
+                
+                // Test 3 : un client à jour est toujours accepté
+                try (Socket socket = connect()) {
+                    DataInputStream input = send(socket, MessageCodec.hello());
+                    GameMessage ack = MessageCodec.readFrame(input);
+                    check("version acceptée", ack.getType() == GameMessage.MessageType.HELLO_ACK
+                            && ack.getRow() == MessageCodec.PROTOCOL_VERSION);
+                    check("joueur placé", MessageCodec.readFrame(input).getType() == GameMessage.MessageType.PLAYER_CONNECTED);
+                }
+            } finally {
+                server.stop();
+            }
+            // Laisser le système libérer le port d'écoute
+            Thread.sleep(1000);
+        }
+        
+        System.out.println("\n=== " + (failures == 0 ? "Tous les tests sont réussis" : failures + " échec(s)") + " ===");
+        System.exit(failures == 0 ? 0 : 1);
+    }
+    
+    private static Socket connect() throws IOException {
+        Socket socket = new Socket();
+        // Bien en deçà du délai de poignée de main du serveur
+        socket.setSoTimeout(3000);
+        socket.connect(new InetSocketAddress("localhost", 12345), 5000);
+        return socket;
+    }
+    
+    private static DataInputStream send(Socket socket, GameMessage message) throws IOException {
+        MessageCodec.writeFrame(socket.getOutputStream(), message);
+        return new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+    }
+    
+    /**
+     * Le serveur a fermé la connexion sans rien envoyer de plus
+     */
+    private static boolean closed(DataInputStream input) throws IOException {
+        try {
+            MessageCodec.readFrame(input);
+            return false;
+        } catch (EOFException e) {
+            return true;
+        } catch (SocketTimeoutException e) {
+            return false;
+        }
+    }
+    
+    private static void check(String name, boolean condition) {
+        if (!condition) {
+            failures++;
+            System.out.println("ÉCHEC : " + name);
+        }
+    }
+}
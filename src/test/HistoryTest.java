@@ -0,0 +1,342 @@
+package test;
+
+import common.GameMessage;
+import common.MessageCodec;
+import common.TicTacToeGame;
+import journal.GameArchive;
+import journal.GameHistory;
+import journal.GameRecord;
+import server.TicTacToeServer;
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Vérifie l'historique des parties : chaque index (joueur, heure, résultat,
+ * position) rend exactement ce que rendrait un parcours complet, après un
+ * chargement depuis l'archive comme après des ajouts ; un joueur identifié
+ * retrouve ses parties auprès du serveur, même après un redémarrage. Mesure
+ * enfin le chargement et les requêtes sur un grand nombre de parties.
+ *
+ * Usage : java -cp bin test.HistoryTest [parties] (le port 12345 doit être libre)
+ */
+public class HistoryTest {
+    // Partie nulle en 9 coups sur le plateau 3x3
+    private static final int[][] DRAW = {{0, 0}, {1, 1}, {2, 2}, {0, 2}, {2, 0}, {1, 0}, {1, 2}, {2, 1}, {0, 1}};
+    private static final long HOUR = 3_600_000;
+    private static int failures = 0;
+    
+    public static void main(String[] args) throws Exception {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        System.out.println("=== Test de l'historique des parties ===");
+        
+        testIndexes();
+        testServer();
+        testQueryTime(games);
+        
+        System.out.println("\n=== " + (failures == 0 ? "Tous les tests sont réussis" : failures + " échec(s)") + " ===");
+        System.exit(failures == 0 ? 0 : 1);
+    }
+    
+    private static void testIndexes() throws IOException {
+        System.out.println("\nTest 1: Index comparés à un parcours complet");
+        Path directory = Files.createTempDirectory("archive");
+        try {
+            Random random = new Random(3);
+            long start = (System.currentTimeMillis() - 10 * HOUR) / 1000 * 1000;
+            List<GameRecord> games = new ArrayList<>();
+            try (GameArchive archive = GameArchive.open(directory)) {
+                for (int i = 0; i < 20_000; i++) {
+                    // Heures croissantes à la seconde, comme celles relues dans l'archive
+                    GameRecord game = randomGame(random, i % 10 == 9 ? 4 : 3, start + i * 1800L / 1000 * 1000, 50);
+                    games.add(game);
+                    archive.append(game);
+                }
+            }
+            GameHistory loaded = GameHistory.load(directory);
+            GameHistory added = new GameHistory();
+            for (GameRecord game : games) {
+                added.add(game);
+            }
+            check("toutes les parties chargées", loaded.size() == games.size() && added.size() == games.size());
+            
+            int errors = 0;
+            for (GameHistory history : new GameHistory[] {loaded, added}) {
+                for (int player = 1; player <= 50; player++) {
+                    final int id = player;
+                    List<String> expected = new ArrayList<>();
+                    for (int i = games.size() - 1; i >= 0 && expected.size() < 10; i--) {
+                        if (games.get(i).getPlayerX() == id || games.get(i).getPlayerO() == id) {
+                            expected.add(describe(games.get(i)));
+                        }
+                    }
+                    errors += expected.equals(describeAll(history.lastGames(id, 10).collect(Collectors.toList()))) ? 0 : 1;
+                }
+                for (char result : new char[] {'X', 'O', 'D', 'A'}) {
+                    long from = start + 2 * HOUR;
+                    long to = from + HOUR;
+                    List<String> expected = new ArrayList<>();
+                    List<String> all = new ArrayList<>();
+                    for (GameRecord game : games) {
+                        if (game.getTime() >= from && game.getTime() < to) {
+                            all.add(describe(game));
+                            if (game.getResult() == result) {
+                                expected.add(describe(game));
+                            }
+                        }
+                    }
+                    errors += expected.equals(describeAll(history.games(result, from, to).collect(Collectors.toList()))) ? 0 : 1;
+                    errors += all.equals(describeAll(history.games(from, to).collect(Collectors.toList()))) ? 0 : 1;
+                }
+                // Positions atteintes par quelques parties, symétries confondues
+                for (int sample = 0; sample < 50; sample++) {
+                    GameRecord source = games.get(random.nextInt(games.size()));
+                    int depth = 1 + random.nextInt(Math.max(1, source.getMoveCount()));
+                    TicTacToeGame position = replay(source, Math.min(depth, source.getMoveCount()));
+                    Set<String> expected = new HashSet<>();
+                    for (GameRecord game : games) {
+                        if (reaches(game, position.getCanonicalHash())) {
+                            expected.add(describe(game));
+                        }
+                    }
+                    List<GameRecord> found = history.reaching(position).collect(Collectors.toList());
+                    errors += (found.size() == expected.size() && expected.containsAll(describeAll(found))) ? 0 : 1;
+                }
+            }
+            check("dernières parties, résultats, intervalles et positions identiques", errors == 0);
+            check("joueur inconnu : aucune partie", loaded.lastGames(12345, 10).count() == 0);
+            check("position jamais atteinte : aucune partie", loaded.reaching(new TicTacToeGame(5, 5, 4)).count() == 0);
+        } finally {
+            JournalTest.delete(directory);
+        }
+    }
+    
+    private static void testServer() throws Exception {
+        System.out.println("\nTest 2: Historique demandé au serveur");
+        Path directory = Files.createTempDirectory("journal");
+        try {
+            TicTacToeServer server = start(directory);
+            try {
+                Player[] players = {new Player(0x1234), new Player(0x5678)};
+                for (Player player : players) {
+                    player.await(GameMessage.MessageType.GAME_START);
+                }
+                for (int move = 0; move < DRAW.length; move++) {
+                    char symbol = (move % 2 == 0) ? 'X' : 'O';
+                    Player mover = (players[0].symbol == symbol) ? players[0] : players[1];
+                    mover.send(new GameMessage(GameMessage.MessageType.PLAYER_MOVE, DRAW[move][0], DRAW[move][1], symbol));
+                    for (Player player : players) {
+                        player.await(GameMessage.MessageType.GAME_UPDATE);
+                    }
+                }
+                players[0].await(GameMessage.MessageType.GAME_OVER);
+                players[0].send(MessageCodec.historyRequest(10));
+                String[] lines = players[0].await(GameMessage.MessageType.HISTORY).getContent().split("\n");
+                check("une partie nulle de 9 coups", lines.length == 1
+                        && lines[0].endsWith(";" + players[0].symbol + ";D;9"));
+                for (Player player : players) {
+                    player.socket.close();
+                }
+            } finally {
+                server.stop();
+            }
+            
+            // Redémarrage : l'historique est rechargé depuis l'archive
+            server = start(directory);
+            try {
+                Player back = new Player(0x5678);
+                back.send(MessageCodec.historyRequest(10));
+                String history = back.await(GameMessage.MessageType.HISTORY).getContent();
+                check("historique conservé après un redémarrage", history.endsWith(";D;9\n") && history.split("\n").length == 1);
+                Player stranger = new Player(0);
+                stranger.send(MessageCodec.historyRequest(10));
+                check("joueur anonyme : historique vide", stranger.await(GameMessage.MessageType.HISTORY).getContent().isEmpty());
+            } finally {
+                server.stop();
+            }
+        } finally {
+            JournalTest.delete(directory);
+        }
+    }
+    
+    private static void testQueryTime(int count) {
+        System.out.println("\nTest 3: Requêtes sur " + count + " parties");
+        Random random = new Random(11);
+        long now = System.currentTimeMillis();
+        long first = now - count * 100L;
+        GameHistory history = new GameHistory();
+        // Parties générées d'avance : seul l'ajout à l'historique (joueurs et heure compris) est mesuré
+        GameRecord[] pool = new GameRecord[4096];
+        for (int i = 0; i < pool.length; i++) {
+            pool[i] = randomGame(random, 3, 0, 2);
+        }
+        // Parties de chaque joueur : avec peu de parties, certains en ont moins de 10
+        int[] gamesOf = new int[10_001];
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            GameRecord game = pool[i % pool.length];
+            GameRecord timed = new GameRecord(3, 3, 3, first + i * 100L, game.getResult());
+            int playerX = 1 + random.nextInt(10_000);
+            int playerO = 1 + (playerX + random.nextInt(9_999)) % 10_000;
+            timed.setPlayers(playerX, playerO);
+            gamesOf[playerX]++;
+            gamesOf[playerO]++;
+            for (int move = 0; move < game.getMoveCount(); move++) {
+                timed.addMove(game.getRow(move), game.getCol(move));
+            }
+            history.add(timed);
+        }
+        long indexMillis = (System.nanoTime() - start) / 1_000_000;
+        
+        int queries = 10_000;
+        start = System.nanoTime();
+        long found = 0;
+        long expected = 0;
+        for (int i = 0; i < queries; i++) {
+            int player = 1 + random.nextInt(10_000);
+            found += history.lastGames(player, 10).count();
+            expected += Math.min(10, gamesOf[player]);
+        }
+        long playerMicros = (System.nanoTime() - start) / 1000 / queries;
+        
+        start = System.nanoTime();
+        long draws = history.games('D', now - HOUR, now).count();
+        long drawMicros = (System.nanoTime() - start) / 1000;
+        
+        TicTacToeGame corner = new TicTacToeGame();
+        corner.makeMove(0, 0, 'X');
+        corner.makeMove(1, 1, 'O');
+        start = System.nanoTime();
+        long reaching = history.reaching(corner).limit(100).count();
+        long positionMicros = (System.nanoTime() - start) / 1000;
+        
+        System.out.println("Index de " + count + " parties en " + indexMillis + " ms ; dernières parties d'un joueur : "
+                + playerMicros + " µs, " + draws + " matchs nuls de la dernière heure en " + drawMicros
+                + " µs, 100 parties d'une position en " + positionMicros + " µs");
+        check("10 dernières parties par joueur", found == expected);
+        check("matchs nuls de la dernière heure", draws > 0 && draws < 36_000);
+        check("parties passées par une position", reaching == 100);
+        check("requête d'un joueur en moins d'une milliseconde", playerMicros < 1000);
+    }
+    
+    /**
+     * Partie jouée au hasard jusqu'à sa fin (abandonnée une fois sur dix) entre deux
+     * joueurs distincts d'identifiants 1 à players
+     */
+    private static GameRecord randomGame(Random random, int size, long time, int players) {
+        TicTacToeGame game = new TicTacToeGame(size, size, 3);
+        int[][] moves = new int[size * size][];
+        int count = 0;
+        boolean abandoned = random.nextInt(10) == 0;
+        int length = abandoned ? random.nextInt(size * size) : size * size;
+        while (!game.isGameWon() && count < length) {
+            int row = random.nextInt(size);
+            int col = random.nextInt(size);
+            if (game.makeMove(row, col, game.getCurrentPlayer())) {
+                moves[count++] = new int[] {row, col};
+            }
+        }
+        char result = game.isGameWon() ? game.getWinner() : 'A';
+        GameRecord record = new GameRecord(size, size, 3, time, result);
+        int playerX = 1 + random.nextInt(players);
+        int playerO = 1 + (playerX + random.nextInt(players - 1)) % players;
+        record.setPlayers(playerX, playerO);
+        for (int i = 0; i < count; i++) {
+            record.addMove(moves[i][0], moves[i][1]);
+        }
+        return record;
+    }
+    
+    private static TicTacToeGame replay(GameRecord record, int moves) {
+        TicTacToeGame game = new TicTacToeGame(record.getRows(), record.getCols(), record.getWinLength());
+        for (int i = 0; i < moves; i++) {
+            game.makeMove(record.getRow(i), record.getCol(i), game.getCurrentPlayer());
+        }
+        return game;
+    }
+    
+    private static boolean reaches(GameRecord record, long position) {
+        TicTacToeGame game = new TicTacToeGame(record.getRows(), record.getCols(), record.getWinLength());
+        for (int i = 0; i < record.getMoveCount(); i++) {
+            game.makeMove(record.getRow(i), record.getCol(i), game.getCurrentPlayer());
+            if (game.getCanonicalHash() == position) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private static String describe(GameRecord record) {
+        StringBuilder game = new StringBuilder(record.getRows() + "x" + record.getCols() + " " + record.getResult()
+                + " " + record.getTime() + " " + record.getPlayerX() + " " + record.getPlayerO());
+        for (int move = 0; move < record.getMoveCount(); move++) {
+            game.append(' ').append(record.getCell(move));
+        }
+        return game.toString();
+    }
+    
+    private static List<String> describeAll(List<GameRecord> records) {
+        List<String> descriptions = new ArrayList<>();
+        for (GameRecord record : records) {
+            descriptions.add(describe(record));
+        }
+        return descriptions;
+    }
+    
+    private static TicTacToeServer start(Path directory) throws Exception {
+        TicTacToeServer server = new TicTacToeServer();
+        server.openJournal(directory, 5);
+        Thread serverThread = new Thread(server::start, "serveur");
+        serverThread.setDaemon(true);
+        serverThread.start();
+        Thread.sleep(300);
+        return server;
+    }
+    
+    private static class Player {
+        final Socket socket;
+        final DataInputStream input;
+        final char symbol;
+        
+        Player(int playerId) throws IOException {
+            socket = new Socket();
+            socket.setSoTimeout(10000);
+            socket.connect(new InetSocketAddress("localhost", 12345), 5000);
+            input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            GameMessage hello = MessageCodec.hello();
+            if (playerId != 0) {
+                MessageCodec.setPlayerId(hello, playerId);
+            }
+            MessageCodec.writeFrame(socket.getOutputStream(), hello);
+            symbol = await(GameMessage.MessageType.PLAYER_CONNECTED).getPlayerSymbol();
+        }
+        
+        void send(GameMessage message) throws IOException {
+            MessageCodec.writeFrame(socket.getOutputStream(), message);
+        }
+        
+        GameMessage await(GameMessage.MessageType type) throws IOException {
+            while (true) {
+                GameMessage message = MessageCodec.readFrame(input);
+                if (message.getType() == type) {
+                    return message;
+                }
+            }
+        }
+    }
+    
+    private static void check(String name, boolean condition) {
+        if (!condition) {
+            failures++;
+            System.out.println("ÉCHEC : " + name);
+        }
+    }
+}
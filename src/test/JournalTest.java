@@ -0,0 +1,401 @@
+package test;
+
+import common.GameMessage;
+import common.MessageCodec;
+import journal.ArchiveReader;
+import journal.GameSnapshot;
+import journal.JournalReader;
+import journal.MoveJournal;
+import journal.Recovery;
+import server.TicTacToeServer;
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Vérifie le journal des coups : relecture fidèle sur de nombreux segments,
+ * arrêt de la relecture sur une fin de journal corrompue, débit d'ajout
+ * (avec et sans concurrence), journalisation des parties jouées sur le serveur,
+ * qui les ajoute aussi à l'archive des parties terminées, et suppression des
+ * segments antérieurs aux instantanés.
+ *
+ * Usage : java -cp bin test.JournalTest [coups] (le port 12345 doit être libre)
+ */
+public class JournalTest {
+    // Partie nulle en 9 coups sur le plateau 3x3
+    private static final int[][] DRAW = {{0, 0}, {1, 1}, {2, 2}, {0, 2}, {2, 0}, {1, 0}, {1, 2}, {2, 1}, {0, 1}};
+    private static int failures = 0;
+    
+    public static void main(String[] args) throws Exception {
+        int moves = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        System.out.println("=== Test du journal des coups ===");
+        
+        testRoundTrip();
+        testCorruptTail();
+        testThroughput(moves);
+        testServer();
+        testTrim();
+        
+        System.out.println("\n=== " + (failures == 0 ? "Tous les tests sont réussis" : failures + " échec(s)") + " ===");
+        System.exit(failures == 0 ? 0 : 1);
+    }
+    
+    private static void testRoundTrip() throws IOException {
+        System.out.println("\nTest 1: Relecture sur plusieurs segments");
+        Path directory = Files.createTempDirectory("journal");
+        try {
+            // Segments de 4 Ko : environ 150 enregistrements chacun
+            MoveJournal journal = MoveJournal.open(directory, 4096, 5);
+            writeGames(journal, 1, 500);
+            journal.close();
+            check("aucun enregistrement perdu", journal.getDropped() == 0);
+            check("journal synchronisé à la fermeture", journal.getSyncedPosition() == journal.getWrittenPosition());
+            
+            // Réouverture : les ajouts reprennent après les segments existants
+            journal = MoveJournal.open(directory, 4096, 5);
+            writeGames(journal, 501, 500);
+            journal.close();
+            
+            Recorder recorder = new Recorder();
+            JournalReader reader = JournalReader.read(directory, recorder);
+            System.out.println(segmentCount(directory) + " segments, " + reader.getRecords() + " enregistrements");
+            check("plusieurs segments", segmentCount(directory) > 10);
+            check("tous les enregistrements relus", reader.getRecords() == 1000 * 11);
+            check("relecture complète", !reader.isTruncated());
+            check("enregistrements dans l'ordre et intacts", recorder.errors == 0 && recorder.games == 1000);
+        } finally {
+            delete(directory);
+        }
+    }
+    
+    private static void testCorruptTail() throws IOException {
+        System.out.println("\nTest 2: Fin de journal corrompue");
+        Path directory = Files.createTempDirectory("journal");
+        try {
+            MoveJournal journal = MoveJournal.open(directory, 1 << 20, 5);
+            writeGames(journal, 1, 100);
+            journal.close();
+            
+            // Un octet modifié au milieu du dernier segment, comme après une page perdue
+            Path segment = lastSegment(directory);
+            long middle = (journal.getWrittenPosition() - baseOf(segment)) / 2;
+            try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                ByteBuffer one = ByteBuffer.allocate(1);
+                channel.read(one, middle);
+                one.put(0, (byte) (one.get(0) ^ 0x5A));
+                one.rewind();
+                channel.write(one, middle);
+            }
+            Recorder recorder = new Recorder();
+            JournalReader reader = JournalReader.read(directory, recorder);
+            System.out.println(reader.getRecords() + " enregistrements relus sur 1100");
+            check("corruption détectée", reader.isTruncated());
+            check("relecture arrêtée avant la corruption",
+                    reader.getRecords() > 0 && reader.getRecords() < 1100 && reader.getEndPosition() <= baseOf(segment) + middle);
+            check("enregistrements relus intacts", recorder.errors == 0);
+        } finally {
+            delete(directory);
+        }
+    }
+    
+    private static void testThroughput(int moves) throws Exception {
+        System.out.println("\nTest 3: Débit d'ajout");
+        for (int threads = 1; threads <= 4; threads *= 4) {
+            Path directory = Files.createTempDirectory("journal");
+            try {
+                // Premier tour : préchauffage du compilateur JIT
+                for (int round = 0; round < 2; round++) {
+                    MoveJournal journal = MoveJournal.open(directory, 16 * 1024 * 1024, MoveJournal.DEFAULT_SYNC_INTERVAL_MS);
+                    long nanos = append(journal, threads, moves / threads);
+                    journal.close();
+                    if (round == 1) {
+                        long perSecond = (long) moves * 1_000_000_000L / Math.max(1, nanos);
+                        System.out.println(threads + " thread(s) : " + perSecond + " coups/s ("
+                                + nanos / moves + " ns par coup), " + journal.getSyncs() + " fsync");
+                        check("débit d'ajout supérieur à 500 000 coups/s", perSecond > 500_000);
+                        check("fsync groupés", journal.getSyncs() > 0 && journal.getSyncs() < moves / 100);
+                    }
+                }
+            } finally {
+                delete(directory);
+            }
+        }
+    }
+    
+    private static long append(MoveJournal journal, int threads, int movesPerThread) throws InterruptedException {
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            long gameId = t + 1;
+            workers[t] = new Thread(() -> {
+                for (int m = 0; m < movesPerThread; m++) {
+                    journal.moveApplied(gameId, m % 361 + 1, m % 19, m % 17, (m & 1) == 0 ? 'X' : 'O');
+                }
+            });
+        }
+        long start = System.nanoTime();
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return System.nanoTime() - start;
+    }
+    
+    private static void testServer() throws Exception {
+        System.out.println("\nTest 4: Parties jouées sur le serveur");
+        Path directory = Files.createTempDirectory("journal");
+        TicTacToeServer server = new TicTacToeServer();
+        server.openJournal(directory, 5);
+        Thread serverThread = new Thread(server::start, "serveur");
+        serverThread.setDaemon(true);
+        serverThread.start();
+        Thread.sleep(300);
+        try {
+            Player[] players = {new Player(), new Player()};
+            for (Player player : players) {
+                player.await(GameMessage.MessageType.GAME_START);
+            }
+            for (int move = 0; move < DRAW.length; move++) {
+                char symbol = (move % 2 == 0) ? 'X' : 'O';
+                Player mover = (players[0].symbol == symbol) ? players[0] : players[1];
+                mover.send(new GameMessage(GameMessage.MessageType.PLAYER_MOVE, DRAW[move][0], DRAW[move][1], symbol));
+                for (Player player : players) {
+                    player.await(GameMessage.MessageType.GAME_UPDATE);
+                }
+            }
+            for (Player player : players) {
+                player.await(GameMessage.MessageType.GAME_OVER);
+                player.send(new GameMessage(GameMessage.MessageType.NEW_GAME));
+            }
+            for (Player player : players) {
+                player.await(GameMessage.MessageType.GAME_START);
+            }
+            // Deuxième partie abandonnée après un coup
+            Player first = (players[0].symbol == 'X') ? players[0] : players[1];
+            first.send(new GameMessage(GameMessage.MessageType.PLAYER_MOVE, 1, 1, 'X'));
+            first.await(GameMessage.MessageType.GAME_UPDATE);
+            first.socket.close();
+            Thread.sleep(300);
+        } finally {
+            server.stop();
+        }
+        
+        List<String> records = new ArrayList<>();
+        JournalReader.read(directory, new JournalReader.Handler() {
+            @Override
+            public void gameStarted(long gameId, int roomId, int rows, int cols, int winLength,
+                    int ticketX, int ticketO, long time) {
+                records.add("début " + gameId + " salle " + roomId + " " + rows + "x" + cols + "x" + winLength);
+            }
+            
+            @Override
+            public void moveApplied(long gameId, int sequence, int row, int col, char player) {
+                records.add("coup " + gameId + " #" + sequence + " " + player + " " + row + "," + col);
+            }
+            
+            @Override
+            public void gameEnded(long gameId, char winner, long time) {
+                records.add("fin " + gameId + " " + winner);
+            }
+        });
+        List<String> archived = new ArrayList<>();
+        ArchiveReader.read(directory, record -> {
+            StringBuilder game = new StringBuilder(record.getRows() + "x" + record.getCols() + " " + record.getResult());
+            for (int move = 0; move < record.getMoveCount(); move++) {
+                game.append(' ').append(record.getRow(move)).append(',').append(record.getCol(move));
+            }
+            archived.add(game.toString());
+        });
+        delete(directory);
+        check("début, 9 coups et résultat, puis début, coup et abandon", records.size() == 14);
+        check("début de partie", records.size() > 0 && records.get(0).equals("début 1 salle 1 3x3x3"));
+        check("coups dans l'ordre", records.size() > 10 && records.get(1).equals("coup 1 #1 X 0,0")
+                && records.get(9).equals("coup 1 #9 X 0,1"));
+        check("match nul", records.size() > 10 && records.get(10).equals("fin 1 D"));
+        check("partie abandonnée", records.size() == 14 && records.get(12).equals("coup 2 #1 X 1,1")
+                && records.get(13).equals("fin 2 A"));
+        check("parties archivées avec leurs coups", archived.size() == 2
+                && archived.get(0).equals("3x3 D 0,0 1,1 2,2 0,2 2,0 1,0 1,2 2,1 0,1")
+                && archived.get(1).equals("3x3 A 1,1"));
+    }
+    
+    private static void testTrim() throws IOException {
+        System.out.println("\nTest 5: Suppression des segments antérieurs aux instantanés");
+        Path directory = Files.createTempDirectory("journal");
+        try {
+            MoveJournal journal = MoveJournal.open(directory, 4096, 5);
+            writeGames(journal, 1, 200);
+            long older = journal.getWrittenPosition();
+            GameSnapshot.write(directory, older, 200, 0, new ArrayList<>());
+            writeGames(journal, 201, 200);
+            long newer = journal.getWrittenPosition();
+            GameSnapshot.write(directory, newer, 400, 0, new ArrayList<>());
+            int segments = segmentCount(directory);
+            int deleted = journal.deleteSegmentsBefore(GameSnapshot.oldestPosition(directory));
+            Path first = firstSegment(directory);
+            System.out.println(deleted + " segments supprimés sur " + segments);
+            check("position du plus ancien instantané", GameSnapshot.oldestPosition(directory) == older);
+            // Le segment suivant est préparé en arrière-plan : compter les fichiers serait fragile
+            check("segments antérieurs supprimés", deleted > 0 && baseOf(first) + Files.size(first) > older);
+            check("segment de l'instantané conservé",
+                    baseOf(first) <= older && baseOf(first) + Files.size(first) > older);
+            
+            // Une partie commencée après les instantanés, puis arrêt
+            journal.gameStarted(401, 1, 3, 3, 3, 401, -401);
+            journal.moveApplied(401, 1, 1, 1, 'X');
+            journal.close();
+            Recovery recovery = Recovery.recover(directory);
+            check("reprise sur le journal raccourci", !recovery.isTruncated()
+                    && recovery.getGames().size() == 1 && recovery.getLastGameId() == 401);
+            
+            // Instantané le plus récent illisible : reprise depuis le plus ancien, toujours relisible
+            Path latest = directory.resolve(String.format("snapshot-%016x.snapshot", newer));
+            Files.write(latest, new byte[] {1, 2, 3});
+            recovery = Recovery.recover(directory);
+            check("reprise depuis le plus ancien instantané", !recovery.isTruncated()
+                    && recovery.getReplayedRecords() == 200 * 11 + 2 && recovery.getGames().size() == 1);
+            
+            // Tout ce qui précède le segment courant supprimé, puis réouverture : les positions continuent
+            journal.deleteSegmentsBefore(Long.MAX_VALUE);
+            check("segment courant conservé", segmentCount(directory) == 1);
+            journal = MoveJournal.open(directory, 4096, 5);
+            check("positions reprises après le journal raccourci", journal.getWrittenPosition() > newer);
+            journal.close();
+        } finally {
+            delete(directory);
+        }
+    }
+    
+    /**
+     * Écrit count parties nulles complètes à partir de l'identifiant firstGame
+     */
+    private static void writeGames(MoveJournal journal, long firstGame, int count) {
+        for (long game = firstGame; game < firstGame + count; game++) {
+            journal.gameStarted(game, (int) game % 100, 3, 3, 3, (int) game, (int) -game);
+            for (int move = 0; move < DRAW.length; move++) {
+                journal.moveApplied(game, move + 1, DRAW[move][0], DRAW[move][1], (move % 2 == 0) ? 'X' : 'O');
+            }
+            journal.gameEnded(game, 'D');
+        }
+    }
+    
+    /**
+     * Vérifie que les enregistrements relus sont ceux de writeGames, dans l'ordre
+     */
+    private static class Recorder implements JournalReader.Handler {
+        long game;
+        int nextMove;
+        int games;
+        int errors;
+        
+        @Override
+        public void gameStarted(long gameId, int roomId, int rows, int cols, int winLength,
+                int ticketX, int ticketO, long time) {
+            if (gameId != game + 1 || nextMove != 0 || roomId != (int) gameId % 100 || rows != 3 || winLength != 3
+                    || ticketX != (int) gameId || ticketO != (int) -gameId) {
+                errors++;
+            }
+            game = gameId;
+        }
+        
+        @Override
+        public void moveApplied(long gameId, int sequence, int row, int col, char player) {
+            int[] expected = DRAW[nextMove % DRAW.length];
+            if (gameId != game || sequence != nextMove + 1 || row != expected[0] || col != expected[1]
+                    || player != ((nextMove % 2 == 0) ? 'X' : 'O')) {
+                errors++;
+            }
+            nextMove++;
+        }
+        
+        @Override
+        public void gameEnded(long gameId, char winner, long time) {
+            if (gameId != game || winner != 'D' || nextMove != DRAW.length) {
+                errors++;
+            }
+            nextMove = 0;
+            games++;
+        }
+    }
+    
+    private static class Player {
+        final Socket socket;
+        final DataInputStream input;
+        final char symbol;
+        
+        Player() throws IOException {
+            socket = new Socket();
+            socket.setSoTimeout(10000);
+            socket.connect(new InetSocketAddress("localhost", 12345), 5000);
+            input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            MessageCodec.writeFrame(socket.getOutputStream(), MessageCodec.hello());
+            symbol = await(GameMessage.MessageType.PLAYER_CONNECTED).getPlayerSymbol();
+        }
+        
+        void send(GameMessage message) throws IOException {
+            MessageCodec.writeFrame(socket.getOutputStream(), message);
+        }
+        
+        GameMessage await(GameMessage.MessageType type) throws IOException {
+            while (true) {
+                GameMessage message = MessageCodec.readFrame(input);
+                if (message.getType() == type) {
+                    return message;
+                }
+            }
+        }
+    }
+    
+    private static int segmentCount(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return (int) files.filter(JournalTest::isSegment).count();
+        }
+    }
+    
+    private static Path firstSegment(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(JournalTest::isSegment).min(Comparator.naturalOrder()).get();
+        }
+    }
+    
+    private static boolean isSegment(Path path) {
+        return path.getFileName().toString().startsWith("segment-");
+    }
+    
+    private static Path lastSegment(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.max(Comparator.naturalOrder()).get();
+        }
+    }
+    
+    private static long baseOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring("segment-".length(), name.indexOf('.')), 16);
+    }
+    
+    /**
+     * Supprime un répertoire de journal et ses segments
+     */
+    static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+    
+    private static void check(String name, boolean condition) {
+        if (!condition) {
+            failures++;
+            System.out.println("ÉCHEC : " + name);
+        }
+    }
+}
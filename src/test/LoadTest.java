@@ -0,0 +1,213 @@
+package test;
+
+import common.GameMessage;
+import common.MessageCodec;
+import common.MessageWriter;
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Test de charge : ouvre de nombreuses connexions simultanées vers un serveur
+ * déjà démarré, joue une partie complète dans chaque salle et mesure la latence des coups.
+ *
+ * Usage : java -cp bin test.LoadTest [--pairs=N] [--threads=N] [--host=H] [--port=P]
+ */
+public class LoadTest {
+    // Séquence menant à un match nul : 9 coups par partie
+    private static final int[][] DRAW_MOVES = {
+        {0, 0}, {1, 1}, {0, 1}, {0, 2}, {2, 0}, {1, 0}, {1, 2}, {2, 1}, {2, 2}
+    };
+    
+    public static void main(String[] args) throws Exception {
+        int pairs = 500;
+        int threads = 32;
+        String host = "localhost";
+        int port = 12345;
+        for (String arg : args) {
+            if (arg.startsWith("--pairs=")) pairs = Integer.parseInt(arg.substring(8));
+            else if (arg.startsWith("--threads=")) threads = Integer.parseInt(arg.substring(10));
+            else if (arg.startsWith("--host=")) host = arg.substring(7);
+            else if (arg.startsWith("--port=")) port = Integer.parseInt(arg.substring(7));
+        }
+        
+        System.out.println("=== Test de charge : " + pairs + " parties simultanées ===");
+        
+        // Phase 1 : ouverture de toutes les connexions (capacité)
+        long connectStart = System.nanoTime();
+        SimulatedPlayer[] players = new SimulatedPlayer[pairs * 2];
+        long[] readyNanos = new long[players.length];
+        for (int i = 0; i < players.length; i++) {
+            long start = System.nanoTime();
+            players[i] = new SimulatedPlayer(host, port);
+            players[i].awaitReady();
+            readyNanos[i] = System.nanoTime() - start;
+        }
+        long connectMs = (System.nanoTime() - connectStart) / 1_000_000;
+        Arrays.sort(readyNanos);
+        System.out.println("Connexions ouvertes: " + players.length + " en " + connectMs + " ms");
+        System.out.println("Session prête (connexion + poignée de main) en µs: p50=" + readyNanos[readyNanos.length / 2] / 1000
+                + " max=" + readyNanos[readyNanos.length - 1] / 1000);
+        
+        // Phase 2 : toutes les parties jouées en parallèle
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<long[]>> results = new ArrayList<>();
+        long playStart = System.nanoTime();
+        for (int p = 0; p < pairs; p++) {
+            SimulatedPlayer first = players[2 * p];
+            SimulatedPlayer second = players[2 * p + 1];
+            results.add(executor.submit(() -> playGame(first, second)));
+        }
+        
+        long[] latencies = new long[pairs * DRAW_MOVES.length];
+        int count = 0;
+        int failures = 0;
+        for (Future<long[]> result : results) {
+            try {
+                long[] gameLatencies = result.get();
+                System.arraycopy(gameLatencies, 0, latencies, count, gameLatencies.length);
+                count += gameLatencies.length;
+            } catch (Exception e) {
+                failures++;
+            }
+        }
+        long playMs = Math.max(1, (System.nanoTime() - playStart) / 1_000_000);
+        executor.shutdown();
+        
+        for (SimulatedPlayer player : players) {
+            player.close();
+        }
+        
+        latencies = Arrays.copyOf(latencies, count);
+        Arrays.sort(latencies);
+        System.out.println("Parties en échec: " + failures);
+        System.out.println("Coups joués: " + count + " en " + playMs + " ms (" + (count * 1000L / playMs) + " coups/s)");
+        if (count > 0) {
+            System.out.println("Latence par coup (µs): p50=" + latencies[count / 2] / 1000
+                    + " p99=" + latencies[(int) (count * 0.99)] / 1000
+                    + " max=" + latencies[count - 1] / 1000);
+        }
+    }
+    
+    /**
+     * Joue une partie complète entre deux joueurs simulés et retourne la latence de chaque coup
+     */
+    private static long[] playGame(SimulatedPlayer first, SimulatedPlayer second) throws IOException {
+        // Le premier joueur de la salle reçoit X
+        SimulatedPlayer x = first.awaitSymbol() == 'X' ? first : second;
+        SimulatedPlayer o = (x == first) ? second : first;
+        if (o.awaitSymbol() != 'O') {
+            throw new IOException("Symboles inattendus");
+        }
+        
+        long[] latencies = new long[DRAW_MOVES.length];
+        for (int m = 0; m < DRAW_MOVES.length; m++) {
+            SimulatedPlayer mover = (m % 2 == 0) ? x : o;
+            mover.await(GameMessage.MessageType.YOUR_TURN);
+            
+            long start = System.nanoTime();
+            mover.send(new GameMessage(GameMessage.MessageType.PLAYER_MOVE,
+                    DRAW_MOVES[m][0], DRAW_MOVES[m][1], mover.symbol));
+            mover.awaitUpdate(DRAW_MOVES[m][0], DRAW_MOVES[m][1]);
+            latencies[m] = System.nanoTime() - start;
+        }
+        x.await(GameMessage.MessageType.GAME_OVER);
+        o.await(GameMessage.MessageType.GAME_OVER);
+        return latencies;
+    }
+    
+    /**
+     * Client sans interface graphique parlant le protocole du serveur
+     */
+    private static class SimulatedPlayer {
+        private final Socket socket;
+        private final DataInputStream input;
+        private final MessageWriter writer;
+        // Messages reçus avant d'être attendus (l'ordre d'arrivée n'est pas garanti)
+        private final Map<GameMessage.MessageType, Integer> early = new EnumMap<>(GameMessage.MessageType.class);
+        private char symbol;
+        
+        SimulatedPlayer(String host, int port) throws IOException {
+            socket = new Socket();
+            socket.setTcpNoDelay(true);
+            socket.connect(new InetSocketAddress(host, port), 10000);
+            input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            writer = new MessageWriter(new BufferedOutputStream(socket.getOutputStream()));
+            send(MessageCodec.hello());
+        }
+        
+        /**
+         * Attend la fin de la poignée de main et le symbole attribué
+         */
+        void awaitReady() throws IOException {
+            GameMessage ack = await(GameMessage.MessageType.HELLO_ACK);
+            if (ack != null && ack.getRow() == 0) {
+                throw new IOException("Version refusée par le serveur");
+            }
+            awaitSymbol();
+        }
+        
+        char awaitSymbol() throws IOException {
+            if (symbol == 0) {
+                await(GameMessage.MessageType.PLAYER_CONNECTED);
+            }
+            return symbol;
+        }
+        
+        GameMessage await(GameMessage.MessageType type) throws IOException {
+            Integer pending = early.get(type);
+            if (pending != null && pending > 0) {
+                early.put(type, pending - 1);
+                return null;
+            }
+            while (true) {
+                GameMessage message = MessageCodec.readFrame(input);
+                if (message.getType() == GameMessage.MessageType.PLAYER_CONNECTED) {
+                    symbol = message.getPlayerSymbol();
+                }
+                if (message.getType() == type) {
+                    return message;
+                }
+                if (message.getType() == GameMessage.MessageType.INVALID_MOVE
+                        || (message.getType() == GameMessage.MessageType.GAME_OVER && !message.isGameWon())) {
+                    throw new IOException("Message inattendu: " + message.getType() + " " + message.getContent());
+                }
+                if (message.getType() != GameMessage.MessageType.GAME_UPDATE) {
+                    early.merge(message.getType(), 1, Integer::sum);
+                }
+            }
+        }
+        
+        /**
+         * Attend la mise à jour correspondant au coup donné
+         */
+        void awaitUpdate(int row, int col) throws IOException {
+            while (true) {
+                GameMessage message = await(GameMessage.MessageType.GAME_UPDATE);
+                if (message.getRow() == row && message.getCol() == col) {
+                    return;
+                }
+            }
+        }
+        
+        void send(GameMessage message) throws IOException {
+            writer.send(message);
+        }
+        
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Déjà fermé
+            }
+        }
+    }
+}
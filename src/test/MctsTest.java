@@ -0,0 +1,183 @@
+package test;
+
+import ai.BotEngine;
+import ai.MctsBot;
+import ai.PerfectPlayTable;
+import ai.TableBot;
+import common.GameMessage;
+import common.MessageCodec;
+import common.TicTacToeGame;
+import server.TicTacToeServer;
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Tests du robot Monte-Carlo : coups forcés, respect du temps de réflexion,
+ * parties contre le robot parfait sur 3x3, débit des simulations selon la
+ * taille du plateau et le nombre de fils, puis une partie 7x7 à travers le serveur.
+ *
+ * Usage : java -cp bin test.MctsTest (le port 12345 doit être libre)
+ */
+public class MctsTest {
+    private static int failures = 0;
+    
+    public static void main(String[] args) throws Exception {
+        System.out.println("=== Test du robot Monte-Carlo ===");
+        // Au moins quatre fils, pour exercer la fusion des recherches même sur une machine à un cœur
+        int threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+        ForkJoinPool pool = new ForkJoinPool(threads - 1);
+        
+        // Test 1 : gagner quand c'est possible, parer sinon
+        System.out.println("\nTest 1: Coups forcés sur 15x15, 5 alignés");
+        MctsBot bot = new MctsBot(pool, threads, 300, BotEngine.Difficulty.PERFECT);
+        TicTacToeGame win = new TicTacToeGame(15, 15, 5);
+        play(win, 7, 5, 0, 0, 7, 6, 0, 14, 7, 7, 14, 0, 7, 8, 14, 14);
+        int move = bot.chooseMove(win);
+        check("X aligne son cinquième symbole", move == 7 * 15 + 4 || move == 7 * 15 + 9);
+        // Ligne de quatre fermée d'un côté par O : une seule case la pare
+        TicTacToeGame block = new TicTacToeGame(15, 15, 5);
+        play(block, 7, 5, 7, 4, 7, 6, 3, 11, 7, 7, 11, 3, 7, 8);
+        long hash = block.getHash();
+        move = bot.chooseMove(block);
+        check("O pare la ligne de quatre", move == 7 * 15 + 9);
+        check("la partie est rendue intacte", block.getHash() == hash && block.getMoveCount() == 7);
+        
+        // Test 2 : le temps de réflexion est tenu, même sur le plus grand plateau
+        System.out.println("\nTest 2: Temps de réflexion");
+        MctsBot fast = new MctsBot(pool, threads, 100, BotEngine.Difficulty.PERFECT);
+        TicTacToeGame gomoku = new TicTacToeGame(19, 19, 5);
+        play(gomoku, 9, 9, 9, 10);
+        long worst = 0;
+        for (int i = 0; i < 10; i++) {
+            long start = System.nanoTime();
+            fast.chooseMove(gomoku);
+            worst = Math.max(worst, System.nanoTime() - start);
+        }
+        System.out.println("Pire temps pour 100 ms de réflexion : " + worst / 1_000_000 + " ms");
+        check("réponse dans le temps imparti (marge de 50 %)", worst < 150_000_000L);
+        
+        // Test 3 : sur 3x3, le robot ne perd pas contre le jeu parfait
+        System.out.println("\nTest 3: Contre le robot parfait sur 3x3");
+        TableBot perfect = new TableBot(PerfectPlayTable.build(), BotEngine.Difficulty.PERFECT);
+        MctsBot small = new MctsBot(pool, threads, 30, BotEngine.Difficulty.PERFECT);
+        int losses = 0;
+        for (int g = 0; g < 20; g++) {
+            boolean mctsIsX = (g % 2 == 0);
+            char winner = mctsIsX ? play(small, perfect) : play(perfect, small);
+            if (winner == (mctsIsX ? 'O' : 'X')) {
+                losses++;
+            }
+        }
+        check("aucune défaite en 20 parties", losses == 0);
+        
+        // Test 4 : débit des simulations, pour dimensionner les serveurs
+        System.out.println("\nTest 4: Simulations par seconde");
+        int[][] rules = {{3, 3, 3}, {7, 7, 4}, {15, 15, 5}, {19, 19, 5}};
+        for (int[] rule : rules) {
+            for (int workers : new int[] {1, threads}) {
+                MctsBot measured = new MctsBot(pool, workers, 500, BotEngine.Difficulty.PERFECT);
+                TicTacToeGame game = new TicTacToeGame(rule[0], rule[1], rule[2]);
+                play(game, rule[0] / 2, rule[1] / 2);
+                long start = System.nanoTime();
+                measured.chooseMove(game);
+                long elapsed = System.nanoTime() - start;
+                System.out.println(rule[0] + "x" + rule[1] + ", " + workers + " fil(s) : "
+                        + measured.getPlayouts() * 1_000_000_000L / elapsed + " simulations/s au total, "
+                        + measured.getPlayoutsPerSecond() + " par fil");
+                if (workers == threads) {
+                    break;
+                }
+            }
+        }
+        
+        // Test 5 : un joueur resté seul sur un plateau 7x7 joue contre le robot
+        System.out.println("\nTest 5: Partie 7x7 contre le robot à travers le serveur");
+        TicTacToeServer server = new TicTacToeServer();
+        server.setBoard(7, 7, 4);
+        server.setBot(BotEngine.Difficulty.PERFECT, 100, 50);
+        Thread serverThread = new Thread(server::start, "serveur");
+        serverThread.setDaemon(true);
+        serverThread.start();
+        Thread.sleep(300);
+        try (Socket socket = new Socket()) {
+            socket.setSoTimeout(10000);
+            socket.connect(new InetSocketAddress("localhost", 12345), 5000);
+            check("partie complète contre le robot", playAgainstServerBot(socket, new Random(5)) != ' ');
+        } catch (IOException e) {
+            check("partie contre le robot : " + e.getMessage(), false);
+        } finally {
+            server.stop();
+        }
+        System.out.println("Statistiques: " + server.getMetrics().summary());
+        
+        System.out.println("\n=== " + (failures == 0 ? "Tous les tests sont réussis" : failures + " échec(s)") + " ===");
+        System.exit(failures == 0 ? 0 : 1);
+    }
+    
+    /**
+     * Partie 3x3 entre deux robots ; retourne le gagnant ('D' pour un nul)
+     */
+    private static char play(BotEngine x, BotEngine o) {
+        TicTacToeGame game = new TicTacToeGame();
+        while (!game.isGameWon()) {
+            BotEngine bot = (game.getCurrentPlayer() == 'X') ? x : o;
+            int cell = bot.chooseMove(new TicTacToeGame(game));
+            game.makeMove(cell / 3, cell % 3, game.getCurrentPlayer());
+        }
+        return game.getWinner();
+    }
+    
+    /**
+     * Joue les coups donnés en (ligne, colonne), X puis O en alternance
+     */
+    private static void play(TicTacToeGame game, int... cells) {
+        for (int i = 0; i < cells.length; i += 2) {
+            game.makeMove(cells[i], cells[i + 1], game.getCurrentPlayer());
+        }
+    }
+    
+    /**
+     * Joue X au hasard contre le robot du serveur, jusqu'à la fin de la partie
+     */
+    private static char playAgainstServerBot(Socket socket, Random random) throws IOException {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        OutputStream output = socket.getOutputStream();
+        MessageCodec.writeFrame(output, MessageCodec.hello());
+        char[][] board = null;
+        while (true) {
+            GameMessage message = MessageCodec.readFrame(input);
+            switch (message.getType()) {
+                case GAME_START:
+                    board = message.getBoard();
+                    break;
+                case GAME_UPDATE:
+                    board[message.getRow()][message.getCol()] = message.getPlayerSymbol();
+                    break;
+                case YOUR_TURN:
+                    int row;
+                    int col;
+                    do {
+                        row = random.nextInt(board.length);
+                        col = random.nextInt(board[0].length);
+                    } while (board[row][col] != ' ');
+                    MessageCodec.writeFrame(output, new GameMessage(GameMessage.MessageType.PLAYER_MOVE, row, col, 'X'));
+                    break;
+                case GAME_OVER:
+                    System.out.println("Fin de partie : " + message.getContent());
+                    return message.getWinner();
+                default:
+                    break;
+            }
+        }
+    }
+    
+    private static void check(String name, boolean condition) {
+        if (!condition) {
+            failures++;
+            System.out.println("ÉCHEC : " + name);
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package test;
+
+import client.BoardState;
+import common.GameMessage;
+import common.MessageCodec;
+import common.TicTacToeGame;
+import java.io.*;
+import java.nio.ByteBuffer;
+
+/**
+ * Tests du protocole binaire : aller-retour de chaque type de message et
+ * comparaison de taille et de temps avec la sérialisation Java
+ */
+public class MessageCodecTest {
+    private static int failures = 0;
+    
+    public static void main(String[] args) throws Exception {
+        System.out.println("=== Test du protocole binaire ===");
+        
+        // Test 1 : aller-retour de chaque type de message
+        System.out.println("\nTest 1: Aller-retour de chaque type");
+        for (GameMessage.MessageType type : GameMessage.MessageType.values()) {
+            GameMessage message = new GameMessage(type, 2, 1, 'O');
+            message.setContent("Coup invalide");
+            GameMessage decoded = roundTrip(message);
+            check(type + " type", decoded.getType() == type);
+            check(type + " coup", decoded.getRow() == 2 && decoded.getCol() == 1 && decoded.getPlayerSymbol() == 'O');
+            check(type + " texte", "Coup invalide".equals(decoded.getContent()));
+        }
+        
+        // Test 2 : plateau, fin de partie et texte libre
+        System.out.println("\nTest 2: Plateau, gagnant et texte libre");
+        TicTacToeGame game = new TicTacToeGame();
+        game.makeMove(0, 0, 'X');
+        game.makeMove(1, 1, 'O');
+        game.makeMove(2, 2, 'X');
+        GameMessage over = new GameMessage(GameMessage.MessageType.GAME_OVER, "Texte libre accentué é à ü");
+        over.setBoard(game.getBoard());
+        over.setGameWon(true);
+        over.setWinner('D');
+        GameMessage decoded = roundTrip(over);
+        check("texte libre", over.getContent().equals(decoded.getContent()));
+        check("partie gagnée", decoded.isGameWon() && decoded.getWinner() == 'D');
+        check("plateau", java.util.Arrays.deepEquals(over.getBoard(), decoded.getBoard()));
+        
+        // Test 2b : règle m,n,k annoncée par GAME_START
+        System.out.println("\nTest 2b: Plateau 19x19 et alignement");
+        TicTacToeGame gomoku = new TicTacToeGame(19, 19, 5);
+        gomoku.makeMove(18, 18, 'X');
+        gomoku.makeMove(0, 17, 'O');
+        GameMessage gomokuStart = new GameMessage(GameMessage.MessageType.GAME_START);
+        gomokuStart.setBoard(gomoku.getBoard());
+        gomokuStart.setWinLength(gomoku.getWinLength());
+        decoded = roundTrip(gomokuStart);
+        check("plateau 19x19", java.util.Arrays.deepEquals(gomokuStart.getBoard(), decoded.getBoard()));
+        check("alignement transmis", decoded.getWinLength() == 5);
+        System.out.println("GAME_START 19x19 : " + MessageCodec.encode(gomokuStart).length + " octets");
+        
+        // Test 3 : trames incomplètes et version inconnue
+        System.out.println("\nTest 3: Trames incomplètes et version inconnue");
+        byte[] frame = MessageCodec.encode(new GameMessage(GameMessage.MessageType.YOUR_TURN, "C'est votre tour !"));
+        ByteBuffer partial = ByteBuffer.wrap(frame, 0, frame.length - 1);
+        check("trame incomplète non consommée", MessageCodec.readFrame(partial) == null && partial.position() == 0);
+        frame[MessageCodec.HEADER_SIZE] = 99;
+        try {
+            MessageCodec.readFrame(ByteBuffer.wrap(frame));
+            check("version refusée", false);
+        } catch (IOException e) {
+            check("version refusée", true);
+        }
+        
+        // Test 3b : poignée de main, acceptée quelle que soit la version de la trame
+        System.out.println("\nTest 3b: Poignée de main et négociation de version");
+        GameMessage hello = roundTrip(MessageCodec.hello());
+        check("version négociée", MessageCodec.negotiate(hello) == MessageCodec.PROTOCOL_VERSION);
+        byte[] futureHello = MessageCodec.encode(MessageCodec.hello());
+        futureHello[MessageCodec.HEADER_SIZE] = 99;
+        GameMessage future = MessageCodec.readFrame(ByteBuffer.wrap(futureHello));
+        check("HELLO d'une autre version lisible", future != null && future.getType() == GameMessage.MessageType.HELLO);
+        GameMessage newer = new GameMessage(GameMessage.MessageType.HELLO);
+        newer.setRow(MessageCodec.PROTOCOL_VERSION + 1);
+        newer.setCol(MessageCodec.PROTOCOL_VERSION + 2);
+        check("versions sans intersection refusées", MessageCodec.negotiate(newer) == 0);
+        GameMessage older = new GameMessage(GameMessage.MessageType.HELLO);
+        older.setRow(1);
+        older.setCol(MessageCodec.MIN_PROTOCOL_VERSION - 1);
+        check("client trop ancien refusé", MessageCodec.negotiate(older) == 0);
+        GameMessage wider = new GameMessage(GameMessage.MessageType.HELLO);
+        wider.setRow(1);
+        wider.setCol(MessageCodec.PROTOCOL_VERSION + 5);
+        check("version la plus récente commune", MessageCodec.negotiate(wider) == MessageCodec.PROTOCOL_VERSION);
+        GameMessage identified = MessageCodec.resume('O', 0x0BADCAFE);
+        MessageCodec.setPlayerId(identified, 0xF00DBEEF);
+        identified = roundTrip(identified);
+        check("identifiant du joueur", MessageCodec.playerId(identified) == 0xF00DBEEF
+                && MessageCodec.resumeTicket(identified) == 0x0BADCAFE);
+        check("HELLO sans identifiant : joueur anonyme", MessageCodec.playerId(hello) == 0);
+        GameMessage spectator = roundTrip(MessageCodec.spectate(0x12345));
+        check("salle suivie au-delà de 65535", MessageCodec.isSpectator(spectator)
+                && MessageCodec.spectatedRoom(spectator) == 0x12345);
+        check("salle multiple de 65536", MessageCodec.spectatedRoom(roundTrip(MessageCodec.spectate(0x30000))) == 0x30000);
+        check("partie la plus suivie", MessageCodec.spectatedRoom(roundTrip(MessageCodec.spectate(0))) == 0);
+        
+        // Test 4 : taille et temps d'encodage d'un coup
+        System.out.println("\nTest 4: Coût d'un GAME_UPDATE");
+        GameMessage update = new GameMessage(GameMessage.MessageType.GAME_UPDATE, 2, 2, 'X');
+        update.setSequence(game.getMoveCount());
+        update.setChecksum(game.getChecksum());
+        GameMessage decodedUpdate = roundTrip(update);
+        check("séquence", decodedUpdate.getSequence() == 3 && decodedUpdate.getBoard() == null);
+        check("somme de contrôle", decodedUpdate.getChecksum() == game.getChecksum());
+        int binarySize = MessageCodec.encode(update).length;
+        int javaSize = serialize(update).length;
+        System.out.println("Octets : binaire=" + binarySize + " sérialisation Java=" + javaSize);
+        check("au moins 10 fois plus petit", binarySize * 10 <= javaSize);
+        
+        int iterations = 200_000;
+        long binaryNanos = 0;
+        long javaNanos = 0;
+        for (int round = 0; round < 2; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                byte[] bytes = MessageCodec.encode(update);
+                MessageCodec.readFrame(ByteBuffer.wrap(bytes));
+            }
+            binaryNanos = System.nanoTime() - start;
+            
+            start = System.nanoTime();
+            for (int i = 0; i < iterations / 10; i++) {
+                deserialize(serialize(update));
+            }
+            javaNanos = (System.nanoTime() - start) * 10;
+        }
+        System.out.println("Encodage + décodage par message : binaire=" + binaryNanos / iterations
+                + " ns, sérialisation Java=" + javaNanos / iterations + " ns");
+        
+        // Test 5 : application des coups côté client et détection d'une désynchronisation
+        System.out.println("\nTest 5: Plateau client reconstruit à partir des coups");
+        TicTacToeGame reference = new TicTacToeGame();
+        BoardState state = new BoardState(3, 3);
+        state.reset(reference.getBoard());
+        boolean synced = true;
+        int[][] moves = {{0, 0}, {1, 1}, {0, 1}, {0, 2}};
+        for (int m = 0; m < moves.length; m++) {
+            char symbol = (m % 2 == 0) ? 'X' : 'O';
+            reference.makeMove(moves[m][0], moves[m][1], symbol);
+            GameMessage delta = new GameMessage(GameMessage.MessageType.GAME_UPDATE, moves[m][0], moves[m][1], symbol);
+            delta.setSequence(reference.getMoveCount());
+            delta.setChecksum(reference.getChecksum());
+            synced &= state.apply(roundTrip(delta));
+        }
+        check("coups appliqués", synced && java.util.Arrays.deepEquals(reference.getBoard(), state.getBoard()));
+        
+        reference.makeMove(2, 0, 'X');
+        reference.makeMove(1, 0, 'O');
+        GameMessage skipped = new GameMessage(GameMessage.MessageType.GAME_UPDATE, 1, 0, 'O');
+        skipped.setSequence(reference.getMoveCount());
+        skipped.setChecksum(reference.getChecksum());
+        check("coup manquant détecté", !state.apply(skipped));
+        GameMessage corrupted = new GameMessage(GameMessage.MessageType.GAME_UPDATE, 2, 0, 'O');
+        corrupted.setSequence(5);
+        corrupted.setChecksum(reference.getChecksum());
+        BoardState other = new BoardState(3, 3);
+        other.reset(state.getBoard());
+        check("plateau divergent détecté", !other.apply(corrupted));
+        
+        GameMessage snapshot = new GameMessage(GameMessage.MessageType.GAME_UPDATE);
+        snapshot.setBoard(reference.getBoard());
+        snapshot.setSequence(reference.getMoveCount());
+        snapshot.setChecksum(reference.getChecksum());
+        check("instantané appliqué", state.apply(roundTrip(snapshot))
+                && java.util.Arrays.deepEquals(reference.getBoard(), state.getBoard()));
+        reference.makeMove(2, 2, 'X');
+        GameMessage next = new GameMessage(GameMessage.MessageType.GAME_UPDATE, 2, 2, 'X');
+        next.setSequence(reference.getMoveCount());
+        next.setChecksum(reference.getChecksum());
+        check("reprise après instantané", state.apply(next));
+        
+        System.out.println("\n=== " + (failures == 0 ? "Tous les tests sont réussis" : failures + " échec(s)") + " ===");
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+    
+    private static GameMessage roundTrip(GameMessage message) throws IOException {
+        byte[] frame = MessageCodec.encode(message);
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(frame));
+        return MessageCodec.readFrame(input);
+    }
+    
+    private static byte[] serialize(GameMessage message) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(message);
+        }
+        return bytes.toByteArray();
+    }
+    
+    private static Object deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return in.readObject();
+        }
+    }
+    
+    private static void check(String name, boolean condition) {
+        if (!condition) {
+            failures++;
+            System.out.println("ÉCHEC : " + name);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package test;
+
+import client.RecentGames;
+
+/**
+ * Vérifie le tampon circulaire des dernières parties du client : ordre des
+ * parties, remplacement de la plus ancienne une fois plein, lignes affichées,
+ * et mémoire constante sur une très longue session.
+ */
+public class RecentGamesTest {
+    private static int failures = 0;
+    
+    public static void main(String[] args) {
+        System.out.println("=== Test de l'historique du client ===");
+        
+        System.out.println("\nTest 1: Ordre et remplacement de la plus ancienne partie");
+        RecentGames games = new RecentGames(3);
+        check("vide au départ", games.size() == 0 && games.capacity() == 3);
+        check("pas de retrait avant d'être plein", !games.add(1000, 'X', 'X', 5) && !games.add(2000, 'D', 'O', 9));
+        check("troisième partie sans retrait", !games.add(3000, 'O', 'X', 6));
+        check("quatrième partie : la plus ancienne est retirée", games.add(4000, 'A', 'O', 2));
+        check("trois parties tenues", games.size() == 3);
+        check("de la plus ancienne à la plus récente",
+                games.getTime(0) == 2000 && games.getTime(1) == 3000 && games.getTime(2) == 4000);
+        check("champs de la partie", games.getResult(1) == 'O' && games.getSymbol(1) == 'X' && games.getMoveCount(1) == 6);
+        boolean outOfBounds = false;
+        try {
+            games.getTime(3);
+        } catch (IndexOutOfBoundsException e) {
+            outOfBounds = true;
+        }
+        check("partie hors du tampon refusée", outOfBounds);
+        games.clear();
+        check("vidé", games.size() == 0);
+        check("réutilisable après clear", !games.add(5000, 'X', 'O', 7) && games.getTime(0) == 5000);
+        
+        System.out.println("\nTest 2: Lignes affichées");
+        check("ligne d'une défaite", games.format(0).endsWith("Défaite - 7 coups (joueur O)"));
+        check("issues", RecentGames.outcome('X', 'X').equals("Victoire") && RecentGames.outcome('D', 'X').equals("Match nul")
+                && RecentGames.outcome('A', 'O').equals("Partie interrompue"));
+        
+        System.out.println("\nTest 3: Session marathon");
+        RecentGames marathon = new RecentGames(10);
+        int evictions = 0;
+        for (int i = 0; i < 1_000_000; i++) {
+            if (marathon.add(i, 'X', 'O', i % 10)) {
+                evictions++;
+            }
+        }
+        check("taille bornée", marathon.size() == 10 && evictions == 1_000_000 - 10);
+        check("dix dernières parties", marathon.getTime(0) == 1_000_000 - 10 && marathon.getTime(9) == 1_000_000 - 1);
+        
+        System.out.println("\n=== " + (failures == 0 ? "Tous les tests sont réussis" : failures + " échec(s)") + " ===");
+        System.exit(failures == 0 ? 0 : 1);
+    }
+    
+    private static void check(String name, boolean condition) {
+        if (!condition) {
+            failures++;
+            System.out.println("ÉCHEC : " + name);
+        }
+    }
+}
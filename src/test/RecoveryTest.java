@@ -0,0 +1,309 @@
+package test;
+
+import common.GameMessage;
+import common.MessageCodec;
+import journal.ArchiveReader;
+import journal.JournalReader;
+import server.GameRoom;
+import server.PlayerConnection;
+import server.TicTacToeServer;
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Vérifie la reprise après un arrêt brutal : un serveur redémarré sur le même
+ * journal restaure les parties en cours (instantané puis fin du journal), les
+ * joueurs retrouvent leur place avec leur ticket et terminent leur partie ;
+ * une partie dont un joueur ne revient pas est abandonnée après le délai.
+ * Mesure enfin le temps de restauration de nombreuses parties simultanées.
+ *
+ * Usage : java -cp bin test.RecoveryTest [parties] (le port 12345 doit être libre)
+ */
+public class RecoveryTest {
+    // Partie nulle en 9 coups sur le plateau 3x3
+    private static final int[][] DRAW = {{0, 0}, {1, 1}, {2, 2}, {0, 2}, {2, 0}, {1, 0}, {1, 2}, {2, 1}, {0, 1}};
+    private static int failures = 0;
+    
+    public static void main(String[] args) throws Exception {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        System.out.println("=== Test de la reprise après arrêt ===");
+        
+        testResume();
+        testRecoveryTime(games);
+        
+        System.out.println("\n=== " + (failures == 0 ? "Tous les tests sont réussis" : failures + " échec(s)") + " ===");
+        System.exit(failures == 0 ? 0 : 1);
+    }
+    
+    private static void testResume() throws Exception {
+        System.out.println("\nTest 1: Reprise des parties en cours");
+        Path directory = Files.createTempDirectory("journal");
+        try {
+            // Premier serveur : deux parties en cours, instantané au milieu de la première
+            // (coups de O joués dans un autre ordre que celui des cases), fin du journal pour la seconde
+            TicTacToeServer first = start(directory);
+            Player[] players = {new Player(MessageCodec.hello()), new Player(MessageCodec.hello())};
+            Player[] others = {new Player(MessageCodec.hello()), new Player(MessageCodec.hello())};
+            for (int move = 0; move < 4; move++) {
+                play(players, move);
+            }
+            check("instantané de deux parties", first.writeSnapshot() == 2);
+            play(others, 0);
+            // Arrêt brutal : plus rien n'est journalisé, les connexions tombent
+            first.stop();
+            for (Player player : players) {
+                player.socket.close();
+            }
+            for (Player player : others) {
+                player.socket.close();
+            }
+            
+            TicTacToeServer second = new TicTacToeServer();
+            second.openJournal(directory, 5);
+            second.setResumeTimeout(3000);
+            check("deux parties restaurées", second.restoreGames() == 2);
+            Thread serverThread = new Thread(second::start, "serveur");
+            serverThread.setDaemon(true);
+            serverThread.start();
+            Thread.sleep(300);
+            try {
+                Player[] resumed = new Player[2];
+                for (int i = 0; i < 2; i++) {
+                    resumed[i] = new Player(MessageCodec.resume(players[i].symbol, players[i].ticket));
+                    check("même place", resumed[i].symbol == players[i].symbol && resumed[i].ticket == players[i].ticket);
+                }
+                char[][] board = null;
+                for (Player player : resumed) {
+                    board = player.await(GameMessage.MessageType.GAME_START).getBoard();
+                }
+                check("plateau restauré", board != null && board[0][0] == 'X' && board[1][1] == 'O'
+                        && board[2][2] == 'X' && board[0][2] == 'O' && board[2][0] == ' ');
+                for (int move = 4; move < DRAW.length; move++) {
+                    play(resumed, move);
+                }
+                GameMessage over = resumed[0].await(GameMessage.MessageType.GAME_OVER);
+                check("partie terminée après la reprise", "Match nul !".equals(over.getContent()));
+                
+                // Un seul joueur de la seconde partie revient
+                Player alone = new Player(MessageCodec.resume(others[0].symbol, others[0].ticket));
+                check("seul joueur revenu", alone.symbol == others[0].symbol);
+                GameMessage left = alone.await(GameMessage.MessageType.GAME_OVER);
+                check("partie abandonnée après le délai", "L'adversaire s'est déconnecté".equals(left.getContent()));
+                
+                // Ticket inconnu : nouvelle partie ordinaire
+                Player stranger = new Player(MessageCodec.resume('X', 0x12345678));
+                check("ticket inconnu : nouvelle place", stranger.ticket != 0x12345678);
+            } finally {
+                second.stop();
+            }
+            
+            List<String> records = new ArrayList<>();
+            JournalReader.read(directory, new JournalReader.Handler() {
+                @Override
+                public void moveApplied(long gameId, int sequence, int row, int col, char player) {
+                    records.add("coup " + gameId + " #" + sequence);
+                }
+                
+                @Override
+                public void gameEnded(long gameId, char winner, long time) {
+                    records.add("fin " + gameId + " " + winner);
+                }
+            });
+            int sequence = 0;
+            boolean ordered = true;
+            for (String record : records) {
+                if (record.startsWith("coup 1 ")) {
+                    ordered &= record.equals("coup 1 #" + ++sequence);
+                }
+            }
+            check("coups de la première partie numérotés sans trou", ordered && sequence == 9);
+            check("résultats journalisés", records.contains("fin 1 D") && records.contains("fin 2 A"));
+            
+            // La partie restaurée est archivée avec ses coups dans l'ordre joué
+            List<String> archived = new ArrayList<>();
+            ArchiveReader.read(directory, record -> {
+                if (record.getResult() == 'D') {
+                    StringBuilder moves = new StringBuilder();
+                    for (int move = 0; move < record.getMoveCount(); move++) {
+                        moves.append(record.getCell(move)).append(' ');
+                    }
+                    archived.add(moves.toString());
+                }
+            });
+            StringBuilder played = new StringBuilder();
+            for (int[] move : DRAW) {
+                played.append(move[0] * 3 + move[1]).append(' ');
+            }
+            check("partie restaurée archivée dans l'ordre des coups", archived.size() == 1 && archived.get(0).equals(played.toString()));
+        } finally {
+            JournalTest.delete(directory);
+        }
+    }
+    
+    private static void testRecoveryTime(int games) throws Exception {
+        System.out.println("\nTest 2: Restauration de " + games + " parties");
+        Path directory = Files.createTempDirectory("journal");
+        PrintStream console = System.out;
+        TicTacToeServer first = new TicTacToeServer();
+        TicTacToeServer second = new TicTacToeServer();
+        try {
+            // Les traces de connexion du serveur ne doivent pas fausser la mesure
+            System.setOut(new PrintStream(new OutputStream() {
+                @Override
+                public void write(int b) {
+                }
+            }));
+            first.openJournal(directory, 10);
+            List<SilentConnection[]> pairs = new ArrayList<>(games);
+            for (int i = 0; i < games; i++) {
+                SilentConnection x = new SilentConnection();
+                SilentConnection o = new SilentConnection();
+                first.registerPlayer(x);
+                first.registerPlayer(o);
+                pairs.add(new SilentConnection[] {x, o});
+            }
+            play(first, pairs, 0, 2);
+            long start = System.nanoTime();
+            int snapshotGames = first.writeSnapshot();
+            long snapshotMillis = (System.nanoTime() - start) / 1_000_000;
+            // Fin du journal après l'instantané : deux coups de plus dans chaque salle
+            play(first, pairs, 2, 4);
+            
+            // Le premier serveur n'est pas arrêté : seuls l'instantané et le journal comptent
+            second.openJournal(directory, 10);
+            start = System.nanoTime();
+            int restored = second.restoreGames();
+            long restoreMillis = (System.nanoTime() - start) / 1_000_000;
+            System.setOut(console);
+            System.out.println("Instantané de " + snapshotGames + " parties en " + snapshotMillis + " ms, "
+                    + restored + " parties restaurées en " + restoreMillis + " ms");
+            check("instantané complet", snapshotGames == games);
+            check("toutes les parties restaurées", restored == games && second.getRoomCount() == games);
+            check("restauration en quelques secondes", restoreMillis < 5000);
+        } finally {
+            System.setOut(console);
+            first.stop();
+            second.stop();
+            JournalTest.delete(directory);
+        }
+    }
+    
+    /**
+     * Joue dans chaque salle les coups from à to (exclu) de la partie nulle
+     */
+    private static void play(TicTacToeServer server, List<SilentConnection[]> pairs, int from, int to) {
+        for (int move = from; move < to; move++) {
+            for (SilentConnection[] pair : pairs) {
+                SilentConnection mover = pair[move % 2];
+                server.handleMove(DRAW[move][0], DRAW[move][1], mover.getPlayerSymbol(), mover);
+            }
+        }
+    }
+    
+    private static TicTacToeServer start(Path directory) throws Exception {
+        TicTacToeServer server = new TicTacToeServer();
+        server.openJournal(directory, 5);
+        Thread serverThread = new Thread(server::start, "serveur");
+        serverThread.setDaemon(true);
+        serverThread.start();
+        Thread.sleep(300);
+        return server;
+    }
+    
+    /**
+     * Joue le coup numéro move de la partie nulle et attend que les deux joueurs l'aient reçu
+     */
+    private static void play(Player[] players, int move) throws IOException {
+        char symbol = (move % 2 == 0) ? 'X' : 'O';
+        Player mover = (players[0].symbol == symbol) ? players[0] : players[1];
+        mover.send(new GameMessage(GameMessage.MessageType.PLAYER_MOVE, DRAW[move][0], DRAW[move][1], symbol));
+        for (Player player : players) {
+            player.await(GameMessage.MessageType.GAME_UPDATE);
+        }
+    }
+    
+    private static class Player {
+        final Socket socket;
+        final DataInputStream input;
+        final char symbol;
+        final int ticket;
+        
+        Player(GameMessage hello) throws IOException {
+            socket = new Socket();
+            socket.setSoTimeout(10000);
+            socket.connect(new InetSocketAddress("localhost", 12345), 5000);
+            input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            MessageCodec.writeFrame(socket.getOutputStream(), hello);
+            GameMessage connected = await(GameMessage.MessageType.PLAYER_CONNECTED);
+            symbol = connected.getPlayerSymbol();
+            ticket = MessageCodec.resumeTicket(connected);
+        }
+        
+        void send(GameMessage message) throws IOException {
+            MessageCodec.writeFrame(socket.getOutputStream(), message);
+        }
+        
+        GameMessage await(GameMessage.MessageType type) throws IOException {
+            while (true) {
+                GameMessage message = MessageCodec.readFrame(input);
+                if (message.getType() == type) {
+                    return message;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Connexion sans réseau qui ignore les messages envoyés
+     */
+    private static class SilentConnection implements PlayerConnection {
+        private GameRoom room;
+        private char symbol;
+        
+        @Override
+        public void joinRoom(GameRoom room, char playerSymbol) {
+            this.room = room;
+            this.symbol = playerSymbol;
+        }
+        
+        @Override
+        public void start() {
+        }
+        
+        @Override
+        public void sendFrames(List<ByteBuffer> frames) {
+        }
+        
+        @Override
+        public void disconnect() {
+        }
+        
+        @Override
+        public boolean isConnected() {
+            return true;
+        }
+        
+        @Override
+        public char getPlayerSymbol() {
+            return symbol;
+        }
+        
+        @Override
+        public GameRoom getRoom() {
+            return room;
+        }
+    }
+    
+    private static void check(String name, boolean condition) {
+        if (!condition) {
+            failures++;
+            System.out.println("ÉCHEC : " + name);
+        }
+    }
+}
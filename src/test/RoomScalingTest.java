@@ -0,0 +1,149 @@
+package test;
+
+import server.GameRoom;
+import server.PlayerConnection;
+import server.TicTacToeServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Mesure le débit de TicTacToeServer.handleMove sur de nombreuses salles en
+ * parallèle, sans réseau, pour vérifier que les coups de salles différentes
+ * ne se disputent aucun verrou : le débit doit croître avec le nombre de threads
+ * jusqu'au nombre de cœurs. Chaque mesure est refaite avec le journal des
+ * coups activé, dont le coût doit rester négligeable.
+ *
+ * Usage : java -cp bin test.RoomScalingTest [salles par thread]
+ */
+public class RoomScalingTest {
+    private static final int[][] DRAW_MOVES = {
+        {0, 0}, {1, 1}, {0, 1}, {0, 2}, {2, 0}, {1, 0}, {1, 2}, {2, 1}, {2, 2}
+    };
+    
+    public static void main(String[] args) throws Exception {
+        int roomsPerThread = (args.length > 0) ? Integer.parseInt(args[0]) : 5000;
+        int cores = Runtime.getRuntime().availableProcessors();
+        PrintStream console = System.out;
+        
+        console.println("=== Débit de handleMove selon le nombre de threads (" + cores + " cœurs) ===");
+        // Le premier tour sert de préchauffage au compilateur JIT
+        for (int threads = 0; threads <= Math.max(2, cores * 2); threads = Math.max(1, threads * 2)) {
+            // Les traces de connexion du serveur ne doivent pas fausser la mesure
+            System.setOut(new PrintStream(new OutputStream() {
+                @Override
+                public void write(int b) {
+                }
+            }));
+            long movesPerSecond;
+            long journaledPerSecond;
+            try {
+                movesPerSecond = run(Math.max(1, threads), roomsPerThread, null);
+                Path journal = Files.createTempDirectory("journal");
+                try {
+                    journaledPerSecond = run(Math.max(1, threads), roomsPerThread, journal);
+                } finally {
+                    JournalTest.delete(journal);
+                }
+            } finally {
+                System.setOut(console);
+            }
+            if (threads > 0) {
+                console.println(threads + " thread(s) : " + movesPerSecond + " coups/s, "
+                        + journaledPerSecond + " coups/s avec journal");
+            }
+        }
+    }
+    
+    private static long run(int threads, int roomsPerThread, Path journal) throws InterruptedException, IOException {
+        TicTacToeServer server = new TicTacToeServer();
+        if (journal != null) {
+            server.openJournal(journal, 10);
+        }
+        
+        // Deux connexions factices par salle, toutes les parties démarrent immédiatement
+        List<List<SilentConnection[]>> slices = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            List<SilentConnection[]> slice = new ArrayList<>();
+            for (int r = 0; r < roomsPerThread; r++) {
+                SilentConnection x = new SilentConnection();
+                SilentConnection o = new SilentConnection();
+                server.registerPlayer(x);
+                server.registerPlayer(o);
+                slice.add(new SilentConnection[] {x, o});
+            }
+            slices.add(slice);
+        }
+        
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            List<SilentConnection[]> slice = slices.get(t);
+            workers[t] = new Thread(() -> {
+                for (int m = 0; m < DRAW_MOVES.length; m++) {
+                    for (SilentConnection[] pair : slice) {
+                        SilentConnection mover = pair[m % 2];
+                        server.handleMove(DRAW_MOVES[m][0], DRAW_MOVES[m][1], mover.getPlayerSymbol(), mover);
+                    }
+                }
+            });
+        }
+        
+        long start = System.nanoTime();
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long elapsed = Math.max(1, System.nanoTime() - start);
+        server.stop();
+        long moves = (long) threads * roomsPerThread * DRAW_MOVES.length;
+        return moves * 1_000_000_000L / elapsed;
+    }
+    
+    /**
+     * Connexion sans réseau qui ignore les messages envoyés
+     */
+    private static class SilentConnection implements PlayerConnection {
+        private GameRoom room;
+        private char symbol;
+        
+        @Override
+        public void joinRoom(GameRoom room, char playerSymbol) {
+            this.room = room;
+            this.symbol = playerSymbol;
+        }
+        
+        @Override
+        public void start() {
+        }
+        
+        @Override
+        public void sendFrames(List<ByteBuffer> frames) {
+        }
+        
+        @Override
+        public void disconnect() {
+        }
+        
+        @Override
+        public boolean isConnected() {
+            return true;
+        }
+        
+        @Override
+        public char getPlayerSymbol() {
+            return symbol;
+        }
+        
+        @Override
+        public GameRoom getRoom() {
+            return room;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package test;
+
+import ai.Solver;
+import ai.TranspositionTable;
+import common.Symmetry;
+import common.TicTacToeGame;
+import java.util.Random;
+
+/**
+ * Tests du hachage des positions aux symétries près, de la table de
+ * transposition et du solveur qui s'en sert, sur plusieurs règles m,n,k.
+ *
+ * Usage : java -cp bin test.SearchTest
+ */
+public class SearchTest {
+    private static int failures = 0;
+    
+    public static void main(String[] args) {
+        System.out.println("=== Test de la recherche et des transpositions ===");
+        Random random = new Random(3);
+        
+        // Test 1 : le hachage ne dépend que de la position, pas de l'ordre des coups
+        System.out.println("\nTest 1: Hachage incrémental");
+        TicTacToeGame a = new TicTacToeGame();
+        TicTacToeGame b = new TicTacToeGame();
+        play(a, 0, 0, 1, 1, 2, 2, 0, 2);
+        play(b, 2, 2, 0, 2, 0, 0, 1, 1);
+        check("même position par deux chemins", a.getHash() == b.getHash());
+        long before = a.getHash();
+        a.makeMove(2, 0, 'X');
+        check("le coup change le hachage", a.getHash() != before);
+        a.undoMove(2, 0);
+        check("l'annulation le rétablit", a.getHash() == before);
+        a.reset();
+        check("réinitialisation", a.getHash() == new TicTacToeGame().getHash());
+        check("règles différentes, hachages différents",
+                new TicTacToeGame().getHash() != new TicTacToeGame(3, 3, 2).getHash());
+        
+        // Test 2 : positions symétriques, même hachage canonique
+        System.out.println("\nTest 2: Symétries");
+        for (int s = 0; s < Symmetry.MAX_COUNT; s++) {
+            int image = Symmetry.apply(s, 0, 1, 3, 3);
+            int back = Symmetry.apply(Symmetry.inverse(s), image / 3, image % 3, 3, 3);
+            check("symétrie " + s + " et sa réciproque", back == 1);
+        }
+        check("carré 3x3 : 8 symétries, rectangle 4x5 : 4",
+                Symmetry.count(3, 3) == 8 && Symmetry.count(4, 5) == 4);
+        int[][] rules = {{3, 3, 3}, {4, 5, 3}, {7, 7, 4}};
+        for (int[] rule : rules) {
+            int sameCanonical = 0;
+            int positions = 0;
+            for (int p = 0; p < 200; p++) {
+                TicTacToeGame game = randomPosition(rule, random);
+                long canonical = game.getCanonicalHash();
+                for (int s = 0; s < Symmetry.count(rule[0], rule[1]); s++) {
+                    positions++;
+                    if (transformed(game, s).getCanonicalHash() == canonical) {
+                        sameCanonical++;
+                    }
+                }
+            }
+            check(rule[0] + "x" + rule[1] + " : toutes les images ont le même hachage canonique",
+                    sameCanonical == positions);
+        }
+        TicTacToeGame corner = new TicTacToeGame();
+        corner.makeMove(0, 0, 'X');
+        TicTacToeGame edge = new TicTacToeGame();
+        edge.makeMove(0, 1, 'X');
+        check("coin et bord restent distincts", corner.getCanonicalHash() != edge.getCanonicalHash());
+        
+        // Test 3 : table de transposition
+        System.out.println("\nTest 3: Table de transposition");
+        TranspositionTable table = new TranspositionTable(10);
+        table.store(42L, -7, 5, TranspositionTable.LOWER, 4);
+        long entry = table.probe(42L);
+        check("entrée relue", entry != 0 && TranspositionTable.value(entry) == -7
+                && TranspositionTable.depth(entry) == 5 && TranspositionTable.bound(entry) == TranspositionTable.LOWER
+                && TranspositionTable.move(entry) == 4);
+        check("clé absente", table.probe(43L) == 0);
+        table.store(42L, 3, 6, TranspositionTable.EXACT, TranspositionTable.NO_MOVE);
+        entry = table.probe(42L);
+        check("mise à jour en gardant le meilleur coup", TranspositionTable.value(entry) == 3
+                && TranspositionTable.move(entry) == 4);
+        
+        // Une seule case de deux entrées : toutes les clés s'y disputent la place
+        TranspositionTable tiny = new TranspositionTable(1);
+        tiny.store(1L, 10, 8, TranspositionTable.EXACT, 0);
+        tiny.store(2L, 20, 2, TranspositionTable.EXACT, 0);
+        tiny.store(3L, 30, 1, TranspositionTable.EXACT, 0);
+        check("la recherche profonde reste en place", tiny.probe(1L) != 0);
+        check("la dernière entrée prend la seconde place", tiny.probe(3L) != 0 && tiny.probe(2L) == 0);
+        tiny.newSearch();
+        tiny.store(4L, 40, 1, TranspositionTable.EXACT, 0);
+        check("une recherche plus récente remplace l'ancienne", tiny.probe(4L) != 0 && tiny.probe(1L) == 0);
+        
+        // Test 4 : solveur sur plusieurs règles
+        System.out.println("\nTest 4: Solveur");
+        check("3x3, 3 alignés : match nul", solve(3, 3, 3) == 0);
+        check("4x4, 3 alignés : X gagne", solve(4, 4, 3) > 0);
+        check("4x4, 4 alignés : match nul", solve(4, 4, 4) == 0);
+        
+        // Le meilleur coup gagne tout de suite quand c'est possible
+        TicTacToeGame threat = new TicTacToeGame(5, 5, 4);
+        play(threat, 2, 0, 0, 0, 2, 1, 0, 4, 2, 2, 4, 4);
+        Solver solver = new Solver(new TranspositionTable(16));
+        int move = solver.bestMove(threat, 3);
+        check("coup gagnant trouvé", move == 2 * 5 + 3);
+        
+        System.out.println("\n=== " + (failures == 0 ? "Tous les tests sont réussis" : failures + " échec(s)") + " ===");
+        System.exit(failures == 0 ? 0 : 1);
+    }
+    
+    /**
+     * Résout une règle depuis la grille vide et affiche le coût de la recherche
+     */
+    private static int solve(int rows, int cols, int winLength) {
+        Solver solver = new Solver(new TranspositionTable(20));
+        long start = System.nanoTime();
+        int value = solver.solve(new TicTacToeGame(rows, cols, winLength));
+        System.out.println(rows + "x" + cols + ", " + winLength + " alignés : valeur " + value + ", "
+                + solver.getNodes() + " nœuds en " + (System.nanoTime() - start) / 1_000_000 + " ms, table remplie à "
+                + solver.getTable().usagePermill() / 10 + " %");
+        return value;
+    }
+    
+    /**
+     * Joue les coups donnés en (ligne, colonne), X puis O en alternance
+     */
+    private static void play(TicTacToeGame game, int... cells) {
+        for (int i = 0; i < cells.length; i += 2) {
+            game.makeMove(cells[i], cells[i + 1], game.getCurrentPlayer());
+        }
+    }
+    
+    private static TicTacToeGame randomPosition(int[] rule, Random random) {
+        TicTacToeGame game = new TicTacToeGame(rule[0], rule[1], rule[2]);
+        int moves = random.nextInt(rule[0] * rule[1] / 2 + 1);
+        for (int i = 0; i < moves; i++) {
+            int row = random.nextInt(rule[0]);
+            int col = random.nextInt(rule[1]);
+            if (game.makeMove(row, col, game.getCurrentPlayer()) && game.isGameWon()) {
+                // S'arrêter avant la fin : une position gagnée ne se rejoue pas dans n'importe quel ordre
+                game.undoMove(row, col);
+                break;
+            }
+        }
+        return game;
+    }
+    
+    /**
+     * Image de la position par une symétrie, rejouée coup par coup sur une nouvelle partie
+     */
+    private static TicTacToeGame transformed(TicTacToeGame game, int symmetry) {
+        int rows = game.getRows();
+        int cols = game.getCols();
+        TicTacToeGame image = new TicTacToeGame(rows, cols, game.getWinLength());
+        char[] order = {'X', 'O'};
+        // X et O en alternance : l'ordre des coups importe peu, seule la position compte
+        int[][] cells = new int[2][rows * cols];
+        int[] counts = new int[2];
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                char symbol = game.getCell(r, c);
+                if (symbol != ' ') {
+                    int p = (symbol == 'X') ? 0 : 1;
+                    cells[p][counts[p]++] = Symmetry.apply(symmetry, r, c, rows, cols);
+                }
+            }
+        }
+        for (int i = 0; i < counts[0] + counts[1]; i++) {
+            int p = i % 2;
+            int cell = cells[p][i / 2];
+            image.makeMove(cell / cols, cell % cols, order[p]);
+        }
+        return image;
+    }
+    
+    private static void check(String name, boolean condition) {
+        if (!condition) {
+            failures++;
+            System.out.println("ÉCHEC : " + name);
+        }
+    }
+}
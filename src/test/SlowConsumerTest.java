@@ -0,0 +1,250 @@
+package test;
+
+import client.BoardState;
+import common.GameMessage;
+import common.MessageCodec;
+import common.TicTacToeGame;
+import server.TicTacToeServer;
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Vérifie qu'un client qui ne lit plus ses messages ne bloque pas le serveur :
+ * sa file de sortie déborde et la politique choisie s'applique, pendant que
+ * son adversaire continue de jouer normalement.
+ *
+ * Le client lent inonde le serveur de SNAPSHOT_REQUEST sans jamais lire les réponses.
+ * Avec COALESCE, il doit finir par recevoir le dernier plateau complet, les coups
+ * intermédiaires ayant été abandonnés.
+ *
+ * Usage : java -cp bin test.SlowConsumerTest (le port 12345 doit être libre)
+ */
+public class SlowConsumerTest {
+    private static final int REQUESTS = 200_000;
+    private static final int SIZE = 19;
+    private static int failures = 0;
+    
+    public static void main(String[] args) throws Exception {
+        System.out.println("=== Test des clients lents ===");
+        
+        // Test 1 : politique DROP, l'adversaire du client lent peut toujours jouer
+        System.out.println("\nTest 1: Politique DROP");
+        TicTacToeServer server = startServer(TicTacToeServer.SlowConsumerPolicy.DROP);
+        try (Socket slow = connect(true); Socket opponent = connect(false)) {
+            DataInputStream opponentInput = new DataInputStream(new BufferedInputStream(opponent.getInputStream()));
+            OutputStream opponentOutput = new BufferedOutputStream(opponent.getOutputStream());
+            awaitType(opponentInput, GameMessage.MessageType.GAME_START);
+            
+            OutputStream slowOutput = new BufferedOutputStream(slow.getOutputStream());
+            flood(slowOutput);
+            MessageCodec.writeFrame(slowOutput, new GameMessage(GameMessage.MessageType.PLAYER_MOVE, 0, 0, 'X'));
+            
+            check("coup du client lent reçu", awaitType(opponentInput, GameMessage.MessageType.YOUR_TURN) != null);
+            long start = System.nanoTime();
+            MessageCodec.writeFrame(opponentOutput, new GameMessage(GameMessage.MessageType.PLAYER_MOVE, 1, 1, 'O'));
+            GameMessage update = awaitType(opponentInput, GameMessage.MessageType.GAME_UPDATE);
+            System.out.println("Réponse au coup de l'adversaire en " + (System.nanoTime() - start) / 1000 + " µs");
+            check("l'adversaire n'est pas bloqué", update != null && update.getRow() == 1 && update.getCol() == 1);
+            check("file pleine détectée", server.getMetrics().getSendQueueOverflows() > 0);
+        } finally {
+            server.stop();
+        }
+        // Laisser le système libérer le port d'écoute
+        Thread.sleep(1000);
+        
+        // Test 2 : politique DISCONNECT, le client lent est déconnecté
+        System.out.println("\nTest 2: Politique DISCONNECT");
+        server = startServer(TicTacToeServer.SlowConsumerPolicy.DISCONNECT);
+        try (Socket slow = connect(true); Socket opponent = connect(false)) {
+            DataInputStream opponentInput = new DataInputStream(new BufferedInputStream(opponent.getInputStream()));
+            awaitType(opponentInput, GameMessage.MessageType.GAME_START);
+            
+            flood(new BufferedOutputStream(slow.getOutputStream()));
+            
+            GameMessage over = awaitType(opponentInput, GameMessage.MessageType.GAME_OVER);
+            check("adversaire prévenu", over != null && "L'adversaire s'est déconnecté".equals(over.getContent()));
+        } finally {
+            server.stop();
+        }
+        
+        // Laisser le système libérer le port d'écoute
+        Thread.sleep(1000);
+        
+        // Test 3 : politique COALESCE, le client lent ne reçoit que le dernier état
+        System.out.println("\nTest 3: Politique COALESCE");
+        server = startServer(TicTacToeServer.SlowConsumerPolicy.COALESCE);
+        try (Socket slow = connect(true); Socket opponent = connectOpponent(slow)) {
+            DataInputStream opponentInput = new DataInputStream(new BufferedInputStream(opponent.getInputStream()));
+            OutputStream opponentOutput = new BufferedOutputStream(opponent.getOutputStream());
+            awaitType(opponentInput, GameMessage.MessageType.GAME_START);
+            
+            // Huit coups sans vainqueur : la partie reste en cours
+            int[][] moves = {{0, 0}, {1, 1}, {2, 2}, {0, 2}, {2, 0}, {1, 0}, {1, 2}, {2, 1}};
+            TicTacToeGame expected = new TicTacToeGame(SIZE, SIZE, 5);
+            // Le client lent envoie ses coups au milieu de rafales continues :
+            // sa file reste pleine et chaque coup y est remplacé par l'état courant
+            OutputStream slowOutput = new BufferedOutputStream(slow.getOutputStream());
+            // Première rafale : les tampons du noyau sont pleins, le serveur ne peut plus rien écrire
+            flood(slowOutput);
+            AtomicBoolean flooding = new AtomicBoolean(true);
+            Thread flooder = new Thread(() -> {
+                while (flooding.get()) {
+                    synchronized (slowOutput) {
+                        flood(slowOutput, REQUESTS / 100);
+                    }
+                }
+            }, "rafales");
+            flooder.setDaemon(true);
+            flooder.start();
+            
+            long slowest = 0;
+            boolean opponentAnswered = true;
+            for (int i = 0; i < moves.length; i += 2) {
+                synchronized (slowOutput) {
+                    MessageCodec.writeFrame(slowOutput, new GameMessage(GameMessage.MessageType.PLAYER_MOVE, moves[i][0], moves[i][1], 'X'));
+                }
+                expected.makeMove(moves[i][0], moves[i][1], 'X');
+                opponentAnswered &= awaitType(opponentInput, GameMessage.MessageType.YOUR_TURN) != null;
+                
+                long start = System.nanoTime();
+                MessageCodec.writeFrame(opponentOutput, new GameMessage(GameMessage.MessageType.PLAYER_MOVE, moves[i + 1][0], moves[i + 1][1], 'O'));
+                opponentAnswered &= awaitType(opponentInput, GameMessage.MessageType.GAME_UPDATE) != null;
+                slowest = Math.max(slowest, System.nanoTime() - start);
+                expected.makeMove(moves[i + 1][0], moves[i + 1][1], 'O');
+            }
+            flooding.set(false);
+            flooder.join();
+            System.out.println("Réponse la plus lente à l'adversaire : " + slowest / 1000 + " µs");
+            check("l'adversaire n'est pas bloqué", opponentAnswered && slowest < 1_000_000_000L);
+            check("file pleine détectée", server.getMetrics().getSendQueueOverflows() > 0);
+            
+            // Le client lent lit enfin tout ce qui lui est parvenu, comme le ferait TicTacToeClient
+            slow.setSoTimeout(2000);
+            DataInputStream slowInput = new DataInputStream(new BufferedInputStream(slow.getInputStream()));
+            BoardState state = new BoardState(SIZE, SIZE);
+            GameMessage latestStart = null;
+            boolean synchronised = true;
+            int deltas = 0;
+            try {
+                while (true) {
+                    GameMessage message = MessageCodec.readFrame(slowInput);
+                    if (message.getType() == GameMessage.MessageType.GAME_START) {
+                        state.reset(message.getBoard());
+                        latestStart = message;
+                        synchronised = true;
+                    } else if (message.getType() == GameMessage.MessageType.GAME_UPDATE) {
+                        if (message.getBoard() == null) {
+                            deltas++;
+                        }
+                        synchronised &= state.apply(message);
+                    }
+                }
+            } catch (SocketTimeoutException | EOFException e) {
+                // Plus rien à lire
+            }
+            check("état complet reçu", latestStart != null && latestStart.getSequence() > 0);
+            check("somme de contrôle de l'état valide", latestStart != null
+                    && latestStart.getChecksum() == checksum(latestStart.getBoard()));
+            check("dernier plateau reçu", synchronised && Arrays.deepEquals(state.getBoard(), expected.getBoard()));
+            System.out.println("Coups reçus un par un : " + deltas + " sur " + moves.length);
+            check("coups intermédiaires abandonnés", deltas < moves.length);
+        } finally {
+            server.stop();
+        }
+        
+        System.out.println("\n=== " + (failures == 0 ? "Tous les tests sont réussis" : failures + " échec(s)") + " ===");
+        System.exit(failures == 0 ? 0 : 1);
+    }
+    
+    private static TicTacToeServer startServer(TicTacToeServer.SlowConsumerPolicy policy) throws InterruptedException {
+        TicTacToeServer server = new TicTacToeServer();
+        // Grand plateau : chaque instantané est lourd et les tampons du noyau saturent vite
+        server.setBoard(SIZE, SIZE, 5);
+        server.setSlowConsumerPolicy(policy);
+        server.setSendQueueBytes(4 * 1024);
+        Thread thread = new Thread(server::start, "serveur");
+        thread.setDaemon(true);
+        thread.start();
+        Thread.sleep(300);
+        return server;
+    }
+    
+    private static Socket connect(boolean smallReceiveBuffer) throws IOException {
+        Socket socket = new Socket();
+        if (smallReceiveBuffer) {
+            // Le noyau absorbe moins de réponses : la file du serveur se remplit plus vite
+            socket.setReceiveBufferSize(4 * 1024);
+        }
+        socket.setTcpNoDelay(true);
+        socket.setSoTimeout(10000);
+        socket.connect(new InetSocketAddress("localhost", 12345), 5000);
+        MessageCodec.writeFrame(socket.getOutputStream(), MessageCodec.hello());
+        return socket;
+    }
+    
+    /**
+     * Connecte l'adversaire une fois le premier client installé dans sa salle :
+     * celui-ci joue donc X
+     */
+    private static Socket connectOpponent(Socket first) throws IOException {
+        // Lecture sans tampon : aucun octet suivant n'est consommé
+        awaitType(new DataInputStream(first.getInputStream()), GameMessage.MessageType.WAITING_PLAYER);
+        return connect(false);
+    }
+    
+    /**
+     * Demandes d'instantané en rafale, sans jamais lire les réponses
+     */
+    private static void flood(OutputStream output) {
+        flood(output, REQUESTS);
+    }
+    
+    private static void flood(OutputStream output, int requests) {
+        byte[] request;
+        try {
+            request = MessageCodec.encode(new GameMessage(GameMessage.MessageType.SNAPSHOT_REQUEST));
+            for (int i = 0; i < requests; i++) {
+                output.write(request);
+            }
+            output.flush();
+        } catch (IOException e) {
+            // Le serveur a fermé la connexion
+        }
+    }
+    
+    private static GameMessage awaitType(DataInputStream input, GameMessage.MessageType type) throws IOException {
+        try {
+            while (true) {
+                GameMessage message = MessageCodec.readFrame(input);
+                if (message.getType() == type) {
+                    return message;
+                }
+            }
+        } catch (SocketTimeoutException | EOFException e) {
+            return null;
+        }
+    }
+    
+    private static int checksum(char[][] board) {
+        int sum = 0;
+        for (int i = 0; i < board.length; i++) {
+            for (int j = 0; j < board[i].length; j++) {
+                if (board[i][j] == 'X' || board[i][j] == 'O') {
+                    sum += TicTacToeGame.cellChecksum(i, j, board[i][j]);
+                }
+            }
+        }
+        return sum & 0xFFFF;
+    }
+    
+    private static void check(String name, boolean condition) {
+        if (!condition) {
+            failures++;
+            System.out.println("ÉCHEC : " + name);
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package test;
+
+import client.BoardState;
+import common.GameMessage;
+import common.MessageCodec;
+import common.MessageWriter;
+import server.TicTacToeServer;
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+/**
+ * Test d'endurance : une seule paire de connexions enchaîne les parties
+ * (demande NEW_GAME après chaque fin de partie) jusqu'à un million de coups,
+ * avec un serveur dans la même JVM. Le tas occupé après ramasse-miettes doit
+ * rester stable : ni le serveur ni les clients ne retiennent les messages envoyés.
+ *
+ * Usage : java -cp bin test.SoakTest [coups] [--transport=blocking|nio] (le port 12345 doit être libre)
+ */
+public class SoakTest {
+    private static final int[][] DRAW_MOVES = {
+        {0, 0}, {1, 1}, {0, 1}, {0, 2}, {2, 0}, {1, 0}, {1, 2}, {2, 1}, {2, 2}
+    };
+    // Croissance tolérée du tas entre le début et la fin de l'essai
+    private static final long MAX_HEAP_GROWTH = 8L * 1024 * 1024;
+    
+    public static void main(String[] args) throws Exception {
+        long targetMoves = 1_000_000;
+        TicTacToeServer.TransportMode mode = TicTacToeServer.TransportMode.BLOCKING;
+        for (String arg : args) {
+            if (arg.startsWith("--transport=")) {
+                mode = TicTacToeServer.TransportMode.valueOf(arg.substring("--transport=".length()).toUpperCase());
+            } else {
+                targetMoves = Long.parseLong(arg);
+            }
+        }
+        
+        System.out.println("=== Test d'endurance : " + targetMoves + " coups sur une connexion ===");
+        PrintStream console = System.out;
+        TicTacToeServer server = new TicTacToeServer(mode, TicTacToeServer.ThreadMode.PLATFORM, 1);
+        Thread serverThread = new Thread(server::start, "serveur");
+        serverThread.setDaemon(true);
+        // Les traces du serveur (une par partie) ne doivent pas fausser la mesure
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+        }));
+        serverThread.start();
+        Thread.sleep(300);
+        
+        int failures = 0;
+        try {
+            Player x = new Player();
+            x.expect(GameMessage.MessageType.HELLO_ACK);
+            x.expect(GameMessage.MessageType.PLAYER_CONNECTED);
+            x.expect(GameMessage.MessageType.WAITING_PLAYER);
+            Player o = new Player();
+            o.expect(GameMessage.MessageType.HELLO_ACK);
+            o.expect(GameMessage.MessageType.PLAYER_CONNECTED);
+            awaitStart(x, o);
+            
+            long baselineHeap = 0;
+            long moves = 0;
+            long games = 0;
+            long checkpoint = Math.max(1, targetMoves / 10);
+            long start = System.nanoTime();
+            while (moves < targetMoves) {
+                playGame(x, o);
+                moves += DRAW_MOVES.length;
+                games++;
+                
+                if (moves / checkpoint != (moves - DRAW_MOVES.length) / checkpoint) {
+                    long heap = usedHeapAfterGc();
+                    if (baselineHeap == 0) {
+                        // Premier point de mesure, une fois le JIT et les tampons en régime
+                        baselineHeap = heap;
+                    }
+                    long elapsedMs = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+                    console.println(moves + " coups, " + games + " parties, " + (moves * 1000 / elapsedMs)
+                            + " coups/s, tas occupé " + heap / 1024 + " Ko");
+                }
+                
+                // Nouvelle partie sans reconnexion
+                x.send(new GameMessage(GameMessage.MessageType.NEW_GAME));
+                x.expect(GameMessage.MessageType.WAITING_PLAYER);
+                o.send(new GameMessage(GameMessage.MessageType.NEW_GAME));
+                awaitStart(x, o);
+            }
+            
+            long finalHeap = usedHeapAfterGc();
+            console.println("Tas : " + baselineHeap / 1024 + " Ko au premier point, " + finalHeap / 1024 + " Ko à la fin");
+            console.println("Tampon d'écriture des clients : " + x.writer.getBufferCapacity() + " octets");
+            if (finalHeap - baselineHeap > MAX_HEAP_GROWTH) {
+                console.println("ÉCHEC : le tas a grandi de " + (finalHeap - baselineHeap) / 1024 + " Ko");
+                failures++;
+            }
+            x.close();
+            o.close();
+        } catch (IOException e) {
+            console.println("ÉCHEC : " + e.getMessage());
+            failures++;
+        } finally {
+            server.stop();
+            System.setOut(console);
+        }
+        
+        System.out.println("\n=== " + (failures == 0 ? "Tous les tests sont réussis" : failures + " échec(s)") + " ===");
+        System.exit(failures == 0 ? 0 : 1);
+    }
+    
+    private static void awaitStart(Player x, Player o) throws IOException {
+        x.board.reset(x.expect(GameMessage.MessageType.GAME_START).getBoard());
+        x.expect(GameMessage.MessageType.YOUR_TURN);
+        o.board.reset(o.expect(GameMessage.MessageType.GAME_START).getBoard());
+        o.expect(GameMessage.MessageType.OPPONENT_TURN);
+    }
+    
+    /**
+     * Joue une partie nulle en vérifiant l'ordre exact des messages reçus
+     */
+    private static void playGame(Player x, Player o) throws IOException {
+        for (int m = 0; m < DRAW_MOVES.length; m++) {
+            Player mover = (m % 2 == 0) ? x : o;
+            Player waiting = (mover == x) ? o : x;
+            mover.send(new GameMessage(GameMessage.MessageType.PLAYER_MOVE,
+                    DRAW_MOVES[m][0], DRAW_MOVES[m][1], (m % 2 == 0) ? 'X' : 'O'));
+            x.expectUpdate();
+            o.expectUpdate();
+            if (m == DRAW_MOVES.length - 1) {
+                x.expect(GameMessage.MessageType.GAME_OVER);
+                o.expect(GameMessage.MessageType.GAME_OVER);
+            } else {
+                waiting.expect(GameMessage.MessageType.YOUR_TURN);
+                mover.expect(GameMessage.MessageType.OPPONENT_TURN);
+            }
+        }
+    }
+    
+    private static long usedHeapAfterGc() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+    
+    /**
+     * Joueur sans interface : un socket, un MessageWriter et une copie du plateau
+     */
+    private static class Player {
+        private final Socket socket;
+        private final DataInputStream input;
+        private final MessageWriter writer;
+        private final BoardState board = new BoardState(3, 3);
+        
+        Player() throws IOException {
+            socket = new Socket();
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout(10000);
+            socket.connect(new InetSocketAddress("localhost", 12345), 5000);
+            input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            writer = new MessageWriter(new BufferedOutputStream(socket.getOutputStream()));
+            writer.send(MessageCodec.hello());
+        }
+        
+        void send(GameMessage message) throws IOException {
+            writer.send(message);
+        }
+        
+        GameMessage expect(GameMessage.MessageType type) throws IOException {
+            GameMessage message = MessageCodec.readFrame(input);
+            if (message.getType() != type) {
+                throw new IOException("Attendu " + type + ", reçu " + message.getType() + " " + message.getContent());
+            }
+            return message;
+        }
+        
+        void expectUpdate() throws IOException {
+            if (!board.apply(expect(GameMessage.MessageType.GAME_UPDATE))) {
+                throw new IOException("Plateau désynchronisé");
+            }
+        }
+        
+        void close() throws IOException {
+            socket.close();
+        }
+    }
+}
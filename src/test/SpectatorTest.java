@@ -0,0 +1,303 @@
+package test;
+
+import client.BoardState;
+import common.GameMessage;
+import common.MessageCodec;
+import server.ServerMetrics;
+import server.TicTacToeServer;
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Vérifie le mode spectateur : instantané à l'arrivée, réception de chaque
+ * coup dans l'ordre par des centaines de spectateurs, latence des joueurs
+ * inchangée, et rattrapage d'un spectateur qui ne lit plus sans ralentir
+ * personne.
+ *
+ * Usage : java -cp bin test.SpectatorTest [spectateurs] (le port 12345 doit être libre)
+ */
+public class SpectatorTest {
+    // Partie nulle en 9 coups sur le plateau 3x3
+    private static final int[][] DRAW = {{0, 0}, {1, 1}, {2, 2}, {0, 2}, {2, 0}, {1, 0}, {1, 2}, {2, 1}, {0, 1}};
+    private static final int GAMES = 20;
+    private static int failures = 0;
+    
+    public static void main(String[] args) throws Exception {
+        int spectatorCount = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        System.out.println("=== Test du mode spectateur ===");
+        
+        TicTacToeServer server = new TicTacToeServer();
+        server.setSendQueueBytes(4096);
+        Thread serverThread = new Thread(server::start, "serveur");
+        serverThread.setDaemon(true);
+        serverThread.start();
+        Thread.sleep(300);
+        
+        List<Spectator> spectators = new ArrayList<>();
+        try {
+            Player[] players = {new Player(), new Player()};
+            for (Player player : players) {
+                player.awaitStart();
+            }
+            
+            // Test 1 : instantané de la partie en cours
+            System.out.println("\nTest 1: Arrivée en cours de partie");
+            play(players, 0);
+            play(players, 1);
+            Spectator late = new Spectator(MessageCodec.spectate(0), 65536);
+            GameMessage connected = late.await(GameMessage.MessageType.PLAYER_CONNECTED);
+            check("symbole de spectateur", connected.getPlayerSymbol() == MessageCodec.SPECTATOR);
+            check("partie la plus suivie : salle 1", "Vous suivez la salle 1".equals(connected.getContent()));
+            char[][] snapshot = late.await(GameMessage.MessageType.GAME_START).getBoard();
+            check("instantané du plateau", snapshot[0][0] == 'X' && snapshot[1][1] == 'O' && snapshot[2][2] == ' ');
+            
+            // Test 2 : un spectateur ne joue pas
+            System.out.println("\nTest 2: Coup d'un spectateur refusé");
+            late.send(new GameMessage(GameMessage.MessageType.PLAYER_MOVE, 2, 2, 'X'));
+            check("coup refusé", late.await(GameMessage.MessageType.INVALID_MOVE) != null);
+            Spectator lost = new Spectator(MessageCodec.spectate(999), 65536);
+            GameMessage noRoom = lost.await(GameMessage.MessageType.GAME_OVER);
+            check("salle inconnue", "Aucune partie à suivre".equals(noRoom.getContent()));
+            lost.close();
+            late.close();
+            for (int move = 2; move < DRAW.length; move++) {
+                play(players, move);
+            }
+            newGame(players);
+            
+            // Test 3 : latence des joueurs sans puis avec spectateurs
+            System.out.println("\nTest 3: " + spectatorCount + " spectateurs sur " + GAMES + " parties");
+            long[] alone = playGames(players, GAMES);
+            for (int i = 0; i < spectatorCount; i++) {
+                Spectator spectator = new Spectator(MessageCodec.spectate(1), 65536);
+                spectator.await(GameMessage.MessageType.GAME_START);
+                spectator.follow();
+                spectators.add(spectator);
+            }
+            long[] watched = playGames(players, GAMES);
+            print("sans spectateur", alone);
+            print("avec " + spectatorCount + " spectateurs", watched);
+            
+            long deadline = System.currentTimeMillis() + 10000;
+            while (!allFinished(spectators, GAMES) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            check("chaque spectateur voit toutes les parties", allFinished(spectators, GAMES));
+            int incomplete = 0;
+            int desynced = 0;
+            for (Spectator spectator : spectators) {
+                incomplete += (spectator.updates.get() == GAMES * DRAW.length) ? 0 : 1;
+                desynced += spectator.desyncs.get();
+            }
+            check("chaque spectateur voit tous les coups", incomplete == 0);
+            check("coups reçus dans l'ordre", desynced == 0);
+            check("latence médiane des joueurs peu affectée",
+                    watched[watched.length / 2] < Math.max(2_000_000L, 4 * alone[alone.length / 2]));
+            
+            // Test 4 : spectateur qui ne lit plus
+            System.out.println("\nTest 4: Spectateur figé");
+            ServerMetrics metrics = server.getMetrics();
+            Spectator stalled = new Spectator(MessageCodec.spectate(1), 4096);
+            int games = 0;
+            while (metrics.getSpectatorResyncs() == 0 && games < 5000) {
+                playGames(players, 1);
+                games++;
+            }
+            System.out.println("Rattrapage après " + games + " parties");
+            check("spectateur figé rattrapé", metrics.getSpectatorResyncs() > 0);
+            check("joueurs toujours connectés", metrics.getActiveConnections() == 2 + spectatorCount + 1);
+            // Trois coups d'une dernière partie, puis le spectateur reprend sa lecture
+            for (int move = 0; move < 3; move++) {
+                play(players, move);
+            }
+            stalled.follow();
+            deadline = System.currentTimeMillis() + 10000;
+            boolean settled = false;
+            while (!settled && System.currentTimeMillis() < deadline) {
+                settled = stalled.settledAt(3);
+            }
+            check("spectateur figé revenu à l'état courant", settled);
+            check("aucun état incohérent après rattrapage", stalled.desyncs.get() == 0);
+            System.out.println("Statistiques: " + metrics.summary());
+        } finally {
+            server.stop();
+        }
+        
+        System.out.println("\n=== " + (failures == 0 ? "Tous les tests sont réussis" : failures + " échec(s)") + " ===");
+        System.exit(failures == 0 ? 0 : 1);
+    }
+    
+    /**
+     * Joue des parties nulles complètes ; retourne la latence de chaque coup, triée
+     */
+    private static long[] playGames(Player[] players, int games) throws IOException {
+        long[] latencies = new long[games * DRAW.length];
+        for (int game = 0; game < games; game++) {
+            for (int move = 0; move < DRAW.length; move++) {
+                latencies[game * DRAW.length + move] = play(players, move);
+            }
+            newGame(players);
+        }
+        Arrays.sort(latencies);
+        return latencies;
+    }
+    
+    /**
+     * Joue le coup numéro move de la partie nulle ; retourne la latence vue par son auteur
+     */
+    private static long play(Player[] players, int move) throws IOException {
+        char symbol = (move % 2 == 0) ? 'X' : 'O';
+        Player mover = (players[0].symbol == symbol) ? players[0] : players[1];
+        Player other = (mover == players[0]) ? players[1] : players[0];
+        long start = System.nanoTime();
+        mover.send(new GameMessage(GameMessage.MessageType.PLAYER_MOVE, DRAW[move][0], DRAW[move][1], symbol));
+        mover.await(GameMessage.MessageType.GAME_UPDATE);
+        long latency = System.nanoTime() - start;
+        other.await(GameMessage.MessageType.GAME_UPDATE);
+        return latency;
+    }
+    
+    private static void newGame(Player[] players) throws IOException {
+        for (Player player : players) {
+            player.await(GameMessage.MessageType.GAME_OVER);
+            player.send(new GameMessage(GameMessage.MessageType.NEW_GAME));
+        }
+        for (Player player : players) {
+            player.awaitStart();
+        }
+    }
+    
+    private static boolean allFinished(List<Spectator> spectators, int games) {
+        for (Spectator spectator : spectators) {
+            if (spectator.gamesOver.get() < games) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static Socket connect(GameMessage hello, int receiveBuffer) throws IOException {
+        Socket socket = new Socket();
+        socket.setReceiveBufferSize(receiveBuffer);
+        socket.setSoTimeout(10000);
+        socket.setTcpNoDelay(true);
+        socket.connect(new InetSocketAddress("localhost", 12345), 5000);
+        MessageCodec.writeFrame(socket.getOutputStream(), hello);
+        return socket;
+    }
+    
+    private static class Connection {
+        final Socket socket;
+        final DataInputStream input;
+        
+        Connection(GameMessage hello, int receiveBuffer) throws IOException {
+            socket = connect(hello, receiveBuffer);
+            input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        }
+        
+        void send(GameMessage message) throws IOException {
+            MessageCodec.writeFrame(socket.getOutputStream(), message);
+        }
+        
+        GameMessage await(GameMessage.MessageType type) throws IOException {
+            while (true) {
+                GameMessage message = MessageCodec.readFrame(input);
+                if (message.getType() == type) {
+                    return message;
+                }
+            }
+        }
+    }
+    
+    private static class Player extends Connection {
+        final char symbol;
+        
+        Player() throws IOException {
+            super(MessageCodec.hello(), 65536);
+            symbol = await(GameMessage.MessageType.PLAYER_CONNECTED).getPlayerSymbol();
+        }
+        
+        void awaitStart() throws IOException {
+            await(GameMessage.MessageType.GAME_START);
+        }
+    }
+    
+    /**
+     * Spectateur qui reconstruit le plateau à partir des messages reçus, dans un thread à part
+     */
+    private static class Spectator extends Connection {
+        final BoardState state = new BoardState(3, 3);
+        final AtomicInteger updates = new AtomicInteger();
+        final AtomicInteger gamesOver = new AtomicInteger();
+        final AtomicInteger desyncs = new AtomicInteger();
+        final AtomicInteger received = new AtomicInteger();
+        volatile int moves;
+        
+        Spectator(GameMessage hello, int receiveBuffer) throws IOException {
+            super(hello, receiveBuffer);
+        }
+        
+        void follow() {
+            Thread thread = new Thread(() -> {
+                try {
+                    while (true) {
+                        GameMessage message = MessageCodec.readFrame(input);
+                        switch (message.getType()) {
+                            case GAME_START:
+                                state.reset(message.getBoard());
+                                break;
+                            case GAME_UPDATE:
+                                updates.incrementAndGet();
+                                if (!state.apply(message)) {
+                                    desyncs.incrementAndGet();
+                                }
+                                break;
+                            case GAME_OVER:
+                                gamesOver.incrementAndGet();
+                                break;
+                            default:
+                                break;
+                        }
+                        moves = state.getSequence();
+                        received.incrementAndGet();
+                    }
+                } catch (IOException e) {
+                    // Serveur arrêté
+                }
+            }, "spectateur");
+            thread.setDaemon(true);
+            thread.start();
+        }
+        
+        /**
+         * Le spectateur a tout lu et son plateau compte moves coups
+         */
+        boolean settledAt(int count) throws InterruptedException {
+            int before = received.get();
+            Thread.sleep(300);
+            return moves == count && received.get() == before;
+        }
+        
+        void close() throws IOException {
+            socket.close();
+        }
+    }
+    
+    private static void print(String label, long[] latencies) {
+        System.out.println("Latence des coups " + label + " (µs) : p50=" + latencies[latencies.length / 2] / 1000
+                + " p99=" + latencies[latencies.length * 99 / 100] / 1000
+                + " max=" + latencies[latencies.length - 1] / 1000);
+    }
+    
+    private static void check(String name, boolean condition) {
+        if (!condition) {
+            failures++;
+            System.out.println("ÉCHEC : " + name);
+        }
+    }
+}